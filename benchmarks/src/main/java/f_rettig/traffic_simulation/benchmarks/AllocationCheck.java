@@ -0,0 +1,96 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class AllocationCheck: Guards the allocation-free tick. Runs a grid scenario, the
+ * default layout (where cars keep leaving and respawning) and the default layout with a
+ * TrafficDemand (where vehicles arrive into pooled slots) sequentially, warms them up
+ * until the JIT has settled and then counts the bytes the simulation thread allocates
+ * over 10,000 ticks with com.sun.management.ThreadMXBean. Exits with status 1 if a
+ * scenario allocated anything, so a build or CI step can run it after the benchmarks:
+ *
+ * java -cp benchmarks/target/benchmarks.jar application.AllocationCheck
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import java.lang.management.ManagementFactory;
+
+import com.sun.management.ThreadMXBean;
+
+public final class AllocationCheck {
+
+	private static final int WARM_UP_TICKS = 20_000;
+	private static final int MEASURED_TICKS = 10_000;
+
+
+	private AllocationCheck() {
+	}
+
+
+	public static void main(String[] args) {
+		ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+		if (!threads.isThreadAllocatedMemorySupported()) {
+			System.out.println("Thread allocation counting is not supported by this JVM");
+			System.exit(2);
+		}
+
+		threads.setThreadAllocatedMemoryEnabled(true);
+
+		boolean isClean = check(threads, "grid 10x10, 10000 cars", BenchmarkScenario.buildGrid(10_000, 10));
+		isClean &= check(threads, "default layout, 200 cars", buildDefault(200));
+		isClean &= check(threads, "default layout, demand 600/h", buildDemand(600));
+
+		System.exit(isClean ? 0 : 1);
+	}
+
+
+	private static SimulationEngine buildDefault(int carCount) {
+		SimulationEngine engine = new SimulationEngine(BenchmarkScenario.SEED);
+		engine.createDefaultScenario();
+
+		for (int i = 0; i < carCount; i++) {
+			engine.spawnRandomCar();
+		}
+
+		engine.start();
+
+		return engine;
+	}
+
+
+	private static SimulationEngine buildDemand(double vehiclesPerHour) {
+		SimulationEngine engine = new SimulationEngine(BenchmarkScenario.SEED);
+		engine.createDefaultScenario();
+		engine.setDemand(new TrafficDemand(vehiclesPerHour));
+		engine.start();
+
+		return engine;
+	}
+
+
+	// Prints the bytes allocated over MEASURED_TICKS, true if there were none
+	private static boolean check(ThreadMXBean threads, String name, SimulationEngine engine) {
+		for (int i = 0; i < WARM_UP_TICKS; i++) {
+			engine.tick();
+		}
+
+		long before = threads.getCurrentThreadAllocatedBytes();
+
+		for (int i = 0; i < MEASURED_TICKS; i++) {
+			engine.tick();
+		}
+
+		long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+		engine.shutdown();
+
+		System.out.println(name + ": " + allocated + " bytes in " + MEASURED_TICKS + " ticks"
+				+ (allocated == 0 ? "" : "  FAILED"));
+
+		return allocated == 0;
+	}
+}
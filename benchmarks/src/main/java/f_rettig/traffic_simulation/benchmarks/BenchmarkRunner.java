@@ -0,0 +1,35 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class BenchmarkRunner: Main class of benchmarks.jar. Accepts the usual JMH command
+ * line options and always adds the GC profiler (the same as -prof gc), so allocation
+ * rates per operation are reported next to every timing.
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+public final class BenchmarkRunner {
+
+	private BenchmarkRunner() {
+	}
+
+
+	public static void main(String[] args) throws Exception {
+		Options options = new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.addProfiler(GCProfiler.class)
+				.build();
+
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,66 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class BenchmarkScenario: Builds headless SimulationEngines of a given size for the
+ * JMH benchmarks. A scenario is Main Road with the requested number of side roads
+ * (one intersection each) and the requested number of cars, warmed up so the cars
+ * are spread over every CarState before measuring starts. Grid scenarios use a
+ * GridBuilder network instead. Scenarios use a fixed seed, so every build measures
+ * exactly the same traffic.
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+public final class BenchmarkScenario {
+
+	// Simulated seconds run before measuring so queues and light phases are mixed
+	private static final double WARM_UP_SECONDS = 5.0;
+
+	public static final long SEED = 335L;
+
+
+	private BenchmarkScenario() {
+	}
+
+
+	public static SimulationEngine build(int carCount, int intersectionCount) {
+		SimulationEngine engine = new SimulationEngine(SEED);
+		engine.getVehicles().ensureCapacity(carCount);
+
+		engine.createMainRoad();
+
+		for (int i = 0; i < intersectionCount; i++) {
+			engine.addRoad("Side Road " + (i + 1));
+			engine.extendMainRoad();
+		}
+
+		return warmUp(engine, carCount);
+	}
+
+
+	// Square grid of gridSize x gridSize intersections, 100 units apart
+	public static SimulationEngine buildGrid(int carCount, int gridSize) {
+		SimulationEngine engine = new SimulationEngine(SEED);
+		engine.getVehicles().ensureCapacity(carCount);
+
+		GridBuilder.build(engine, gridSize, gridSize, SimulationEngine.ROAD_SPACING);
+
+		return warmUp(engine, carCount);
+	}
+
+
+	private static SimulationEngine warmUp(SimulationEngine engine, int carCount) {
+		for (int i = 0; i < carCount; i++) {
+			engine.spawnRandomCar();
+		}
+
+		engine.start();
+		engine.runFor(WARM_UP_SECONDS);
+
+		return engine;
+	}
+}
@@ -0,0 +1,165 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class CarBenchmark: Measures Car.update and Car.move for a batch of cars
+ * that all start in the same CarState, just before the stop line of an intersection.
+ * The batch mixes LEFT, RIGHT and STRAIGHT as next direction.
+ *
+ * Both methods change the car's state, so every invocation first restores the batch
+ * from a saved copy of its columns. The restore is a handful of array copies and is
+ * the same for every state, so the scores can still be compared against each other.
+ * Scores are per car.
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import application.Car.CarState;
+import application.Car.Direction;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CarBenchmark {
+
+	private static final int BATCH = 1024;
+
+	// CarState name (the enum is package-private, so JMH gets it as a String)
+	@Param({"MOVING", "APPROACHING", "REASONING", "BRAKING", "STOPPED", "TURNING", "CONTINUING"})
+	private String carStateName;
+
+	private SimulationEngine engine;
+	private VehicleStore vehicles;
+	private Intersection intersection;
+	private Car car;
+	private TickPartition partition;
+
+	// Saved columns of the batch, restored before every invocation
+	private double[] x;
+	private double[] speed;
+	private byte[] state;
+	private byte[] direction;
+	private byte[] nextDirection;
+	private int[] road;
+	private int[] edge;
+	private int[] currentIntersection;
+	private int[] nextIntersection;
+	private double[] turnProgress;
+	private double[] waitStartTime;
+
+
+	@Setup
+	public void setUp() {
+		CarState carState = CarState.valueOf(carStateName);
+
+		engine = new SimulationEngine(BenchmarkScenario.SEED);
+		engine.createMainRoad();
+		engine.addRoad("1st St.");
+		intersection = engine.getIntersections().get(0);
+
+		// Cars heading East, spread over the last few units before the intersection
+		for (int i = 0; i < BATCH; i++) {
+			Car handle = engine.spawnRandomCar();
+			double offset = (i % 64) / 64.0;
+
+			handle.setCarDirection(Direction.EAST);
+			handle.setCurrentRoad(0);
+
+			if (carState == CarState.TURNING || carState == CarState.CONTINUING) {
+				handle.setPosition(intersection.getPosition().getX() - 1 + offset, 0);
+			} else {
+				handle.setPosition(intersection.getPosition().getX() - 10 + offset * 5, 0);
+			}
+
+			handle.locateEdge();
+			handle.setCurrentIntersection(carState == CarState.MOVING ? null : intersection);
+			handle.setStopTarget(intersection);
+			handle.setCarState(carState);
+			handle.setSpeed(carState == CarState.STOPPED ? 0 : 15);
+			vehicles = engine.getVehicles();
+			vehicles.nextDirection[handle.getId()] = carState == CarState.MOVING || carState == CarState.APPROACHING
+					? VehicleStore.NONE
+							: (byte) (i % 3);
+		}
+
+		x = vehicles.x.clone();
+		speed = vehicles.speed.clone();
+		state = vehicles.state.clone();
+		direction = vehicles.direction.clone();
+		nextDirection = vehicles.nextDirection.clone();
+		road = vehicles.road.clone();
+		edge = vehicles.edge.clone();
+		currentIntersection = vehicles.intersection.clone();
+		nextIntersection = vehicles.nextIntersection.clone();
+		turnProgress = vehicles.turnProgress.clone();
+		waitStartTime = vehicles.waitStartTime.clone();
+
+		// Tick context as the engine would set it up
+		LightSnapshot lights = new LightSnapshot();
+		lights.capture(engine.getIntersections());
+		car = new Car(vehicles, engine.getNetwork(), engine.getIntersections());
+		partition = new TickPartition(car);
+		LaneIndex lanes = new LaneIndex();
+		lanes.rebuild(vehicles, engine.getRoads().size());
+		car.setTickContext(lights, lanes, partition, engine.getClock());
+	}
+
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public void update() {
+		restore();
+
+		for (int i = 0; i < BATCH; i++) {
+			car.bind(i).update(SimulationEngine.DEFAULT_TIMESTEP);
+		}
+	}
+
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public void move() {
+		restore();
+
+		for (int i = 0; i < BATCH; i++) {
+			car.bind(i).move(SimulationEngine.DEFAULT_TIMESTEP);
+		}
+	}
+
+
+	private void restore() {
+		System.arraycopy(x, 0, vehicles.x, 0, BATCH);
+		System.arraycopy(speed, 0, vehicles.speed, 0, BATCH);
+		System.arraycopy(state, 0, vehicles.state, 0, BATCH);
+		System.arraycopy(direction, 0, vehicles.direction, 0, BATCH);
+		System.arraycopy(nextDirection, 0, vehicles.nextDirection, 0, BATCH);
+		System.arraycopy(road, 0, vehicles.road, 0, BATCH);
+		System.arraycopy(edge, 0, vehicles.edge, 0, BATCH);
+		System.arraycopy(currentIntersection, 0, vehicles.intersection, 0, BATCH);
+		System.arraycopy(nextIntersection, 0, vehicles.nextIntersection, 0, BATCH);
+		System.arraycopy(turnProgress, 0, vehicles.turnProgress, 0, BATCH);
+		System.arraycopy(waitStartTime, 0, vehicles.waitStartTime, 0, BATCH);
+		partition.reset(0, BATCH);
+	}
+}
@@ -0,0 +1,69 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class GridTickBenchmark: Measures one full simulation tick on a square grid network
+ * (GridBuilder), up to 100 x 100 = 10,000 intersections, to show how the tick scales
+ * with the size of the road network rather than with the number of cars.
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class GridTickBenchmark {
+
+	@Param({"10000", "100000"})
+	private int carCount;
+
+	// Intersections per side of the grid
+	@Param({"10", "32", "100"})
+	private int gridSize;
+
+	// Threads for the car update, e.g. -p parallelism=16
+	@Param({"1"})
+	private int parallelism;
+
+	private SimulationEngine engine;
+
+
+	@Setup
+	public void setUp() {
+		engine = BenchmarkScenario.buildGrid(carCount, gridSize);
+		engine.setParallelism(parallelism);
+	}
+
+
+	@TearDown
+	public void tearDown() {
+		engine.shutdown();
+	}
+
+
+	@Benchmark
+	public void tick() {
+		engine.tick();
+	}
+}
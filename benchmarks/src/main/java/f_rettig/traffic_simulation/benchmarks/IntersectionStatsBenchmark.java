@@ -0,0 +1,57 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class IntersectionStatsBenchmark: Measures taking a snapshot of the IntersectionStats
+ * of a warmed-up grid (1,024 intersections at gridSize 32), the cost a live congestion
+ * view pays per refresh. The snapshot is reused, so it should not allocate.
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class IntersectionStatsBenchmark {
+
+	@Param({"32"})
+	private int gridSize;
+
+	private SimulationEngine engine;
+	private IntersectionStatsSnapshot snapshot;
+
+
+	@Setup
+	public void setUp() {
+		engine = BenchmarkScenario.buildGrid(10000, gridSize);
+		engine.runFor(30);
+		snapshot = new IntersectionStatsSnapshot();
+	}
+
+
+	@Benchmark
+	public long snapshot() {
+		engine.getIntersectionStats().snapshot(snapshot);
+		return snapshot.getServed(0);
+	}
+}
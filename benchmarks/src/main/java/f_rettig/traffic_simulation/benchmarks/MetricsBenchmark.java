@@ -0,0 +1,60 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class MetricsBenchmark: Measures one simulation tick with and without SimulationMetrics
+ * attached, to check the cost of timing the phases and counting vehicles per state. The
+ * GC profiler should report no extra allocation per tick with metrics on.
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class MetricsBenchmark {
+
+	@Param({"1000", "100000"})
+	private int carCount;
+
+	@Param({"false", "true"})
+	private boolean metrics;
+
+	private SimulationEngine engine;
+
+
+	@Setup
+	public void setUp() {
+		engine = BenchmarkScenario.buildGrid(carCount, 32);
+
+		if (metrics) {
+			engine.setMetrics(new SimulationMetrics());
+		}
+	}
+
+
+	@Benchmark
+	public void tick() {
+		engine.tick();
+	}
+}
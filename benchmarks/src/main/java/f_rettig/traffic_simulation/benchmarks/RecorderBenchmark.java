@@ -0,0 +1,87 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class RecorderBenchmark: Measures one simulation tick with and without a
+ * TrajectoryRecorder sampling every vehicle at 10 Hz, to check the cost of recording
+ * (the target is under 5% at 100,000 cars). The recording goes to a temporary
+ * directory that is deleted after each trial.
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RecorderBenchmark {
+
+	@Param({"100000"})
+	private int carCount;
+
+	@Param({"false", "true"})
+	private boolean recording;
+
+	private SimulationEngine engine;
+	private TrajectoryRecorder recorder;
+	private Path directory;
+
+
+	@Setup
+	public void setUp() throws IOException {
+		engine = BenchmarkScenario.buildGrid(carCount, 32);
+
+		if (recording) {
+			directory = Files.createTempDirectory("trajectories");
+			recorder = new TrajectoryRecorder(directory);
+			engine.setTrajectoryRecorder(recorder);
+		}
+	}
+
+
+	@TearDown
+	public void tearDown() throws IOException {
+		if (recorder == null) {
+			return;
+		}
+
+		recorder.close();
+
+		try (Stream<Path> files = Files.walk(directory)) {
+			for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(file);
+			}
+		}
+	}
+
+
+	@Benchmark
+	public void tick() {
+		engine.tick();
+	}
+}
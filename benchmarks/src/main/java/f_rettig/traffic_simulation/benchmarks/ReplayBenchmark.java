@@ -0,0 +1,106 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class ReplayBenchmark: Measures the replay side of a trajectory recording: opening
+ * it (mapping the segments and reading the frame index), playing forward one frame at
+ * a time and scrubbing backward one frame at a time, which restarts from the keyframe
+ * before the frame. The recording is written once per trial from a warmed-up grid
+ * scenario and deleted afterwards.
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ReplayBenchmark {
+
+	@Param({"10000", "100000"})
+	private int carCount;
+
+	// Simulated seconds recorded at 10 samples per second
+	@Param({"60"})
+	private int recordedSeconds;
+
+	private Path directory;
+	private TrajectoryReader reader;
+	private int frame;
+
+
+	@Setup
+	public void setUp() throws IOException {
+		SimulationEngine engine = BenchmarkScenario.buildGrid(carCount, 32);
+		directory = Files.createTempDirectory("trajectories");
+
+		TrajectoryRecorder recorder = new TrajectoryRecorder(directory);
+		engine.setTrajectoryRecorder(recorder);
+		engine.runFor(recordedSeconds);
+		recorder.close();
+
+		reader = TrajectoryReader.open(directory);
+		frame = reader.getFrameCount() / 2;
+	}
+
+
+	@TearDown
+	public void tearDown() throws IOException {
+		reader.close();
+
+		try (Stream<Path> files = Files.walk(directory)) {
+			for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(file);
+			}
+		}
+	}
+
+
+	@Benchmark
+	public int open() throws IOException {
+		try (TrajectoryReader opened = TrajectoryReader.open(directory)) {
+			return opened.getFrameCount();
+		}
+	}
+
+
+	@Benchmark
+	public int playForward() {
+		frame = frame + 1 < reader.getFrameCount() ? frame + 1 : 0;
+		reader.decode(frame);
+		return reader.getVehicleCount();
+	}
+
+
+	@Benchmark
+	public int scrubBackward() {
+		frame = frame > 0 ? frame - 1 : reader.getFrameCount() - 1;
+		reader.decode(frame);
+		return reader.getVehicleCount();
+	}
+}
@@ -0,0 +1,70 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class SignalBenchmark: Measures the cost of the traffic signals on a network without
+ * cars, once per engine tick (only the light and phase events due in that tick are
+ * run) and once per simulated minute, where the engine skips straight from one event
+ * to the next because no vehicle is moving.
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SignalBenchmark {
+
+	@Param({"10", "100", "1000", "10000"})
+	private int intersectionCount;
+
+	private SimulationEngine engine;
+
+
+	@Setup
+	public void setUp() {
+		engine = new SimulationEngine(BenchmarkScenario.SEED);
+		engine.createMainRoad();
+		engine.start();
+
+		for (int i = 0; i < intersectionCount; i++) {
+			engine.addRoad("Side Road " + (i + 1));
+			engine.extendMainRoad();
+
+			// Spread the phases so the switches do not all happen on the same tick
+			engine.runFor(0.37);
+		}
+	}
+
+
+	@Benchmark
+	public void signalTick() {
+		engine.tick();
+	}
+
+
+	@Benchmark
+	public long signalMinute() {
+		return engine.runFor(60);
+	}
+}
@@ -0,0 +1,67 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class SpawnBenchmark: Measures SimulationEngine.spawnCar, the respawn path taken
+ * whenever a car leaves the network. Scores are per respawned car.
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SpawnBenchmark {
+
+	// Cars respawned per benchmark invocation
+	private static final int BATCH = 1024;
+
+	@Param({"1000", "100000", "1000000"})
+	private int carCount;
+
+	@Param({"3", "50"})
+	private int intersectionCount;
+
+	private SimulationEngine engine;
+	private Car car;
+	private int next = 0;
+
+
+	@Setup
+	public void setUp() {
+		engine = BenchmarkScenario.build(carCount, intersectionCount);
+		car = new Car(engine.getVehicles(), engine.getNetwork(), engine.getIntersections());
+	}
+
+
+	// Respawn the next batch of cars, walking round the whole store
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public void spawnCar() {
+		for (int i = 0; i < BATCH; i++) {
+			engine.spawnCar(car.bind(next));
+			next = (next + 1) % carCount;
+		}
+	}
+}
@@ -0,0 +1,68 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class UpdateAllCarsBenchmark: Measures one full simulation tick (due light events, every
+ * car, respawns). The SimulationThread only steps the engine and copies frames for the
+ * display, so the engine's tick is measured without a JavaFX toolkit.
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class UpdateAllCarsBenchmark {
+
+	@Param({"1000", "10000", "100000", "1000000"})
+	private int carCount;
+
+	@Param({"3", "10", "50"})
+	private int intersectionCount;
+
+	// Threads for the car update, e.g. -p parallelism=16
+	@Param({"1"})
+	private int parallelism;
+
+	private SimulationEngine engine;
+
+
+	@Setup
+	public void setUp() {
+		engine = BenchmarkScenario.build(carCount, intersectionCount);
+		engine.setParallelism(parallelism);
+	}
+
+
+	@TearDown
+	public void tearDown() {
+		engine.shutdown();
+	}
+
+
+	@Benchmark
+	public void updateAllCars() {
+		engine.tick();
+	}
+}
@@ -1,9 +1,12 @@
 /**
  * UMGC CMSC 335
  * Final Project: Traffic Simulation 
- * Class ClockDisplay: Handles updating and displaying the current time to the UI 
- * by running a background thread. The time is updated every second and passed to 
- * the UI via a callback function.
+ * Class ClockDisplay: Handles updating and displaying the current time to the UI. 
+ * It is registered with the UiRefreshScheduler, which formats the time every second 
+ * off the JavaFX thread and passes it to the UI via a callback function.
+ * 
+ * Below the wall clock it shows the simulated time and the real-time factor achieved
+ * since the last update (simulated seconds per real second, e.g. 10.0x).
  * 
  * @author Felicia Rettig
  * Date: May 6, 2025 
@@ -17,40 +20,61 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.function.Consumer;
 
-import javafx.application.Platform;
+public class ClockDisplay implements UiRefreshTask {
 
-public class ClockDisplay implements Runnable {
+	private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss a");
 
 	// Callback function to send the updated time back to the UI
 	private Consumer<String> timeUpdateCallback;
+	private SimulationThread simulationThread;
+	private String currentTime = "";
+
+	// Simulated and real time at the last update, for the real-time factor
+	private double lastSimulationTime = 0;
+	private long lastRealTime = System.nanoTime();
 
 	//Consumer function that takes a String (formatted time) and updates the UI.
-	public ClockDisplay(Consumer<String> timeUpdateCallback) {
+	public ClockDisplay(SimulationThread simulationThread, Consumer<String> timeUpdateCallback) {
+		this.simulationThread = simulationThread;
 		this.timeUpdateCallback = timeUpdateCallback;
 	}
 
 
-	/**
-	 * The run method continuously updates the current time every second 
-	 * and uses Platform.runLater() to update the UI thread safely.
-	 */
+	// Format the current and simulated time, only update the UI when the text changed
 	@Override
-	public void run() {
+	public boolean prepare() {
+		double simulationTime = simulationThread.getSimulationTime();
+		long realTime = System.nanoTime();
+
+		// A reset moves the simulated time back, show 0 instead of a negative factor
+		double factor = Math.max(0, (simulationTime - lastSimulationTime) / ((realTime - lastRealTime) / 1_000_000_000.0));
+		lastSimulationTime = simulationTime;
+		lastRealTime = realTime;
 
-		while (true) {
-			String currentTime = LocalDateTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss a"));
+		String time = LocalDateTime.now().format(TIME_FORMAT) + "\n" + formatSimulationTime(simulationTime)
+				+ String.format(" %.1fx", factor);
 
-			// Pass the current time to the UI thread safely
-			Platform.runLater(() -> timeUpdateCallback.accept(currentTime));
+		if (time.equals(currentTime)) {
+			return false;
+		}
 
-			try {
+		currentTime = time;
+		return true;
+	}
 
-				// Wait for 1 second before updating the time again
-				Thread.sleep(1000);
 
-			} catch (InterruptedException e) {
-				break;
-			}
-		}
+	@Override
+	public void apply() {
+		timeUpdateCallback.accept(currentTime);
+	}
+
+
+	// Simulated time as days and hours, e.g. "Sim 1d 02:15:30"
+	private static String formatSimulationTime(double seconds) {
+		long total = (long) seconds;
+		long days = total / 86_400;
+		String clock = String.format("%02d:%02d:%02d", (total / 3600) % 24, (total / 60) % 60, total % 60);
+
+		return days > 0 ? "Sim " + days + "d " + clock : "Sim " + clock;
 	}
 }
@@ -0,0 +1,101 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class EnsembleResult: Aggregated outcome of an EnsembleRunner. Every finished run
+ * adds its mean delay and throughput to RunningStatistics, so the result stays the
+ * same size no matter how many runs there were.
+ *
+ * - Delay: mean time a vehicle stood at a stop line before entering an intersection,
+ *   over all vehicles served (0 for those that did not stop), in simulated seconds.
+ * - Throughput: vehicles served by all intersections per simulated hour.
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import java.util.Locale;
+
+public class EnsembleResult {
+
+	private final RunningStatistics delay = new RunningStatistics();
+	private final RunningStatistics throughput = new RunningStatistics();
+	private final double duration;
+	private long servedVehicles = 0;
+
+
+	// Duration of every run in simulated seconds, after the warm-up
+	public EnsembleResult(double duration) {
+		this.duration = duration;
+	}
+
+
+	/**
+	 * Adds one run, given the vehicles its intersections served and their total stop delay
+	 * during the measured duration.
+	 */
+	public void addRun(long served, double totalStopDelay) {
+		delay.add(served == 0 ? 0 : totalStopDelay / served);
+		throughput.add(served * 3600.0 / duration);
+		servedVehicles += served;
+	}
+
+
+	// Summary table, one row per measure
+	public String formatText() {
+		StringBuilder text = new StringBuilder();
+		text.append(String.format(Locale.ROOT, "%d runs, %.0f simulated seconds each, %d vehicles served%n",
+				getRunCount(), duration, servedVehicles));
+		text.append(String.format(Locale.ROOT, "%-20s %10s %10s %10s", "", "mean", "stddev", "min"));
+
+		for (double percentile : delay.getPercentiles()) {
+			text.append(String.format(Locale.ROOT, " %10s", "p" + (int) percentile));
+		}
+
+		text.append(String.format(Locale.ROOT, " %10s%n", "max"));
+		appendRow(text, "delay [s]", delay);
+		appendRow(text, "throughput [veh/h]", throughput);
+
+		return text.toString();
+	}
+
+
+	private static void appendRow(StringBuilder text, String name, RunningStatistics statistics) {
+		text.append(String.format(Locale.ROOT, "%-20s %10.3f %10.3f %10.3f", name,
+				statistics.getMean(), statistics.getStandardDeviation(), statistics.getMin()));
+
+		for (double percentile : statistics.getPercentiles()) {
+			text.append(String.format(Locale.ROOT, " %10.3f", statistics.getPercentile(percentile)));
+		}
+
+		text.append(String.format(Locale.ROOT, " %10.3f%n", statistics.getMax()));
+	}
+
+	// Collection of Getters
+
+	public long getRunCount() {
+		return delay.getCount();
+	}
+
+
+	public double getDuration() {
+		return duration;
+	}
+
+
+	public long getServedVehicles() {
+		return servedVehicles;
+	}
+
+
+	public RunningStatistics getDelay() {
+		return delay;
+	}
+
+
+	public RunningStatistics getThroughput() {
+		return throughput;
+	}
+}
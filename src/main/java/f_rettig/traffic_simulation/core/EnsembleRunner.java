@@ -0,0 +1,237 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class EnsembleRunner: Runs the same scenario many times with different seeds, as a
+ * Monte Carlo ensemble for sizing signal timings. Every run is an independent headless
+ * SimulationEngine (the model behind the SimulationController) that runs for a fixed
+ * simulated duration as fast as it can. Runs are spread over a pool of threads, one
+ * engine per thread at a time.
+ *
+ * Only the delay and throughput of a finished run are kept, and they are added to an
+ * EnsembleResult in the order of the runs, so the result does not depend on which
+ * thread finished first. The seeds of the runs are drawn from the ensemble seed.
+ *
+ * From the command line (all options are optional):
+ * java -cp target/classes application.EnsembleRunner --runs=200 --duration=3600
+ *     --warm-up=300 --cars=40 --seed=335 --threads=8
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+public class EnsembleRunner {
+
+	public static final int DEFAULT_RUNS = 100;
+	public static final double DEFAULT_DURATION = 3600.0;		// One simulated hour
+
+	private int runs;
+	private double duration;
+	private long seed;
+	private double warmUp = 0;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private Consumer<SimulationEngine> scenario = SimulationEngine::createDefaultScenario;
+
+
+	// Outcome of one run, kept only until it was added to the result
+	private static final class RunOutcome {
+		private final long served;
+		private final double totalStopDelay;
+
+
+		RunOutcome(long served, double totalStopDelay) {
+			this.served = served;
+			this.totalStopDelay = totalStopDelay;
+		}
+	}
+
+
+	// runs simulations of duration simulated seconds each, seeded from the given seed
+	public EnsembleRunner(int runs, double duration, long seed) {
+
+		if (runs < 1) {
+			throw new IllegalArgumentException("Runs must be at least 1: " + runs);
+		}
+
+		if (!(duration > 0)) {
+			throw new IllegalArgumentException("Duration must be positive: " + duration);
+		}
+
+		this.runs = runs;
+		this.duration = duration;
+		this.seed = seed;
+	}
+
+
+	/**
+	 * Runs the whole ensemble and waits for it. A run that fails stops the ensemble, its
+	 * exception is thrown (wrapped in a CompletionException) once the runs before it were
+	 * added.
+	 */
+	public EnsembleResult run() {
+		EnsembleResult result = new EnsembleResult(duration);
+		AtomicInteger threadCount = new AtomicInteger();
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "ensemble-" + threadCount.incrementAndGet());
+			thread.setDaemon(true); // closes with app
+			return thread;
+		});
+
+		try {
+			RandomSource seeds = new RandomSource(seed);
+			ArrayList<CompletableFuture<RunOutcome>> outcomes = new ArrayList<>(runs);
+
+			for (int i = 0; i < runs; i++) {
+				long runSeed = seeds.nextStreamSeed();
+				outcomes.add(CompletableFuture.supplyAsync(() -> runOnce(runSeed), executor));
+			}
+
+			// In run order; later runs that finish early wait as a few numbers each
+			for (int i = 0; i < runs; i++) {
+				RunOutcome outcome = outcomes.get(i).join();
+				outcomes.set(i, null);
+				result.addRun(outcome.served, outcome.totalStopDelay);
+			}
+
+		} finally {
+			executor.shutdownNow();
+		}
+
+		return result;
+	}
+
+
+	private RunOutcome runOnce(long runSeed) {
+		SimulationEngine engine = new SimulationEngine(runSeed);
+		scenario.accept(engine);
+		engine.start();
+
+		IntersectionStatsSnapshot stats = new IntersectionStatsSnapshot();
+
+		// Count only what happens after the warm-up
+		engine.runFor(warmUp);
+		engine.getIntersectionStats().snapshot(stats);
+		long servedBefore = stats.getTotalServed();
+		double stopDelayBefore = stats.getTotalStopDelay();
+
+		engine.runFor(duration);
+		engine.getIntersectionStats().snapshot(stats);
+		engine.shutdown();
+
+		return new RunOutcome(stats.getTotalServed() - servedBefore, stats.getTotalStopDelay() - stopDelayBefore);
+	}
+
+
+	public static void main(String[] args) {
+		Map<String, String> options = new HashMap<>();
+
+		for (String arg : args) {
+			int separator = arg.indexOf('=');
+
+			if (!arg.startsWith("--") || separator < 0) {
+				throw new IllegalArgumentException("Expected --name=value: " + arg);
+			}
+
+			options.put(arg.substring(2, separator), arg.substring(separator + 1));
+		}
+
+		EnsembleRunner runner = new EnsembleRunner(
+				Integer.parseInt(options.getOrDefault("runs", String.valueOf(DEFAULT_RUNS))),
+				Double.parseDouble(options.getOrDefault("duration", String.valueOf(DEFAULT_DURATION))),
+				Long.parseLong(options.getOrDefault("seed", String.valueOf(RandomSource.randomSeed()))));
+
+		if (options.containsKey("warm-up")) {
+			runner.setWarmUp(Double.parseDouble(options.get("warm-up")));
+		}
+
+		if (options.containsKey("threads")) {
+			runner.setThreads(Integer.parseInt(options.get("threads")));
+		}
+
+		// Default scenario topped up to the requested number of cars
+		if (options.containsKey("cars")) {
+			int cars = Integer.parseInt(options.get("cars"));
+
+			runner.setScenario(engine -> {
+				engine.createDefaultScenario();
+
+				while (engine.getVehicles().size() < cars) {
+					engine.spawnRandomCar();
+				}
+			});
+		}
+
+		long start = System.nanoTime();
+		EnsembleResult result = runner.run();
+
+		System.out.print(result.formatText());
+		System.out.printf("seed %d, %d threads, %.1f s%n", runner.getSeed(), runner.getThreads(),
+				(System.nanoTime() - start) / 1e9);
+	}
+
+	// Collection of Setters
+
+	// Simulated seconds run before measuring, so the ensemble does not start from empty roads
+	public void setWarmUp(double warmUp) {
+
+		if (warmUp < 0) {
+			throw new IllegalArgumentException("Warm-up must not be negative: " + warmUp);
+		}
+
+		this.warmUp = warmUp;
+	}
+
+
+	public void setThreads(int threads) {
+
+		if (threads < 1) {
+			throw new IllegalArgumentException("Threads must be at least 1: " + threads);
+		}
+
+		this.threads = threads;
+	}
+
+
+	// Builds the network and cars of every run on a fresh engine, the default scenario by default
+	public void setScenario(Consumer<SimulationEngine> scenario) {
+		this.scenario = scenario;
+	}
+
+	// Collection of Getters
+
+	public int getRuns() {
+		return runs;
+	}
+
+
+	public double getDuration() {
+		return duration;
+	}
+
+
+	public long getSeed() {
+		return seed;
+	}
+
+
+	public double getWarmUp() {
+		return warmUp;
+	}
+
+
+	public int getThreads() {
+		return threads;
+	}
+}
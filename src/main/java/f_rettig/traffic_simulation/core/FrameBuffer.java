@@ -0,0 +1,59 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class FrameBuffer: Lock-free triple buffer that hands FrameSnapshots from the
+ * simulation thread (the single writer) to one reader thread.
+ *
+ * The writer fills the back frame and publishes it by swapping it with the middle
+ * frame. The reader takes the middle frame by swapping it with its front frame, but
+ * only if something new was published. Both swaps are one atomic exchange, so neither
+ * side ever waits for the other and the reader always gets the newest complete frame.
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class FrameBuffer {
+
+	// The middle slot holds a frame index, plus this bit while it is unread
+	private static final int FRESH = 4;
+	private static final int INDEX_MASK = 3;
+
+	private final FrameSnapshot[] frames = { new FrameSnapshot(), new FrameSnapshot(), new FrameSnapshot() };
+	private final AtomicInteger middle = new AtomicInteger(1);
+	private int back = 0;		// Only used by the writer
+	private int front = 2;		// Only used by the reader
+
+
+	// Frame the writer fills next, it stays private to the writer until publish()
+	public FrameSnapshot getBackFrame() {
+		return frames[back];
+	}
+
+
+	// Make the back frame the newest frame (writer side)
+	public void publish() {
+		back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+	}
+
+
+	// True while the newest published frame has not been taken by the reader
+	public boolean hasUnreadFrame() {
+		return (middle.get() & FRESH) != 0;
+	}
+
+
+	// Newest published frame (reader side), the same frame again if nothing new arrived
+	public FrameSnapshot latest() {
+		if ((middle.get() & FRESH) != 0) {
+			front = middle.getAndSet(front) & INDEX_MASK;
+		}
+
+		return frames[front];
+	}
+}
@@ -0,0 +1,273 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class FrameSnapshot: A copy of everything the display needs from one moment of the
+ * simulation: vehicle positions and colours, light phases and the road network (a
+ * NetworkSnapshot, only copied again when the network changed). Detail frames (for the
+ * car status table) also carry speed, state, direction, road and license plate of
+ * every vehicle.
+ *
+ * Frames are filled by the simulation thread, from the engine or from a
+ * TrajectoryReplay, and handed to the readers through a
+ * FrameBuffer. Once published a frame is never written again until the reader has
+ * given it back, so readers can use it without locks. The arrays are reused between
+ * frames and only grow.
+ *
+ * 1 unit = 100 meters = 2.5 pixels
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class FrameSnapshot {
+
+	private static final TrafficLight.LightPhase[] LIGHT_PHASES = TrafficLight.LightPhase.values();
+	private static final byte PARKED = (byte) Car.CarState.PARKED.ordinal();
+
+	// Increases with every published frame, 0 = nothing published yet
+	private long sequence = 0;
+	private long tickCount = 0;
+	private double simulationTime = 0;
+	private boolean isRunning = false;
+	private boolean hasDetails = false;
+
+	// Vehicle columns, valid up to vehicleCount
+	private int vehicleCount = 0;
+	float[] x = new float[0];
+	float[] y = new float[0];
+	int[] color = new int[0];
+	boolean[] parked = new boolean[0];			// Pooled slots (see VehicleStore.release), not drawn
+
+	// Only filled for detail frames
+	float[] speed = new float[0];
+	byte[] state = new byte[0];
+	byte[] direction = new byte[0];
+	int[] road = new int[0];
+	long[] licensePlate = new long[0];
+
+	// Light phase ordinals by light id (see LightSnapshot.lightId)
+	private int lightCount = 0;
+	private long lightChangeCount = 0;
+	byte[] lightPhases = new byte[0];
+
+	// Light ids of the last changes up to lightChangeCount, oldest first (none for replay frames)
+	private int changedLightCount = 0;
+	private int[] changedLights = new int[SimulationEngine.LIGHT_CHANGE_LOG_SIZE];
+
+	private NetworkSnapshot network;			// Roads and intersections, null before the first capture
+
+
+	// Copy the current engine state, called on the simulation thread only
+	void capture(SimulationEngine engine, long sequence, boolean details) {
+		VehicleStore vehicles = engine.getVehicles();
+		int count = vehicles.size();
+
+		this.sequence = sequence;
+		this.tickCount = engine.getTickCount();
+		this.simulationTime = engine.getSimulationTime();
+		this.isRunning = engine.getIsRunning();
+		this.hasDetails = details;
+		this.vehicleCount = count;
+
+		ensureCapacity(count, details);
+
+		for (int i = 0; i < count; i++) {
+			x[i] = (float) vehicles.x[i];
+			y[i] = (float) vehicles.y[i];
+			parked[i] = vehicles.isParked(i);
+		}
+
+		System.arraycopy(vehicles.color, 0, color, 0, count);
+
+		if (details) {
+			for (int i = 0; i < count; i++) {
+				speed[i] = (float) vehicles.speed[i];
+			}
+
+			System.arraycopy(vehicles.state, 0, state, 0, count);
+			System.arraycopy(vehicles.direction, 0, direction, 0, count);
+			System.arraycopy(vehicles.road, 0, road, 0, count);
+			System.arraycopy(vehicles.licensePlate, 0, licensePlate, 0, count);
+		}
+
+		captureLights(engine.getIntersections());
+		this.lightChangeCount = engine.getLightChangeCount();
+		this.changedLightCount = engine.getLoggedLightChangeCount();
+
+		for (int k = 0; k < changedLightCount; k++) {
+			changedLights[k] = engine.getChangedLight(lightChangeCount - changedLightCount + 1 + k);
+		}
+
+		captureRoads(engine);
+	}
+
+
+	/**
+	 * Copy the frame shown by a replay, called on the simulation thread only. Recordings
+	 * hold no roads per vehicle, so detail frames leave the road column unknown.
+	 */
+	void capture(TrajectoryReplay replay, SimulationEngine engine, long sequence, boolean details) {
+		TrajectoryReader reader = replay.getReader();
+		int count = reader.vehicleCount;
+
+		int frame = Math.max(0, reader.getDecodedFrame());
+
+		this.sequence = sequence;
+		this.tickCount = reader.getFrameTick(frame);
+		this.simulationTime = reader.getFrameTime(frame);
+		this.isRunning = replay.getIsPlaying();
+		this.hasDetails = details;
+		this.vehicleCount = count;
+
+		ensureCapacity(count, details);
+
+		for (int i = 0; i < count; i++) {
+			x[i] = (float) TrajectoryFormat.decodePosition(reader.x[i]);
+			y[i] = (float) TrajectoryFormat.decodePosition(reader.y[i]);
+			parked[i] = reader.state[i] == PARKED;
+		}
+
+		System.arraycopy(reader.color, 0, color, 0, count);
+
+		if (details) {
+			for (int i = 0; i < count; i++) {
+				speed[i] = (float) TrajectoryFormat.decodeSpeed(reader.speed[i]);
+			}
+
+			System.arraycopy(reader.state, 0, state, 0, count);
+			System.arraycopy(reader.direction, 0, direction, 0, count);
+			Arrays.fill(road, 0, count, VehicleStore.NONE);
+			System.arraycopy(reader.licensePlate, 0, licensePlate, 0, count);
+		}
+
+		// Lights only change from frame to frame, so the frame number serves as change count
+		lightCount = Math.min(reader.lightCount, engine.getIntersections().size() * 2);
+
+		if (lightPhases.length < lightCount) {
+			lightPhases = new byte[lightCount];
+		}
+
+		System.arraycopy(reader.lightPhases, 0, lightPhases, 0, lightCount);
+		this.lightChangeCount = reader.getDecodedFrame();
+		this.changedLightCount = 0;
+		captureRoads(engine);
+	}
+
+
+	// Only copy the network again when it changed since this frame's copy was taken
+	private void captureRoads(SimulationEngine engine) {
+		if (network == null || network.getVersion() != engine.getNetwork().getVersion()) {
+			network = new NetworkSnapshot(engine);
+		}
+	}
+
+
+	private void captureLights(ArrayList<Intersection> intersections) {
+		lightCount = intersections.size() * 2;
+
+		if (lightPhases.length < lightCount) {
+			lightPhases = new byte[lightCount];
+		}
+
+		for (int i = 0; i < intersections.size(); i++) {
+			Intersection intersection = intersections.get(i);
+			lightPhases[LightSnapshot.lightId(i, false)] = (byte) intersection.getNSLight().getLightPhase().ordinal();
+			lightPhases[LightSnapshot.lightId(i, true)] = (byte) intersection.getEWLight().getLightPhase().ordinal();
+		}
+	}
+
+
+	private void ensureCapacity(int count, boolean details) {
+		if (x.length < count) {
+			int capacity = Math.max(count, x.length * 2);
+			x = Arrays.copyOf(x, capacity);
+			y = Arrays.copyOf(y, capacity);
+			color = Arrays.copyOf(color, capacity);
+			parked = Arrays.copyOf(parked, capacity);
+		}
+
+		if (details && speed.length < count) {
+			int capacity = Math.max(count, speed.length * 2);
+			speed = new float[capacity];
+			state = new byte[capacity];
+			direction = new byte[capacity];
+			road = new int[capacity];
+			licensePlate = new long[capacity];
+		}
+	}
+
+	// Collection of Getters
+
+	public long getSequence() {
+		return sequence;
+	}
+
+
+	public long getTickCount() {
+		return tickCount;
+	}
+
+
+	public double getSimulationTime() {
+		return simulationTime;
+	}
+
+
+	public boolean getIsRunning() {
+		return isRunning;
+	}
+
+
+	public boolean hasDetails() {
+		return hasDetails;
+	}
+
+
+	public int getVehicleCount() {
+		return vehicleCount;
+	}
+
+
+	public int getIntersectionCount() {
+		return lightCount / 2;
+	}
+
+
+	public long getLightChangeCount() {
+		return lightChangeCount;
+	}
+
+
+	// Number of changes up to getLightChangeCount whose light id the frame carries
+	public int getChangedLightCount() {
+		return changedLightCount;
+	}
+
+
+	// Light id of a logged change, 0 = the oldest, getChangedLightCount() - 1 = the latest
+	public int getChangedLight(int index) {
+		return changedLights[index];
+	}
+
+
+	public long getNetworkVersion() {
+		return network == null ? 0 : network.getVersion();
+	}
+
+
+	// Road geometry and intersections of this frame, safe to read on any thread
+	public NetworkSnapshot getNetwork() {
+		return network;
+	}
+
+
+	public TrafficLight.LightPhase getLightPhase(int intersectionId, boolean eastWest) {
+		return LIGHT_PHASES[lightPhases[LightSnapshot.lightId(intersectionId, eastWest)]];
+	}
+}
@@ -0,0 +1,92 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class GridBuilder: Builds a rectangular grid network on a SimulationEngine.
+ *
+ * The grid has the given number of East/West avenues (rows) and North/South streets
+ * (columns), each crossing every road of the other kind, so columns * rows
+ * intersections are created. Intersections are one spacing apart. Avenues reach one
+ * spacing past the outer streets and streets half a spacing past the outer avenues,
+ * which is where cars enter and leave the grid. A single row of three columns is the
+ * same layout as the default Main Road with three side roads.
+ *
+ * 1 unit = 100 meters = 2.5 pixels
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+public final class GridBuilder {
+
+	private GridBuilder() {
+	}
+
+
+	public static void build(SimulationEngine engine, int columns, int rows, double spacing) {
+		build(engine, columns, rows, spacing, 1);
+	}
+
+
+	public static void build(SimulationEngine engine, int columns, int rows, double spacing, int lanes) {
+
+		if (columns < 1 || rows < 1) {
+			throw new IllegalArgumentException("A grid needs at least one row and column: " + columns + " x " + rows);
+		}
+
+		if (!(spacing > 0)) {
+			throw new IllegalArgumentException("Spacing must be positive: " + spacing);
+		}
+
+		// Junction nodes, row by row from Y = 0 southwards
+		int[][] junctions = new int[rows][columns];
+
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < columns; c++) {
+				junctions[r][c] = engine.addNode((c + 1) * spacing, -r * spacing);
+			}
+		}
+
+		// Avenues first, the streets then cross them and create the intersections
+		int[] avenue = new int[columns + 2];
+
+		for (int r = 0; r < rows; r++) {
+			avenue[0] = engine.addNode(0, -r * spacing);
+			System.arraycopy(junctions[r], 0, avenue, 1, columns);
+			avenue[columns + 1] = engine.addNode((columns + 1) * spacing, -r * spacing);
+
+			engine.addRoad("Avenue " + (r + 1), lanes, avenue);
+		}
+
+		int[] street = new int[rows + 2];
+
+		for (int c = 0; c < columns; c++) {
+			street[0] = engine.addNode((c + 1) * spacing, spacing / 2);
+
+			for (int r = 0; r < rows; r++) {
+				street[r + 1] = junctions[r][c];
+			}
+
+			street[rows + 1] = engine.addNode((c + 1) * spacing, -(rows - 1) * spacing - spacing / 2);
+
+			engine.addRoad((c + 1) + getOrdinalSuffix(c + 1) + " St.", lanes, street);
+		}
+	}
+
+
+	// 1st, 2nd, 3rd, 4th ... 11th, 12th, 13th, 21st
+	private static String getOrdinalSuffix(int number) {
+		if (number % 100 >= 11 && number % 100 <= 13) {
+			return "th";
+		}
+
+		switch (number % 10) {
+			case 1: return "st";
+			case 2: return "nd";
+			case 3: return "rd";
+			default: return "th";
+		}
+	}
+}
@@ -11,14 +11,21 @@
 
 package application;
 
+import java.io.IOException;
+import java.nio.file.Path;
+
 import javafx.application.Application;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.stage.Stage;
 import javafx.scene.Scene;
+import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.ScrollPane;
+import javafx.scene.control.Slider;
 import javafx.scene.control.TextField;
 import javafx.scene.layout.*;
 import javafx.scene.text.Font;
@@ -26,6 +33,7 @@ import javafx.scene.text.Font;
 
 public class Main extends Application {
 	private SimulationController simulationController;
+	private UiRefreshScheduler refreshScheduler;
 
 	@Override
 	public void start(Stage primaryStage) {
@@ -54,6 +62,46 @@ public class Main extends Application {
 			HBox backgroundPane = simulationController.getBackgroundPane();
 			backgroundPane.getChildren().add(simulationPane);
 
+			// --record=<directory> writes the vehicle trajectories for offline analysis,
+			// --replay=<directory> plays such a recording back instead of simulating
+			String recordDirectory = getParameters().getNamed().get("record");
+			String replayDirectory = getParameters().getNamed().get("replay");
+
+			if (recordDirectory != null) {
+				simulationController.startRecording(Path.of(recordDirectory));
+			}
+
+			// --warm-start=<file> starts from a SimulationCheckpoint instead of the default layout,
+			// --scenario=<file> from the network and demand of a scenario file
+			String warmStartFile = getParameters().getNamed().get("warm-start");
+			String scenarioFile = getParameters().getNamed().get("scenario");
+
+			if (warmStartFile != null) {
+				simulationController.setWarmStart(Path.of(warmStartFile));
+			}
+
+			if (scenarioFile != null) {
+				simulationController.setScenario(Path.of(scenarioFile));
+			}
+
+			// --demand=<vehicles per hour> lets vehicles arrive at every road end at that rate
+			// and leave for good, instead of respawning a fixed population
+			String demand = getParameters().getNamed().get("demand");
+
+			if (demand != null) {
+				simulationController.setDemand(Double.parseDouble(demand));
+			}
+
+			// Tick metrics are always available over JMX, --metrics-port=<port> also serves
+			// them as plain text on localhost
+			String metricsPort = getParameters().getNamed().get("metrics-port");
+
+			if (metricsPort != null) {
+				simulationController.startMetricsEndpoint(Integer.parseInt(metricsPort));
+			} else {
+				simulationController.startMetrics();
+			}
+
 			// Center Scroll Pane for Simulation Pane
 			ScrollPane scrollPane = new ScrollPane();
 			scrollPane.setMaxHeight(285);
@@ -63,9 +111,6 @@ public class Main extends Application {
 
 			// Traffic Light Panel
 			TrafficLightDisplay trafficLightPanel = new TrafficLightDisplay(simulationController);
-			Thread trafficLightThread = new Thread(trafficLightPanel);
-			trafficLightThread.setDaemon(true); // closes with app
-			trafficLightThread.start();
 			simulationController.setTrafficLightPanel(trafficLightPanel);
 
 			// Top Panel with clock and traffic light display
@@ -74,19 +119,19 @@ public class Main extends Application {
 			topPanel.setAlignment(Pos.CENTER_LEFT);
 			Label clockLabel = new Label();
 			clockLabel.setFont(new Font("Courier New", 24));
-			ClockDisplay clockDisplay = new ClockDisplay(time -> clockLabel.setText(time));
+			ClockDisplay clockDisplay = new ClockDisplay(simulationController.getSimulationThread(),
+					time -> clockLabel.setText(time));
 			topPanel.getChildren().addAll(clockLabel, topSpacer1, trafficLightPanel, topSpacer2);
 			root.setTop(topPanel);
 
 			// Bottom panel with car status display
-			Thread clockThread = new Thread(clockDisplay);
-			clockThread.setDaemon(true);
-			clockThread.start();
-
 			CarStatusDisplay carStatusPanel = new CarStatusDisplay(simulationController);
 			carStatusPanel.setPadding(new Insets(10, 20, 10, 10));
-			Thread statusThread = new Thread(carStatusPanel);
-			statusThread.setDaemon(true);
+
+			// Clock keeps ticking while paused, the car table does not
+			refreshScheduler = new UiRefreshScheduler();
+			refreshScheduler.register(clockDisplay, 1000, false);
+			refreshScheduler.register(carStatusPanel, 500, true);
 
 			HBox bottomPanel = new HBox();
 			bottomPanel.getChildren().addAll(bottomSpacer1, carStatusPanel, bottomSpacer2);
@@ -104,12 +149,43 @@ public class Main extends Application {
 			rightSidePanel.setPadding(new Insets(10, 10, 10, 10));
 			rightSidePanel.setFillWidth(true);
 
-			// Start simulation
+			// Draw on a canvas instead of one node per car (chosen before starting)
+			CheckBox canvasRendering = new CheckBox("Canvas Rendering");
+
+			// Replay position, dragging it scrubs through the recording
+			VBox replayUI = new VBox(5);
+			Label replayLabel = new Label("Replay Position");
+			Slider replayPosition = new Slider(0, 1, 0);
+			replayPosition.setPrefWidth(150);
+			replayPosition.valueProperty().addListener((observable, oldValue, newValue) -> {
+				if (replayPosition.isPressed() || replayPosition.isValueChanging()) {
+					simulationController.seekReplay(newValue.doubleValue());
+				}
+			});
+			replayUI.getChildren().addAll(replayLabel, replayPosition);
+
+			// Start simulation (or the replay)
 			Button start = new Button("Start Simulation");
 			start.setPrefWidth(150);
 			start.setOnAction(e -> {
 				if (!simulationController.getIsInitiated()) {
-					simulationController.startSimulation();
+					simulationController.setRenderMode(canvasRendering.isSelected()
+							? SimulationController.RenderMode.CANVAS
+									: SimulationController.RenderMode.SPRITES);
+
+					if (replayDirectory == null) {
+						simulationController.startSimulation();
+						return;
+					}
+
+					try {
+						simulationController.startReplay(Path.of(replayDirectory));
+						replayPosition.setMin(simulationController.getReplay().getReader().getStartTime());
+						replayPosition.setMax(simulationController.getReplay().getReader().getEndTime());
+
+					} catch (IOException ex) {
+						ex.printStackTrace();
+					}
 				}
 			});
 
@@ -119,16 +195,11 @@ public class Main extends Application {
 			playPauseButton.setOnAction(e -> {
 				if (simulationController.getIsRunning() == true) {
 					simulationController.pauseSimulation();
-					carStatusPanel.stop();
+					refreshScheduler.pause();
 
 				} else {
 					simulationController.continueSimulation();	
-					carStatusPanel.start();
-					
-					// Create new thread and start carStatusDisplay again
-					Thread newStatusThread = new Thread(carStatusPanel);
-					newStatusThread.setDaemon(true);
-					newStatusThread.start();
+					refreshScheduler.resume();
 				}
 			});
 
@@ -137,6 +208,9 @@ public class Main extends Application {
 			resetButton.setPrefWidth(150);
 			resetButton.setOnAction(e -> {
 				simulationController.resetSimulation();
+
+				// Keep refreshing so the cleared table shows
+				refreshScheduler.resume();
 			});
 
 			// Add new road to simulation (must input road name)
@@ -149,7 +223,7 @@ public class Main extends Application {
 			newRoadButton.setOnAction(e -> {
 				if (roadNameTf.getText() != "") {
 					simulationController.addRoad(roadNameTf.getText());
-					simulationController.getRoads().get(0).adjustEastSpawnPoint(simulationController.getIntersectionCount());
+					simulationController.extendMainRoad();
 
 					simulationController.getBackgroundPane().setPrefWidth(simulationPane.getWidth() + 260);
 				}
@@ -164,10 +238,69 @@ public class Main extends Application {
 				simulationController.spawnRandomCar();
 			});
 
-			rightSidePanel.getChildren().addAll(start, playPauseButton, resetButton, newRoadUI, addCarButton);
-			root.setRight(rightSidePanel);			
+			// Time warp (simulated seconds per real second)
+			VBox timeWarpUI = new VBox(5);
+			Label timeWarpLabel = new Label("Simulation Speed");
+			ChoiceBox<String> timeWarp = new ChoiceBox<>();
+			timeWarp.getItems().addAll("1x", "10x", "100x", "Max");
+			timeWarp.setValue("1x");
+			timeWarp.setPrefWidth(150);
+			timeWarp.setOnAction(e -> {
+				switch (timeWarp.getValue()) {
+					case "10x":
+						simulationController.setTimeScale(10);
+						break;
 
-			statusThread.start();
+					case "100x":
+						simulationController.setTimeScale(100);
+						break;
+
+					case "Max":
+						simulationController.setTimeScale(SimulationClock.MAX_SPEED);
+						break;
+
+					case "-1x":
+						simulationController.setTimeScale(-1);
+						break;
+
+					case "-10x":
+						simulationController.setTimeScale(-10);
+						break;
+
+					default:
+						simulationController.setTimeScale(1);
+						break;
+				}
+			});
+
+			timeWarpUI.getChildren().addAll(timeWarpLabel, timeWarp);
+
+			rightSidePanel.getChildren().addAll(canvasRendering, start, playPauseButton, resetButton, newRoadUI, addCarButton, timeWarpUI);
+
+			// Replays can also run backwards, the slider follows the playback position
+			if (replayDirectory != null) {
+				start.setText("Start Replay");
+				timeWarp.getItems().addAll("-1x", "-10x");
+				rightSidePanel.getChildren().add(replayUI);
+
+				refreshScheduler.register(new UiRefreshTask() {
+					private double position;
+
+					@Override
+					public boolean prepare() {
+						position = simulationController.getSimulationThread().getSimulationTime();
+						return simulationController.getReplay() != null;
+					}
+
+					@Override
+					public void apply() {
+						if (!replayPosition.isPressed() && !replayPosition.isValueChanging()) {
+							replayPosition.setValue(position);
+						}
+					}
+				}, 250, false);
+			}
+			root.setRight(rightSidePanel);			
 
 			Scene scene = new Scene(root,1200,800);
 			primaryStage.setScene(scene);
@@ -178,6 +311,23 @@ public class Main extends Application {
 		}
 	}
 
+
+	// Stop the refresh thread and the simulation workers when the window closes
+	@Override
+	public void stop() {
+		if (refreshScheduler != null) {
+			refreshScheduler.shutdown();
+		}
+
+		if (simulationController != null && !simulationController.shutdown()) {
+			Alert alert = new Alert(Alert.AlertType.WARNING,
+					"The simulation did not stop in time. A running trajectory recording may be missing its last samples.");
+			alert.setHeaderText("Simulation thread still running");
+			alert.showAndWait();
+		}
+	}
+
+
 	public static void main(String[] args) {
 		launch(args);
 	}
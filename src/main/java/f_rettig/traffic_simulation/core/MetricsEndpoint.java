@@ -0,0 +1,84 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class MetricsEndpoint: Optional plain text scrape endpoint for the SimulationMetrics.
+ * GET http://localhost:<port>/metrics returns SimulationMetrics.formatText(), so a
+ * Prometheus server or curl can poll a running simulation without a JMX client.
+ *
+ * Uses the JDK's built-in HTTP server and binds to the loopback address only. Requests
+ * are answered on the server's own thread, never on the simulation thread.
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class MetricsEndpoint implements Closeable {
+
+	public static final String PATH = "/metrics";
+
+	private SimulationMetrics metrics;
+	private HttpServer server;
+
+
+	// Start serving on the given port of localhost, 0 picks a free port (see getPort)
+	public MetricsEndpoint(SimulationMetrics metrics, int port) throws IOException {
+
+		if (port < 0 || port > 65535) {
+			throw new IllegalArgumentException("Port out of range: " + port);
+		}
+
+		this.metrics = metrics;
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		this.server.createContext(PATH, this::handle);
+		this.server.start();
+	}
+
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try (exchange) {
+			if (!exchange.getRequestMethod().equals("GET")) {
+				exchange.sendResponseHeaders(405, -1);
+				return;
+			}
+
+			byte[] body = metrics.formatText().getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+			exchange.sendResponseHeaders(200, body.length);
+
+			try (OutputStream output = exchange.getResponseBody()) {
+				output.write(body);
+			}
+		}
+	}
+
+
+	// Stop answering, requests in progress are cut off
+	@Override
+	public void close() {
+		server.stop(0);
+	}
+
+	// Collection of Getters
+
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+
+	public SimulationMetrics getMetrics() {
+		return metrics;
+	}
+}
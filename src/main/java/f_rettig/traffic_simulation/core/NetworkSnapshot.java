@@ -0,0 +1,126 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class NetworkSnapshot: An immutable copy of the road geometry, road names and
+ * intersection ids of one RoadNetwork version, everything the display needs to draw
+ * the roads and build the traffic light graphics.
+ *
+ * Taken on the simulation thread whenever a FrameSnapshot sees a new network version
+ * and handed to the JavaFX thread with the frame, so the display never reads the
+ * engine's road and intersection lists while a replay or a scenario rebuilds them.
+ *
+ * 1 unit = 100 meters = 2.5 pixels
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import java.util.ArrayList;
+
+public class NetworkSnapshot {
+
+	private final long version;				// RoadNetwork version this copy was taken from
+	private final double networkMaxX;		// East edge of the network, 0 without roads
+
+	// Road columns by road index
+	private final String[] roadNames;
+	private final boolean[] horizontal;
+	private final double[] minX;
+	private final double[] minY;
+	private final double[] maxX;
+	private final double[] maxY;
+
+	private final int[] intersectionIds;
+
+
+	// Copy the engine's current network, called on the simulation thread only
+	NetworkSnapshot(SimulationEngine engine) {
+		ArrayList<Road> roads = engine.getRoads();
+		ArrayList<Intersection> intersections = engine.getIntersections();
+		int count = roads.size();
+
+		this.version = engine.getNetwork().getVersion();
+		this.networkMaxX = count == 0 ? 0 : engine.getNetwork().getMaxX();
+		this.roadNames = new String[count];
+		this.horizontal = new boolean[count];
+		this.minX = new double[count];
+		this.minY = new double[count];
+		this.maxX = new double[count];
+		this.maxY = new double[count];
+
+		for (int r = 0; r < count; r++) {
+			Road road = roads.get(r);
+			roadNames[r] = road.getRoadName();
+			horizontal[r] = road.isHorizontal();
+			minX[r] = road.getMinX();
+			minY[r] = road.getMinY();
+			maxX[r] = road.getMaxX();
+			maxY[r] = road.getMaxY();
+		}
+
+		this.intersectionIds = new int[intersections.size()];
+
+		for (int i = 0; i < intersectionIds.length; i++) {
+			intersectionIds[i] = intersections.get(i).getId();
+		}
+	}
+
+	// Collection of Getters
+
+	public long getVersion() {
+		return version;
+	}
+
+
+	public double getMaxX() {
+		return networkMaxX;
+	}
+
+
+	public int getRoadCount() {
+		return roadNames.length;
+	}
+
+
+	public String getRoadName(int road) {
+		return roadNames[road];
+	}
+
+
+	public boolean isHorizontal(int road) {
+		return horizontal[road];
+	}
+
+
+	public double getMinX(int road) {
+		return minX[road];
+	}
+
+
+	public double getMinY(int road) {
+		return minY[road];
+	}
+
+
+	public double getMaxX(int road) {
+		return maxX[road];
+	}
+
+
+	public double getMaxY(int road) {
+		return maxY[road];
+	}
+
+
+	public int getIntersectionCount() {
+		return intersectionIds.length;
+	}
+
+
+	public int getIntersectionId(int index) {
+		return intersectionIds[index];
+	}
+}
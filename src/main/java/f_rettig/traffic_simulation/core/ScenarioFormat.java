@@ -0,0 +1,108 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class ScenarioFormat: Layout of the binary scenario files written by the
+ * ScenarioWriter and read by the ScenarioReader.
+ *
+ * A scenario is a road network with the signal timing of its intersections and the
+ * demand (number of vehicles) it is run with. The area of the network is cut into a
+ * grid of regions, and every road is cut at the region borders it crosses, so each
+ * road record is a piece of a road that lies in one region. The spatial index at the
+ * front of the file lists the road records of each region. A reader only parses the
+ * header and the index entries it is asked for, so a region of a large city can be
+ * loaded without reading the rest of it. All values are little endian:
+ *
+ * Header (64 bytes)
+ *   int magic, int version, int node count, int road record count,
+ *   int region columns, int region rows, int signal plan count, 4 bytes padding,
+ *   double min x, double min y, double region width, double region height
+ *
+ * Signal plans (24 bytes per plan)
+ *   double turn green, double green, double yellow duration (see SignalTiming)
+ *
+ * Region index (16 bytes per region, row by row from min y, column by column from min x)
+ *   long offset of the region's road list, int road count, int vehicle count
+ *
+ * Road index (8 bytes per road record)
+ *   long offset of the road record
+ *
+ * Region road lists
+ *   int road record id per road record in the region
+ *
+ * Road record
+ *   short name length, name (UTF-8), byte lanes, int node count, then per node in order
+ *   from the first to the last node of the piece: int node id, short signal plan,
+ *   double x, double y
+ *
+ * Nodes are numbered across the whole scenario, so roads that cross share the node id
+ * of their crossing even when they are loaded with different regions. Where a road
+ * crosses a region border there is a border node (NO_PLAN) that ends the piece on one
+ * side and starts the piece on the other, with the same id in both records. The pieces
+ * of a road carry its name; once both sides are loaded the engine joins them at the
+ * border node without an intersection and cars drive on through it, while a border
+ * whose other side is not loaded is an open road end. A node where roads cross is an
+ * intersection, its signal plan (NO_PLAN for a road end) is repeated in the record of
+ * every piece through it. The vehicle count of a region is the demand spawned inside
+ * it when the region is loaded; the vehicles themselves (positions, speeds, random
+ * streams) are not stored, a SimulationCheckpoint is needed for that.
+ *
+ * Limitations:
+ * - Demand is only this fixed vehicle count per region. A TrafficDemand (arrival rates
+ *   per road end and their profile) is not part of the format; set one on the engine
+ *   after loading (SimulationEngine.setDemand).
+ *
+ * 1 unit = 100 meters = 2.5 pixels
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+public final class ScenarioFormat {
+
+	public static final int MAGIC = 0x53434E31;			// "SCN1"
+	public static final int VERSION = 2;
+
+	public static final int HEADER_SIZE = 64;
+	public static final int SIGNAL_PLAN_SIZE = 24;
+	public static final int REGION_ENTRY_SIZE = 16;
+	public static final int ROAD_ENTRY_SIZE = 8;
+	public static final int NODE_RECORD_SIZE = 22;
+
+	// Signal plan of a node that is not an intersection
+	public static final short NO_PLAN = -1;
+
+	// Offsets inside the header
+	static final int NODE_COUNT_OFFSET = 8;
+	static final int ROAD_COUNT_OFFSET = 12;
+	static final int REGION_COLUMNS_OFFSET = 16;
+	static final int REGION_ROWS_OFFSET = 20;
+	static final int PLAN_COUNT_OFFSET = 24;
+	static final int MIN_X_OFFSET = 32;
+	static final int MIN_Y_OFFSET = 40;
+	static final int REGION_WIDTH_OFFSET = 48;
+	static final int REGION_HEIGHT_OFFSET = 56;
+
+
+	private ScenarioFormat() {
+	}
+
+
+	static long regionIndexOffset(int planCount) {
+		return HEADER_SIZE + (long) planCount * SIGNAL_PLAN_SIZE;
+	}
+
+
+	static long roadIndexOffset(int planCount, int regionCount) {
+		return regionIndexOffset(planCount) + (long) regionCount * REGION_ENTRY_SIZE;
+	}
+
+
+	// Column or row of the region holding a coordinate, clamped to the grid
+	static int regionOf(double position, double min, double size, int count) {
+		int region = (int) Math.floor((position - min) / size);
+		return Math.max(0, Math.min(count - 1, region));
+	}
+}
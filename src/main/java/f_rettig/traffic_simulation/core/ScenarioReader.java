@@ -0,0 +1,384 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class ScenarioReader: Loads a scenario file (see ScenarioFormat) into a
+ * SimulationEngine region by region, when the regions are needed.
+ *
+ * Opening a scenario maps the file and reads only the header and the signal plans. The
+ * region and road indexes are read in place, so the cost of a load depends on the size
+ * of the loaded regions, not of the whole city. Loading a region adds the pieces of the
+ * roads that lie in it, gives the new intersections their signal plan and then spawns
+ * the region's demand inside it: on the segments leaving the nodes of its pieces that
+ * lie in the region, or on the segments crossing it if it holds no node. Roads that
+ * cross share a node, so their intersection appears as soon as both of them are loaded,
+ * and the pieces of a road join at their border node once both regions are loaded.
+ *
+ * A reader belongs to one engine and must be used from the thread that runs it. After
+ * the engine was reset, open the scenario again.
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.HashMap;
+
+import application.Car.Direction;
+
+public class ScenarioReader implements Closeable {
+
+	private final SimulationEngine engine;
+	private FileChannel channel;
+	private ByteBuffer file;
+
+	private int nodeCount;
+	private int roadCount;
+	private int regionColumns;
+	private int regionRows;
+	private double minX;
+	private double minY;
+	private double regionWidth;
+	private double regionHeight;
+	private SignalTiming[] plans;
+	private long regionIndexOffset;
+	private long roadIndexOffset;
+
+	// What was loaded into the engine so far
+	private final BitSet loadedRegions = new BitSet();
+	private final BitSet loadedRoads = new BitSet();
+	private final HashMap<Integer, Integer> engineNodes = new HashMap<>();		// Scenario node id -> engine node
+	private int loadedRoadCount = 0;
+
+
+	private ScenarioReader(SimulationEngine engine) {
+		this.engine = engine;
+	}
+
+
+	// Opens the scenario for loading into the engine, reads nothing but the header
+	public static ScenarioReader open(Path path, SimulationEngine engine) throws IOException {
+		ScenarioReader reader = new ScenarioReader(engine);
+
+		try {
+			reader.map(path);
+
+		} catch (IOException | RuntimeException e) {
+			reader.close();
+			throw e;
+		}
+
+		return reader;
+	}
+
+
+	private void map(Path path) throws IOException {
+		channel = FileChannel.open(path);
+
+		if (channel.size() < ScenarioFormat.HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+			throw new IOException("Not a scenario file: " + path);
+		}
+
+		file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		file.order(ByteOrder.LITTLE_ENDIAN);
+
+		if (file.getInt(0) != ScenarioFormat.MAGIC) {
+			throw new IOException("Not a scenario file: " + path);
+		}
+
+		int version = file.getInt(Integer.BYTES);
+
+		if (version != ScenarioFormat.VERSION) {
+			throw new IOException("Unsupported scenario version " + version + ": " + path);
+		}
+
+		nodeCount = file.getInt(ScenarioFormat.NODE_COUNT_OFFSET);
+		roadCount = file.getInt(ScenarioFormat.ROAD_COUNT_OFFSET);
+		regionColumns = file.getInt(ScenarioFormat.REGION_COLUMNS_OFFSET);
+		regionRows = file.getInt(ScenarioFormat.REGION_ROWS_OFFSET);
+		int planCount = file.getInt(ScenarioFormat.PLAN_COUNT_OFFSET);
+		minX = file.getDouble(ScenarioFormat.MIN_X_OFFSET);
+		minY = file.getDouble(ScenarioFormat.MIN_Y_OFFSET);
+		regionWidth = file.getDouble(ScenarioFormat.REGION_WIDTH_OFFSET);
+		regionHeight = file.getDouble(ScenarioFormat.REGION_HEIGHT_OFFSET);
+
+		regionIndexOffset = ScenarioFormat.regionIndexOffset(planCount);
+		roadIndexOffset = ScenarioFormat.roadIndexOffset(planCount, regionColumns * regionRows);
+
+		if (regionColumns < 1 || regionRows < 1 || roadCount < 0 || planCount < 0
+				|| roadIndexOffset + (long) roadCount * ScenarioFormat.ROAD_ENTRY_SIZE > file.limit()) {
+			throw new IOException("Incomplete scenario file: " + path);
+		}
+
+		plans = new SignalTiming[planCount];
+
+		for (int p = 0; p < planCount; p++) {
+			int offset = ScenarioFormat.HEADER_SIZE + p * ScenarioFormat.SIGNAL_PLAN_SIZE;
+			SignalTiming plan = new SignalTiming(file.getDouble(offset), file.getDouble(offset + Double.BYTES),
+					file.getDouble(offset + 2 * Double.BYTES));
+			plans[p] = plan.equals(SignalTiming.DEFAULT) ? SignalTiming.DEFAULT : plan;
+		}
+	}
+
+
+	/**
+	 * Loads one region unless it was loaded before. Returns the number of roads that were
+	 * added to the engine.
+	 */
+	public int loadRegion(int column, int row) {
+
+		if (column < 0 || column >= regionColumns || row < 0 || row >= regionRows) {
+			throw new IllegalArgumentException("No such region: " + column + ", " + row);
+		}
+
+		int region = row * regionColumns + column;
+
+		if (loadedRegions.get(region)) {
+			return 0;
+		}
+
+		loadedRegions.set(region);
+
+		int entry = (int) regionIndexOffset + region * ScenarioFormat.REGION_ENTRY_SIZE;
+		int listOffset = (int) file.getLong(entry);
+		int regionRoadCount = file.getInt(entry + Long.BYTES);
+		int vehicleCount = file.getInt(entry + Long.BYTES + Integer.BYTES);
+		int added = 0;
+
+		for (int k = 0; k < regionRoadCount; k++) {
+			int road = file.getInt(listOffset + k * Integer.BYTES);
+
+			if (!loadedRoads.get(road)) {
+				loadRoad(road);
+				added++;
+			}
+		}
+
+		// Cars already on the roads pick up the new segments and intersections once
+		if (added > 0) {
+			engine.relocateCars();
+		}
+
+		// The region's demand starts on its own roads
+		if (vehicleCount > 0) {
+			int[] edges = regionEdges(listOffset, regionRoadCount, region);
+
+			for (int v = 0; v < vehicleCount && edges.length > 0; v++) {
+				engine.spawnCarOn(edges);
+			}
+		}
+
+		return added;
+	}
+
+
+	/**
+	 * Segments leaving the nodes of the region's roads that lie inside the region. A
+	 * region that only has roads passing through it gets the segments crossing it.
+	 */
+	private int[] regionEdges(int listOffset, int regionRoadCount, int region) {
+		RoadNetwork network = engine.getNetwork();
+		BitSet inside = new BitSet();
+		BitSet crossing = new BitSet();
+
+		for (int k = 0; k < regionRoadCount; k++) {
+			int road = file.getInt(listOffset + k * Integer.BYTES);
+			int offset = (int) file.getLong((int) roadIndexOffset + road * ScenarioFormat.ROAD_ENTRY_SIZE);
+			int nodesOffset = offset + Short.BYTES + file.getShort(offset) + 1;
+			int count = file.getInt(nodesOffset);
+			int previous = VehicleStore.NONE;
+			int previousRegion = VehicleStore.NONE;
+
+			for (int n = 0; n < count; n++) {
+				int record = nodesOffset + Integer.BYTES + n * ScenarioFormat.NODE_RECORD_SIZE;
+				int node = engineNodes.get(file.getInt(record));
+				int nodeRegion = regionOf(file.getDouble(record + Integer.BYTES + Short.BYTES),
+						file.getDouble(record + Integer.BYTES + Short.BYTES + Double.BYTES));
+
+				if (nodeRegion == region) {
+					addOutgoingEdges(network, node, inside);
+				}
+
+				// A straight segment crosses every region between the regions of its ends
+				if (previous != VehicleStore.NONE && spans(previousRegion, nodeRegion, region)) {
+					crossing.set(edgeBetween(network, previous, node));
+					crossing.set(edgeBetween(network, node, previous));
+				}
+
+				previous = node;
+				previousRegion = nodeRegion;
+			}
+		}
+
+		return (inside.isEmpty() ? crossing : inside).stream().toArray();
+	}
+
+
+	private static void addOutgoingEdges(RoadNetwork network, int node, BitSet edges) {
+		for (Direction direction : Direction.values()) {
+			int edge = network.getOutgoingEdge(node, direction);
+
+			if (edge != VehicleStore.NONE) {
+				edges.set(edge);
+			}
+		}
+	}
+
+
+	private static int edgeBetween(RoadNetwork network, int from, int to) {
+		for (Direction direction : Direction.values()) {
+			int edge = network.getOutgoingEdge(from, direction);
+
+			if (edge != VehicleStore.NONE && network.getEdgeTo(edge) == to) {
+				return edge;
+			}
+		}
+
+		throw new IllegalStateException("No segment between nodes " + from + " and " + to);
+	}
+
+
+	// True if the region lies in the rectangle of regions between the two
+	private boolean spans(int first, int second, int region) {
+		int column = region % regionColumns;
+		int row = region / regionColumns;
+
+		return column >= Math.min(first % regionColumns, second % regionColumns)
+				&& column <= Math.max(first % regionColumns, second % regionColumns)
+				&& row >= Math.min(first / regionColumns, second / regionColumns)
+				&& row <= Math.max(first / regionColumns, second / regionColumns);
+	}
+
+
+	// Region index of a position
+	private int regionOf(double x, double y) {
+		return ScenarioFormat.regionOf(y, minY, regionHeight, regionRows) * regionColumns
+				+ ScenarioFormat.regionOf(x, minX, regionWidth, regionColumns);
+	}
+
+
+	// Loads every region overlapping the rectangle, returns the number of roads added
+	public int loadArea(double fromX, double fromY, double toX, double toY) {
+		int firstColumn = ScenarioFormat.regionOf(Math.min(fromX, toX), minX, regionWidth, regionColumns);
+		int lastColumn = ScenarioFormat.regionOf(Math.max(fromX, toX), minX, regionWidth, regionColumns);
+		int firstRow = ScenarioFormat.regionOf(Math.min(fromY, toY), minY, regionHeight, regionRows);
+		int lastRow = ScenarioFormat.regionOf(Math.max(fromY, toY), minY, regionHeight, regionRows);
+		int added = 0;
+
+		for (int row = firstRow; row <= lastRow; row++) {
+			for (int column = firstColumn; column <= lastColumn; column++) {
+				added += loadRegion(column, row);
+			}
+		}
+
+		return added;
+	}
+
+
+	// Loads the whole scenario, returns the number of roads added
+	public int loadAll() {
+		int added = 0;
+
+		for (int row = 0; row < regionRows; row++) {
+			for (int column = 0; column < regionColumns; column++) {
+				added += loadRegion(column, row);
+			}
+		}
+
+		return added;
+	}
+
+
+	// Add one road record to the engine, with the nodes it shares with loaded roads
+	private void loadRoad(int road) {
+		int offset = (int) file.getLong((int) roadIndexOffset + road * ScenarioFormat.ROAD_ENTRY_SIZE);
+		ByteBuffer record = file.duplicate().order(ByteOrder.LITTLE_ENDIAN).position(offset);
+
+		byte[] name = new byte[record.getShort()];
+		record.get(name);
+		int lanes = record.get();
+		int[] nodes = new int[record.getInt()];
+		SignalTiming[] nodeTimings = new SignalTiming[nodes.length];
+
+		for (int k = 0; k < nodes.length; k++) {
+			int node = record.getInt();
+			short plan = record.getShort();
+			double x = record.getDouble();
+			double y = record.getDouble();
+			nodes[k] = engineNodes.computeIfAbsent(node, id -> engine.addNode(x, y));
+			nodeTimings[k] = plan != ScenarioFormat.NO_PLAN ? plans[plan] : null;
+		}
+
+		// Intersections this road completes start right away with their signal plan
+		engine.connectRoad(new String(name, StandardCharsets.UTF_8), lanes, nodeTimings, nodes);
+		loadedRoads.set(road);
+		loadedRoadCount++;
+	}
+
+
+	@Override
+	public void close() throws IOException {
+		if (channel != null) {
+			channel.close();
+			channel = null;
+		}
+
+		file = null;
+	}
+
+	// Collection of Getters
+
+	// Column of the region holding the x coordinate (clamped to the grid)
+	public int getRegionColumn(double x) {
+		return ScenarioFormat.regionOf(x, minX, regionWidth, regionColumns);
+	}
+
+
+	public int getRegionRow(double y) {
+		return ScenarioFormat.regionOf(y, minY, regionHeight, regionRows);
+	}
+
+
+	public boolean isRegionLoaded(int column, int row) {
+		return loadedRegions.get(row * regionColumns + column);
+	}
+
+
+	public int getRegionColumns() {
+		return regionColumns;
+	}
+
+
+	public int getRegionRows() {
+		return regionRows;
+	}
+
+
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+
+	public int getRoadCount() {
+		return roadCount;
+	}
+
+
+	public int getLoadedRoadCount() {
+		return loadedRoadCount;
+	}
+
+
+	public SimulationEngine getEngine() {
+		return engine;
+	}
+}
@@ -0,0 +1,408 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class ScenarioWriter: Saves the network of a SimulationEngine as a scenario file (see
+ * ScenarioFormat): its roads cut at the region borders, the signal timing of its
+ * intersections and, as demand, how many of its vehicles are in each region. Build the network with addRoad,
+ * GridBuilder or any other way, then write it once and load it with a ScenarioReader
+ * as often as needed.
+ *
+ * The file is written front to back into a memory-mapped FileChannel of the exact size.
+ *
+ * From the command line, to write a grid city (all options but --out are optional):
+ * java -cp target/classes application.ScenarioWriter --out=city.scn --grid=300x300
+ *     --regions=16x16 --cars=20000 --seed=335
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public final class ScenarioWriter {
+
+	// Command line defaults
+	private static final String DEFAULT_GRID = "10x10";
+	private static final String DEFAULT_REGIONS = "4x4";
+
+
+	private ScenarioWriter() {
+	}
+
+
+	/**
+	 * Writes the engine's network to the file, replacing it, with the area cut into
+	 * columns x rows regions. Call it from the thread that runs the engine.
+	 */
+	public static void write(SimulationEngine engine, Path file, int columns, int rows) throws IOException {
+
+		if (columns < 1 || rows < 1) {
+			throw new IllegalArgumentException("Scenario needs at least one region: " + columns + " x " + rows);
+		}
+
+		RoadNetwork network = engine.getNetwork();
+		ArrayList<Road> roads = network.getRoads();
+
+		if (roads.isEmpty()) {
+			throw new IllegalArgumentException("Scenario needs at least one road");
+		}
+
+		double minX = network.getMinX();
+		double minY = network.getMinY();
+		double regionWidth = Math.max(network.getMaxX() - minX, 1) / columns;
+		double regionHeight = Math.max(network.getMaxY() - minY, 1) / rows;
+		int regionCount = columns * rows;
+
+		// Signal plans in the order the intersections first use them
+		ArrayList<SignalTiming> plans = new ArrayList<>();
+		HashMap<SignalTiming, Integer> planIds = new HashMap<>();
+		short[] nodePlans = new short[network.getNodeCount()];
+		Arrays.fill(nodePlans, ScenarioFormat.NO_PLAN);
+
+		for (Intersection intersection : engine.getIntersections()) {
+			int plan = planIds.computeIfAbsent(intersection.getSignalTiming(), timing -> {
+				plans.add(timing);
+				return plans.size() - 1;
+			});
+
+			nodePlans[intersection.getNode()] = (short) plan;
+		}
+
+		if (plans.size() > Short.MAX_VALUE) {
+			throw new IOException("Too many signal plans for one scenario: " + plans.size());
+		}
+
+		// Roads cut into pieces at the region borders, border nodes are numbered after the network's nodes
+		RoadPieces pieces = new RoadPieces(network, minX, minY, regionWidth, regionHeight, columns, rows);
+
+		for (int r = 0; r < roads.size(); r++) {
+			pieces.cut(r);
+		}
+
+		int pieceCount = pieces.roads.size();
+		int nodeCount = network.getNodeCount() + pieces.borderCount;
+		byte[][] names = new byte[roads.size()][];
+		int[] regionRoads = new int[regionCount];
+
+		for (int r = 0; r < roads.size(); r++) {
+			names[r] = roads.get(r).getRoadName().getBytes(StandardCharsets.UTF_8);
+		}
+
+		for (int p = 0; p < pieceCount; p++) {
+			regionRoads[pieces.regions.get(p)]++;
+		}
+
+		// Demand: the vehicles currently in each region, without the parked slots
+		int[] regionVehicles = new int[regionCount];
+		VehicleStore vehicles = engine.getVehicles();
+
+		for (int id = 0; id < vehicles.size(); id++) {
+			if (vehicles.isParked(id)) {
+				continue;
+			}
+
+			int column = ScenarioFormat.regionOf(vehicles.x[id], minX, regionWidth, columns);
+			int row = ScenarioFormat.regionOf(vehicles.y[id], minY, regionHeight, rows);
+			regionVehicles[row * columns + column]++;
+		}
+
+		// Sizes and offsets of the sections
+		long roadListOffset = ScenarioFormat.roadIndexOffset(plans.size(), regionCount)
+				+ (long) pieceCount * ScenarioFormat.ROAD_ENTRY_SIZE;
+		long roadRecordOffset = roadListOffset;
+
+		for (int region = 0; region < regionCount; region++) {
+			roadRecordOffset += (long) regionRoads[region] * Integer.BYTES;
+		}
+
+		long size = roadRecordOffset;
+
+		for (int p = 0; p < pieceCount; p++) {
+			size += recordSize(names[pieces.roads.get(p)], pieces.nodes.get(p));
+		}
+
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("Network too large for one scenario file: " + size + " bytes");
+		}
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+			buffer.putInt(ScenarioFormat.MAGIC);
+			buffer.putInt(ScenarioFormat.VERSION);
+			buffer.putInt(nodeCount);
+			buffer.putInt(pieceCount);
+			buffer.putInt(columns);
+			buffer.putInt(rows);
+			buffer.putInt(plans.size());
+			buffer.putInt(0);
+			buffer.putDouble(minX);
+			buffer.putDouble(minY);
+			buffer.putDouble(regionWidth);
+			buffer.putDouble(regionHeight);
+
+			for (SignalTiming plan : plans) {
+				buffer.putDouble(plan.getTurnGreenDuration());
+				buffer.putDouble(plan.getGreenDuration());
+				buffer.putDouble(plan.getYellowDuration());
+			}
+
+			// Region index, each road list starts where the previous one ended
+			long listOffset = roadListOffset;
+
+			for (int region = 0; region < regionCount; region++) {
+				buffer.putLong(listOffset);
+				buffer.putInt(regionRoads[region]);
+				buffer.putInt(regionVehicles[region]);
+				listOffset += (long) regionRoads[region] * Integer.BYTES;
+			}
+
+			// Road index
+			long recordOffset = roadRecordOffset;
+
+			for (int p = 0; p < pieceCount; p++) {
+				buffer.putLong(recordOffset);
+				recordOffset += recordSize(names[pieces.roads.get(p)], pieces.nodes.get(p));
+			}
+
+			// Road lists, filled piece by piece with a write position per region
+			long[] listCursor = new long[regionCount];
+			listOffset = roadListOffset;
+
+			for (int region = 0; region < regionCount; region++) {
+				listCursor[region] = listOffset;
+				listOffset += (long) regionRoads[region] * Integer.BYTES;
+			}
+
+			for (int p = 0; p < pieceCount; p++) {
+				int region = pieces.regions.get(p);
+				buffer.putInt((int) listCursor[region], p);
+				listCursor[region] += Integer.BYTES;
+			}
+
+			// Road records
+			buffer.position((int) roadRecordOffset);
+
+			for (int p = 0; p < pieceCount; p++) {
+				int r = pieces.roads.get(p);
+				int[] pieceNodes = pieces.nodes.get(p);
+
+				buffer.putShort((short) names[r].length);
+				buffer.put(names[r]);
+				buffer.put((byte) network.getEdgeLanes(roads.get(r).getSpawnEdge(0)));
+				buffer.putInt(pieceNodes.length);
+
+				for (int node : pieceNodes) {
+					buffer.putInt(node);
+					buffer.putShort(node < nodePlans.length ? nodePlans[node] : ScenarioFormat.NO_PLAN);
+					buffer.putDouble(pieces.getX(node));
+					buffer.putDouble(pieces.getY(node));
+				}
+			}
+
+			buffer.force();
+		}
+	}
+
+
+	private static long recordSize(byte[] name, int[] nodes) {
+		return Short.BYTES + name.length + 1 + Integer.BYTES + (long) nodes.length * ScenarioFormat.NODE_RECORD_SIZE;
+	}
+
+
+	/**
+	 * The roads of a network cut at the region borders they cross. Every piece lies in
+	 * one region and ends at a border node where the next piece of its road starts, so
+	 * the pieces of a road share the node at each border.
+	 */
+	private static final class RoadPieces {
+
+		private final RoadNetwork network;
+		private final double minX;
+		private final double minY;
+		private final double regionWidth;
+		private final double regionHeight;
+		private final int columns;
+		private final int rows;
+
+		// Pieces: the road they were cut from, their nodes in road order and their region
+		final ArrayList<Integer> roads = new ArrayList<>();
+		final ArrayList<int[]> nodes = new ArrayList<>();
+		final ArrayList<Integer> regions = new ArrayList<>();
+
+		// Border nodes, numbered from the network's node count on
+		int borderCount = 0;
+		private double[] borderX = new double[16];
+		private double[] borderY = new double[16];
+
+
+		RoadPieces(RoadNetwork network, double minX, double minY, double regionWidth, double regionHeight,
+				int columns, int rows) {
+			this.network = network;
+			this.minX = minX;
+			this.minY = minY;
+			this.regionWidth = regionWidth;
+			this.regionHeight = regionHeight;
+			this.columns = columns;
+			this.rows = rows;
+		}
+
+
+		// Add the pieces of a road: a new piece starts wherever a segment lies in another region than the one before
+		void cut(int road) {
+			int[] roadNodes = insertBorderNodes(network.getRoadNodes(road), network.getRoads().get(road).isHorizontal());
+			int first = 0;
+			int region = segmentRegion(roadNodes[0], roadNodes[1]);
+
+			for (int k = 1; k + 1 < roadNodes.length; k++) {
+				int next = segmentRegion(roadNodes[k], roadNodes[k + 1]);
+
+				if (next != region) {
+					addPiece(road, Arrays.copyOfRange(roadNodes, first, k + 1), region);
+					first = k;
+					region = next;
+				}
+			}
+
+			addPiece(road, Arrays.copyOfRange(roadNodes, first, roadNodes.length), region);
+		}
+
+
+		// The road's nodes with a border node wherever a segment crosses a region border (between its ends)
+		private int[] insertBorderNodes(int[] roadNodes, boolean horizontal) {
+			double origin = horizontal ? minX : minY;
+			double size = horizontal ? regionWidth : regionHeight;
+			int count = horizontal ? columns : rows;
+
+			// A straight road crosses every border at most once
+			int[] result = new int[roadNodes.length + count - 1];
+			int length = 0;
+			result[length++] = roadNodes[0];
+
+			for (int k = 1; k < roadNodes.length; k++) {
+				double from = horizontal ? getX(roadNodes[k - 1]) : getY(roadNodes[k - 1]);
+				double to = horizontal ? getX(roadNodes[k]) : getY(roadNodes[k]);
+				double across = horizontal ? getY(roadNodes[k]) : getX(roadNodes[k]);
+
+				// Borders strictly between the two nodes, in the order the road runs
+				for (int b = 1; b < count; b++) {
+					int border = to > from ? b : count - b;
+					double position = origin + border * size;
+
+					if (Math.min(from, to) < position && position < Math.max(from, to)) {
+						result[length++] = horizontal ? addBorderNode(position, across) : addBorderNode(across, position);
+					}
+				}
+
+				result[length++] = roadNodes[k];
+			}
+
+			return Arrays.copyOf(result, length);
+		}
+
+
+		private int addBorderNode(double x, double y) {
+			if (borderCount == borderX.length) {
+				borderX = Arrays.copyOf(borderX, borderCount * 2);
+				borderY = Arrays.copyOf(borderY, borderCount * 2);
+			}
+
+			borderX[borderCount] = x;
+			borderY[borderCount] = y;
+
+			return network.getNodeCount() + borderCount++;
+		}
+
+
+		private void addPiece(int road, int[] pieceNodes, int region) {
+			roads.add(road);
+			nodes.add(pieceNodes);
+			regions.add(region);
+		}
+
+
+		// Region of the middle of a segment, the segments of a cut road never cross a border
+		private int segmentRegion(int from, int to) {
+			double x = (getX(from) + getX(to)) / 2;
+			double y = (getY(from) + getY(to)) / 2;
+
+			return ScenarioFormat.regionOf(y, minY, regionHeight, rows) * columns
+					+ ScenarioFormat.regionOf(x, minX, regionWidth, columns);
+		}
+
+
+		double getX(int node) {
+			return node < network.getNodeCount() ? network.getNodeX(node) : borderX[node - network.getNodeCount()];
+		}
+
+
+		double getY(int node) {
+			return node < network.getNodeCount() ? network.getNodeY(node) : borderY[node - network.getNodeCount()];
+		}
+	}
+
+
+	public static void main(String[] args) throws IOException {
+		Map<String, String> options = new HashMap<>();
+
+		for (String arg : args) {
+			int separator = arg.indexOf('=');
+
+			if (!arg.startsWith("--") || separator < 0) {
+				throw new IllegalArgumentException("Expected --name=value: " + arg);
+			}
+
+			options.put(arg.substring(2, separator), arg.substring(separator + 1));
+		}
+
+		if (!options.containsKey("out")) {
+			throw new IllegalArgumentException("Missing --out=<file>");
+		}
+
+		int[] grid = parseSize(options.getOrDefault("grid", DEFAULT_GRID));
+		int[] regions = parseSize(options.getOrDefault("regions", DEFAULT_REGIONS));
+		int cars = Integer.parseInt(options.getOrDefault("cars", "0"));
+		long seed = Long.parseLong(options.getOrDefault("seed", String.valueOf(RandomSource.randomSeed())));
+		Path file = Path.of(options.get("out"));
+
+		SimulationEngine engine = new SimulationEngine(seed);
+		GridBuilder.build(engine, grid[0], grid[1], SimulationEngine.ROAD_SPACING);
+
+		for (int i = 0; i < cars; i++) {
+			engine.spawnRandomCar();
+		}
+
+		write(engine, file, regions[0], regions[1]);
+
+		System.out.printf("%s: %d roads, %d intersections, %d vehicles in %d x %d regions%n", file,
+				engine.getRoads().size(), engine.getIntersections().size(), cars, regions[0], regions[1]);
+	}
+
+
+	// "columns x rows", e.g. 300x300
+	private static int[] parseSize(String size) {
+		int separator = size.indexOf('x');
+
+		if (separator < 0) {
+			throw new IllegalArgumentException("Expected <columns>x<rows>: " + size);
+		}
+
+		return new int[] {Integer.parseInt(size.substring(0, separator)), Integer.parseInt(size.substring(separator + 1))};
+	}
+}
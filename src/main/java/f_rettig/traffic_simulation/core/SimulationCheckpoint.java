@@ -0,0 +1,259 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class SimulationCheckpoint: Saves the full state of a SimulationEngine to a binary
+ * file and loads it back, so a run can warm-start from a saturated network instead of
+ * simulating the fill-up every time. A loaded engine continues exactly like the saved
+ * one would have: same vehicles, light phases and timers, queued events, statistics and
+ * random streams, tick for tick.
+ *
+ * The file is written and read through a memory-mapped FileChannel. Every column of the
+ * network, the event queue, the statistics and the vehicle store is one bulk copy, so
+ * loading a checkpoint costs about as much as reading the file. All values are little
+ * endian:
+ *
+ * Header (16 bytes)
+ *   int magic, int version, long file length
+ *
+ * Engine
+ *   double timestep, long tick, long seed, long root random state,
+ *   long light change count, int default layout road count, byte idle
+ *
+ * Network
+ *   int node count, int edge count, int road count,
+ *   node columns: double x, double y, int intersection, int outgoing[4], int incoming[4],
+ *   edge columns: int from, int to, int road, byte direction, byte lanes, double length,
+ *   per road: int first node, int last node, short name length, name (UTF-8)
+ *
+ * Intersections
+ *   int count, then per intersection: double x, double y, int node, byte phase,
+ *   byte phase switch queued, double phase expiry, double turn green, double green and
+ *   double yellow duration (SignalTiming), short name length, name (UTF-8),
+ *   and per light (north/south, then east/west): byte phase, byte expiry queued,
+ *   byte turn requested, double expiry
+ *
+ * Statistics
+ *   int intersection count, then per approach slot the columns long served,
+ *   int queue length, int max queue length, long stopped, double total stop delay,
+ *   double max stop delay, long left turns, double total left turn wait,
+ *   double max left turn wait
+ *
+ * Events
+ *   int size, long next sequence, columns double time, int type, int target,
+ *   long sequence (in heap order)
+ *
+ * Vehicles
+ *   int count, int parked count, then the VehicleStore columns in the order of
+ *   VehicleStore.save, int free slots[parked count]
+ *
+ * Lanes
+ *   int count, int order[count] (vehicle ids in lane order of the last tick)
+ *
+ * Demand
+ *   byte present, then if present: double rate, int override count, per override
+ *   int road end and double rate, double profile period, int factor count,
+ *   double factors, int entry count, entry columns int road, int end, double rate,
+ *   long random state, double last drawn, double scheduled, int batch cursor,
+ *   double arrival times[entry count * TrafficDemand.BATCH_SIZE], then the entry
+ *   columns int waiting, int last vehicle, byte retry queued
+ *
+ * A checkpoint holds the simulation only. Recorder, metrics, worker threads and time
+ * scale belong to whoever runs the engine and are not saved.
+ *
+ * From the command line, to build a saturated default layout and save it (all options
+ * but --out are optional):
+ * java -cp target/classes application.SimulationCheckpoint --out=saturated.ckpt
+ *     --cars=400 --warm-up=600 --seed=335
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+public final class SimulationCheckpoint {
+
+	public static final int MAGIC = 0x434B5031;			// "CKP1"
+	public static final int VERSION = 3;
+
+	public static final int HEADER_SIZE = 16;
+
+	// Command line defaults
+	private static final int DEFAULT_CARS = 400;
+	private static final double DEFAULT_WARM_UP = 600.0;	// Simulated seconds
+
+
+	private SimulationCheckpoint() {
+	}
+
+
+	/**
+	 * Writes the engine's state to the file, replacing it. Call it from the thread that
+	 * runs the engine, between ticks.
+	 */
+	public static void save(SimulationEngine engine, Path file) throws IOException {
+		long size = HEADER_SIZE + engine.checkpointSize();
+
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("Simulation too large for one checkpoint: " + size + " bytes");
+		}
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+			buffer.putInt(MAGIC);
+			buffer.putInt(VERSION);
+			buffer.putLong(size);
+			engine.saveCheckpoint(buffer);
+
+			if (buffer.position() != size) {
+				throw new IOException("Checkpoint size mismatch: " + buffer.position() + " of " + size + " bytes written");
+			}
+
+			buffer.force();
+		}
+	}
+
+
+	// New paused engine with the state saved in the file
+	public static SimulationEngine load(Path file) throws IOException {
+		SimulationEngine engine = new SimulationEngine();
+		restore(file, engine);
+
+		return engine;
+	}
+
+
+	/**
+	 * Replaces the state of an existing engine with the one saved in the file, e.g. the
+	 * engine behind a SimulationController. Call it from the thread that runs the engine.
+	 */
+	public static void restore(Path file, SimulationEngine engine) throws IOException {
+		try (FileChannel channel = FileChannel.open(file)) {
+
+			if (channel.size() < HEADER_SIZE) {
+				throw new IOException("Not a simulation checkpoint: " + file);
+			}
+
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+			if (buffer.getInt() != MAGIC) {
+				throw new IOException("Not a simulation checkpoint: " + file);
+			}
+
+			int version = buffer.getInt();
+
+			if (version != VERSION) {
+				throw new IOException("Unsupported checkpoint version " + version + ": " + file);
+			}
+
+			if (buffer.getLong() != channel.size()) {
+				throw new IOException("Incomplete checkpoint: " + file);
+			}
+
+			try {
+				engine.restoreCheckpoint(buffer);
+
+			} catch (RuntimeException e) {
+				engine.reset();
+				throw new IOException("Corrupt checkpoint: " + file, e);
+			}
+		}
+	}
+
+	// Bulk column copies for the save and restore methods of the engine's parts
+
+	static void putDoubles(ByteBuffer out, double[] values, int count) {
+		out.asDoubleBuffer().put(values, 0, count);
+		out.position(out.position() + count * Double.BYTES);
+	}
+
+
+	static void putInts(ByteBuffer out, int[] values, int count) {
+		out.asIntBuffer().put(values, 0, count);
+		out.position(out.position() + count * Integer.BYTES);
+	}
+
+
+	static void putLongs(ByteBuffer out, long[] values, int count) {
+		out.asLongBuffer().put(values, 0, count);
+		out.position(out.position() + count * Long.BYTES);
+	}
+
+
+	static void getDoubles(ByteBuffer in, double[] values, int count) {
+		in.asDoubleBuffer().get(values, 0, count);
+		in.position(in.position() + count * Double.BYTES);
+	}
+
+
+	static void getInts(ByteBuffer in, int[] values, int count) {
+		in.asIntBuffer().get(values, 0, count);
+		in.position(in.position() + count * Integer.BYTES);
+	}
+
+
+	static void getLongs(ByteBuffer in, long[] values, int count) {
+		in.asLongBuffer().get(values, 0, count);
+		in.position(in.position() + count * Long.BYTES);
+	}
+
+
+	public static void main(String[] args) throws IOException {
+		Map<String, String> options = new HashMap<>();
+
+		for (String arg : args) {
+			int separator = arg.indexOf('=');
+
+			if (!arg.startsWith("--") || separator < 0) {
+				throw new IllegalArgumentException("Expected --name=value: " + arg);
+			}
+
+			options.put(arg.substring(2, separator), arg.substring(separator + 1));
+		}
+
+		if (!options.containsKey("out")) {
+			throw new IllegalArgumentException("Missing --out=<file>");
+		}
+
+		int cars = Integer.parseInt(options.getOrDefault("cars", String.valueOf(DEFAULT_CARS)));
+		double warmUp = Double.parseDouble(options.getOrDefault("warm-up", String.valueOf(DEFAULT_WARM_UP)));
+		long seed = Long.parseLong(options.getOrDefault("seed", String.valueOf(RandomSource.randomSeed())));
+		Path file = Path.of(options.get("out"));
+
+		// Default scenario topped up to the requested number of cars, run until it filled up
+		SimulationEngine engine = new SimulationEngine(seed);
+		engine.createDefaultScenario();
+
+		while (engine.getVehicles().size() < cars) {
+			engine.spawnRandomCar();
+		}
+
+		engine.start();
+		engine.runFor(warmUp);
+		save(engine, file);
+
+		// Time a load to show what a warm start costs
+		long start = System.nanoTime();
+		SimulationEngine loaded = load(file);
+
+		System.out.printf("%s: %d vehicles, %d intersections at %.1f s, seed %d, loaded in %.2f ms%n", file,
+				loaded.getVehicles().size(), loaded.getIntersections().size(), loaded.getSimulationTime(), seed,
+				(System.nanoTime() - start) / 1e6);
+	}
+}
@@ -1,11 +1,25 @@
 /**
  * UMGC CMSC 335
  * Final Project: Traffic Simulation 
- * Class SimulationController: Manages the core logic of the traffic simulation, including roads,
- * cars, intersections, and their visual representations. This class handles simulation state
- * (running, paused, reset), updates car movements and traffic light logic per frame, and dynamically 
- * spawns roads and cars. It also manages the visual layout for both the simulation area and traffic 
- * light display.
+ * Class SimulationController: JavaFX adapter on top of the headless SimulationEngine. The
+ * engine owns the roads, cars and intersections and runs on its own SimulationThread; this
+ * class forwards the UI actions (start, pause, reset, add road, add car) to that thread and
+ * draws the latest FrameSnapshot from an AnimationTimer, keeping the visual representations
+ * (road rectangles, car sprites, traffic light display) in sync with the model. A slow tick
+ * therefore never blocks a frame, and a slow frame never stretches a tick.
+ *
+ * startReplay(directory) plays a recording of the TrajectoryRecorder back through the
+ * same frames instead of simulating: the roads and lights of the recording are built
+ * in the paused engine, and play/pause, speed and seeking control the replay.
+ *
+ * With a warm start file (setWarmStart) the simulation starts from a SimulationCheckpoint
+ * instead of the default layout, e.g. from a network that is already full of cars, and
+ * with a scenario file (setScenario) from the network and demand of the scenario. With
+ * an arrival rate (setDemand) vehicles keep arriving at the road ends by a TrafficDemand
+ * and leave for good, instead of the fixed population respawning.
+ *
+ * Two render modes are supported: SPRITES keeps one Rectangle node per road and car,
+ * CANVAS draws everything through a CarCanvasRenderer, which scales to far more cars.
  * 
  * 1 unit = 100 meters = 2.5 pixels
  * 
@@ -16,10 +30,12 @@
 
 package application;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.concurrent.ThreadLocalRandom;
 
-import application.Car.CarState;
+import javax.management.JMException;
+
 import javafx.animation.AnimationTimer;
 import javafx.geometry.Insets;
 import javafx.scene.layout.Background;
@@ -30,27 +46,48 @@ import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
 
 public class SimulationController {
-	private ArrayList<Road> roads;
-	private ArrayList<Car> cars;
+
+	// How roads and cars are drawn
+	public enum RenderMode {
+		SPRITES, CANVAS
+	}
+
+	private SimulationEngine engine;
+	private SimulationThread simulationThread;
+	private RenderMode renderMode = RenderMode.SPRITES;
+	private CarCanvasRenderer canvasRenderer;
 	private ArrayList<CarSprite> carSprites;
-	private ArrayList<Intersection> intersections;
-	private boolean isRunning;
+	private ArrayList<RoadGraphic> roadGraphics;
 	private boolean isInitiated;
-	private int intersectionCount = 0;				// Intersection count for road spacing
+	private boolean isRunning;					// Last run state requested from the UI
+	private long renderedSequence = 0;			// Frame drawn last
 	private Pane simulationPane;
 	private HBox backgroundPane;
 	private AnimationTimer animationTimer;
 	private TrafficLightDisplay trafficLightPanel;
+	private TrajectoryRecorder trajectoryRecorder;		// Only set when recording was requested
+	private TrajectoryReplay replay;					// Only set while a recording is played back
+	private SimulationMetrics metrics;					// Only set when metrics were requested
+	private MetricsEndpoint metricsEndpoint;			// Only set when a scrape port was given
+	private long shownNetworkVersion = -1;				// Roads the replay graphics were built from
+	private Path warmStartFile;							// Checkpoint to start from, null for the default layout
+	private Path scenarioFile;							// Scenario to start from, null for the default layout
+	private double demandRate = -1;						// Vehicles per hour per entry point, negative for a fixed population
 
 
 	public SimulationController() {
-		this.roads = new ArrayList<>();
-		this.cars = new ArrayList<>();
+		this(new SimulationEngine());
+	}
+
+
+	public SimulationController(SimulationEngine engine) {
+		this.engine = engine;
+		this.simulationThread = new SimulationThread(engine);
 		this.carSprites = new ArrayList<>();
-		this.intersections = new ArrayList<>();
-		this.isRunning = false;
+		this.roadGraphics = new ArrayList<>();
 		this.simulationPane = new Pane();
 		this.backgroundPane = new HBox();
+		this.canvasRenderer = new CarCanvasRenderer();
 
 		BackgroundFill backgroundFill = new BackgroundFill(
 				Color.valueOf("#228B22"),
@@ -62,68 +99,150 @@ public class SimulationController {
 		backgroundPane.setMinHeight(275);
 		backgroundPane.setMaxHeight(275);	
 
+		// Draw the newest frame on every pulse, the simulation thread does the stepping
 		animationTimer = new AnimationTimer() {
-			private long lastUpdate = 0;
-
 			@Override
 			public void handle(long now) {
-				if (lastUpdate > 0) {
+				render(simulationThread.getRenderFrames().latest());
+			}
+		};
+
+		simulationThread.start();
+	}
+
+
+	public void startSimulation() {
+
+		isInitiated = true;
 
-					// nanoseconds to seconds
-					double deltaTime = (now - lastUpdate) / 1_000_000_000.0; 
+		if (renderMode == RenderMode.CANVAS) {
+			simulationPane.getChildren().add(canvasRenderer);
+		}
+
+		// Set up initial roads and cars, the default layout if there is no usable file to start from
+		if (!loadStartFile()) {
+			createMainRoad();
+			addRoad("1st St.");
+			addRoad("2nd St.");
+			addRoad("3rd St.");
+			spawnRandomCar();
+			spawnRandomCar();
+			spawnRandomCar();
+		}
+
+		// Arrivals start from the roads that were just built
+		if (demandRate >= 0) {
+			TrafficDemand demand = new TrafficDemand(demandRate);
+			simulationThread.submit(() -> engine.setDemand(demand));
+		}
 
-					// Only update cars if simulation is running
-					if (isRunning) {
-						updateAllCars(deltaTime);
+		simulationThread.submit(() -> engine.start());
+		isRunning = true;
+		animationTimer.start();
+	}
+
+
+	// Load the warm start checkpoint or else the whole scenario and draw its roads, false if there is none to read
+	private boolean loadStartFile() {
+		Path checkpoint = warmStartFile;
+		Path scenario = scenarioFile;
+
+		if (checkpoint == null && scenario == null) {
+			return false;
+		}
+
+		// The graphics are built from a copy of the loaded network, taken on the simulation thread
+		NetworkSnapshot network = simulationThread.call(() -> {
+			try {
+				if (checkpoint != null) {
+					SimulationCheckpoint.restore(checkpoint, engine);
+
+				} else {
+					try (ScenarioReader reader = ScenarioReader.open(scenario, engine)) {
+						reader.loadAll();
 					}
 				}
 
-				lastUpdate = now;
+				return new NetworkSnapshot(engine);
+
+			} catch (IOException e) {
+				e.printStackTrace();
+				engine.reset();
+				return null;
 			}
-		};
+		});
+
+		if (network != null) {
+			rebuildRoadGraphics(network);
+		}
+
+		return network != null;
 	}
 
 
-	public void startSimulation() {
+	/**
+	 * Play the recording in the directory back instead of starting a simulation. Only
+	 * opens the frame index, the frames are decoded as they are shown.
+	 */
+	public void startReplay(Path directory) throws IOException {
 
-		intersectionCount = 0;
-		isRunning = true;
+		if (isInitiated) {
+			return;
+		}
+
+		TrajectoryReplay newReplay = new TrajectoryReplay(TrajectoryReader.open(directory), engine);
 		isInitiated = true;
+		replay = newReplay;
+		shownNetworkVersion = -1;
+
+		if (renderMode == RenderMode.CANVAS) {
+			simulationPane.getChildren().add(canvasRenderer);
+		}
 
-		// Set up initial roads and cars
-		createMainRoad();
-		addRoad("1st St.");
-		addRoad("2nd St.");
-		addRoad("3rd St.");
-		spawnRandomCar();
-		spawnRandomCar();
-		spawnRandomCar();
+		simulationThread.call(() -> {
+			engine.reset();
+			simulationThread.setReplay(newReplay);
+			return null;
+		});
 
+		isRunning = true;
 		animationTimer.start();
 	}
 
 
-	public void pauseSimulation() {
+	// Jump to the given time of the recording
+	public void seekReplay(double time) {
+		TrajectoryReplay current = replay;
+
+		if (current != null) {
+			simulationThread.submit(() -> current.seek(time));
+		}
+	}
 
-		// Stop car updates
-		isRunning = false;
 
-		// Stop traffic light state updates
-		for (Intersection intersection : intersections) {
-			intersection.pauseLightLogic();
+	public void pauseSimulation() {
+		TrajectoryReplay current = replay;
+
+		if (current != null) {
+			simulationThread.submit(() -> current.pause());
+		} else {
+			simulationThread.submit(() -> engine.pause());
 		}
+
+		isRunning = false;
 	}
 
 
 	public void continueSimulation() {
+		TrajectoryReplay current = replay;
 
-		// Resume car updates
-		isRunning = true;
-
-		// Resume traffic light state updates
-		for (Intersection intersection : intersections) {
-			intersection.resumeLightLogic();
+		if (current != null) {
+			simulationThread.submit(() -> current.play());
+		} else {
+			simulationThread.submit(() -> engine.resume());
 		}
+
+		isRunning = true;
 	}
 
 
@@ -137,12 +256,17 @@ public class SimulationController {
 		simulationPane.getChildren().clear();
 		backgroundPane.setPrefWidth(1025);
 		removeCars();
-
-		// Clear array lists
-		cars.clear();
-		roads.clear();
+		canvasRenderer.clear();
+
+		// Clear model and array lists, a replay ends and the engine takes over again
+		simulationThread.call(() -> {
+			simulationThread.setReplay(null);
+			engine.reset();
+			return null;
+		});
 		carSprites.clear();
-		intersections.clear();
+		roadGraphics.clear();
+		closeReplay();
 
 		// Set isInitiated to false so start simulation button will function
 		isInitiated = false;
@@ -150,164 +274,305 @@ public class SimulationController {
 	}
 
 
-	public void updateAllCars(double deltaTime) {
+	// Sync the display with a frame from the simulation thread (JavaFX thread)
+	public void render(FrameSnapshot frame) {
+
+		// Nothing new was published since the last pulse
+		if (frame.getSequence() == renderedSequence) {
+			return;
+		}
+
+		renderedSequence = frame.getSequence();
+
+		// A replay brings its own roads, rebuild the graphics from the frame's copy when they change
+		if (replay != null && frame.getNetworkVersion() != shownNetworkVersion) {
+			shownNetworkVersion = frame.getNetworkVersion();
+			rebuildRoadGraphics(frame.getNetwork());
+		}
 
-		// Find Main Road's right-side X boundary
-		double maxX = roads.get(0).getSpawnPoints().get(1).getX();
+		if (trafficLightPanel != null) {
+			trafficLightPanel.update(frame);
+		}
 
-		// Update traffic light states
-		for (Intersection intersection : intersections) {
-			intersection.update(deltaTime);
+		if (renderMode == RenderMode.CANVAS) {
+			canvasRenderer.render(frame);
+			return;
 		}
 
-		// Search for intersections during travel
-		for (Car car : cars) {
-			checkCarAgainstIntersections(car, deltaTime);
+		updateSprites(frame);
+	}
 
-			// Check if car exceeds boundaries and re-spawn upon breach
-			if (car.getPosition().getY() > 50 || car.getPosition().getY() < -50 ||
-					car.getPosition().getX() < 0 || car.getPosition().getX() > maxX) {
 
-				spawnCar(car);
-			}
+	/**
+	 * One sprite per vehicle slot in the frame. Sprites of parked slots are hidden and
+	 * shown again, repainted, when the slot is reused, so a demand that ramps up and down
+	 * does not add and remove nodes.
+	 */
+	private void updateSprites(FrameSnapshot frame) {
+		int count = frame.getVehicleCount();
+
+		while (carSprites.size() < count) {
+			CarSprite carSprite = new CarSprite(frame.color[carSprites.size()]);
+			carSprites.add(carSprite);
+			simulationPane.getChildren().add(carSprite.getRectangle());
+		}
+
+		while (carSprites.size() > count) {
+			CarSprite carSprite = carSprites.remove(carSprites.size() - 1);
+			simulationPane.getChildren().remove(carSprite.getRectangle());
 		}
 
 		// Update CarSprite position on display
-		for (CarSprite sprite : carSprites) {
-			sprite.updatePosition();
+		for (int i = 0; i < count; i++) {
+			CarSprite carSprite = carSprites.get(i);
+			carSprite.setVisible(!frame.parked[i]);
+
+			if (!frame.parked[i]) {
+				carSprite.setColor(frame.color[i]);
+				carSprite.updatePosition(frame.x[i], frame.y[i]);
+			}
 		}
 	}
 
 
-	private void checkCarAgainstIntersections(Car car, double deltaTime) {
-
-		// If traffic light has been detected, check traffic light status
-		if (car.getCarState() != CarState.MOVING) {
-			car.checkTrafficLight(car.getCurrentIntersection(), deltaTime);
-			return;
+	/**
+	 * Replace the road and traffic light graphics with the roads of the network snapshot
+	 * (replay and loaded files). Only reads the snapshot, never the engine, whose roads
+	 * the simulation thread may be rebuilding at the same time.
+	 */
+	private void rebuildRoadGraphics(NetworkSnapshot network) {
+		for (RoadGraphic roadGraphic : roadGraphics) {
+			simulationPane.getChildren().remove(roadGraphic.getRectangle());
 		}
 
-		for (Intersection intersection : intersections) {
+		roadGraphics.clear();
 
-			if (car.isApproaching(intersection)) {
+		// The canvas draws the roads of every frame's snapshot itself
+		if (renderMode == RenderMode.CANVAS) {
+			canvasRenderer.markRoadsDirty();
 
-				// Assign stopTarget and currentIntersection during approach
-				if (car.getCurrentIntersection() == null || car.getCurrentIntersection() != intersection) {
-					car.setStopTarget(intersection);
-					car.setCurrentIntersection(intersection);										
-				}	
+		} else {
+			for (int r = 0; r < network.getRoadCount(); r++) {
+				RoadGraphic roadGraphic = new RoadGraphic(network, r);
+				roadGraphics.add(roadGraphic);
+				simulationPane.getChildren().add(roadGraphic.getRectangle());
+			}
+		}
 
-				// Update CarState to APROACHING and continue checking light status
-				car.setCarState(CarState.APPROACHING);
-				car.checkTrafficLight(intersection, deltaTime);
+		if (trafficLightPanel != null) {
+			trafficLightPanel.clear();
 
-				// Exit method since intersection was found
-				return;
+			for (int i = 0; i < network.getIntersectionCount(); i++) {
+				trafficLightPanel.addIntersection(network.getIntersectionId(i));
 			}
 		}
 
-		// Continue moving if not approaching an intersection
-		car.move(deltaTime);
-		return;
+		// Ensure CarSprites are on top of roads visually
+		for (CarSprite sprite : carSprites) {
+			sprite.getRectangle().toFront();
+		}
+	}
+
+
+	private void closeReplay() {
+		if (replay == null) {
+			return;
+		}
+
+		try {
+			replay.getReader().close();
+
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+
+		replay = null;
 	}
 
 
 	public void createMainRoad() {
-		Road mainRoad = new Road("Main Road", true, 0);
-		roads.add(mainRoad);
-		simulationPane.getChildren().add(mainRoad.getRoadRectangle());
-		intersectionCount ++;
+		addRoadGraphics(simulationThread.call(() -> {
+			engine.createMainRoad();
+			return new NetworkSnapshot(engine);
+		}));
 	}
 
 
+	// Roads change the network, so the JavaFX thread waits until the simulation thread added it and copied the network
 	public void addRoad(String roadName) {
-		Road road = new Road(roadName, false, intersectionCount);
-		roads.add(road);
+		addRoadGraphics(simulationThread.call(() -> {
+			engine.addRoad(roadName);
+			return new NetworkSnapshot(engine);
+		}));
+	}
+
+
+	// Extend Main Road past the newest side road
+	public void extendMainRoad() {
+		NetworkSnapshot network = simulationThread.call(() -> {
+			engine.extendMainRoad();
+			return new NetworkSnapshot(engine);
+		});
+		canvasRenderer.markRoadsDirty();
+
+		// The graphics were added in road order, whether from the UI or from a loaded network
+		for (int r = 0; r < roadGraphics.size(); r++) {
+			roadGraphics.get(r).updateSize(network, r);
+		}
+	}
+
 
-		// Create new intersection for new road crossing
-		Intersection newIntersection = new Intersection(new Point(road.getSpawnPoints().get(0).getX(), 0), 
-				roadName);
-		intersections.add(newIntersection);
-		simulationPane.getChildren().add(road.getRoadRectangle());
-		intersectionCount ++;
+	/**
+	 * Add the graphics for the roads and intersections of the snapshot that have none yet,
+	 * and resize the existing roads (a new side road can move Main Road's east end).
+	 */
+	private void addRoadGraphics(NetworkSnapshot network) {
 
-		// Create traffic light graphic for new intersection
+		// Create traffic light graphic for the new intersection, a side road that found no Main Road to cross has none
 		if (trafficLightPanel != null) {
-			trafficLightPanel.addIntersection(newIntersection);
+			for (int i = trafficLightPanel.getIntersectionCount(); i < network.getIntersectionCount(); i++) {
+				trafficLightPanel.addIntersection(network.getIntersectionId(i));
+			}
+		}
+
+		// The canvas draws the roads itself
+		if (renderMode == RenderMode.CANVAS) {
+			canvasRenderer.markRoadsDirty();
+			return;
+		}
+
+		for (int r = 0; r < roadGraphics.size(); r++) {
+			roadGraphics.get(r).updateSize(network, r);
+		}
+
+		for (int r = roadGraphics.size(); r < network.getRoadCount(); r++) {
+			RoadGraphic roadGraphic = new RoadGraphic(network, r);
+			roadGraphics.add(roadGraphic);
+			simulationPane.getChildren().add(roadGraphic.getRectangle());
 		}
 
 		// Ensure CarSprites are on top of roads visually
 		for (CarSprite sprite : carSprites) {
 			sprite.getRectangle().toFront();
-		}	    
+		}
 	}
 
 
-	// Spawn method for re-spawning cars
-	public void spawnCar(Car car) {
+	// The sprite (or canvas entry) appears with the next frame
+	public void spawnRandomCar() {
+		simulationThread.submit(() -> engine.spawnRandomCar());
+	}
 
-		// Randomly select a road
-		Road randomRoad = roads.get(ThreadLocalRandom.current().nextInt(roads.size()));
 
-		// Randomly select an end of the selected road to spawn the car
-		Point spawnPoint = randomRoad.getSpawnPoints().get(ThreadLocalRandom.current().nextInt(2));
+	// Record the vehicle trajectories into the directory (see TrajectoryFormat)
+	public void startRecording(Path directory) throws IOException {
+		TrajectoryRecorder recorder = new TrajectoryRecorder(directory);
+		trajectoryRecorder = recorder;
+		simulationThread.submit(() -> engine.setTrajectoryRecorder(recorder));
+	}
 
-		car.setPosition(new Point(spawnPoint.getX(), spawnPoint.getY()));
-		car.setSpeed(ThreadLocalRandom.current().nextDouble(55, 90) / 3.6);
-		car.setCurrentRoadName(randomRoad.getRoadName());
-		chooseDirection(car);
 
-		// Begin movement for new car
-		car.setCarState(CarState.MOVING);
+	// Time every tick and expose the SimulationMetrics MXBean to JMX clients
+	public void startMetrics() throws JMException {
+		SimulationMetrics newMetrics = new SimulationMetrics();
+		newMetrics.register();
+		metrics = newMetrics;
+		simulationThread.submit(() -> engine.setMetrics(newMetrics));
 	}
 
 
-	public void spawnRandomCar() {
-		Car car = new Car();
-		spawnCar(car);
+	// Also serve the metrics as plain text on the given localhost port (see MetricsEndpoint)
+	public void startMetricsEndpoint(int port) throws IOException, JMException {
+		if (metrics == null) {
+			startMetrics();
+		}
+
+		metricsEndpoint = new MetricsEndpoint(metrics, port);
+	}
+
+
+	/**
+	 * Stop the simulation thread and the engine's workers (application exit). Returns
+	 * false if the simulation thread did not stop in time: the engine, replay and
+	 * recorder are then left to end with the application, and the recording may be
+	 * missing its last samples.
+	 */
+	public boolean shutdown() {
+
+		// Wait for the current tick, it may still be using the workers or writing to the recorder
+		boolean isStopped = simulationThread.shutdown();
+
+		if (metricsEndpoint != null) {
+			metricsEndpoint.close();
+		}
+
+		if (metrics != null) {
+			try {
+				metrics.unregister();
+
+			} catch (JMException e) {
+				e.printStackTrace();
+			}
+		}
+
+		// A tick that did not finish in time keeps the engine, replay and recorder, the daemon thread ends with the application
+		if (!isStopped) {
+			return false;
+		}
 
-		CarSprite carSprite = new CarSprite(car);
+		engine.shutdown();
+		closeReplay();
 
-		cars.add(car);
-		carSprites.add(carSprite);
+		// Write out the samples still queued and complete the last segment
+		if (trajectoryRecorder != null) {
+			try {
+				trajectoryRecorder.close();
+
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
 
-		simulationPane.getChildren().add(carSprite.getRectangle());
+		return true;
 	}
 
 
 	public void removeCars() {
 		for (CarSprite sprite : carSprites) {
-			simulationPane.getChildren().remove(sprite);
+			simulationPane.getChildren().remove(sprite.getRectangle());
 		}
 	}
 
+	// Collection of Setters
 
-	// Method to determine car direction based on spawn point
-	public void chooseDirection(Car car) {
+	public void setIsRunning(boolean running) {
+		if (running) {
+			simulationThread.submit(() -> engine.start());
+		} else {
+			simulationThread.submit(() -> engine.pause());
+		}
 
-		// Check if car is on Main Road
-		if (car.getPosition().getY() == 0.0) {
+		isRunning = running;
+	}
 
-			// Check at which end of the road the car is location
-			if (car.getPosition().getX() < 50) {
-				car.setCarDirection(Car.Direction.EAST);
-			} else {
-				car.setCarDirection(Car.Direction.WEST);
-			}
 
+	// Time warp: 1 = real time, SimulationClock.MAX_SPEED = as fast as possible, negative plays a replay backwards
+	public void setTimeScale(double timeScale) {
+		TrajectoryReplay current = replay;
+
+		if (current != null) {
+			simulationThread.submit(() -> current.setSpeed(timeScale));
 		} else {
-			if (car.getPosition().getY() > 0.0) {
-				car.setCarDirection(Car.Direction.SOUTH);
-			} else {
-				car.setCarDirection(Car.Direction.NORTH);
-			}
+			simulationThread.submit(() -> engine.setTimeScale(timeScale));
 		}
 	}
 
-	// Collection of Setters
 
-	public void setIsRunning(boolean running) {
-		isRunning = running;
+	// Choose the render mode, only possible before the simulation is started
+	public void setRenderMode(RenderMode newRenderMode) {
+		if (!isInitiated) {
+			renderMode = newRenderMode;
+		}
 	}
 
 
@@ -315,25 +580,65 @@ public class SimulationController {
 		trafficLightPanel = newTrafficLightPanel;
 	}
 
+
+	// Start (and restart after a reset) from this SimulationCheckpoint, null for the default layout
+	public void setWarmStart(Path file) {
+		warmStartFile = file;
+	}
+
+
+	// Start (and restart after a reset) from this scenario file, a warm start file comes first
+	public void setScenario(Path file) {
+		scenarioFile = file;
+	}
+
+
+	// Start (and restart after a reset) with vehicles arriving at every road end at this rate, negative for a fixed population
+	public void setDemand(double vehiclesPerHour) {
+		demandRate = vehiclesPerHour;
+	}
+
 	// Collection of Getters
 
-	public ArrayList<Road> getRoads() {
-		return roads;
+	public RenderMode getRenderMode() {
+		return renderMode;
 	}
 
 
-	public ArrayList<Car> getCars() {
-		return cars;
+	public SimulationEngine getEngine() {
+		return engine;
+	}
+
+
+	// The replay being played, null while simulating
+	public TrajectoryReplay getReplay() {
+		return replay;
 	}
 
 
-	public ArrayList<Intersection> getIntersections() {
-		return intersections;
+	public SimulationMetrics getMetrics() {
+		return metrics;
+	}
+
+
+	public SimulationThread getSimulationThread() {
+		return simulationThread;
+	}
+
+
+	// Detail frames for the car status table
+	public FrameBuffer getStatusFrames() {
+		return simulationThread.getStatusFrames();
+	}
+
+
+	public ArrayList<Car> getCars() {
+		return engine.getCars();
 	}
 
 
 	public int getIntersectionCount() {
-		return intersectionCount;
+		return engine.getIntersectionCount();
 	}
 
 
@@ -0,0 +1,1294 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class SimulationEngine: Headless core of the traffic simulation. Owns the roads,
+ * cars and intersections and advances them with a fixed timestep, independent of
+ * any display. Contains no JavaFX types so the model can run on a machine without
+ * a graphics toolkit and faster than the display refresh rate.
+ *
+ * Vehicles are kept in a column-oriented VehicleStore and updated by walking its
+ * indices in order with a reusable Car handle.
+ *
+ * The roads form a directed RoadNetwork. The default layout (createMainRoad and
+ * addRoad(name)) is one Main Road crossed by side roads every 100 units, GridBuilder
+ * builds grids, and addNode / addRoad(name, lanes, nodes) build any other layout of
+ * straight roads. An Intersection is created wherever two roads share a node. Saved
+ * layouts, with the signal timing of every intersection, are loaded region by region
+ * with a ScenarioReader.
+ *
+ * Each tick runs in two phases. First the timed events that are due are run and the
+ * lanes re-sorted so each car knows its leader (LaneIndex). Then the vehicles are split into fixed-size
+ * TickPartitions that read only the snapshot and buffer their shared writes (turn
+ * requests, respawns and intersection statistics). The buffers are merged at the barrier in partition order,
+ * so the partitions may run on a ForkJoinPool (see setParallelism) and still produce
+ * exactly the same result as the sequential path.
+ *
+ * By default the population is fixed: a car that drives off the network respawns at a
+ * random road end. With a TrafficDemand (setDemand) vehicles arrive at the entry points
+ * of the network instead, and a vehicle that leaves is parked in the VehicleStore's
+ * pool, whose slots the next arrivals reuse.
+ *
+ * All randomness comes from one seeded RandomSource. Every vehicle gets its own stream
+ * from it when added, so a given seed reproduces the same trajectories on any number
+ * of threads.
+ *
+ * Signals are event driven. Light phase ends, intersection phase switches, left-turn
+ * retries and demand arrivals are kept in an EventQueue at their exact expiry time, and
+ * a tick only runs the events that fall into it, so the signal cost of a tick depends on
+ * the number of events rather than the number of intersections. The LightSnapshot that
+ * the cars read is only updated for the lights that changed. A tick in which no vehicle
+ * moved and no vehicle wrote anything would be repeated unchanged until the next event,
+ * so the engine skips those ticks and jumps straight to the tick of the next event.
+ *
+ * Simulated time is kept by a SimulationClock. step(deltaTime) accumulates real elapsed
+ * time, scaled by the clock's time scale (time warp), and runs as many fixed ticks as
+ * are due; runFor(simSeconds) runs a fixed amount of simulated time in one call.
+ *
+ * SimulationCheckpoint saves the whole state of an engine to a file and loads it into a
+ * new engine that continues exactly where the saved one stopped.
+ *
+ * An optional TrajectoryRecorder is handed the engine after every tick and samples the
+ * vehicle trajectories at its own rate. Optional SimulationMetrics time the tick and its
+ * phases and count vehicles per state, respawns and signal switches.
+ *
+ * 1 unit = 100 meters = 2.5 pixels
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import application.Car.CarState;
+import application.Car.Direction;
+import application.Intersection.IntersectionPhase;
+import application.TrafficLight.LightPhase;
+
+public class SimulationEngine {
+
+	// Default fixed timestep (60 ticks per simulated second)
+	public static final double DEFAULT_TIMESTEP = 1.0 / 60.0;
+
+	// Longest a single step() call may run ticks before returning (about one frame)
+	private static final long MAX_STEP_NANOS = 16_000_000L;
+
+	// Number of vehicles per partition of the car update
+	public static final int PARTITION_SIZE = 4096;
+
+	// Light phase changes whose light id is kept, so the display can repaint just those lights
+	public static final int LIGHT_CHANGE_LOG_SIZE = 1024;
+
+	// Event types, events due at the same time run in this order
+	private static final int LIGHT_EXPIRY = 0;			// Target: light id
+	private static final int PHASE_SWITCH = 1;			// Target: intersection id
+	private static final int TURN_RETRY = 2;			// Target: vehicle id
+	private static final int ARRIVAL = 3;				// Target: TrafficDemand entry point
+	private static final int ENTRY_RETRY = 4;			// Target: TrafficDemand entry point
+
+	// Simulated seconds between attempts to let a waiting arrival enter, and the room it needs (units)
+	private static final double ENTRY_RETRY_INTERVAL = 1.0;
+	private static final double ENTRY_GAP = 2 * LaneIndex.VEHICLE_LENGTH;
+
+	// Tolerance for events that fall exactly on the end of a tick
+	private static final double EVENT_EPSILON = 1e-9;
+
+	// Default layout: side roads every 100 units along Main Road, reaching 50 units to either side
+	public static final double ROAD_SPACING = 100.0;
+	private static final double SIDE_ROAD_REACH = 50.0;
+
+	private RoadNetwork network;
+	private VehicleStore vehicles;
+	private ArrayList<Intersection> intersections;
+	private IntersectionStats intersectionStats;		// Traffic served per intersection approach
+	private Car cursor;									// Handle used for spawning outside the car update
+	private ArrayList<Car> carHandles;					// Per-vehicle handles, created only for the UI
+	private LightSnapshot lights;						// Light phases frozen for the car update
+	private EventQueue events;							// Timed light, phase and turn retry events
+	private LaneIndex lanes;							// Vehicles sorted per lane, for car-following
+	private ArrayList<TickPartition> partitions;		// Reused vehicle ranges and their write buffers
+	private RandomSource random;
+	private ForkJoinPool pool;							// Only set when running in parallel
+	private PartitionTask partitionTasks;				// Task tree over the partitions, reused every tick
+	private double partitionDeltaTime;					// Time step the partition tasks run with
+	private int parallelism = 1;
+	private int intersectionCount = 0;				// Roads of the default layout added so far
+	private SimulationClock clock;
+	private long lightChangeCount = 0;					// Light phase changes, published with each frame
+	private final int[] lightChangeLog = new int[LIGHT_CHANGE_LOG_SIZE];	// Light id of change n at (n - 1) % size
+	private long lightChangeLogStart = 0;				// Changes up to this one are not in the log
+	private boolean isIdle = false;					// Last tick changed nothing but through events
+	private TrafficDemand demand;						// Only set while vehicles arrive by demand
+	private TrajectoryRecorder recorder;				// Only set while trajectories are recorded
+	private SimulationMetrics metrics;					// Only set while metrics are collected
+	private boolean isRunning;
+
+
+	public SimulationEngine() {
+		this(DEFAULT_TIMESTEP, RandomSource.randomSeed());
+	}
+
+
+	public SimulationEngine(long seed) {
+		this(DEFAULT_TIMESTEP, seed);
+	}
+
+
+	public SimulationEngine(double timestep, long seed) {
+		this.clock = new SimulationClock(timestep);
+		this.random = new RandomSource(seed);
+		this.network = new RoadNetwork();
+		this.vehicles = new VehicleStore();
+		this.intersections = new ArrayList<>();
+		this.intersectionStats = new IntersectionStats();
+		this.cursor = new Car(vehicles, network, intersections);
+		this.carHandles = new ArrayList<>();
+		this.lights = new LightSnapshot();
+		this.events = new EventQueue();
+		this.lanes = new LaneIndex();
+		this.partitions = new ArrayList<>();
+		this.isRunning = false;
+	}
+
+
+	// Build the default network (Main Road and three side roads) with three cars
+	public void createDefaultScenario() {
+		createMainRoad();
+		addRoad("1st St.");
+		addRoad("2nd St.");
+		addRoad("3rd St.");
+		spawnRandomCar();
+		spawnRandomCar();
+		spawnRandomCar();
+	}
+
+
+	/**
+	 * Advances the simulation by the given amount of elapsed real time, scaled by the
+	 * clock's time scale, and runs the ticks that are due. A call never runs ticks for
+	 * much longer than one frame; time that did not fit is kept for the next call.
+	 * At MAX_SPEED it simply runs ticks for one frame's worth of real time.
+	 * Returns the number of ticks that were run.
+	 */
+	public int step(double deltaTime) {
+
+		if (!isRunning) {
+			return 0;
+		}
+
+		long start = System.nanoTime();
+		long ticks = 0;
+
+		if (clock.isMaxSpeed()) {
+			do {
+				tick();
+				ticks += 1 + skipIdleTicks(Long.MAX_VALUE);
+			} while (System.nanoTime() - start < MAX_STEP_NANOS);
+
+			if (metrics != null) {
+				metrics.stepCompleted(clock, deltaTime, ticks);
+			}
+
+			return (int) Math.min(ticks, Integer.MAX_VALUE);
+		}
+
+		clock.accumulate(deltaTime);
+
+		while (clock.hasTickDue()) {
+			tick();
+			ticks += 1 + skipIdleTicks(clock.getDueTicks());
+
+			if (System.nanoTime() - start >= MAX_STEP_NANOS) {
+				break;
+			}
+		}
+
+		if (metrics != null) {
+			metrics.stepCompleted(clock, deltaTime, ticks);
+		}
+
+		return (int) ticks;
+	}
+
+
+	/**
+	 * Runs the simulation for the given amount of simulated time as fast as possible,
+	 * without any link to wall-clock time. Returns the number of ticks that were run.
+	 */
+	public long runFor(double simSeconds) {
+
+		if (!isRunning) {
+			return 0;
+		}
+
+		long ticks = Math.round(simSeconds / clock.getTimestep());
+		long i = 0;
+
+		while (i < ticks) {
+			tick();
+			i++;
+			i += skipIdleTicks(ticks - i);
+		}
+
+		return ticks;
+	}
+
+
+	// One fixed simulation step: the events due in it, then the car update
+	public void tick() {
+		if (metrics != null) {
+			metrics.tickStarted();
+		}
+
+		runDueEvents(tickEnd(clock.getTickCount()));
+		phaseEnded(SimulationMetrics.EVENTS);
+		updateAllCars(clock.getTimestep());
+		clock.advance();
+
+		if (recorder != null) {
+			recorder.tickCompleted(this);
+			phaseEnded(SimulationMetrics.RECORDING);
+		}
+
+		if (metrics != null) {
+			metrics.tickEnded(this);
+		}
+	}
+
+
+	private void phaseEnded(int phase) {
+		if (metrics != null) {
+			metrics.phaseEnded(phase);
+		}
+	}
+
+
+	/**
+	 * After an idle tick every following tick would be identical until the next event
+	 * comes due, so move the clock straight to the tick that runs it (at most limit
+	 * ticks). Returns the number of ticks skipped.
+	 */
+	private long skipIdleTicks(long limit) {
+
+		if (!isIdle || events.isEmpty()) {
+			return 0;
+		}
+
+		// Skip every tick that ends before the next event, starting from an estimate
+		double nextTime = events.peekTime();
+		long current = clock.getTickCount();
+		long skip = Math.max(0, (long) (nextTime / clock.getTimestep()) - 1 - current);
+
+		while (skip > 0 && tickEnd(current + skip - 1) >= nextTime) {
+			skip--;
+		}
+
+		while (tickEnd(current + skip) < nextTime) {
+			skip++;
+		}
+
+		skip = Math.min(skip, limit);
+		clock.skip(skip);
+
+		return skip;
+	}
+
+
+	// Simulated time up to which the given tick runs events
+	private double tickEnd(long tick) {
+		return tick * clock.getTimestep() + clock.getTimestep() + EVENT_EPSILON;
+	}
+
+
+	// Run all events due up to the given simulated time, in time order
+	private void runDueEvents(double until) {
+
+		while (!events.isEmpty() && events.peekTime() <= until) {
+			double time = events.peekTime();
+			int type = events.peekType();
+			int target = events.peekTarget();
+			events.poll();
+
+			switch (type) {
+
+				case LIGHT_EXPIRY:
+					TrafficLight light = LightSnapshot.lightFor(intersections, target);
+
+					// Skip events of a phase that was ended early by the intersection
+					if (light.getExpiryTime() == time) {
+						light.expire(time);
+					}
+
+					scheduleLights(intersections.get(target / 2));
+					break;
+
+
+				case PHASE_SWITCH:
+					Intersection intersection = intersections.get(target);
+
+					if (intersection.getPhaseExpiryTime() == time) {
+						intersection.switchPhase(time);
+					}
+
+					scheduleLights(intersection);
+					break;
+
+
+				case TURN_RETRY:
+					int lightId = cursor.bind(target).turnRetryLight(time);
+
+					if (lightId != VehicleStore.NONE) {
+						requestTurnGreen(lightId);
+					}
+
+					break;
+
+
+				case ARRIVAL:
+
+					// Skip arrivals of a demand that was replaced
+					if (demand != null && demand.isScheduled(target, time)) {
+						demand.queueArrival(target);
+						admitArrival(target, time);
+						scheduleArrival(target);
+					}
+
+					break;
+
+
+				case ENTRY_RETRY:
+					if (demand != null && demand.isRetryScheduled(target)) {
+						demand.setRetryScheduled(target, false);
+						admitArrival(target, time);
+					}
+
+					break;
+			}
+		}
+	}
+
+
+	// Queue the expiries that changed for an intersection and its two lights
+	private void scheduleLights(Intersection intersection) {
+		int id = intersection.getId();
+
+		if (intersection.needsScheduling()) {
+			events.add(intersection.getPhaseExpiryTime(), PHASE_SWITCH, id);
+			intersection.markScheduled();
+		}
+
+		scheduleLight(intersection.getNSLight(), LightSnapshot.lightId(id, false));
+		scheduleLight(intersection.getEWLight(), LightSnapshot.lightId(id, true));
+	}
+
+
+	private void scheduleLight(TrafficLight light, int lightId) {
+		if (light.needsScheduling()) {
+			events.add(light.getExpiryTime(), LIGHT_EXPIRY, lightId);
+			light.markScheduled();
+		}
+	}
+
+
+	private void requestTurnGreen(int lightId) {
+		TrafficLight light = LightSnapshot.lightFor(intersections, lightId);
+		light.requestTurnGreen();
+		lights.update(lightId, light);
+	}
+
+
+	public void updateAllCars(double deltaTime) {
+
+		isIdle = false;
+
+		// Nothing to update before the network exists
+		if (network.getRoads().isEmpty()) {
+			return;
+		}
+
+		// Re-sort the lanes so every car knows the car ahead of it
+		lanes.rebuild(vehicles, network.getRoads().size());
+		phaseEnded(SimulationMetrics.LANES);
+
+		// Split the store into fixed ranges so the split never depends on the thread count
+		int count = vehicles.size();
+		int partitionCount = (count + PARTITION_SIZE - 1) / PARTITION_SIZE;
+
+		while (partitions.size() < partitionCount) {
+			Car car = new Car(vehicles, network, intersections);
+			TickPartition partition = new TickPartition(car);
+			car.setTickContext(lights, lanes, partition, clock);
+			partitions.add(partition);
+		}
+
+		for (int p = 0; p < partitionCount; p++) {
+			partitions.get(p).reset(p * PARTITION_SIZE, Math.min(count, (p + 1) * PARTITION_SIZE));
+		}
+
+		if (pool != null && partitionCount > 1) {
+
+			// Only build a new task tree when the number of partitions changed
+			if (partitionTasks == null || partitionTasks.to != partitionCount) {
+				partitionTasks = new PartitionTask(0, partitionCount);
+			}
+
+			partitionDeltaTime = deltaTime;
+			partitionTasks.reinitialize();
+			pool.invoke(partitionTasks);
+
+		} else {
+			for (int p = 0; p < partitionCount; p++) {
+				updatePartition(partitions.get(p), deltaTime);
+			}
+		}
+
+		phaseEnded(SimulationMetrics.CARS);
+
+		// Barrier: apply the buffered shared writes in partition order
+		isIdle = true;
+		intersectionStats.beginUpdate();
+
+		for (int p = 0; p < partitionCount; p++) {
+			TickPartition partition = partitions.get(p);
+			isIdle &= partition.isIdle();
+
+			if (metrics != null) {
+				metrics.partitionMerged(partition);
+			}
+
+			mergePartition(partition);
+		}
+
+		intersectionStats.endUpdate();
+
+		phaseEnded(SimulationMetrics.MERGE);
+	}
+
+
+	// Update every car in the partition's range, walking the store in index order
+	private void updatePartition(TickPartition partition, double deltaTime) {
+		Car car = partition.getCar();
+
+		for (int i = partition.getStart(); i < partition.getEnd(); i++) {
+			car.bind(i);
+
+			// Pooled slots wait for the next arrival
+			if (car.getCarState() == CarState.PARKED) {
+				partition.countState(CarState.PARKED);
+				continue;
+			}
+
+			boolean wasStopped = car.getCarState() == CarState.STOPPED;
+			car.update(deltaTime);
+
+			if (!wasStopped || car.getCarState() != CarState.STOPPED) {
+				partition.markActive();
+			}
+
+			partition.countState(car.getCarState());
+
+			// Re-spawn (or park) cars that drove off the end of their road
+			if (car.hasLeftNetwork()) {
+				partition.respawn(i);
+			}
+		}
+	}
+
+
+	private void mergePartition(TickPartition partition) {
+
+		for (int i = 0; i < partition.getTurnRequestCount(); i++) {
+			requestTurnGreen(partition.getTurnRequest(i));
+		}
+
+		for (int i = 0; i < partition.getClearedRequestCount(); i++) {
+			int lightId = partition.getClearedRequest(i);
+			TrafficLight light = LightSnapshot.lightFor(intersections, lightId);
+			light.clearWaitingRequest();
+			lights.update(lightId, light);
+		}
+
+		for (int i = 0; i < partition.getTurnRetryCount(); i++) {
+			int vehicleId = partition.getTurnRetry(i);
+			events.add(vehicles.waitStartTime[vehicleId] + Car.TURN_REQUEST_INTERVAL, TURN_RETRY, vehicleId);
+		}
+
+		for (int i = 0; i < partition.getStopCount(); i++) {
+			intersectionStats.recordStop(partition.getStop(i));
+		}
+
+		for (int i = 0; i < partition.getServedCount(); i++) {
+			intersectionStats.recordServed(partition.getServedSlot(i), partition.getServedDelay(i), partition.getServedLeftTurn(i));
+		}
+
+		for (int i = 0; i < partition.getRespawnCount(); i++) {
+			int vehicleId = partition.getRespawn(i);
+
+			if (demand != null) {
+				vehicles.release(vehicleId);
+			} else {
+				spawnCar(cursor.bind(vehicleId));
+			}
+		}
+	}
+
+
+	/**
+	 * Sets the number of threads used for the car update. 1 (the default) updates all
+	 * partitions on the calling thread, larger values use a ForkJoinPool of that size.
+	 */
+	public void setParallelism(int threads) {
+
+		if (threads < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least 1: " + threads);
+		}
+
+		shutdown();
+		parallelism = threads;
+
+		if (threads > 1) {
+			pool = new ForkJoinPool(threads);
+		}
+	}
+
+
+	// Release the worker threads of a parallel engine
+	public void shutdown() {
+		if (pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+
+		parallelism = 1;
+	}
+
+
+	/**
+	 * Splits a range of partitions in half until a single partition is left. The whole
+	 * tree is built once and reinitialized before every run, so a parallel tick does not
+	 * allocate tasks.
+	 */
+	private class PartitionTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+		private final PartitionTask left;			// Both null for a single partition
+		private final PartitionTask right;
+
+
+		PartitionTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+
+			if (to - from == 1) {
+				this.left = null;
+				this.right = null;
+
+			} else {
+				int middle = (from + to) >>> 1;
+				this.left = new PartitionTask(from, middle);
+				this.right = new PartitionTask(middle, to);
+			}
+		}
+
+
+		@Override
+		protected void compute() {
+			if (left == null) {
+				updatePartition(partitions.get(from), partitionDeltaTime);
+				return;
+			}
+
+			left.reinitialize();
+			right.reinitialize();
+			invokeAll(left, right);
+		}
+	}
+
+
+	public void start() {
+		isRunning = true;
+	}
+
+
+	// The lights stop with the clock, their events are timed in simulated time
+	public void pause() {
+		isRunning = false;
+	}
+
+
+	public void resume() {
+		isRunning = true;
+	}
+
+
+	// Remove all roads, cars and intersections and rewind the simulation time and seed
+	public void reset() {
+		pause();
+		random.reset();
+
+		vehicles.clear();
+		carHandles.clear();
+		network.clear();
+		intersections.clear();
+		intersectionStats.clear();
+		lanes.clear();
+		events.clear();
+
+		demand = null;
+		intersectionCount = 0;
+		clock.reset();
+		lightChangeCount = 0;
+		lightChangeLogStart = 0;
+		isIdle = false;
+	}
+
+
+	// Bytes written by saveCheckpoint, see SimulationCheckpoint
+	long checkpointSize() {
+		long size = Double.BYTES + 4 * Long.BYTES + 2 * Integer.BYTES + 1 + network.checkpointSize();
+
+		for (Intersection intersection : intersections) {
+			size += 2 * Double.BYTES + Integer.BYTES + 2 + 4 * Double.BYTES + Short.BYTES
+					+ intersection.getStreetName().getBytes(StandardCharsets.UTF_8).length
+					+ 2 * (3 + Double.BYTES);
+		}
+
+		return size + intersectionStats.checkpointSize() + events.checkpointSize()
+				+ vehicles.checkpointSize() + lanes.checkpointSize() + 1 + (demand == null ? 0 : demand.checkpointSize());
+	}
+
+
+	/**
+	 * Writes everything a tick depends on: the clock, the seed and root random stream, the network,
+	 * the intersections and their lights, the queued events, the statistics, every
+	 * vehicle and the demand. Recorder, metrics, threads and the UI's Car handles are not
+	 * part of it.
+	 */
+	void saveCheckpoint(ByteBuffer out) {
+		out.putDouble(clock.getTimestep());
+		out.putLong(clock.getTickCount());
+		out.putLong(random.getSeed());
+		out.putLong(random.getState());
+		out.putLong(lightChangeCount);
+		out.putInt(intersectionCount);
+		out.put((byte) (isIdle ? 1 : 0));
+		network.save(out);
+
+		out.putInt(intersections.size());
+
+		for (Intersection intersection : intersections) {
+			byte[] name = intersection.getStreetName().getBytes(StandardCharsets.UTF_8);
+			out.putDouble(intersection.getPosition().getX());
+			out.putDouble(intersection.getPosition().getY());
+			out.putInt(intersection.getNode());
+			out.put((byte) intersection.getCurrentPhase().ordinal());
+			out.put((byte) (intersection.needsScheduling() ? 0 : 1));
+			out.putDouble(intersection.getPhaseExpiryTime());
+			out.putDouble(intersection.getSignalTiming().getTurnGreenDuration());
+			out.putDouble(intersection.getSignalTiming().getGreenDuration());
+			out.putDouble(intersection.getSignalTiming().getYellowDuration());
+			out.putShort((short) name.length);
+			out.put(name);
+			saveLight(out, intersection.getNSLight());
+			saveLight(out, intersection.getEWLight());
+		}
+
+		intersectionStats.save(out);
+		events.save(out);
+		vehicles.save(out);
+		lanes.save(out);
+		out.put((byte) (demand == null ? 0 : 1));
+
+		if (demand != null) {
+			demand.save(out);
+		}
+	}
+
+
+	private static void saveLight(ByteBuffer out, TrafficLight light) {
+		out.put((byte) light.getLightPhase().ordinal());
+		out.put((byte) (light.needsScheduling() ? 0 : 1));
+		out.put((byte) (light.hasWaitingRequest() ? 1 : 0));
+		out.putDouble(light.getExpiryTime());
+	}
+
+
+	/**
+	 * Replaces the whole state with one written by saveCheckpoint, including the timestep
+	 * and seed. The engine is paused afterwards, the time scale and parallelism are kept.
+	 */
+	void restoreCheckpoint(ByteBuffer in) {
+		reset();
+
+		// The partitions' Car handles hold the clock, they are built again for the new one
+		double timeScale = clock.getTimeScale();
+		clock = new SimulationClock(in.getDouble());
+		clock.setTimeScale(timeScale);
+		clock.restore(in.getLong());
+		partitions.clear();
+		partitionTasks = null;
+
+		random = new RandomSource(in.getLong());
+		random.setState(in.getLong());
+		lightChangeCount = in.getLong();
+		lightChangeLogStart = lightChangeCount;
+		intersectionCount = in.getInt();
+		isIdle = in.get() != 0;
+		network.restore(in);
+
+		int count = in.getInt();
+
+		for (int i = 0; i < count; i++) {
+			double x = in.getDouble();
+			double y = in.getDouble();
+			int node = in.getInt();
+			IntersectionPhase phase = IntersectionPhase.values()[in.get()];
+			boolean phaseScheduled = in.get() != 0;
+			double phaseExpiryTime = in.getDouble();
+			SignalTiming timing = new SignalTiming(in.getDouble(), in.getDouble(), in.getDouble());
+			byte[] name = new byte[in.getShort()];
+			in.get(name);
+
+			Intersection intersection = new Intersection(new Point(x, y), new String(name, StandardCharsets.UTF_8),
+					i, node, clock.getTime(), timing.equals(SignalTiming.DEFAULT) ? SignalTiming.DEFAULT : timing);
+			intersection.restore(phase, phaseExpiryTime, phaseScheduled);
+			restoreLight(in, intersection.getNSLight());
+			restoreLight(in, intersection.getEWLight());
+
+			intersections.add(intersection);
+			intersection.addPhaseListener(this::lightPhaseChanged);
+			lights.add(intersection);
+		}
+
+		intersectionStats.restore(in);
+		events.restore(in);
+		vehicles.restore(in);
+		lanes.restore(in);
+
+		if (in.get() != 0) {
+			demand = TrafficDemand.restore(in);
+		}
+	}
+
+
+	private static void restoreLight(ByteBuffer in, TrafficLight light) {
+		LightPhase phase = LightPhase.values()[in.get()];
+		boolean scheduled = in.get() != 0;
+		boolean waitingRequest = in.get() != 0;
+		light.restore(phase, in.getDouble(), scheduled, waitingRequest);
+	}
+
+
+	// Main Road of the default layout, running East/West along Y = 0
+	public Road createMainRoad() {
+		int west = network.addNode(0, 0);
+		int east = network.addNode(4 * ROAD_SPACING, 0);
+		Road mainRoad = addRoad("Main Road", 1, west, east);
+		intersectionCount ++;
+
+		return mainRoad;
+	}
+
+
+	/**
+	 * Side road of the default layout, crossing Main Road one spacing east of its last
+	 * crossing. After a scenario or checkpoint was loaded, Main Road is the first road
+	 * running east/west along Y = 0. Without one the side road is added on its own, one
+	 * spacing east of the network.
+	 */
+	public Road addRoad(String roadName) {
+		int mainRoadIndex = findMainRoad();
+		double x;
+		int crossing;
+
+		if (network.getRoads().isEmpty()) {
+			x = intersectionCount * ROAD_SPACING;
+			crossing = network.addNode(x, 0);
+
+		} else if (mainRoadIndex == VehicleStore.NONE) {
+			x = (Math.floor(network.getMaxX() / ROAD_SPACING) + 1) * ROAD_SPACING;
+			crossing = network.addNode(x, 0);
+
+		} else {
+
+			// Main Road has to reach past the new side road
+			Road mainRoad = network.getRoads().get(mainRoadIndex);
+			x = lastCrossingX(mainRoadIndex) + ROAD_SPACING;
+
+			if (mainRoad.getMaxX() <= x) {
+				network.moveNode(eastEndNode(mainRoad), x + ROAD_SPACING, 0);
+			}
+
+			crossing = network.splitEdge(network.locateEdge(mainRoadIndex, Direction.EAST, x, 0), x, 0);
+		}
+
+		int north = network.addNode(x, SIDE_ROAD_REACH);
+		int south = network.addNode(x, -SIDE_ROAD_REACH);
+		Road road = addRoad(roadName, 1, north, crossing, south);
+		intersectionCount ++;
+
+		return road;
+	}
+
+
+	// Add a junction or road end at the given position, returns its node id
+	public int addNode(double x, double y) {
+		return network.addNode(x, y);
+	}
+
+
+	/**
+	 * Adds a straight two-way road through the given nodes (in order) with the given
+	 * number of lanes per direction. Every node where the road crosses or meets another
+	 * road becomes an intersection, whose lights start at the current simulated time. A
+	 * road that only goes on straight as another one shares its end node without an
+	 * intersection, and cars drive on through it.
+	 */
+	public Road addRoad(String roadName, int lanes, int... nodes) {
+		Road road = connectRoad(roadName, lanes, nodes);
+
+		// Cars on a split segment, or with no intersection left ahead, have to look again
+		relocateCars();
+
+		return road;
+	}
+
+
+	// addRoad without relocating the cars, for loaders that add many roads and relocate once
+	Road connectRoad(String roadName, int lanes, int... nodes) {
+		return connectRoad(roadName, lanes, null, nodes);
+	}
+
+
+	/**
+	 * connectRoad with the signal timing of the intersections the road completes, by node
+	 * position (null, or a null entry, for the default). The timing is set before the
+	 * intersection's first phase is put on the event queue.
+	 */
+	Road connectRoad(String roadName, int lanes, SignalTiming[] nodeTimings, int... nodes) {
+
+		if (nodes.length < 2) {
+			throw new IllegalArgumentException("A road needs at least two nodes: " + roadName);
+		}
+
+		for (int node : nodes) {
+			if (network.getNodeX(node) != network.getNodeX(nodes[0]) && network.getNodeY(node) != network.getNodeY(nodes[0])) {
+				throw new IllegalArgumentException("A road must run straight north/south or east/west: " + roadName);
+			}
+		}
+
+		int roadIndex = network.getRoads().size();
+		Road road = new Road(roadName, network, nodes[0], nodes[nodes.length - 1]);
+		network.getRoads().add(road);
+
+		for (int k = 0; k + 1 < nodes.length; k++) {
+			network.addEdge(nodes[k], nodes[k + 1], roadIndex, lanes);
+			network.addEdge(nodes[k + 1], nodes[k], roadIndex, lanes);
+		}
+
+		for (int k = 0; k < nodes.length; k++) {
+			if (network.getNodeIntersection(nodes[k]) == VehicleStore.NONE && joinsRoads(nodes[k])) {
+				SignalTiming timing = nodeTimings != null && nodeTimings[k] != null ? nodeTimings[k] : SignalTiming.DEFAULT;
+				addIntersection(nodes[k], roadName, timing);
+			}
+		}
+
+		return road;
+	}
+
+
+	// True if roads meet across each other at the node, a road that only goes on straight (a cut scenario road) makes none
+	private boolean joinsRoads(int node) {
+		boolean eastWest = false;
+		boolean northSouth = false;
+
+		for (Direction direction : Direction.values()) {
+			if (network.getOutgoingEdge(node, direction) == VehicleStore.NONE) {
+				continue;
+			}
+
+			if (direction == Direction.EAST || direction == Direction.WEST) {
+				eastWest = true;
+			} else {
+				northSouth = true;
+			}
+		}
+
+		return eastWest && northSouth;
+	}
+
+
+	private void addIntersection(int node, String streetName, SignalTiming timing) {
+		Intersection newIntersection = new Intersection(new Point(network.getNodeX(node), network.getNodeY(node)),
+				streetName, intersections.size(), node, clock.getTime(), timing);
+		intersections.add(newIntersection);
+		intersectionStats.resize(intersections.size());
+		network.setNodeIntersection(node, newIntersection.getId());
+		newIntersection.addPhaseListener(this::lightPhaseChanged);
+
+		lights.add(newIntersection);
+		scheduleLights(newIntersection);
+		isIdle = false;
+	}
+
+
+	// Keep the snapshot in step with the live lights and log which light changed
+	private void lightPhaseChanged(Intersection intersection, TrafficLight light, TrafficLight.LightPhase previousPhase) {
+		int lightId = LightSnapshot.lightId(intersection.getId(), light == intersection.getEWLight());
+		lights.update(lightId, light);
+		lightChangeLog[(int) (lightChangeCount % LIGHT_CHANGE_LOG_SIZE)] = lightId;
+		lightChangeCount++;
+	}
+
+
+	void relocateCars() {
+		Car car = cursor;
+
+		for (int i = 0; i < vehicles.size(); i++) {
+			car.bind(i);
+
+			if (vehicles.isParked(i)) {
+				continue;
+			}
+
+			// Cars inside an intersection pick their exit edge when they leave it
+			if (vehicles.intersection[i] == VehicleStore.NONE) {
+				car.locateEdge();
+			} else {
+				car.invalidateNextIntersection();
+			}
+		}
+	}
+
+
+	// Move Main Road's east end past the newest side road
+	public void extendMainRoad() {
+		int mainRoadIndex = findMainRoad();
+
+		if (mainRoadIndex == VehicleStore.NONE) {
+			return;
+		}
+
+		Road mainRoad = network.getRoads().get(mainRoadIndex);
+		network.moveNode(eastEndNode(mainRoad), Math.max(mainRoad.getMaxX(), lastCrossingX(mainRoadIndex) + ROAD_SPACING), 0);
+		relocateCars();
+	}
+
+
+	// Index of Main Road: the first road running east/west along Y = 0 (road 0 in the default layout), NONE if there is none
+	private int findMainRoad() {
+		ArrayList<Road> roads = network.getRoads();
+
+		for (int r = 0; r < roads.size(); r++) {
+			if (roads.get(r).isHorizontal() && roads.get(r).getMinY() == 0) {
+				return r;
+			}
+		}
+
+		return VehicleStore.NONE;
+	}
+
+
+	// X of the easternmost intersection on the road, its west end if it has none yet
+	private double lastCrossingX(int roadIndex) {
+		double x = network.getRoads().get(roadIndex).getMinX();
+
+		for (int node : network.getRoadNodes(roadIndex)) {
+			if (network.getNodeIntersection(node) != VehicleStore.NONE) {
+				x = Math.max(x, network.getNodeX(node));
+			}
+		}
+
+		return x;
+	}
+
+
+	private int eastEndNode(Road road) {
+		int first = road.getEndNode(0);
+		int last = road.getEndNode(1);
+
+		return network.getNodeX(last) >= network.getNodeX(first) ? last : first;
+	}
+
+
+	// Spawn method for re-spawning cars
+	public void spawnCar(Car car) {
+
+		// Randomly select a road (drawing from the car's own stream)
+		ArrayList<Road> roads = network.getRoads();
+		Road randomRoad = roads.get(car.nextRandomInt(roads.size()));
+
+		// Randomly select an end of the selected road to spawn the car, heading into the road
+		spawnAt(car, randomRoad, car.nextRandomInt(2));
+	}
+
+
+	// Place the car at an end of the road (0 = first node, 1 = last node), heading into it
+	private void spawnAt(Car car, Road road, int end) {
+		int edge = road.getSpawnEdge(end);
+		Direction direction = network.getEdgeDirection(edge);
+		int previous = network.getIncomingEdge(network.getEdgeFrom(edge), direction);
+
+		// A road that goes on past that end (a cut scenario road) is entered where the whole chain ends
+		while (previous != VehicleStore.NONE && network.getNodeIntersection(network.getEdgeFrom(edge)) == VehicleStore.NONE) {
+			edge = previous;
+			previous = network.getIncomingEdge(network.getEdgeFrom(edge), direction);
+		}
+
+		spawnAt(car, edge);
+	}
+
+
+	// Place the car at the start of the edge, heading into it
+	private void spawnAt(Car car, int edge) {
+		int spawnNode = network.getEdgeFrom(edge);
+
+		car.setPosition(network.getNodeX(spawnNode), network.getNodeY(spawnNode));
+		car.setSpeed(car.nextRandomDouble(55, 90) / 3.6);
+		car.setCurrentEdge(edge);
+
+		// Begin movement for new car
+		car.setCarState(CarState.MOVING);
+	}
+
+
+	// Add a new vehicle to the store and return a handle to it
+	public Car spawnRandomCar() {
+		Car car = new Car(vehicles, network, intersections, vehicles.add());
+		car.initialize(random.nextStreamSeed());
+		spawnCar(car);
+
+		return car;
+	}
+
+
+	// Add a new vehicle at the start of one of the edges (drawn from its own stream), for loaders placing demand in an area
+	Car spawnCarOn(int[] edges) {
+		Car car = new Car(vehicles, network, intersections, vehicles.add());
+		car.initialize(random.nextStreamSeed());
+		spawnAt(car, edges[car.nextRandomInt(edges.length)]);
+
+		return car;
+	}
+
+
+	/**
+	 * Lets the first vehicle waiting at a demand entry point enter, in a parked slot if
+	 * there is one, unless the vehicle that entered before it is still too close to the
+	 * road end. Vehicles left waiting try again after ENTRY_RETRY_INTERVAL.
+	 */
+	private void admitArrival(int entry, double time) {
+		Road road = network.getRoads().get(demand.getEntryRoad(entry));
+		int end = demand.getEntryEnd(entry);
+
+		if (!isEntryBlocked(road, end, demand.getLastVehicle(entry))) {
+			Car car = cursor.bind(vehicles.add());
+			car.initialize(random.nextStreamSeed());
+			spawnAt(car, road, end);
+			demand.admitted(entry, car.getId());
+		}
+
+		if (demand.getWaiting(entry) > 0 && !demand.isRetryScheduled(entry)) {
+			events.add(time + ENTRY_RETRY_INTERVAL, ENTRY_RETRY, entry);
+			demand.setRetryScheduled(entry, true);
+		}
+	}
+
+
+	// True while the given vehicle is still on the first ENTRY_GAP units of the road from that end
+	private boolean isEntryBlocked(Road road, int end, int vehicleId) {
+
+		if (vehicleId == VehicleStore.NONE || vehicles.isParked(vehicleId)
+				|| vehicles.edge[vehicleId] != road.getSpawnEdge(end)) {
+			return false;
+		}
+
+		int node = road.getEndNode(end);
+		double distance = Math.abs(vehicles.x[vehicleId] - network.getNodeX(node))
+				+ Math.abs(vehicles.y[vehicleId] - network.getNodeY(node));
+
+		return distance < ENTRY_GAP;
+	}
+
+
+	// Queue the next arrival of a demand entry point (none if it sends no vehicles)
+	private void scheduleArrival(int entry) {
+		double time = demand.nextArrival(entry);
+
+		if (time != Double.POSITIVE_INFINITY) {
+			events.add(time, ARRIVAL, entry);
+		}
+	}
+
+
+	/**
+	 * Lets vehicles arrive at the entry points of the current network by the given demand
+	 * from now on, and park the vehicles that leave instead of respawning them. null
+	 * returns to the fixed population. Set it after the network was built: roads added
+	 * later get no arrivals until the demand is set again.
+	 */
+	public void setDemand(TrafficDemand newDemand) {
+		demand = newDemand;
+
+		if (demand == null) {
+			return;
+		}
+
+		demand.attach(network, random, clock.getTime());
+
+		for (int entry = 0; entry < demand.getEntryCount(); entry++) {
+			scheduleArrival(entry);
+		}
+
+		isIdle = false;
+	}
+
+
+	// Time warp: 1 = real time, SimulationClock.MAX_SPEED = as fast as possible
+	public void setTimeScale(double timeScale) {
+		clock.setTimeScale(timeScale);
+	}
+
+
+	// Start sampling the vehicle trajectories into the recorder, null stops recording
+	public void setTrajectoryRecorder(TrajectoryRecorder newRecorder) {
+		recorder = newRecorder;
+
+		if (recorder != null) {
+			recorder.attach(this);
+		}
+	}
+
+
+	// Collect tick metrics into the given SimulationMetrics, null stops collecting
+	public void setMetrics(SimulationMetrics newMetrics) {
+		metrics = newMetrics;
+	}
+
+	// Collection of Getters
+
+	public ArrayList<Road> getRoads() {
+		return network.getRoads();
+	}
+
+
+	public RoadNetwork getNetwork() {
+		return network;
+	}
+
+
+	// Handles for every vehicle, created on first request so headless runs never allocate them
+	public ArrayList<Car> getCars() {
+		for (int i = carHandles.size(); i < vehicles.size(); i++) {
+			carHandles.add(new Car(vehicles, network, intersections, i));
+		}
+
+		return carHandles;
+	}
+
+
+	public VehicleStore getVehicles() {
+		return vehicles;
+	}
+
+
+	public ArrayList<Intersection> getIntersections() {
+		return intersections;
+	}
+
+
+	// Readable from any thread through IntersectionStats.snapshot
+	public IntersectionStats getIntersectionStats() {
+		return intersectionStats;
+	}
+
+
+	public int getIntersectionCount() {
+		return intersectionCount;
+	}
+
+
+	public boolean getIsRunning() {
+		return isRunning;
+	}
+
+
+	public RandomSource getRandom() {
+		return random;
+	}
+
+
+	public long getSeed() {
+		return random.getSeed();
+	}
+
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+
+	public double getTimestep() {
+		return clock.getTimestep();
+	}
+
+
+	public double getSimulationTime() {
+		return clock.getTime();
+	}
+
+
+	public long getTickCount() {
+		return clock.getTickCount();
+	}
+
+
+	public SimulationClock getClock() {
+		return clock;
+	}
+
+
+	public double getTimeScale() {
+		return clock.getTimeScale();
+	}
+
+
+	public long getLightChangeCount() {
+		return lightChangeCount;
+	}
+
+
+	// Number of the most recent light changes whose light id is still logged
+	public int getLoggedLightChangeCount() {
+		return (int) Math.min(lightChangeCount - lightChangeLogStart, LIGHT_CHANGE_LOG_SIZE);
+	}
+
+
+	// Light id of the given change (1 = the first), only for the logged changes
+	public int getChangedLight(long change) {
+		return lightChangeLog[(int) ((change - 1) % LIGHT_CHANGE_LOG_SIZE)];
+	}
+
+
+	public TrajectoryRecorder getTrajectoryRecorder() {
+		return recorder;
+	}
+
+
+	public SimulationMetrics getMetrics() {
+		return metrics;
+	}
+
+
+	public TrafficDemand getDemand() {
+		return demand;
+	}
+}
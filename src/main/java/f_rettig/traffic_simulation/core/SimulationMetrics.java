@@ -0,0 +1,458 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class SimulationMetrics: Tick-level performance metrics of a SimulationEngine,
+ * attached with SimulationEngine.setMetrics and exposed as the
+ * application:type=SimulationMetrics MXBean (register) and, optionally, as plain text
+ * through a MetricsEndpoint.
+ *
+ * Per tick it records the tick duration and the duration of each phase (due events,
+ * lane sorting, car update, barrier merge and trajectory sampling) in LatencyHistograms,
+ * the vehicles per CarState, respawns, signal switches and the bytes the simulation
+ * thread allocated. Per step it records the real time between calls and how far the
+ * simulated time falls behind the scaled real time.
+ *
+ * Recording runs on the simulation thread and only updates primitive fields and
+ * preallocated arrays, so a measured tick allocates nothing for the metrics. Readers
+ * (JMX, the endpoint) run on their own threads and may see values that are a tick old.
+ * Resetting is only requested by readers and carried out at the start of the next tick.
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import application.Car.CarState;
+
+public class SimulationMetrics implements SimulationMetricsMXBean {
+
+	public static final String OBJECT_NAME = "application:type=SimulationMetrics";
+
+	// Phases of a tick, in the order they run
+	static final int EVENTS = 0;
+	static final int LANES = 1;
+	static final int CARS = 2;
+	static final int MERGE = 3;
+	static final int RECORDING = 4;
+	private static final String[] PHASE_NAMES = {"events", "lanes", "cars", "merge", "recording"};
+
+	// Simulated seconds over which the rates are averaged
+	private static final double RATE_WINDOW = 10.0;
+
+	private static final CarState[] STATES = CarState.values();
+
+	// Only set if the JVM can measure the bytes allocated by a thread
+	private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+
+	private final LatencyHistogram tickTimes = new LatencyHistogram();
+	private final LatencyHistogram[] phaseTimes = new LatencyHistogram[PHASE_NAMES.length];
+	private final LatencyHistogram stepDeltas = new LatencyHistogram();
+	private volatile long tickCount = 0;			// Written last in every tick
+	private volatile boolean resetRequested = false;
+
+	// Current tick
+	private long tickStart;
+	private long phaseStart;
+	private long allocatedAtStart;
+	private boolean inTick = false;
+	private final int[] countingStates = new int[STATES.length];
+
+	// Results
+	private final int[] vehicleStates = new int[STATES.length];
+	private long respawnCount = 0;
+	private long signalSwitchCount = 0;
+	private long lastLightChangeCount = 0;
+	private long allocatedBytes = -1;
+	private long totalAllocatedBytes = 0;
+	private long maxAllocatedBytes = 0;
+	private double clockLag = 0;
+	private double timeDrift = 0;
+
+	// Rates over the current window of simulated time
+	private double windowStart = 0;
+	private long windowRespawns = 0;
+	private long windowSwitches = 0;
+	private double respawnRate = 0;
+	private double switchRate = 0;
+
+
+	public SimulationMetrics() {
+		for (int p = 0; p < phaseTimes.length; p++) {
+			phaseTimes[p] = new LatencyHistogram();
+		}
+	}
+
+
+	private static com.sun.management.ThreadMXBean allocationCounter() {
+		if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+				&& threads.isThreadAllocatedMemorySupported()) {
+			threads.setThreadAllocatedMemoryEnabled(true);
+			return threads;
+		}
+
+		return null;
+	}
+
+
+	// Make the metrics visible to JMX clients of this JVM
+	public void register() throws JMException {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(OBJECT_NAME);
+
+		if (!server.isRegistered(name)) {
+			server.registerMBean(this, name);
+		}
+	}
+
+
+	public void unregister() throws JMException {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(OBJECT_NAME);
+
+		if (server.isRegistered(name)) {
+			server.unregisterMBean(name);
+		}
+	}
+
+
+	// Called by the engine before the events of a tick (simulation thread)
+	void tickStarted() {
+		if (resetRequested) {
+			clear();
+			resetRequested = false;
+		}
+
+		for (int s = 0; s < countingStates.length; s++) {
+			countingStates[s] = 0;
+		}
+
+		allocatedAtStart = THREADS == null ? 0 : THREADS.getCurrentThreadAllocatedBytes();
+		tickStart = System.nanoTime();
+		phaseStart = tickStart;
+		inTick = true;
+	}
+
+
+	// Called by the engine at the end of each phase, phases outside a tick are not measured
+	void phaseEnded(int phase) {
+		if (!inTick) {
+			return;
+		}
+
+		long now = System.nanoTime();
+		phaseTimes[phase].record(now - phaseStart);
+		phaseStart = now;
+	}
+
+
+	// Called by the engine for every partition at the barrier
+	void partitionMerged(TickPartition partition) {
+		for (int s = 0; s < countingStates.length; s++) {
+			countingStates[s] += partition.getStateCount(s);
+		}
+
+		respawnCount += partition.getRespawnCount();
+	}
+
+
+	// Called by the engine after every tick, including the recorder
+	void tickEnded(SimulationEngine engine) {
+		tickTimes.record(System.nanoTime() - tickStart);
+		inTick = false;
+
+		if (THREADS != null) {
+			allocatedBytes = THREADS.getCurrentThreadAllocatedBytes() - allocatedAtStart;
+			totalAllocatedBytes += allocatedBytes;
+			maxAllocatedBytes = Math.max(maxAllocatedBytes, allocatedBytes);
+		}
+
+		System.arraycopy(countingStates, 0, vehicleStates, 0, countingStates.length);
+
+		// The engine's light change count starts over after a reset
+		long lightChanges = engine.getLightChangeCount();
+
+		if (lightChanges < lastLightChangeCount) {
+			lastLightChangeCount = 0;
+		}
+
+		signalSwitchCount += lightChanges - lastLightChangeCount;
+		lastLightChangeCount = lightChanges;
+
+		updateRates(engine.getSimulationTime());
+		tickCount++;
+	}
+
+
+	private void updateRates(double time) {
+		double span = time - windowStart;
+
+		if (span >= RATE_WINDOW) {
+			respawnRate = (respawnCount - windowRespawns) / span;
+			switchRate = (signalSwitchCount - windowSwitches) / span;
+		}
+
+		// Start a new window when this one is full or the simulated time started over
+		if (span >= RATE_WINDOW || span < 0) {
+			windowStart = time;
+			windowRespawns = respawnCount;
+			windowSwitches = signalSwitchCount;
+		}
+	}
+
+
+	// Called by the engine at the end of step(deltaTime) with the ticks it ran (simulation thread)
+	void stepCompleted(SimulationClock clock, double deltaTime, long ticks) {
+		stepDeltas.record((long) (deltaTime * 1e9));
+
+		// At MAX_SPEED no real time is owed, so nothing can fall behind
+		if (clock.isMaxSpeed()) {
+			clockLag = 0;
+			return;
+		}
+
+		clockLag = clock.getDueTicks() * clock.getTimestep();
+		timeDrift += deltaTime * clock.getTimeScale() - ticks * clock.getTimestep();
+	}
+
+
+	private void clear() {
+		tickTimes.reset();
+		stepDeltas.reset();
+
+		for (LatencyHistogram phase : phaseTimes) {
+			phase.reset();
+		}
+
+		tickCount = 0;
+		respawnCount = 0;
+		signalSwitchCount = 0;
+		totalAllocatedBytes = 0;
+		maxAllocatedBytes = 0;
+		timeDrift = 0;
+		windowRespawns = 0;
+		windowSwitches = 0;
+	}
+
+
+	@Override
+	public void resetStatistics() {
+		resetRequested = true;
+	}
+
+
+	/**
+	 * All metrics in the plain text exposition format of Prometheus (one "name{labels}
+	 * value" line per sample, times in seconds). Served by the MetricsEndpoint.
+	 */
+	public String formatText() {
+		StringBuilder text = new StringBuilder(2048);
+		long ticks = tickCount;
+
+		text.append("# TYPE traffic_tick_seconds summary\n");
+		appendSummary(text, "traffic_tick_seconds", "", tickTimes);
+		text.append("traffic_tick_seconds_count ").append(ticks).append('\n');
+
+		text.append("# TYPE traffic_phase_seconds summary\n");
+
+		for (int p = 0; p < phaseTimes.length; p++) {
+			appendSummary(text, "traffic_phase_seconds", "phase=\"" + PHASE_NAMES[p] + "\",", phaseTimes[p]);
+		}
+
+		text.append("# TYPE traffic_vehicles gauge\n");
+
+		for (int s = 0; s < STATES.length; s++) {
+			text.append("traffic_vehicles{state=\"").append(STATES[s]).append("\"} ").append(vehicleStates[s]).append('\n');
+		}
+
+		text.append("# TYPE traffic_respawns_total counter\n");
+		text.append("traffic_respawns_total ").append(respawnCount).append('\n');
+		text.append("# TYPE traffic_respawns_per_second gauge\n");
+		text.append("traffic_respawns_per_second ").append(respawnRate).append('\n');
+		text.append("# TYPE traffic_signal_switches_total counter\n");
+		text.append("traffic_signal_switches_total ").append(signalSwitchCount).append('\n');
+		text.append("# TYPE traffic_signal_switches_per_second gauge\n");
+		text.append("traffic_signal_switches_per_second ").append(switchRate).append('\n');
+
+		text.append("# TYPE traffic_allocated_bytes_per_tick gauge\n");
+		text.append("traffic_allocated_bytes_per_tick{stat=\"last\"} ").append(allocatedBytes).append('\n');
+		text.append("traffic_allocated_bytes_per_tick{stat=\"mean\"} ").append(getMeanAllocatedBytesPerTick()).append('\n');
+		text.append("traffic_allocated_bytes_per_tick{stat=\"max\"} ").append(maxAllocatedBytes).append('\n');
+
+		text.append("# TYPE traffic_step_delta_seconds summary\n");
+		appendSummary(text, "traffic_step_delta_seconds", "", stepDeltas);
+		text.append("traffic_step_delta_seconds_count ").append(stepDeltas.getCount()).append('\n');
+		text.append("# TYPE traffic_clock_lag_seconds gauge\n");
+		text.append("traffic_clock_lag_seconds ").append(clockLag).append('\n');
+		text.append("# TYPE traffic_time_drift_seconds gauge\n");
+		text.append("traffic_time_drift_seconds ").append(timeDrift).append('\n');
+
+		return text.toString();
+	}
+
+
+	private static void appendSummary(StringBuilder text, String name, String labels, LatencyHistogram histogram) {
+		text.append(name).append("{").append(labels).append("quantile=\"0.5\"} ").append(histogram.getPercentile(50) / 1e9).append('\n');
+		text.append(name).append("{").append(labels).append("quantile=\"0.99\"} ").append(histogram.getPercentile(99) / 1e9).append('\n');
+		text.append(name).append("{").append(labels).append("quantile=\"1\"} ").append(histogram.getMax() / 1e9).append('\n');
+	}
+
+
+	private static double millis(long nanos) {
+		return nanos / 1e6;
+	}
+
+
+	private Map<String, Double> phaseMillis(double percent) {
+		Map<String, Double> phases = new LinkedHashMap<>();
+
+		for (int p = 0; p < phaseTimes.length; p++) {
+			phases.put(PHASE_NAMES[p], millis(phaseTimes[p].getPercentile(percent)));
+		}
+
+		return phases;
+	}
+
+	// Collection of Getters
+
+	@Override
+	public long getTickCount() {
+		return tickCount;
+	}
+
+
+	@Override
+	public double getTickP50Millis() {
+		return millis(tickTimes.getPercentile(50));
+	}
+
+
+	@Override
+	public double getTickP99Millis() {
+		return millis(tickTimes.getPercentile(99));
+	}
+
+
+	@Override
+	public double getTickMaxMillis() {
+		return millis(tickTimes.getMax());
+	}
+
+
+	@Override
+	public double getTickMeanMillis() {
+		return tickTimes.getMean() / 1e6;
+	}
+
+
+	@Override
+	public Map<String, Double> getPhaseP50Millis() {
+		return phaseMillis(50);
+	}
+
+
+	@Override
+	public Map<String, Double> getPhaseP99Millis() {
+		return phaseMillis(99);
+	}
+
+
+	@Override
+	public Map<String, Double> getPhaseMaxMillis() {
+		return phaseMillis(100);
+	}
+
+
+	@Override
+	public Map<String, Integer> getVehiclesPerState() {
+		Map<String, Integer> states = new LinkedHashMap<>();
+
+		for (int s = 0; s < STATES.length; s++) {
+			states.put(STATES[s].name(), vehicleStates[s]);
+		}
+
+		return states;
+	}
+
+
+	@Override
+	public long getRespawnCount() {
+		return respawnCount;
+	}
+
+
+	@Override
+	public double getRespawnsPerSecond() {
+		return respawnRate;
+	}
+
+
+	@Override
+	public long getSignalSwitchCount() {
+		return signalSwitchCount;
+	}
+
+
+	@Override
+	public double getSignalSwitchesPerSecond() {
+		return switchRate;
+	}
+
+
+	@Override
+	public long getAllocatedBytesPerTick() {
+		return allocatedBytes;
+	}
+
+
+	@Override
+	public double getMeanAllocatedBytesPerTick() {
+		long ticks = tickCount;
+		return THREADS == null ? -1 : ticks == 0 ? 0 : (double) totalAllocatedBytes / ticks;
+	}
+
+
+	@Override
+	public long getMaxAllocatedBytesPerTick() {
+		return THREADS == null ? -1 : maxAllocatedBytes;
+	}
+
+
+	@Override
+	public double getStepDeltaP50Millis() {
+		return millis(stepDeltas.getPercentile(50));
+	}
+
+
+	@Override
+	public double getStepDeltaP99Millis() {
+		return millis(stepDeltas.getPercentile(99));
+	}
+
+
+	@Override
+	public double getStepDeltaMaxMillis() {
+		return millis(stepDeltas.getMax());
+	}
+
+
+	@Override
+	public double getClockLagSeconds() {
+		return clockLag;
+	}
+
+
+	@Override
+	public double getTimeDriftSeconds() {
+		return timeDrift;
+	}
+}
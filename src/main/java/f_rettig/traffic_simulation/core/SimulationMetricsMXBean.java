@@ -0,0 +1,71 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Interface SimulationMetricsMXBean: Management interface of the SimulationMetrics, as
+ * seen by JMX clients such as jconsole or VisualVM under
+ * application:type=SimulationMetrics. Times are in milliseconds unless the name says
+ * otherwise, rates are per simulated second.
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import java.util.Map;
+
+public interface SimulationMetricsMXBean {
+
+	// Ticks measured since the start or the last reset of the statistics
+	long getTickCount();
+
+	double getTickP50Millis();
+
+	double getTickP99Millis();
+
+	double getTickMaxMillis();
+
+	double getTickMeanMillis();
+
+	// Per phase of the tick: events, lanes, cars, merge, recording
+	Map<String, Double> getPhaseP50Millis();
+
+	Map<String, Double> getPhaseP99Millis();
+
+	Map<String, Double> getPhaseMaxMillis();
+
+	// Vehicles per CarState after the last tick
+	Map<String, Integer> getVehiclesPerState();
+
+	long getRespawnCount();
+
+	double getRespawnsPerSecond();
+
+	long getSignalSwitchCount();
+
+	double getSignalSwitchesPerSecond();
+
+	// Bytes the simulation thread allocated during the last tick, -1 if the JVM cannot tell
+	long getAllocatedBytesPerTick();
+
+	double getMeanAllocatedBytesPerTick();
+
+	long getMaxAllocatedBytesPerTick();
+
+	// Real time between two calls of SimulationEngine.step
+	double getStepDeltaP50Millis();
+
+	double getStepDeltaP99Millis();
+
+	double getStepDeltaMaxMillis();
+
+	// Simulated time that is due but was not run yet
+	double getClockLagSeconds();
+
+	// Scaled real time handed to step() minus the simulated time that was run
+	double getTimeDriftSeconds();
+
+	// Start all statistics over with the next tick
+	void resetStatistics();
+}
@@ -0,0 +1,256 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class SimulationThread: Runs the SimulationEngine on its own thread so a slow tick
+ * never freezes the UI and a UI stall never stretches the simulation timestep.
+ *
+ * - The thread steps the engine in real time (or faster, see the engine's time scale)
+ *   and publishes a FrameSnapshot after every batch of ticks. The renderer reads render frames (positions, colours and
+ *   lights) every pulse; the car status table reads detail frames, which are only
+ *   copied when the table has taken the previous one.
+ * - After start() the engine belongs to this thread. Every change from the UI (add
+ *   road, add car, pause, reset...) is queued with submit() or call() and run between
+ *   ticks.
+ * - With a TrajectoryReplay set, the thread plays the recording back instead of
+ *   stepping the engine and publishes the replayed frames the same way.
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+public class SimulationThread {
+
+	// How long to sleep while paused (commands wake the thread up earlier)
+	private static final long IDLE_NANOS = 50_000_000L;
+
+	// How long shutdown() waits for the current tick to finish
+	private static final long SHUTDOWN_TIMEOUT_MILLIS = 5_000L;
+
+	private SimulationEngine engine;
+	private Thread thread;
+	private ConcurrentLinkedQueue<Runnable> commands = new ConcurrentLinkedQueue<>();
+	private FrameBuffer renderFrames = new FrameBuffer();
+	private FrameBuffer statusFrames = new FrameBuffer();
+	private long frameSequence = 0;
+	private TrajectoryReplay replay;			// Only set while a recording is played back
+	private volatile boolean isAlive = false;
+
+	// Simulated time of the newest frame, for the clock display
+	private volatile double publishedTime = 0;
+
+
+	public SimulationThread(SimulationEngine engine) {
+		this.engine = engine;
+		this.thread = new Thread(this::run, "simulation");
+		this.thread.setDaemon(true); // closes with app
+	}
+
+
+	public void start() {
+		if (!isAlive) {
+			isAlive = true;
+			thread.start();
+		}
+	}
+
+
+	/**
+	 * Stop the thread after the current tick and wait (at most SHUTDOWN_TIMEOUT_MILLIS)
+	 * until it has left its loop, so the engine's workers and the trajectory recorder can
+	 * be shut down afterwards without a tick still using them. Returns false if the
+	 * thread is still running.
+	 */
+	public boolean shutdown() {
+		isAlive = false;
+		LockSupport.unpark(thread);
+
+		// The simulation thread cannot wait for itself, it stops when the current command returns
+		if (Thread.currentThread() != thread) {
+			try {
+				thread.join(SHUTDOWN_TIMEOUT_MILLIS);
+
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		return !thread.isAlive();
+	}
+
+
+	// Run the command on the simulation thread between two ticks
+	public void submit(Runnable command) {
+		commands.add(command);
+		LockSupport.unpark(thread);
+	}
+
+
+	/**
+	 * Runs the command on the simulation thread and waits for its result. Used for the
+	 * rare structural changes (roads, reset) whose result the UI needs right away.
+	 */
+	public <T> T call(Supplier<T> command) {
+
+		// Before start() (or from the simulation thread itself) there is no one to wait for
+		if (!isAlive || Thread.currentThread() == thread) {
+			return command.get();
+		}
+
+		CompletableFuture<T> result = new CompletableFuture<>();
+
+		// Complete on Errors as well, or the caller would wait forever
+		submit(() -> {
+			try {
+				result.complete(command.get());
+
+			} catch (Throwable e) {
+				result.completeExceptionally(e);
+			}
+		});
+
+		return result.join();
+	}
+
+
+	private void run() {
+		long timestepNanos = (long) (engine.getTimestep() * 1_000_000_000L);
+		long lastTime = System.nanoTime();
+
+		// Show the state built before the thread started
+		publishFrames(true);
+
+		while (isAlive) {
+			long frameStart = System.nanoTime();
+			boolean ranCommands = runCommands();
+			boolean changed = ranCommands;
+
+			try {
+				double deltaTime = (frameStart - lastTime) / 1_000_000_000.0;
+
+				if (replay != null) {
+					changed |= replay.step(deltaTime);
+
+				} else if (engine.step(deltaTime) > 0) {
+					changed = true;
+				}
+
+			} catch (RuntimeException e) {
+				e.printStackTrace();
+			}
+
+			lastTime = frameStart;
+
+			if (changed) {
+				publishFrames(ranCommands);
+			}
+
+			// Sleep until the next tick is due (not at all at full speed), longer while paused
+			if (replay != null) {
+				LockSupport.parkNanos(timestepNanos - (System.nanoTime() - frameStart));
+
+			} else if (engine.getIsRunning()) {
+				if (!engine.getClock().isMaxSpeed()) {
+					LockSupport.parkNanos(timestepNanos - (System.nanoTime() - frameStart));
+				}
+
+			} else {
+				LockSupport.parkNanos(IDLE_NANOS);
+			}
+		}
+	}
+
+
+	// Returns true if any command ran
+	private boolean runCommands() {
+		boolean ranCommand = false;
+		Runnable command;
+
+		while ((command = commands.poll()) != null) {
+			try {
+				command.run();
+
+			} catch (RuntimeException e) {
+				e.printStackTrace();
+			}
+
+			ranCommand = true;
+		}
+
+		return ranCommand;
+	}
+
+
+	private void publishFrames(boolean updateStatus) {
+		frameSequence++;
+		publishedTime = replay != null ? replay.getReader().getFrameTime(Math.max(0, replay.getShownFrame()))
+				: engine.getSimulationTime();
+
+		capture(renderFrames.getBackFrame(), false);
+		renderFrames.publish();
+
+		// The table only refreshes twice a second, skip the copy until it took the last one
+		if (updateStatus || !statusFrames.hasUnreadFrame()) {
+			capture(statusFrames.getBackFrame(), true);
+			statusFrames.publish();
+		}
+	}
+
+
+	private void capture(FrameSnapshot frame, boolean details) {
+		if (replay != null) {
+			frame.capture(replay, engine, frameSequence, details);
+		} else {
+			frame.capture(engine, frameSequence, details);
+		}
+	}
+
+	// Collection of Setters
+
+	// Play a recording back instead of stepping the engine, null returns to the engine (simulation thread)
+	public void setReplay(TrajectoryReplay newReplay) {
+		replay = newReplay;
+
+		if (replay != null) {
+			replay.step(0);
+		}
+
+		publishFrames(true);
+	}
+
+	// Collection of Getters
+
+	// Frames for the renderer and the traffic light display (JavaFX thread)
+	public FrameBuffer getRenderFrames() {
+		return renderFrames;
+	}
+
+
+	// Detail frames for the car status table (refresh scheduler thread)
+	public FrameBuffer getStatusFrames() {
+		return statusFrames;
+	}
+
+
+	// Simulated seconds of the newest frame, readable from any thread
+	public double getSimulationTime() {
+		return publishedTime;
+	}
+
+
+	public TrajectoryReplay getReplay() {
+		return replay;
+	}
+
+
+	public boolean getIsAlive() {
+		return isAlive;
+	}
+}
@@ -0,0 +1,263 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class TickPartition: A contiguous range of vehicle indices updated together during
+ * one tick, together with the shared writes its cars produced.
+ *
+ * Cars must not touch shared state while partitions run side by side, so turn
+ * requests, cleared requests, turn retries to schedule, respawns (vehicles that left
+ * the network, parked instead with a TrafficDemand) and the stops and departures for
+ * the IntersectionStats are recorded here and applied by the engine at the barrier,
+ * partition by partition in index order. Because the merge order never depends on
+ * thread scheduling, a parallel tick gives the same result as a sequential one.
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import java.util.Arrays;
+
+public class TickPartition {
+
+	// Stop delay of a vehicle that entered an intersection without stopping
+	public static final double NOT_STOPPED = -1;
+
+	private Car car;							// Handle reused for every vehicle in the range
+	private int start;
+	private int end;
+
+	// Buffered shared writes (light ids and vehicle ids)
+	private int[] turnRequests = new int[16];
+	private int turnRequestCount = 0;
+	private int[] clearedRequests = new int[16];
+	private int clearedRequestCount = 0;
+	private int[] turnRetries = new int[16];
+	private int turnRetryCount = 0;
+	private int[] respawns = new int[16];
+	private int respawnCount = 0;
+	private int[] stops = new int[16];			// IntersectionStats slots
+	private int stopCount = 0;
+	private int[] servedSlots = new int[16];
+	private double[] servedDelays = new double[16];
+	private boolean[] servedLeftTurns = new boolean[16];
+	private int servedCount = 0;
+	private int activeCount = 0;				// Vehicles that were or became not STOPPED this tick
+	private int[] stateCounts = new int[Car.CarState.values().length];	// Vehicles per CarState after the update
+
+
+	public TickPartition(Car car) {
+		this.car = car;
+	}
+
+
+	/**
+	 * Assign a new vehicle range and forget the writes of the previous tick. The buffers
+	 * are grown to one entry per vehicle of the range here, so recording during the tick
+	 * does not allocate when a busy tick produces more writes than any tick before.
+	 */
+	public void reset(int start, int end) {
+		this.start = start;
+		this.end = end;
+		ensureCapacity(end - start);
+		turnRequestCount = 0;
+		clearedRequestCount = 0;
+		turnRetryCount = 0;
+		respawnCount = 0;
+		stopCount = 0;
+		servedCount = 0;
+		activeCount = 0;
+		Arrays.fill(stateCounts, 0);
+	}
+
+
+	// Grows geometrically, so a range that keeps growing by a few vehicles (arrivals) rarely copies
+	private void ensureCapacity(int required) {
+		if (required <= servedSlots.length) {
+			return;
+		}
+
+		int capacity = Math.max(required, servedSlots.length * 2);
+
+		turnRequests = Arrays.copyOf(turnRequests, Math.max(capacity, turnRequests.length));
+		clearedRequests = Arrays.copyOf(clearedRequests, Math.max(capacity, clearedRequests.length));
+		turnRetries = Arrays.copyOf(turnRetries, Math.max(capacity, turnRetries.length));
+		respawns = Arrays.copyOf(respawns, Math.max(capacity, respawns.length));
+		stops = Arrays.copyOf(stops, Math.max(capacity, stops.length));
+		servedSlots = Arrays.copyOf(servedSlots, capacity);
+		servedDelays = Arrays.copyOf(servedDelays, capacity);
+		servedLeftTurns = Arrays.copyOf(servedLeftTurns, capacity);
+	}
+
+
+	public void requestTurnGreen(int lightId) {
+		if (turnRequestCount == turnRequests.length) {
+			turnRequests = Arrays.copyOf(turnRequests, turnRequestCount * 2);
+		}
+
+		turnRequests[turnRequestCount++] = lightId;
+	}
+
+
+	public void clearWaitingRequest(int lightId) {
+		if (clearedRequestCount == clearedRequests.length) {
+			clearedRequests = Arrays.copyOf(clearedRequests, clearedRequestCount * 2);
+		}
+
+		clearedRequests[clearedRequestCount++] = lightId;
+	}
+
+
+	// The vehicle started waiting for a turn signal, retry its request later
+	public void scheduleTurnRetry(int vehicleId) {
+		if (turnRetryCount == turnRetries.length) {
+			turnRetries = Arrays.copyOf(turnRetries, turnRetryCount * 2);
+		}
+
+		turnRetries[turnRetryCount++] = vehicleId;
+	}
+
+
+	public void respawn(int vehicleId) {
+		if (respawnCount == respawns.length) {
+			respawns = Arrays.copyOf(respawns, respawnCount * 2);
+		}
+
+		respawns[respawnCount++] = vehicleId;
+	}
+
+
+	// The vehicle stopped at the stop line of the given IntersectionStats slot
+	public void recordStop(int slot) {
+		if (stopCount == stops.length) {
+			stops = Arrays.copyOf(stops, stopCount * 2);
+		}
+
+		stops[stopCount++] = slot;
+	}
+
+
+	// The vehicle entered the intersection of the slot, stopDelay is NOT_STOPPED if it did not stop
+	public void recordServed(int slot, double stopDelay, boolean isLeftTurn) {
+		if (servedCount == servedSlots.length) {
+			servedSlots = Arrays.copyOf(servedSlots, servedCount * 2);
+			servedDelays = Arrays.copyOf(servedDelays, servedCount * 2);
+			servedLeftTurns = Arrays.copyOf(servedLeftTurns, servedCount * 2);
+		}
+
+		servedSlots[servedCount] = slot;
+		servedDelays[servedCount] = stopDelay;
+		servedLeftTurns[servedCount] = isLeftTurn;
+		servedCount++;
+	}
+
+
+	public void markActive() {
+		activeCount++;
+	}
+
+
+	public void countState(Car.CarState state) {
+		stateCounts[state.ordinal()]++;
+	}
+
+
+	// True if no vehicle in the range moved and no shared write was buffered this tick
+	public boolean isIdle() {
+		return activeCount == 0 && turnRequestCount == 0 && clearedRequestCount == 0
+				&& turnRetryCount == 0 && respawnCount == 0;
+	}
+
+	// Collection of Getters
+
+	public Car getCar() {
+		return car;
+	}
+
+
+	public int getStart() {
+		return start;
+	}
+
+
+	public int getEnd() {
+		return end;
+	}
+
+
+	public int getTurnRequest(int index) {
+		return turnRequests[index];
+	}
+
+
+	public int getTurnRequestCount() {
+		return turnRequestCount;
+	}
+
+
+	public int getClearedRequest(int index) {
+		return clearedRequests[index];
+	}
+
+
+	public int getClearedRequestCount() {
+		return clearedRequestCount;
+	}
+
+
+	public int getTurnRetry(int index) {
+		return turnRetries[index];
+	}
+
+
+	public int getTurnRetryCount() {
+		return turnRetryCount;
+	}
+
+
+	public int getRespawn(int index) {
+		return respawns[index];
+	}
+
+
+	public int getRespawnCount() {
+		return respawnCount;
+	}
+
+
+	public int getStop(int index) {
+		return stops[index];
+	}
+
+
+	public int getStopCount() {
+		return stopCount;
+	}
+
+
+	public int getServedSlot(int index) {
+		return servedSlots[index];
+	}
+
+
+	public double getServedDelay(int index) {
+		return servedDelays[index];
+	}
+
+
+	public boolean getServedLeftTurn(int index) {
+		return servedLeftTurns[index];
+	}
+
+
+	public int getServedCount() {
+		return servedCount;
+	}
+
+
+	public int getStateCount(int stateOrdinal) {
+		return stateCounts[stateOrdinal];
+	}
+}
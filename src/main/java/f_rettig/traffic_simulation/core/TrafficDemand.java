@@ -0,0 +1,382 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class TrafficDemand: Vehicles arriving at the entry points of the network over time,
+ * instead of a fixed population that respawns. An entry point is a road end that is not
+ * an intersection and where no other road goes on straight; every entry point sends vehicles into its road as a Poisson process
+ * with its own rate (setRate or setEntryRate, in vehicles per simulated hour). An
+ * optional profile (setProfile) scales all rates over a repeating period, e.g. a rush
+ * hour, so the population can ramp up and back down.
+ *
+ * Hand the demand to SimulationEngine.setDemand once the network is built. From then on
+ * a vehicle that leaves the network is parked: its VehicleStore slot goes back to a pool
+ * and the next arrival reuses it, so the store only grows to the peak population and a
+ * ramp does not allocate. Arrivals run as events in the engine's EventQueue, one pending
+ * arrival per entry point. An arrival that finds its road end blocked (the vehicle that
+ * entered before it has not moved clear yet) waits outside the network and enters as
+ * soon as there is room, so vehicles never pile up on the same spot.
+ *
+ * Arrival times are drawn ahead in batches of BATCH_SIZE per entry point, each entry
+ * point from its own random stream (seeded from the engine's RandomSource when the
+ * demand is attached), so a given seed reproduces the same arrivals. Time-varying rates
+ * are sampled by thinning: candidates are drawn at the highest rate of the profile and
+ * kept with the ratio of the current rate to that.
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class TrafficDemand {
+
+	// Arrival times drawn ahead per entry point
+	public static final int BATCH_SIZE = 64;
+
+	private static final double SECONDS_PER_HOUR = 3600.0;
+
+	// Configuration, read when the demand is attached to an engine
+	private double rate;											// Vehicles per hour at every entry point
+	private final HashMap<Integer, Double> entryRates = new HashMap<>();	// road * 2 + end -> vehicles per hour
+	private double profilePeriod = SECONDS_PER_HOUR;
+	private double[] profile = {1.0};								// Rate factor per equal part of the period
+	private double maxFactor = 1.0;
+
+	// Entry points of the attached network, by entry id
+	private int entryCount = 0;
+	private int[] entryRoad = new int[0];
+	private int[] entryEnd = new int[0];
+	private double[] entryRate = new double[0];					// Candidates per simulated second (at maxFactor)
+	private long[] rng = new long[0];
+	private double[] lastTime = new double[0];						// Last arrival drawn into the batch
+	private double[] scheduledTime = new double[0];				// Arrival waiting in the EventQueue
+	private int[] batchCursor = new int[0];
+	private double[] batch = new double[0];						// BATCH_SIZE arrival times per entry point
+	private int[] waiting = new int[0];							// Arrivals queued outside the network
+	private int[] lastVehicle = new int[0];						// Vehicle that entered last, NONE before the first
+	private boolean[] retryScheduled = new boolean[0];			// A retry of the waiting arrivals is queued
+
+
+	// Same rate at every entry point, in vehicles per simulated hour
+	public TrafficDemand(double vehiclesPerHour) {
+		setRate(vehiclesPerHour);
+	}
+
+
+	/**
+	 * Finds the entry points of the engine's network and seeds their streams. Called by
+	 * SimulationEngine.setDemand, starting the arrivals at the given simulated time.
+	 */
+	void attach(RoadNetwork network, RandomSource random, double time) {
+		int roadCount = network.getRoads().size();
+		entryCount = 0;
+		entryRoad = new int[roadCount * 2];
+		entryEnd = new int[roadCount * 2];
+		entryRate = new double[roadCount * 2];
+
+		for (int road = 0; road < roadCount; road++) {
+			Road candidate = network.getRoads().get(road);
+
+			for (int end = 0; end < 2; end++) {
+
+				// Only open road ends, not intersections or the border where a cut road goes on
+				if (network.getNodeIntersection(candidate.getEndNode(end)) != VehicleStore.NONE || candidate.continuesAt(end)) {
+					continue;
+				}
+
+				entryRoad[entryCount] = road;
+				entryEnd[entryCount] = end;
+				entryRate[entryCount] = entryRates.getOrDefault(road * 2 + end, rate) * maxFactor / SECONDS_PER_HOUR;
+				entryCount++;
+			}
+		}
+
+		rng = new long[entryCount];
+		lastTime = new double[entryCount];
+		scheduledTime = new double[entryCount];
+		batchCursor = new int[entryCount];
+		batch = new double[entryCount * BATCH_SIZE];
+		waiting = new int[entryCount];
+		lastVehicle = new int[entryCount];
+		retryScheduled = new boolean[entryCount];
+
+		for (int entry = 0; entry < entryCount; entry++) {
+			rng[entry] = random.nextStreamSeed();
+			lastTime[entry] = time;
+			batchCursor[entry] = BATCH_SIZE;
+			lastVehicle[entry] = VehicleStore.NONE;
+		}
+	}
+
+
+	/**
+	 * Takes the next arrival time of the entry point from its batch, drawing a new batch
+	 * when it is used up, and remembers it as scheduled. Infinite if the entry point
+	 * sends no vehicles.
+	 */
+	double nextArrival(int entry) {
+		if (batchCursor[entry] == BATCH_SIZE) {
+			drawBatch(entry);
+		}
+
+		double time = batch[entry * BATCH_SIZE + batchCursor[entry]++];
+		scheduledTime[entry] = time;
+
+		return time;
+	}
+
+
+	// Draw the next BATCH_SIZE arrivals of one entry point
+	private void drawBatch(int entry) {
+		int base = entry * BATCH_SIZE;
+		double candidateRate = entryRate[entry];
+		double time = lastTime[entry];
+
+		for (int k = 0; k < BATCH_SIZE; k++) {
+
+			if (candidateRate <= 0) {
+				time = Double.POSITIVE_INFINITY;
+
+			} else {
+
+				// Exponential gaps at the highest rate, kept with the current share of it
+				do {
+					time -= Math.log(1 - RandomSource.nextDouble(rng, entry)) / candidateRate;
+				} while (RandomSource.nextDouble(rng, entry) * maxFactor >= factorAt(time));
+			}
+
+			batch[base + k] = time;
+		}
+
+		lastTime[entry] = time;
+		batchCursor[entry] = 0;
+	}
+
+
+	// Rate factor of the profile at a simulated time
+	private double factorAt(double time) {
+		double phase = (time % profilePeriod) / profilePeriod;
+		return profile[Math.min(profile.length - 1, (int) (phase * profile.length))];
+	}
+
+
+	// True if the arrival event at this time is the one still pending for the entry point
+	boolean isScheduled(int entry, double time) {
+		return entry < entryCount && scheduledTime[entry] == time;
+	}
+
+
+	// A vehicle arrived and waits to enter the network
+	void queueArrival(int entry) {
+		waiting[entry]++;
+	}
+
+
+	// The first waiting vehicle entered the network as the given vehicle
+	void admitted(int entry, int vehicleId) {
+		waiting[entry]--;
+		lastVehicle[entry] = vehicleId;
+	}
+
+
+	// Bytes written by save, see SimulationCheckpoint
+	long checkpointSize() {
+		return Double.BYTES + Integer.BYTES + (long) entryRates.size() * (Integer.BYTES + Double.BYTES)
+				+ Double.BYTES + Integer.BYTES + (long) profile.length * Double.BYTES
+				+ Integer.BYTES + (long) entryCount * (5 * Integer.BYTES + 3 * Double.BYTES + Long.BYTES + 1)
+				+ (long) entryCount * BATCH_SIZE * Double.BYTES;
+	}
+
+
+	// Write the configuration, the entry points and their streams and batches
+	void save(ByteBuffer out) {
+		out.putDouble(rate);
+		out.putInt(entryRates.size());
+
+		for (Map.Entry<Integer, Double> entry : entryRates.entrySet()) {
+			out.putInt(entry.getKey());
+			out.putDouble(entry.getValue());
+		}
+
+		out.putDouble(profilePeriod);
+		out.putInt(profile.length);
+		SimulationCheckpoint.putDoubles(out, profile, profile.length);
+
+		out.putInt(entryCount);
+		SimulationCheckpoint.putInts(out, entryRoad, entryCount);
+		SimulationCheckpoint.putInts(out, entryEnd, entryCount);
+		SimulationCheckpoint.putDoubles(out, entryRate, entryCount);
+		SimulationCheckpoint.putLongs(out, rng, entryCount);
+		SimulationCheckpoint.putDoubles(out, lastTime, entryCount);
+		SimulationCheckpoint.putDoubles(out, scheduledTime, entryCount);
+		SimulationCheckpoint.putInts(out, batchCursor, entryCount);
+		SimulationCheckpoint.putDoubles(out, batch, entryCount * BATCH_SIZE);
+		SimulationCheckpoint.putInts(out, waiting, entryCount);
+		SimulationCheckpoint.putInts(out, lastVehicle, entryCount);
+
+		for (int entry = 0; entry < entryCount; entry++) {
+			out.put((byte) (retryScheduled[entry] ? 1 : 0));
+		}
+	}
+
+
+	// Demand written by save, already attached
+	static TrafficDemand restore(ByteBuffer in) {
+		TrafficDemand demand = new TrafficDemand(in.getDouble());
+		int overrides = in.getInt();
+
+		for (int i = 0; i < overrides; i++) {
+			demand.entryRates.put(in.getInt(), in.getDouble());
+		}
+
+		double period = in.getDouble();
+		double[] factors = new double[in.getInt()];
+		SimulationCheckpoint.getDoubles(in, factors, factors.length);
+		demand.setProfile(period, factors);
+
+		int count = in.getInt();
+		demand.entryCount = count;
+		demand.entryRoad = new int[count];
+		demand.entryEnd = new int[count];
+		demand.entryRate = new double[count];
+		demand.rng = new long[count];
+		demand.lastTime = new double[count];
+		demand.scheduledTime = new double[count];
+		demand.batchCursor = new int[count];
+		demand.batch = new double[count * BATCH_SIZE];
+		demand.waiting = new int[count];
+		demand.lastVehicle = new int[count];
+		demand.retryScheduled = new boolean[count];
+
+		SimulationCheckpoint.getInts(in, demand.entryRoad, count);
+		SimulationCheckpoint.getInts(in, demand.entryEnd, count);
+		SimulationCheckpoint.getDoubles(in, demand.entryRate, count);
+		SimulationCheckpoint.getLongs(in, demand.rng, count);
+		SimulationCheckpoint.getDoubles(in, demand.lastTime, count);
+		SimulationCheckpoint.getDoubles(in, demand.scheduledTime, count);
+		SimulationCheckpoint.getInts(in, demand.batchCursor, count);
+		SimulationCheckpoint.getDoubles(in, demand.batch, count * BATCH_SIZE);
+		SimulationCheckpoint.getInts(in, demand.waiting, count);
+		SimulationCheckpoint.getInts(in, demand.lastVehicle, count);
+
+		for (int entry = 0; entry < count; entry++) {
+			demand.retryScheduled[entry] = in.get() != 0;
+		}
+
+		return demand;
+	}
+
+	// Collection of Setters
+
+	// Vehicles per simulated hour at every entry point without a rate of its own
+	public void setRate(double vehiclesPerHour) {
+
+		if (!(vehiclesPerHour >= 0) || Double.isInfinite(vehiclesPerHour)) {
+			throw new IllegalArgumentException("Arrival rate must be zero or positive: " + vehiclesPerHour);
+		}
+
+		rate = vehiclesPerHour;
+	}
+
+
+	// Vehicles per simulated hour entering at one end (0 = first node, 1 = last node) of a road
+	public void setEntryRate(int road, int end, double vehiclesPerHour) {
+
+		if (!(vehiclesPerHour >= 0) || Double.isInfinite(vehiclesPerHour)) {
+			throw new IllegalArgumentException("Arrival rate must be zero or positive: " + vehiclesPerHour);
+		}
+
+		if (road < 0 || end < 0 || end > 1) {
+			throw new IllegalArgumentException("No such road end: " + road + ", " + end);
+		}
+
+		entryRates.put(road * 2 + end, vehiclesPerHour);
+	}
+
+
+	/**
+	 * Scales every rate over a repeating period of simulated seconds, split into equal
+	 * parts with one factor each. E.g. a period of 86400 with 24 factors gives a rate
+	 * per hour of the day.
+	 */
+	public void setProfile(double period, double... factors) {
+
+		if (!(period > 0) || factors.length == 0) {
+			throw new IllegalArgumentException("A profile needs a positive period and at least one factor");
+		}
+
+		double max = 0;
+
+		for (double factor : factors) {
+			if (!(factor >= 0) || Double.isInfinite(factor)) {
+				throw new IllegalArgumentException("Profile factors must be zero or positive: " + Arrays.toString(factors));
+			}
+
+			max = Math.max(max, factor);
+		}
+
+		profilePeriod = period;
+		profile = factors.clone();
+		maxFactor = max;
+	}
+
+
+	void setRetryScheduled(int entry, boolean isScheduled) {
+		retryScheduled[entry] = isScheduled;
+	}
+
+	// Collection of Getters
+
+	public double getRate() {
+		return rate;
+	}
+
+
+	public int getEntryCount() {
+		return entryCount;
+	}
+
+
+	public int getEntryRoad(int entry) {
+		return entryRoad[entry];
+	}
+
+
+	public int getEntryEnd(int entry) {
+		return entryEnd[entry];
+	}
+
+
+	// Vehicles waiting at the entry point for room to enter
+	public int getWaiting(int entry) {
+		return waiting[entry];
+	}
+
+
+	// Vehicles waiting at all entry points
+	public int getWaitingCount() {
+		int count = 0;
+
+		for (int entry = 0; entry < entryCount; entry++) {
+			count += waiting[entry];
+		}
+
+		return count;
+	}
+
+
+	int getLastVehicle(int entry) {
+		return lastVehicle[entry];
+	}
+
+
+	boolean isRetryScheduled(int entry) {
+		return entry < entryCount && retryScheduled[entry];
+	}
+}
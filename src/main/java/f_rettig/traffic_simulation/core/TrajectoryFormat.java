@@ -0,0 +1,198 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class TrajectoryFormat: Layout of the binary trajectory files written by the
+ * TrajectoryRecorder and read by the TrajectoryReader.
+ *
+ * A recording is a directory of segment files (trajectory-00000.seg, -00001, ...),
+ * each made of a segment header, frames and an index of those frames. A frame holds
+ * one sample of every vehicle in the store, in id order, so the vehicle id is the
+ * position of its record in the frame. All values are little endian and fixed width:
+ *
+ * Segment header (32 bytes)
+ *   int magic, int version, int segment index, int frame count,
+ *   long end of the frame data (= start of the index), long tick of the first frame
+ *
+ * Frame header (40 bytes)
+ *   long tick, double simulated time, int frame length (header included),
+ *   int vehicle count, int escape count, int light count, int network length,
+ *   byte kind, 3 bytes padding
+ *
+ * Frame body
+ *   network (keyframes only), vehicle records, escape records, one phase byte per light
+ *
+ * Keyframe record (24 bytes per vehicle)
+ *   int x, int y, short speed, byte state, byte direction, int color, long license plate
+ *
+ * Delta record (8 bytes per vehicle)
+ *   short dx, short dy, short speed, byte state, byte direction
+ *
+ * Escape record (24 bytes, after the delta records)
+ *   int vehicle id, int x, int y, int color, long license plate
+ *
+ * Index entry (24 bytes per frame, after the frame data)
+ *   long tick, double simulated time, int frame offset, int kind
+ *
+ * Network (keyframes only)
+ *   int road count, then per road: short name length, name (UTF-8), byte lanes,
+ *   int node count and a double x, double y per node
+ *
+ * Positions are fixed point (POSITION_SCALE steps per unit) and speeds are in
+ * SPEED_SCALE steps per unit per second. A delta record holds the position change
+ * since the previous frame. A vehicle that moved too far for a short (a respawn) or
+ * did not exist in the previous frame has the ESCAPED bit set in its state and its
+ * absolute position in the escape records, which follow in id order. Every segment
+ * starts with a keyframe, every keyframe carries the road network, and the writer
+ * adds a keyframe whenever the network changes, so decoding can start at any
+ * keyframe without reading anything before it.
+ *
+ * 1 unit = 100 meters = 2.5 pixels
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+public final class TrajectoryFormat {
+
+	public static final int MAGIC = 0x54524A31;			// "TRJ1"
+	public static final int VERSION = 2;
+
+	public static final int SEGMENT_HEADER_SIZE = 32;
+	public static final int FRAME_HEADER_SIZE = 40;
+	public static final int KEYFRAME_RECORD_SIZE = 24;
+	public static final int DELTA_RECORD_SIZE = 8;
+	public static final int ESCAPE_RECORD_SIZE = 24;
+	public static final int INDEX_ENTRY_SIZE = 24;
+
+	// Frame kinds
+	public static final byte KEYFRAME = 0;
+	public static final byte DELTA_FRAME = 1;
+
+	// Set in the state byte of a delta record whose position is in the escape records
+	public static final int ESCAPED = 0x80;
+
+	// Fixed point steps per unit and per unit/second
+	public static final double POSITION_SCALE = 1000.0;
+	public static final double SPEED_SCALE = 100.0;
+
+	// Offsets inside a segment header
+	static final int SEGMENT_VERSION_OFFSET = 4;
+	static final int SEGMENT_FRAME_COUNT_OFFSET = 12;
+	static final int SEGMENT_DATA_END_OFFSET = 16;
+
+	// Offsets inside a frame header
+	static final int FRAME_TIME_OFFSET = 8;
+	static final int FRAME_LENGTH_OFFSET = 16;
+	static final int FRAME_VEHICLE_COUNT_OFFSET = 20;
+	static final int FRAME_ESCAPE_COUNT_OFFSET = 24;
+	static final int FRAME_LIGHT_COUNT_OFFSET = 28;
+	static final int FRAME_NETWORK_LENGTH_OFFSET = 32;
+	static final int FRAME_KIND_OFFSET = 36;
+
+
+	private TrajectoryFormat() {
+	}
+
+
+	public static Path segmentPath(Path directory, int segmentIndex) {
+		return directory.resolve(String.format("trajectory-%05d.seg", segmentIndex));
+	}
+
+
+	static int encodePosition(double position) {
+		return (int) Math.rint(position * POSITION_SCALE);
+	}
+
+
+	public static double decodePosition(int position) {
+		return position / POSITION_SCALE;
+	}
+
+
+	static short encodeSpeed(double speed) {
+		double value = Math.rint(speed * SPEED_SCALE);
+		return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, value));
+	}
+
+
+	public static double decodeSpeed(short speed) {
+		return speed / SPEED_SCALE;
+	}
+
+
+	// Largest frame a sample can produce (a keyframe, or a delta frame where every vehicle escaped)
+	static long maxFrameSize(int vehicleCount, int lightCount, int networkLength) {
+		return FRAME_HEADER_SIZE + networkLength + lightCount
+				+ (long) vehicleCount * Math.max(KEYFRAME_RECORD_SIZE, DELTA_RECORD_SIZE + ESCAPE_RECORD_SIZE);
+	}
+
+
+	// The roads of a network as a network block, see the layout above
+	static byte[] encodeNetwork(RoadNetwork network) {
+		ArrayList<Road> roads = network.getRoads();
+		byte[][] names = new byte[roads.size()][];
+		int[][] nodes = new int[roads.size()][];
+		int length = Integer.BYTES;
+
+		for (int r = 0; r < roads.size(); r++) {
+			names[r] = roads.get(r).getRoadName().getBytes(StandardCharsets.UTF_8);
+			nodes[r] = network.getRoadNodes(r);
+			length += Short.BYTES + names[r].length + 1 + Integer.BYTES + nodes[r].length * 2 * Double.BYTES;
+		}
+
+		ByteBuffer block = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		block.putInt(roads.size());
+
+		for (int r = 0; r < roads.size(); r++) {
+			block.putShort((short) names[r].length);
+			block.put(names[r]);
+			block.put((byte) network.getEdgeLanes(roads.get(r).getSpawnEdge(0)));
+			block.putInt(nodes[r].length);
+
+			for (int node : nodes[r]) {
+				block.putDouble(network.getNodeX(node));
+				block.putDouble(network.getNodeY(node));
+			}
+		}
+
+		return block.array();
+	}
+
+
+	/**
+	 * Adds the roads of a network block (starting at the buffer's position) to an empty
+	 * engine. Roads are added in their recorded order, so the intersections get the same
+	 * ids as in the recorded run.
+	 */
+	static void buildNetwork(ByteBuffer block, SimulationEngine engine) {
+		HashMap<List<Double>, Integer> nodeIds = new HashMap<>();
+		int roadCount = block.getInt();
+
+		for (int r = 0; r < roadCount; r++) {
+			byte[] name = new byte[block.getShort()];
+			block.get(name);
+			int lanes = block.get();
+			int[] nodes = new int[block.getInt()];
+
+			// Roads that cross share the node at their crossing
+			for (int k = 0; k < nodes.length; k++) {
+				double x = block.getDouble();
+				double y = block.getDouble();
+				nodes[k] = nodeIds.computeIfAbsent(List.of(x, y), point -> engine.addNode(x, y));
+			}
+
+			engine.addRoad(new String(name, StandardCharsets.UTF_8), lanes, nodes);
+		}
+	}
+}
@@ -0,0 +1,383 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class TrajectoryReader: Opens a recording written by the TrajectoryRecorder and
+ * decodes single frames of it on demand.
+ *
+ * Opening only maps the segment files and reads their frame indexes (24 bytes per
+ * frame), so even a recording of many gigabytes opens in milliseconds; the vehicle
+ * records are not touched until a frame is decoded. A segment that was never finished
+ * (the recording was not closed) has no index and is scanned frame header by frame
+ * header instead.
+ *
+ * decode(frame) keeps the vehicles of the last decoded frame. Moving forward applies
+ * the delta frames in between, anything else starts again at the nearest keyframe
+ * before the wanted frame, so a frame never costs more than one keyframe interval of
+ * deltas. The frame times form one timeline: when a recording continues after a reset
+ * (the simulated time starts over) the later frames are shifted to follow on.
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class TrajectoryReader implements Closeable {
+
+	private ArrayList<FileChannel> channels = new ArrayList<>();
+	private ArrayList<ByteBuffer> segments = new ArrayList<>();
+
+	// Frame table over all segments, in recording order
+	private int frameCount = 0;
+	private int[] frameSegment = new int[64];
+	private int[] frameOffset = new int[64];
+	private double[] frameTime = new double[64];			// On the replay timeline
+	private boolean[] isKeyframe = new boolean[64];
+
+	// Vehicles and lights of the decoded frame
+	private int decodedFrame = VehicleStore.NONE;
+	int vehicleCount = 0;
+	int[] x = new int[0];
+	int[] y = new int[0];
+	short[] speed = new short[0];
+	byte[] state = new byte[0];
+	byte[] direction = new byte[0];
+	int[] color = new int[0];
+	long[] licensePlate = new long[0];
+	int lightCount = 0;
+	byte[] lightPhases = new byte[0];
+
+	// Network of the decoded frame, the sequence changes whenever a keyframe brings a different one
+	private byte[] network = new byte[0];
+	private int networkSequence = 0;
+
+
+	private TrajectoryReader() {
+	}
+
+
+	// Map the segments of the recording in the directory and read their frame indexes
+	public static TrajectoryReader open(Path directory) throws IOException {
+		TrajectoryReader reader = new TrajectoryReader();
+
+		try {
+			for (int s = 0; Files.exists(TrajectoryFormat.segmentPath(directory, s)); s++) {
+				reader.addSegment(TrajectoryFormat.segmentPath(directory, s));
+			}
+
+		} catch (IOException | RuntimeException e) {
+			reader.close();
+			throw e;
+		}
+
+		if (reader.frameCount == 0) {
+			reader.close();
+			throw new IOException("No recorded frames in " + directory);
+		}
+
+		return reader;
+	}
+
+
+	private void addSegment(Path path) throws IOException {
+		FileChannel channel = FileChannel.open(path);
+		channels.add(channel);
+
+		ByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		segment.order(ByteOrder.LITTLE_ENDIAN);
+		segments.add(segment);
+
+		if (segment.limit() < TrajectoryFormat.SEGMENT_HEADER_SIZE || segment.getInt(0) != TrajectoryFormat.MAGIC) {
+			throw new IOException("Not a trajectory segment: " + path);
+		}
+
+		if (segment.getInt(TrajectoryFormat.SEGMENT_VERSION_OFFSET) != TrajectoryFormat.VERSION) {
+			throw new IOException("Unsupported trajectory version " + segment.getInt(TrajectoryFormat.SEGMENT_VERSION_OFFSET) + ": " + path);
+		}
+
+		int segmentIndex = segments.size() - 1;
+		int indexedFrames = segment.getInt(TrajectoryFormat.SEGMENT_FRAME_COUNT_OFFSET);
+		long dataEnd = segment.getLong(TrajectoryFormat.SEGMENT_DATA_END_OFFSET);
+
+		if (indexedFrames > 0) {
+			for (int f = 0; f < indexedFrames; f++) {
+				int entry = (int) dataEnd + f * TrajectoryFormat.INDEX_ENTRY_SIZE;
+				addFrame(segmentIndex, segment.getInt(entry + 16), segment.getDouble(entry + 8),
+						segment.getInt(entry + 20) == TrajectoryFormat.KEYFRAME);
+			}
+
+			return;
+		}
+
+		// Unfinished segment: follow the frame lengths, a frame still being written has none yet
+		int position = TrajectoryFormat.SEGMENT_HEADER_SIZE;
+
+		while (position + TrajectoryFormat.FRAME_HEADER_SIZE <= segment.limit()) {
+			int length = segment.getInt(position + TrajectoryFormat.FRAME_LENGTH_OFFSET);
+
+			if (length < TrajectoryFormat.FRAME_HEADER_SIZE || position + length > segment.limit()) {
+				break;
+			}
+
+			addFrame(segmentIndex, position, segment.getDouble(position + TrajectoryFormat.FRAME_TIME_OFFSET),
+					segment.get(position + TrajectoryFormat.FRAME_KIND_OFFSET) == TrajectoryFormat.KEYFRAME);
+			position += length;
+		}
+	}
+
+
+	private void addFrame(int segment, int offset, double time, boolean keyframe) throws IOException {
+
+		// Decoding has to start at a keyframe
+		if (frameCount == 0 && !keyframe) {
+			throw new IOException("Recording does not start with a keyframe");
+		}
+
+		if (frameCount == frameSegment.length) {
+			int capacity = frameCount * 2;
+			frameSegment = Arrays.copyOf(frameSegment, capacity);
+			frameOffset = Arrays.copyOf(frameOffset, capacity);
+			frameTime = Arrays.copyOf(frameTime, capacity);
+			isKeyframe = Arrays.copyOf(isKeyframe, capacity);
+		}
+
+		// After a reset the simulated time starts over, continue the timeline from the last frame
+		if (frameCount > 0 && time < frameTime[frameCount - 1]) {
+			time = frameTime[frameCount - 1];
+		}
+
+		frameSegment[frameCount] = segment;
+		frameOffset[frameCount] = offset;
+		frameTime[frameCount] = time;
+		isKeyframe[frameCount] = keyframe;
+		frameCount++;
+	}
+
+
+	// Index of the last frame at or before the given time (the first frame for earlier times)
+	public int findFrame(double time) {
+		int low = 0;
+		int high = frameCount - 1;
+
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+
+			if (frameTime[middle] <= time) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+
+		return low;
+	}
+
+
+	// Make the given frame the decoded frame
+	public void decode(int frame) {
+
+		if (frame < 0 || frame >= frameCount) {
+			throw new IllegalArgumentException("No such frame: " + frame);
+		}
+
+		if (frame == decodedFrame) {
+			return;
+		}
+
+		int keyframe = frame;
+
+		while (!isKeyframe[keyframe]) {
+			keyframe--;
+		}
+
+		// Continue from the decoded frame when no keyframe lies in between
+		int first = decodedFrame >= keyframe && decodedFrame < frame ? decodedFrame + 1 : keyframe;
+
+		for (int f = first; f <= frame; f++) {
+			applyFrame(f);
+		}
+
+		decodedFrame = frame;
+	}
+
+
+	private void applyFrame(int frame) {
+		ByteBuffer segment = segments.get(frameSegment[frame]);
+		int start = frameOffset[frame];
+		int count = segment.getInt(start + TrajectoryFormat.FRAME_VEHICLE_COUNT_OFFSET);
+		int escapeCount = segment.getInt(start + TrajectoryFormat.FRAME_ESCAPE_COUNT_OFFSET);
+		int lights = segment.getInt(start + TrajectoryFormat.FRAME_LIGHT_COUNT_OFFSET);
+		int networkLength = segment.getInt(start + TrajectoryFormat.FRAME_NETWORK_LENGTH_OFFSET);
+		int position = start + TrajectoryFormat.FRAME_HEADER_SIZE;
+
+		ensureCapacity(count, lights);
+		vehicleCount = count;
+
+		if (isKeyframe[frame]) {
+			applyNetwork(segment, position, networkLength);
+			position += networkLength;
+
+			for (int i = 0; i < count; i++, position += TrajectoryFormat.KEYFRAME_RECORD_SIZE) {
+				x[i] = segment.getInt(position);
+				y[i] = segment.getInt(position + 4);
+				int tail = segment.getInt(position + 8);
+				speed[i] = (short) tail;
+				state[i] = (byte) (tail >> 16);
+				direction[i] = (byte) (tail >>> 24);
+				color[i] = segment.getInt(position + 12);
+				licensePlate[i] = segment.getLong(position + 16);
+			}
+
+		} else {
+			for (int i = 0; i < count; i++, position += TrajectoryFormat.DELTA_RECORD_SIZE) {
+				long record = segment.getLong(position);
+				int recordState = (int) (record >> 48) & 0xFF;
+				speed[i] = (short) (record >> 32);
+				state[i] = (byte) (recordState & ~TrajectoryFormat.ESCAPED);
+				direction[i] = (byte) (record >>> 56);
+
+				// Escaped vehicles get their position from the escape records below
+				if ((recordState & TrajectoryFormat.ESCAPED) == 0) {
+					x[i] += (short) record;
+					y[i] += (short) (record >> 16);
+				}
+			}
+
+			for (int e = 0; e < escapeCount; e++, position += TrajectoryFormat.ESCAPE_RECORD_SIZE) {
+				int id = segment.getInt(position);
+				x[id] = segment.getInt(position + 4);
+				y[id] = segment.getInt(position + 8);
+				color[id] = segment.getInt(position + 12);
+				licensePlate[id] = segment.getLong(position + 16);
+			}
+		}
+
+		segment.get(position, lightPhases, 0, lights);
+		lightCount = lights;
+	}
+
+
+	// Keep the network block of a keyframe, but only start a new sequence when it differs
+	private void applyNetwork(ByteBuffer segment, int position, int length) {
+		if (segment.slice(position, length).equals(ByteBuffer.wrap(network))) {
+			return;
+		}
+
+		network = new byte[length];
+		segment.get(position, network);
+		networkSequence++;
+	}
+
+
+	private void ensureCapacity(int count, int lights) {
+		if (x.length < count) {
+			int capacity = Math.max(count, x.length * 2);
+			x = Arrays.copyOf(x, capacity);
+			y = Arrays.copyOf(y, capacity);
+			speed = Arrays.copyOf(speed, capacity);
+			state = Arrays.copyOf(state, capacity);
+			direction = Arrays.copyOf(direction, capacity);
+			color = Arrays.copyOf(color, capacity);
+			licensePlate = Arrays.copyOf(licensePlate, capacity);
+		}
+
+		if (lightPhases.length < lights) {
+			lightPhases = new byte[lights];
+		}
+	}
+
+
+	/**
+	 * Adds the roads of the decoded frame to an empty engine, so road and traffic light
+	 * graphics can be built from it as for a live run. The engine is never started.
+	 */
+	public void buildNetwork(SimulationEngine engine) {
+		TrajectoryFormat.buildNetwork(ByteBuffer.wrap(network).order(ByteOrder.LITTLE_ENDIAN), engine);
+	}
+
+
+	// Unmapping is left to the garbage collector, the channels are closed right away
+	@Override
+	public void close() throws IOException {
+		for (FileChannel channel : channels) {
+			channel.close();
+		}
+
+		channels.clear();
+		segments.clear();
+	}
+
+	// Collection of Getters
+
+	public int getFrameCount() {
+		return frameCount;
+	}
+
+
+	public double getFrameTime(int frame) {
+		return frameTime[frame];
+	}
+
+
+	// Engine tick the frame was recorded at
+	public long getFrameTick(int frame) {
+		return segments.get(frameSegment[frame]).getLong(frameOffset[frame]);
+	}
+
+
+	public double getStartTime() {
+		return frameTime[0];
+	}
+
+
+	public double getEndTime() {
+		return frameTime[frameCount - 1];
+	}
+
+
+	public int getSegmentCount() {
+		return segments.size();
+	}
+
+
+	// Frame whose vehicles are held, VehicleStore.NONE before the first decode
+	public int getDecodedFrame() {
+		return decodedFrame;
+	}
+
+
+	public int getVehicleCount() {
+		return vehicleCount;
+	}
+
+
+	public double getX(int vehicle) {
+		return TrajectoryFormat.decodePosition(x[vehicle]);
+	}
+
+
+	public double getY(int vehicle) {
+		return TrajectoryFormat.decodePosition(y[vehicle]);
+	}
+
+
+	public double getSpeed(int vehicle) {
+		return TrajectoryFormat.decodeSpeed(speed[vehicle]);
+	}
+
+
+	public int getNetworkSequence() {
+		return networkSequence;
+	}
+}
@@ -0,0 +1,213 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class TrajectoryRecorder: Optional recorder of per-vehicle trajectories for offline
+ * analysis, attached with SimulationEngine.setTrajectoryRecorder.
+ *
+ * At the sample rate (10 samples per simulated second by default) the simulation
+ * thread copies the vehicle columns into the next free TrajectorySample of a small
+ * ring buffer and goes on with the next tick. A background encoder thread takes the
+ * samples in order and writes them with a TrajectoryWriter, so quantizing, delta
+ * encoding and file output never run inside a tick. The ring has one writer and one
+ * reader and is handed over with two atomic counters, like the FrameBuffer.
+ *
+ * No sample is ever dropped: if the encoder falls a full ring behind, the simulation
+ * thread waits for a free slot (counted in getStallCount). Ticks the engine skips
+ * because no vehicle moved are not sampled, the vehicles are where the last sample
+ * left them.
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+public class TrajectoryRecorder implements Closeable {
+
+	public static final double DEFAULT_SAMPLE_RATE = 10.0;		// Samples per simulated second
+
+	private static final int RING_SIZE = 4;
+	private static final long FULL_WAIT_NANOS = 100_000L;
+
+	private TrajectoryWriter writer;
+	private double sampleRate;
+	private long ticksPerSample = 1;
+	private long nextSampleTick = 0;
+	private long recordedNetworkVersion = -1;
+
+	// Ring buffer: samples published by the simulation thread and taken by the encoder
+	private final TrajectorySample[] ring = new TrajectorySample[RING_SIZE];
+	private final AtomicLong published = new AtomicLong();
+	private final AtomicLong encoded = new AtomicLong();
+	private long stallCount = 0;
+
+	private Thread encoder;
+	private volatile boolean isOpen = true;
+	private volatile IOException failure;
+
+
+	public TrajectoryRecorder(Path directory) throws IOException {
+		this(new TrajectoryWriter(directory), DEFAULT_SAMPLE_RATE);
+	}
+
+
+	public TrajectoryRecorder(TrajectoryWriter writer, double sampleRate) {
+
+		if (!(sampleRate > 0)) {
+			throw new IllegalArgumentException("Sample rate must be positive: " + sampleRate);
+		}
+
+		this.writer = writer;
+		this.sampleRate = sampleRate;
+
+		for (int i = 0; i < RING_SIZE; i++) {
+			ring[i] = new TrajectorySample();
+		}
+
+		this.encoder = new Thread(this::encode, "trajectory-encoder");
+		this.encoder.setDaemon(true); // closes with app
+		this.encoder.start();
+	}
+
+
+	// Called by the engine when the recorder is attached
+	void attach(SimulationEngine engine) {
+		ticksPerSample = Math.max(1, Math.round(1.0 / (sampleRate * engine.getTimestep())));
+		nextSampleTick = engine.getTickCount();
+		recordedNetworkVersion = -1;
+	}
+
+
+	// Called by the engine after every tick, takes a sample when one is due (simulation thread)
+	void tickCompleted(SimulationEngine engine) {
+		long tick = engine.getTickCount();
+
+		// Ticks start over after a reset
+		if (tick < nextSampleTick - ticksPerSample) {
+			nextSampleTick = tick;
+		}
+
+		if (tick < nextSampleTick || !isOpen || failure != null) {
+			return;
+		}
+
+		// Wait for the encoder if it is a whole ring behind
+		long sequence = published.get();
+
+		while (sequence - encoded.get() >= RING_SIZE) {
+			if (!isOpen || failure != null) {
+				return;
+			}
+
+			stallCount++;
+			LockSupport.unpark(encoder);
+			LockSupport.parkNanos(FULL_WAIT_NANOS);
+		}
+
+		// The network is only encoded again after the roads changed
+		long networkVersion = engine.getNetwork().getVersion();
+		ring[(int) (sequence % RING_SIZE)].capture(engine, networkVersion != recordedNetworkVersion);
+		recordedNetworkVersion = networkVersion;
+		published.set(sequence + 1);
+		LockSupport.unpark(encoder);
+
+		// Stay on the sample grid, also after skipped ticks
+		nextSampleTick = tick - tick % ticksPerSample + ticksPerSample;
+	}
+
+
+	// Encoder thread: write the published samples in order until closed and drained
+	private void encode() {
+		while (true) {
+			long sequence = encoded.get();
+
+			if (sequence == published.get()) {
+				if (!isOpen) {
+					break;
+				}
+
+				LockSupport.park(this);
+				continue;
+			}
+
+			try {
+				writer.write(ring[(int) (sequence % RING_SIZE)]);
+
+			} catch (IOException | RuntimeException e) {
+				failure = e instanceof IOException ? (IOException) e : new IOException(e);
+				e.printStackTrace();
+				break;
+			}
+
+			encoded.set(sequence + 1);
+		}
+	}
+
+
+	/**
+	 * Writes the samples still in the ring, completes the last segment and stops the
+	 * encoder thread. Throws the first error the encoder ran into, if any.
+	 */
+	@Override
+	public void close() throws IOException {
+
+		if (!isOpen) {
+			return;
+		}
+
+		isOpen = false;
+		LockSupport.unpark(encoder);
+
+		try {
+			encoder.join();
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		writer.close();
+
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	// Collection of Getters
+
+	public double getSampleRate() {
+		return sampleRate;
+	}
+
+
+	public long getSampleCount() {
+		return published.get();
+	}
+
+
+	public long getEncodedCount() {
+		return encoded.get();
+	}
+
+
+	// Samples for which the simulation thread had to wait for a free ring slot
+	public long getStallCount() {
+		return stallCount;
+	}
+
+
+	public TrajectoryWriter getWriter() {
+		return writer;
+	}
+
+
+	public boolean getIsOpen() {
+		return isOpen;
+	}
+}
@@ -0,0 +1,139 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class TrajectoryReplay: Plays a recorded run back from a TrajectoryReader instead of
+ * simulating it. No Car logic runs: every frame shown is decoded from the recording.
+ *
+ * The replay keeps a playback position on the recording's timeline that advances with
+ * real time times the playback speed. Negative speeds play backwards, seek() jumps to
+ * any time. Only the frame at the playback position is decoded, and only when it is
+ * shown, so skipping through a long recording touches a handful of frames.
+ *
+ * The roads of the recording are added to the (never started) display engine, so the
+ * road, car and traffic light graphics work exactly as for a live run. When the
+ * recording's network changes, the engine is cleared and rebuilt.
+ *
+ * Used by the SimulationThread in place of the engine's step().
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+public class TrajectoryReplay {
+
+	// Playback speed used for SimulationClock.MAX_SPEED (recorded seconds per real second)
+	public static final double FAST_SPEED = 1000.0;
+
+	private TrajectoryReader reader;
+	private SimulationEngine engine;
+	private double position;				// Playback position on the recording timeline
+	private double speed = 1.0;
+	private boolean isPlaying = true;
+	private int shownFrame = VehicleStore.NONE;
+	private int builtNetwork = 0;			// Network sequence the engine holds, 0 = none yet
+
+
+	public TrajectoryReplay(TrajectoryReader reader, SimulationEngine engine) {
+		this.reader = reader;
+		this.engine = engine;
+		this.position = reader.getStartTime();
+	}
+
+
+	/**
+	 * Advances the playback position by the elapsed real time and decodes the frame
+	 * there. Playback stops at either end of the recording. Returns true if a different
+	 * frame is now shown.
+	 */
+	public boolean step(double deltaTime) {
+
+		if (isPlaying) {
+			position = Math.max(reader.getStartTime(), Math.min(reader.getEndTime(), position + deltaTime * speed));
+
+			if ((speed > 0 && position == reader.getEndTime()) || (speed < 0 && position == reader.getStartTime())) {
+				isPlaying = false;
+			}
+		}
+
+		return showFrame(reader.findFrame(position));
+	}
+
+
+	// Jump to the given time on the recording timeline
+	public boolean seek(double time) {
+		position = Math.max(reader.getStartTime(), Math.min(reader.getEndTime(), time));
+		return showFrame(reader.findFrame(position));
+	}
+
+
+	private boolean showFrame(int frame) {
+
+		if (frame == shownFrame) {
+			return false;
+		}
+
+		reader.decode(frame);
+		shownFrame = frame;
+
+		// The recording moved to a different road network
+		if (reader.getNetworkSequence() != builtNetwork) {
+			engine.reset();
+			reader.buildNetwork(engine);
+			builtNetwork = reader.getNetworkSequence();
+		}
+
+		return true;
+	}
+
+
+	public void play() {
+		isPlaying = true;
+	}
+
+
+	public void pause() {
+		isPlaying = false;
+	}
+
+	// Collection of Setters
+
+	// Recorded seconds per real second, negative plays backwards, MAX_SPEED plays at FAST_SPEED
+	public void setSpeed(double newSpeed) {
+
+		if (Double.isNaN(newSpeed)) {
+			throw new IllegalArgumentException("Playback speed must be a number: " + newSpeed);
+		}
+
+		speed = Double.isInfinite(newSpeed) ? Math.copySign(FAST_SPEED, newSpeed) : newSpeed;
+	}
+
+	// Collection of Getters
+
+	public TrajectoryReader getReader() {
+		return reader;
+	}
+
+
+	public double getPosition() {
+		return position;
+	}
+
+
+	public double getSpeed() {
+		return speed;
+	}
+
+
+	public boolean getIsPlaying() {
+		return isPlaying;
+	}
+
+
+	// Frame shown at the playback position, VehicleStore.NONE before the first step
+	public int getShownFrame() {
+		return shownFrame;
+	}
+}
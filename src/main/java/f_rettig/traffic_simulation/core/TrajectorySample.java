@@ -0,0 +1,107 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class TrajectorySample: Raw copy of the vehicle columns the TrajectoryRecorder
+ * writes (position, speed, state, direction, colour and license plate), the light
+ * phases and, when the roads changed, the road network at one tick.
+ *
+ * The simulation thread only copies the columns with System.arraycopy; quantizing and
+ * delta encoding happen later on the encoder thread. Samples are the slots of the
+ * recorder's ring buffer, so their arrays are reused and only grow.
+ *
+ * 1 unit = 100 meters = 2.5 pixels
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import java.util.ArrayList;
+
+public class TrajectorySample {
+
+	long tickCount = 0;
+	double simulationTime = 0;
+	int vehicleCount = 0;
+
+	double[] x = new double[0];
+	double[] y = new double[0];
+	double[] speed = new double[0];
+	byte[] state = new byte[0];
+	byte[] direction = new byte[0];
+	int[] color = new int[0];
+	long[] licensePlate = new long[0];
+
+	// Light phase ordinals by light id (see LightSnapshot.lightId)
+	int lightCount = 0;
+	byte[] lightPhases = new byte[0];
+
+	// Network block (see TrajectoryFormat), only set when the roads changed since the last sample
+	byte[] network;
+
+
+	// Copy the current vehicle columns, called on the simulation thread only
+	void capture(SimulationEngine engine, boolean networkChanged) {
+		VehicleStore vehicles = engine.getVehicles();
+		int count = vehicles.size();
+
+		tickCount = engine.getTickCount();
+		simulationTime = engine.getSimulationTime();
+		vehicleCount = count;
+
+		if (x.length < count) {
+			int capacity = Math.max(count, x.length * 2);
+			x = new double[capacity];
+			y = new double[capacity];
+			speed = new double[capacity];
+			state = new byte[capacity];
+			direction = new byte[capacity];
+			color = new int[capacity];
+			licensePlate = new long[capacity];
+		}
+
+		System.arraycopy(vehicles.x, 0, x, 0, count);
+		System.arraycopy(vehicles.y, 0, y, 0, count);
+		System.arraycopy(vehicles.speed, 0, speed, 0, count);
+		System.arraycopy(vehicles.state, 0, state, 0, count);
+		System.arraycopy(vehicles.direction, 0, direction, 0, count);
+		System.arraycopy(vehicles.color, 0, color, 0, count);
+		System.arraycopy(vehicles.licensePlate, 0, licensePlate, 0, count);
+
+		captureLights(engine.getIntersections());
+		network = networkChanged ? TrajectoryFormat.encodeNetwork(engine.getNetwork()) : null;
+	}
+
+
+	private void captureLights(ArrayList<Intersection> intersections) {
+		lightCount = intersections.size() * 2;
+
+		if (lightPhases.length < lightCount) {
+			lightPhases = new byte[lightCount];
+		}
+
+		for (int i = 0; i < intersections.size(); i++) {
+			Intersection intersection = intersections.get(i);
+			lightPhases[LightSnapshot.lightId(i, false)] = (byte) intersection.getNSLight().getLightPhase().ordinal();
+			lightPhases[LightSnapshot.lightId(i, true)] = (byte) intersection.getEWLight().getLightPhase().ordinal();
+		}
+	}
+
+	// Collection of Getters
+
+	public long getTickCount() {
+		return tickCount;
+	}
+
+
+	public double getSimulationTime() {
+		return simulationTime;
+	}
+
+
+	public int getVehicleCount() {
+		return vehicleCount;
+	}
+}
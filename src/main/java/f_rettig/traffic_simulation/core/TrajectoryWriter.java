@@ -0,0 +1,328 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class TrajectoryWriter: Encodes TrajectorySamples into the segment files described in
+ * TrajectoryFormat.
+ *
+ * Each segment is a file of at least segmentSize bytes that is memory mapped with a
+ * FileChannel and filled front to back, so writing a frame is plain puts into the
+ * mapped buffer and the operating system writes the pages out in the background. When
+ * the next frame might not fit, the frame index and the segment header are completed,
+ * the file is cut to the bytes used and a new segment is started. Only used by one
+ * thread at a time.
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public class TrajectoryWriter {
+
+	// Default segment size and frames between two keyframes (5 s at 10 samples per second)
+	public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+	public static final int DEFAULT_KEYFRAME_INTERVAL = 50;
+
+	private Path directory;
+	private int segmentSize;
+	private int keyframeInterval;
+
+	// Current segment and the index of its frames
+	private FileChannel channel;
+	private MappedByteBuffer buffer;
+	private int segmentIndex = 0;
+	private int segmentFrames = 0;
+	private long[] frameTicks = new long[64];
+	private double[] frameTimes = new double[64];
+	private int[] frameOffsets = new int[64];
+	private byte[] frameKinds = new byte[64];
+
+	// Quantized positions of the previous frame, the base of the deltas
+	private int[] lastX = new int[0];
+	private int[] lastY = new int[0];
+	private int lastCount = 0;
+	private long lastTick = Long.MIN_VALUE;
+	private int framesSinceKeyframe = 0;
+	private int[] escapes = new int[0];			// Vehicles whose delta did not fit, per frame
+	private byte[] network = new byte[0];			// Latest network block, repeated in every keyframe
+	private long bytesWritten = 0;
+
+
+	public TrajectoryWriter(Path directory) throws IOException {
+		this(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_KEYFRAME_INTERVAL);
+	}
+
+
+	public TrajectoryWriter(Path directory, int segmentSize, int keyframeInterval) throws IOException {
+
+		if (segmentSize < TrajectoryFormat.SEGMENT_HEADER_SIZE + TrajectoryFormat.FRAME_HEADER_SIZE) {
+			throw new IllegalArgumentException("Segment size too small: " + segmentSize);
+		}
+
+		if (keyframeInterval < 1) {
+			throw new IllegalArgumentException("Keyframe interval must be at least 1: " + keyframeInterval);
+		}
+
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		this.keyframeInterval = keyframeInterval;
+		Files.createDirectories(directory);
+	}
+
+
+	public void write(TrajectorySample sample) throws IOException {
+		int count = sample.vehicleCount;
+
+		if (sample.network != null) {
+			network = sample.network;
+		}
+
+		// Room for the frame and its index entry, plus the entries of the frames before it
+		long maxSize = TrajectoryFormat.maxFrameSize(count, sample.lightCount, network.length)
+				+ (long) (segmentFrames + 1) * TrajectoryFormat.INDEX_ENTRY_SIZE;
+
+		// A new segment when the frame might not fit, or when the simulation was reset and the ticks start over
+		if (buffer == null || buffer.remaining() < maxSize || sample.tickCount < lastTick) {
+			finishSegment();
+			openSegment(sample.tickCount, maxSize);
+		}
+
+		ensureCapacity(count);
+
+		// Every segment starts with a keyframe so it can be decoded on its own, the network only comes with keyframes
+		if (segmentFrames == 0 || framesSinceKeyframe >= keyframeInterval || sample.network != null) {
+			writeKeyframe(sample);
+			framesSinceKeyframe = 0;
+
+		} else {
+			writeDeltaFrame(sample);
+		}
+
+		framesSinceKeyframe++;
+		segmentFrames++;
+		lastCount = count;
+		lastTick = sample.tickCount;
+	}
+
+
+	private void writeKeyframe(TrajectorySample sample) {
+		int count = sample.vehicleCount;
+		int frameStart = beginFrame(sample, TrajectoryFormat.KEYFRAME);
+
+		buffer.put(network);
+
+		for (int i = 0; i < count; i++) {
+			int x = TrajectoryFormat.encodePosition(sample.x[i]);
+			int y = TrajectoryFormat.encodePosition(sample.y[i]);
+
+			buffer.putLong((x & 0xFFFFFFFFL) | (long) y << 32);
+			buffer.putInt(packTail(TrajectoryFormat.encodeSpeed(sample.speed[i]), sample.state[i], sample.direction[i]));
+			buffer.putInt(sample.color[i]);
+			buffer.putLong(sample.licensePlate[i]);
+
+			lastX[i] = x;
+			lastY[i] = y;
+		}
+
+		endFrame(sample, frameStart, 0, network.length);
+	}
+
+
+	private void writeDeltaFrame(TrajectorySample sample) {
+		int count = sample.vehicleCount;
+		int escapeCount = 0;
+		int frameStart = beginFrame(sample, TrajectoryFormat.DELTA_FRAME);
+
+		for (int i = 0; i < count; i++) {
+			int x = TrajectoryFormat.encodePosition(sample.x[i]);
+			int y = TrajectoryFormat.encodePosition(sample.y[i]);
+			int state = sample.state[i];
+
+			// New vehicles have no previous position, respawned ones moved too far for a short
+			long dx = (long) x - lastX[i];
+			long dy = (long) y - lastY[i];
+
+			if (i >= lastCount || dx != (short) dx || dy != (short) dy) {
+				escapes[escapeCount++] = i;
+				dx = 0;
+				dy = 0;
+				state |= TrajectoryFormat.ESCAPED;
+			}
+
+			// One 8 byte put per record (little endian, so the fields land in layout order)
+			buffer.putLong((dx & 0xFFFFL) | (dy & 0xFFFFL) << 16
+					| (packTail(TrajectoryFormat.encodeSpeed(sample.speed[i]), state, sample.direction[i]) & 0xFFFFFFFFL) << 32);
+
+			lastX[i] = x;
+			lastY[i] = y;
+		}
+
+		for (int e = 0; e < escapeCount; e++) {
+			int id = escapes[e];
+			buffer.putInt(id);
+			buffer.putInt(lastX[id]);
+			buffer.putInt(lastY[id]);
+			buffer.putInt(sample.color[id]);
+			buffer.putLong(sample.licensePlate[id]);
+		}
+
+		endFrame(sample, frameStart, escapeCount, 0);
+	}
+
+
+	// Speed, state and direction as the last 4 bytes of a record
+	private static int packTail(short speed, int state, byte direction) {
+		return (speed & 0xFFFF) | (state & 0xFF) << 16 | (direction & 0xFF) << 24;
+	}
+
+
+	// Write the frame header, the counts and the length are filled in by endFrame
+	private int beginFrame(TrajectorySample sample, byte kind) {
+		int frameStart = buffer.position();
+
+		buffer.putLong(sample.tickCount);
+		buffer.putDouble(sample.simulationTime);
+		buffer.putInt(0);
+		buffer.putInt(sample.vehicleCount);
+		buffer.putInt(0);
+		buffer.putInt(sample.lightCount);
+		buffer.putInt(0);
+		buffer.put(kind);
+		buffer.put((byte) 0);
+		buffer.put((byte) 0);
+		buffer.put((byte) 0);
+
+		if (segmentFrames == frameTicks.length) {
+			int capacity = segmentFrames * 2;
+			frameTicks = Arrays.copyOf(frameTicks, capacity);
+			frameTimes = Arrays.copyOf(frameTimes, capacity);
+			frameOffsets = Arrays.copyOf(frameOffsets, capacity);
+			frameKinds = Arrays.copyOf(frameKinds, capacity);
+		}
+
+		frameTicks[segmentFrames] = sample.tickCount;
+		frameTimes[segmentFrames] = sample.simulationTime;
+		frameOffsets[segmentFrames] = frameStart;
+		frameKinds[segmentFrames] = kind;
+
+		return frameStart;
+	}
+
+
+	// Light phases close the frame
+	private void endFrame(TrajectorySample sample, int frameStart, int escapeCount, int networkLength) {
+		buffer.put(sample.lightPhases, 0, sample.lightCount);
+
+		int frameLength = buffer.position() - frameStart;
+		buffer.putInt(frameStart + TrajectoryFormat.FRAME_LENGTH_OFFSET, frameLength);
+		buffer.putInt(frameStart + TrajectoryFormat.FRAME_ESCAPE_COUNT_OFFSET, escapeCount);
+		buffer.putInt(frameStart + TrajectoryFormat.FRAME_NETWORK_LENGTH_OFFSET, networkLength);
+		bytesWritten += frameLength;
+	}
+
+
+	private void openSegment(long firstTick, long maxFrameSize) throws IOException {
+		long size = Math.max(segmentSize, TrajectoryFormat.SEGMENT_HEADER_SIZE + maxFrameSize);
+
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("Frame too large for one segment: " + maxFrameSize + " bytes");
+		}
+
+		Path path = TrajectoryFormat.segmentPath(directory, segmentIndex);
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+		buffer.putInt(TrajectoryFormat.MAGIC);
+		buffer.putInt(TrajectoryFormat.VERSION);
+		buffer.putInt(segmentIndex);
+		buffer.putInt(0);
+		buffer.putLong(0);
+		buffer.putLong(firstTick);
+
+		segmentFrames = 0;
+		bytesWritten += TrajectoryFormat.SEGMENT_HEADER_SIZE;
+	}
+
+
+	// Append the frame index, complete the header of the current segment and cut the file to the bytes used
+	private void finishSegment() throws IOException {
+
+		if (buffer == null) {
+			return;
+		}
+
+		int dataEnd = buffer.position();
+
+		for (int f = 0; f < segmentFrames; f++) {
+			buffer.putLong(frameTicks[f]);
+			buffer.putDouble(frameTimes[f]);
+			buffer.putInt(frameOffsets[f]);
+			buffer.putInt(frameKinds[f]);
+		}
+
+		int fileEnd = buffer.position();
+		bytesWritten += fileEnd - dataEnd;
+
+		// The frame count is written last, a reader that finds it knows the index is complete
+		buffer.putLong(TrajectoryFormat.SEGMENT_DATA_END_OFFSET, dataEnd);
+		buffer.putInt(TrajectoryFormat.SEGMENT_FRAME_COUNT_OFFSET, segmentFrames);
+		buffer.force();
+
+		// Some platforms refuse to shrink a mapped file, readers rely on the header instead
+		try {
+			channel.truncate(fileEnd);
+
+		} catch (IOException e) {
+			// Keep the unused tail
+		}
+
+		channel.close();
+		channel = null;
+		buffer = null;
+		segmentIndex++;
+	}
+
+
+	private void ensureCapacity(int count) {
+		if (lastX.length < count) {
+			int capacity = Math.max(count, lastX.length * 2);
+			lastX = Arrays.copyOf(lastX, capacity);
+			lastY = Arrays.copyOf(lastY, capacity);
+			escapes = new int[capacity];
+		}
+	}
+
+
+	public void close() throws IOException {
+		finishSegment();
+	}
+
+	// Collection of Getters
+
+	public Path getDirectory() {
+		return directory;
+	}
+
+
+	// Segments started so far, including the open one
+	public int getSegmentCount() {
+		return buffer == null ? segmentIndex : segmentIndex + 1;
+	}
+
+
+	public long getBytesWritten() {
+		return bytesWritten;
+	}
+}
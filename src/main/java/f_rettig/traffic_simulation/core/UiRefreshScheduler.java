@@ -0,0 +1,103 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class UiRefreshScheduler: Runs every periodic UI update (clock, car status table)
+ * from one daemon thread instead of one sleeping thread per component.
+ *
+ * - Each registered task runs at its own period.
+ * - A task has at most one update waiting on the JavaFX thread. While it is pending
+ *   the task is skipped, so a busy JavaFX thread is never flooded with runLater calls.
+ * - Tasks registered as pausable are skipped while the simulation is paused.
+ * - shutdown() stops the thread for good when the application closes.
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javafx.application.Platform;
+
+public class UiRefreshScheduler {
+
+	private ScheduledExecutorService executor;
+	private volatile boolean isPaused = false;
+
+
+	public UiRefreshScheduler() {
+		executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "ui-refresh");
+			thread.setDaemon(true); // closes with app
+			return thread;
+		});
+	}
+
+
+	/**
+	 * Runs the task every periodMillis. Pausable tasks are skipped while the scheduler
+	 * is paused (e.g. the car table while the simulation is paused).
+	 */
+	public void register(UiRefreshTask task, long periodMillis, boolean pausable) {
+		AtomicBoolean pending = new AtomicBoolean(false);
+
+		executor.scheduleAtFixedRate(() -> refresh(task, pending, pausable),
+				0, periodMillis, TimeUnit.MILLISECONDS);
+	}
+
+
+	private void refresh(UiRefreshTask task, AtomicBoolean pending, boolean pausable) {
+
+		// Skip while paused, or while the last update has not been applied yet
+		if ((pausable && isPaused) || pending.get()) {
+			return;
+		}
+
+		// An exception would cancel the task for good, so report it and carry on
+		try {
+			if (task.prepare()) {
+				pending.set(true);
+
+				Platform.runLater(() -> {
+					try {
+						task.apply();
+
+					} finally {
+						pending.set(false);
+					}
+				});
+			}
+
+		} catch (RuntimeException e) {
+			pending.set(false);
+			e.printStackTrace();
+		}
+	}
+
+
+	public void pause() {
+		isPaused = true;
+	}
+
+
+	public void resume() {
+		isPaused = false;
+	}
+
+
+	// Stop all tasks, used when the application closes
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	// Collection of Getters
+
+	public boolean getIsPaused() {
+		return isPaused;
+	}
+}
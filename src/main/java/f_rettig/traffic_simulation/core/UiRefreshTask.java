@@ -0,0 +1,27 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Interface UiRefreshTask: A periodic UI update run by the UiRefreshScheduler.
+ *
+ * The update is split in two steps:
+ * - prepare() runs on the scheduler thread and does the expensive part (reading the
+ *   simulation, formatting text). It returns false if there is nothing to show.
+ * - apply() runs on the JavaFX thread and only copies the prepared result into the
+ *   nodes.
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+public interface UiRefreshTask {
+
+	// Off the JavaFX thread, returns true if apply() has something to do
+	boolean prepare();
+
+
+	// On the JavaFX thread
+	void apply();
+}
@@ -1,54 +1,93 @@
 /**
  * UMGC CMSC 335
- * Final Project: Traffic Simulation 
- * Class Car: Represents a single car in the simulation, including its properties 
- * (license plate, color, position, speed, direction) and behaviors. The Car class 
- * manages its own movement, interaction with intersections and traffic lights, 
+ * Final Project: Traffic Simulation
+ * Class Car: Represents a single car in the simulation, including its properties
+ * (license plate, color, position, speed, direction) and behaviors. The Car class
+ * manages its own movement, interaction with intersections and traffic lights,
  * decision-making for turns, and state transitions (moving, braking, stopping, turning).
- * 
- * Car objects update their position each frame based on their current state and 
- * respond to traffic light signals and intersection logic.
- * 
+ *
+ * The car's data lives in a VehicleStore; a Car is a lightweight handle onto one slot
+ * of that store. The engine binds a single Car to each index in turn while updating,
+ * and the UI keeps one handle per row for display.
+ *
+ * While updating, a car reads the traffic lights from the tick's LightSnapshot and
+ * records turn requests in its TickPartition instead of writing to the lights directly.
+ * Cars with another car close ahead in their lane (see LaneIndex) follow it using the
+ * Intelligent Driver Model, on top of the usual BRAKING and STOPPED behaviour.
+ *
+ * A car navigates the RoadNetwork by id: it knows the edge it is driving on, the next
+ * intersection is the node at the end of that edge, and after an intersection it
+ * continues on the node's outgoing edge in its new direction. Turns are only chosen
+ * towards exits that exist.
+ *
+ * Car objects update their position each frame based on their current state and
+ * respond to traffic light signals and intersection logic. update() runs one tick of a
+ * car: what it does at the light is looked up in a flat table by CarState,
+ * NextDirection and the light's phase, and move() then applies the kinematics once.
+ *
  * 1 unit = 100 meters = 2.5 pixels
- * 
+ *
  * @author Felicia Rettig
- * Date: May 6, 2025 
+ * Date: May 6, 2025
  * Java 22
  */
 
 package application;
 
-import java.util.Random;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.List;
 
-import javafx.scene.paint.Color;
+import application.TrafficLight.LightPhase;
 
 public class Car {
-	private String licensePlate;
-	private Color color;
-	private Point position;
-	private double speed;
-	private double targetSpeed;
-	private Direction direction;
-	private NextDirection nextDirection = null;
-	private double turnProgress = 0.0;
-	private String currentRoadName;
-	private TrafficLight currentTrafficLight;
-	private Intersection currentIntersection;
-	private CarState carState;
-	private Point stopTarget = null;
-	private Random random = new Random();
-	private boolean directionChosen;
-
-	// waitStartTime meanings:
-	// -1 = not waiting
-	//  0 = request sent, waiting for light
-	// >0 = timestamp of wait start
-	private long  waitStartTime = -1;
-
-
+	private VehicleStore store;
+	private RoadNetwork network;
+	private List<Intersection> intersections;
+	private int id;
+
+	// Tick context: light phases and leaders to read and the partition that buffers shared writes
+	private LightSnapshot lights;
+	private LaneIndex lanes;
+	private TickPartition partition;
+	private SimulationClock clock;
+
+	// Car-following (Intelligent Driver Model), in meters and seconds
+	private static final double MAX_ACCELERATION = 2.5;
+	private static final double COMFORTABLE_DECELERATION = 5.0;
+	private static final double TIME_HEADWAY = 1.5;
+	private static final double MIN_GAP = 5.0;
+	private static final double FOLLOWING_DISTANCE = 15.0;		// Units, leaders further away are ignored
+
+	// Simulated seconds between repeated left-turn requests
+	static final double TURN_REQUEST_INTERVAL = 30.0;
+
+	// Characters and number of combinations for 7 character license plates
+	private static final String PLATE_CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+	private static final long PLATE_COMBINATIONS = 78_364_164_096L;	// 36^7
+
+	// Cached enum values so ordinals from the store can be mapped without copying arrays
+	private static final CarState[] CAR_STATES = CarState.values();
+	private static final Direction[] DIRECTIONS = Direction.values();
+	private static final NextDirection[] NEXT_DIRECTIONS = NextDirection.values();
+	private static final int LIGHT_PHASES = LightPhase.values().length;
+	private static final byte EAST_WEST = (byte) Direction.EAST.ordinal();	// EAST and WEST come last
+
+	// Decisions at the light, see update()
+	private static final byte KEEP = 0;						// Stay in the current state
+	private static final byte CROSS = 1;					// Go straight through (CONTINUING)
+	private static final byte CROSS_IF_PAST_STOP_LINE = 2;	// CROSS if past the stop line, else BRAKE
+	private static final byte TURN = 3;						// Start turning (TURNING)
+	private static final byte TURN_AFTER_WAIT = 4;			// TURN and withdraw the turn request
+	private static final byte BRAKE = 5;
+	private static final byte WAIT = 6;						// Stay STOPPED without moving
+	private static final byte REQUEST_TURN = 7;				// WAIT and ask for the turn signal
+
+	// Decision per CarState, NextDirection and LightPhase of the car's light, see transitionIndex
+	private static final byte[] TRANSITIONS = buildTransitions();
+
+
+	// PARKED: the slot is back in the VehicleStore's pool, the vehicle is not on the network
 	enum CarState {
-		MOVING, APPROACHING, REASONING, BRAKING, STOPPED, TURNING, CONTINUING
+		MOVING, APPROACHING, REASONING, BRAKING, STOPPED, TURNING, CONTINUING, PARKED
 	}
 
 
@@ -62,75 +101,139 @@ public class Car {
 	}
 
 
-	public Car() {
-		this.licensePlate = generateLicensePlate();
-		this.color = Color.color(random.nextDouble(), random.nextDouble(), random.nextDouble());
+	// Unbound handle, call bind() before use
+	public Car(VehicleStore store, RoadNetwork network, List<Intersection> intersections) {
+		this(store, network, intersections, VehicleStore.NONE);
+	}
+
+
+	public Car(VehicleStore store, RoadNetwork network, List<Intersection> intersections, int id) {
+		this.store = store;
+		this.network = network;
+		this.intersections = intersections;
+		this.id = id;
+	}
+
+
+	// Set the light snapshot, lane index, write buffer and clock used by update() and move()
+	public void setTickContext(LightSnapshot lights, LaneIndex lanes, TickPartition partition, SimulationClock clock) {
+		this.lights = lights;
+		this.lanes = lanes;
+		this.partition = partition;
+		this.clock = clock;
+	}
+
+
+	// Point this handle at another vehicle slot
+	public Car bind(int id) {
+		this.id = id;
+		return this;
+	}
+
+
+	// Give a freshly added vehicle its random stream, license plate, color and initial speed
+	public void initialize(long streamSeed) {
+		store.rng[id] = streamSeed;
+		store.licensePlate[id] = RandomSource.nextLong(store.rng, id, PLATE_COMBINATIONS);
+		store.color[id] = RandomSource.nextInt(store.rng, id, 0x1000000);
 
 		// Randomly assign speed between 55 km/h and 90 km/h, convert to meters per second (divide by 3.6)
-		this.speed = ThreadLocalRandom.current().nextDouble(55, 90) / 3.6;
+		store.speed[id] = RandomSource.nextDouble(store.rng, id, 55, 90) / 3.6;
 
 		// Set CarState to MOVING for all new cars
-		this.carState = CarState.MOVING;
+		store.state[id] = (byte) CarState.MOVING.ordinal();
 	}
 
 
-	// Initial movement logic deciding when to turn or move straight
+	// Kinematic update of one tick: turn or move straight depending on the CarState
 	public void move(double deltaTime) {
 
-		if (currentIntersection != null) {
+		if (store.intersection[id] != VehicleStore.NONE) {
 
-			// Reset car state after exiting intersection vicinity 
+			// Reset car state after exiting intersection vicinity
 			if (hasClearedIntersection()) {
 
-				turnProgress = 0;
-				carState = CarState.MOVING;
+				enterExit(getCurrentIntersection().getNode());
+				store.turnProgress[id] = 0;
+				setCarState(CarState.MOVING);
 
-				currentIntersection = null;
-				currentTrafficLight = null;
-				directionChosen = false;
-				nextDirection = null;
+				store.intersection[id] = VehicleStore.NONE;
+				store.nextDirection[id] = VehicleStore.NONE;
+				store.nextIntersection[id] = VehicleStore.UNKNOWN;
 
 				moveStraight(deltaTime);
 				return;
 			}
 		}
 
-		// From CarState decide movement type or check traffic light
-		switch (carState) {
-			case STOPPED: 
-				checkTrafficLight(currentIntersection, deltaTime);
-				break;
+		// From CarState decide movement type, STOPPED cars wait for update() to let them go
+		switch (getCarState()) {
 			case TURNING:
 				moveTurn(deltaTime);
-				break; 
+				break;
 			case BRAKING:
-			case MOVING:	
+			case MOVING:
 			case CONTINUING:
 				moveStraight(deltaTime);
+				break;
+			default:
+				break;
+		}
+
+		// A road can go on past a node without intersection (where a scenario road was cut at a region border)
+		if (isPastRoadEnd()) {
+			continueStraight();
+		}
+	}
+
+
+	// Move onto the segment that goes on straight from the end of the current one, if there is one
+	private void continueStraight() {
+		int edge = network.getOutgoingEdge(network.getEdgeTo(store.edge[id]), getCarDirection());
+
+		if (edge != VehicleStore.NONE) {
+			store.edge[id] = edge;
+			store.road[id] = network.getEdgeRoad(edge);
+			findNextIntersection();
 		}
 	}
 
 
 	private void moveStraight(double deltaTime) {
+		CarState carState = getCarState();
+		double speed = store.speed[id];
+		double leaderGap = lanes == null ? Double.POSITIVE_INFINITY : lanes.getLeaderGap(id);
+		boolean isFollowing = leaderGap < FOLLOWING_DISTANCE;
 
 		if (carState == Car.CarState.BRAKING) {
 
-			// Gradually slow down
+			// Gradually slow down, harder if the car ahead demands it
 			speed -= 5.0 * deltaTime;
 
+			if (isFollowing) {
+				speed = Math.min(speed, followLeader(speed, leaderGap, deltaTime));
+			}
+
 			// Set car to Stopped if speed is <= 0 or car is at stop point
-			if (speed <= 0 || (stopTarget != null && isAtStopPoint())) {
+			if (speed <= 0 || (!Double.isNaN(store.stopX[id]) && isAtStopPoint())) {
 				speed = 0;
-				carState = CarState.STOPPED;
+				setCarState(CarState.STOPPED);
+				store.stopTime[id] = clock.getTime();
+				partition.recordStop(statsSlot());
 			}
 
 		} else if (carState == Car.CarState.STOPPED) {
-			// No movement — movement handled in checkTrafficLight when light allows
+			// No movement — update() lets the car go when the light allows
 			speed = 0;
 
+		} else if (isFollowing) {
+			speed = followLeader(speed, leaderGap, deltaTime);
+
 		} else {
 
 			// if speed < target speed, accelerate car speed until target speed reached
+			double targetSpeed = store.targetSpeed[id];
+
 			if (speed < targetSpeed) {
 				speed += 2.5 * deltaTime;
 
@@ -140,352 +243,552 @@ public class Car {
 			}
 		}
 
+		store.speed[id] = speed;
 
 		// Calculate movement and new position
 		double distance = speed * deltaTime;
 		double unitDistance = distance / 10;
 
-		switch (direction) {
+		switch (getCarDirection()) {
 			case EAST:
-				position.setX(position.getX() + unitDistance);
+				store.x[id] += unitDistance;
 				break;
 			case WEST:
-				position.setX(position.getX() - unitDistance);
+				store.x[id] -= unitDistance;
 				break;
 			case NORTH:
-				position.setY(position.getY() + unitDistance);
+				store.y[id] += unitDistance;
 				break;
 			case SOUTH:
-				position.setY(position.getY() - unitDistance);
+				store.y[id] -= unitDistance;
 				break;
 		}
 	}
 
 
+	/**
+	 * New speed from the Intelligent Driver Model, given the bumper to bumper gap
+	 * (in units) to the car ahead. Never negative and never more than the gap can
+	 * absorb in one step, so cars do not drive into each other.
+	 */
+	private double followLeader(double speed, double leaderGap, double deltaTime) {
+		double gap = leaderGap * 10;		// units to meters
+
+		if (gap <= 0) {
+			return 0;
+		}
+
+		double desiredSpeed = Math.max(store.targetSpeed[id], 0.1);
+		double approachRate = speed - lanes.getLeaderSpeed(id);
+		double desiredGap = MIN_GAP + Math.max(0, speed * TIME_HEADWAY
+				+ speed * approachRate / (2 * Math.sqrt(MAX_ACCELERATION * COMFORTABLE_DECELERATION)));
+
+		double speedRatio = speed / desiredSpeed;
+		double gapRatio = desiredGap / gap;
+		double acceleration = MAX_ACCELERATION
+				* (1 - speedRatio * speedRatio * speedRatio * speedRatio - gapRatio * gapRatio);
+
+		double newSpeed = Math.max(0, Math.min(desiredSpeed, speed + acceleration * deltaTime));
+
+		return Math.min(newSpeed, gap / deltaTime);
+	}
+
+
 	private void moveTurn(double deltaTime) {
-		double distance = speed * deltaTime;
+		double distance = store.speed[id] * deltaTime;
 		double unitDistance = distance / 10;
 		double turnLength = getTurnLength() + 5;
 
 		// Stage 1: move straight into the intersection.
 		moveStraight(deltaTime);
-		turnProgress += unitDistance;
+		store.turnProgress[id] += unitDistance;
 
 		// Stage 2: change direction and continue
-		if (turnProgress >= turnLength && isInIntersection()) {
+		if (store.turnProgress[id] >= turnLength && isInIntersection()) {
 
 			// Apply direction change
-			switch (nextDirection) {
+			switch (getNextDirection()) {
 				case LEFT:
 					turnLeft();
-					carState = CarState.CONTINUING;
+					setCarState(CarState.CONTINUING);
 					break;
 				case RIGHT:
 					turnRight();
-					carState = CarState.CONTINUING;
+					setCarState(CarState.CONTINUING);
 					break;
 
 					// Shouldn't happen, but just in case.
 					default:
-						carState = CarState.CONTINUING;
+						setCarState(CarState.CONTINUING);
 						break;
 			}
 
 
-			// Update current road
-			if (direction == Direction.EAST || direction == Direction.WEST) {
-				setCurrentRoadName("Main Road");
+			// Continue on the road the exit belongs to
+			enterExit(getCurrentIntersection().getNode());
+		}
+	}
+
+
+	// Move onto the edge leaving the node in the current direction of travel
+	private void enterExit(int node) {
+		int edge = network.getOutgoingEdge(node, getCarDirection());
 
-			} else if (currentIntersection != null) {
-				setCurrentRoadName(currentIntersection.getStreetName());
+		if (edge != VehicleStore.NONE) {
+			store.edge[id] = edge;
+			store.road[id] = network.getEdgeRoad(edge);
+		}
+	}
+
+
+	// Pick straight, left or right at random, falling back to the next option if that exit does not exist
+	private void chooseNextDirection(Intersection intersection) {
+		int choice = RandomSource.nextInt(store.rng, id, 3);
+
+		for (int k = 0; k < NEXT_DIRECTIONS.length; k++) {
+			NextDirection candidate = NEXT_DIRECTIONS[(choice + k) % NEXT_DIRECTIONS.length];
+
+			if (network.getOutgoingEdge(intersection.getNode(), exitDirection(candidate)) != VehicleStore.NONE) {
+				store.nextDirection[id] = (byte) candidate.ordinal();
+				return;
 			}
 		}
+
+		store.nextDirection[id] = (byte) choice;
+	}
+
+
+	// Direction of travel after leaving the intersection the given way
+	private Direction exitDirection(NextDirection nextDirection) {
+		switch (nextDirection) {
+			case LEFT: return leftOf(getCarDirection());
+			case RIGHT: return rightOf(getCarDirection());
+			default: return getCarDirection();
+		}
 	}
 
 	// Method to set new direction after left turn
 	private void turnLeft() {
+		setCarDirection(leftOf(getCarDirection()));
+	}
+
+	// Method to set new direction after right turn
+	private void turnRight() {
+		setCarDirection(rightOf(getCarDirection()));
+	}
+
+
+	private static Direction leftOf(Direction direction) {
 
 		switch (direction) {
-			case NORTH: direction = Direction.WEST; break;
-			case SOUTH: direction = Direction.EAST; break;
-			case EAST: direction = Direction.NORTH; break;
-			case WEST: direction = Direction.SOUTH; break;
+			case NORTH: return Direction.WEST;
+			case SOUTH: return Direction.EAST;
+			case EAST: return Direction.NORTH;
+			default: return Direction.SOUTH;
 		}
 	}
 
-	// Method to set new direction after right turn
-	private void turnRight() {
+
+	private static Direction rightOf(Direction direction) {
 
 		switch (direction) {
-			case NORTH: direction = Direction.EAST; break;
-			case SOUTH: direction = Direction.WEST; break;
-			case EAST: direction = Direction.SOUTH; break;
-			case WEST: direction = Direction.NORTH; break;
+			case NORTH: return Direction.EAST;
+			case SOUTH: return Direction.WEST;
+			case EAST: return Direction.SOUTH;
+			default: return Direction.NORTH;
 		}
 	}
 
 
-	public boolean isApproaching(Intersection intersection) {
+	/**
+	 * True when a moving car is within 10 units of its next stop line. Only compares the
+	 * car against its cached stop line, which must have been filled by findNextIntersection.
+	 */
+	public boolean isApproachingNext() {
 
-		// Car must be in MOVING state without an assigned intersection to be approaching
-		if (carState != CarState.MOVING || currentIntersection != null) {
+		if (getCarState() != CarState.MOVING || store.nextIntersection[id] < 0) {
 			return false;
 		}
 
-		// Check if car is within 10 units
-		double distanceX = Math.abs(position.getX() - intersection.getPosition().getX());
-		double distanceY = Math.abs(position.getY() - intersection.getPosition().getY());
+		double axisPosition = isOnEastWestAxis() ? store.x[id] : store.y[id];
 
-		return distanceX <= 10.0 && distanceY < 10.0; 
+		return Math.abs(axisPosition - store.nextStop[id]) <= 10.0;
 	}
 
 
-	public void checkTrafficLight(Intersection intersection, double deltaTime) {
+	// True when the car drives East or West (on a horizontal road)
+	private boolean isOnEastWestAxis() {
+		return store.direction[id] >= EAST_WEST;
+	}
 
-		// Check correct traffic light pair according to direction traveled
-		currentTrafficLight = (direction == Direction.EAST || direction == Direction.WEST)
-				? intersection.getEWLight()
-						: intersection.getNSLight();
 
-		Point stop = intersection.getPosition();
-		boolean isPastStopLine = isPastStopLine(stop);
+	/**
+	 * Called by the engine when a turn retry scheduled for this car comes due. Returns the
+	 * light to send the turn request to again, or VehicleStore.NONE if the car has turned,
+	 * moved on or started a newer wait since the retry was scheduled.
+	 */
+	public int turnRetryLight(double dueTime) {
 
-		switch (carState) {
+		if (getCarState() != CarState.STOPPED || getNextDirection() != NextDirection.LEFT
+				|| store.waitStartTime[id] + TURN_REQUEST_INTERVAL != dueTime) {
+			return VehicleStore.NONE;
+		}
 
-			// APPROACHING -> REASONING -> MOVEMENT LOGIC
-			case APPROACHING:
+		store.waitStartTime[id] = VehicleStore.NOT_WAITING;
+		return LightSnapshot.lightId(getCurrentIntersection().getId(), isOnEastWestAxis());
+	}
 
-				nextDirection = NextDirection.values()[ThreadLocalRandom.current().nextInt(0, 3)];
-				carState = CarState.REASONING;
-				checkTrafficLight(currentIntersection, deltaTime);
-				break;
 
+	/**
+	 * Advances the car by one tick: spots the next intersection, makes at most one
+	 * decision at the light (looked up in TRANSITIONS) and then moves once. Cars that
+	 * start approaching an intersection pick their next direction and decide in the same
+	 * tick, APPROACHING and REASONING are passed through without being stored.
+	 */
+	public void update(double deltaTime) {
+		CarState state = getCarState();
 
-			case REASONING:
+		if (state == CarState.MOVING) {
+			state = approachNext();
 
-				switch (nextDirection) {
+		} else if (state == CarState.APPROACHING) {
+			chooseNextDirection(getCurrentIntersection());
+			state = CarState.REASONING;
+		}
 
+		if (state == CarState.REASONING || state == CarState.BRAKING || state == CarState.STOPPED) {
+			if (!decide(state)) {
+				return;
+			}
+		}
 
-					case STRAIGHT:
-						if (currentTrafficLight.isStraightGreen() || (isPastStopLine)) {
-							carState = CarState.CONTINUING;
-							move(deltaTime);
+		move(deltaTime);
+	}
 
-						} else if (!isPastStopLine) {
-							carState = CarState.BRAKING;
-							move(deltaTime);
-						}
 
-						break;
+	/**
+	 * Applies the decision of a car at the stop line. Returns false if the car stays
+	 * STOPPED and does not move this tick.
+	 */
+	private boolean decide(CarState state) {
 
+		// Check correct traffic light pair according to direction traveled, reading the
+		// frozen snapshot of this tick rather than the live light (intersection ids are
+		// their indices)
+		int lightId = LightSnapshot.lightId(store.intersection[id], isOnEastWestAxis());
+		boolean wasStopped = state == CarState.STOPPED;
 
-					case LEFT:
-						if (currentTrafficLight.isTurnGreen()) {
-							carState = CarState.TURNING;
-							move(deltaTime);
+		switch (TRANSITIONS[transitionIndex(state, getNextDirection(), lights.getPhase(lightId))]) {
+			case CROSS:
+				enterIntersection(CarState.CONTINUING, wasStopped);
+				return true;
 
-						} else  {
-							carState = CarState.BRAKING;
-							move(deltaTime);
-						}
+			case CROSS_IF_PAST_STOP_LINE:
+				if (isPastStopLine(getCurrentIntersection().getPosition())) {
+					enterIntersection(CarState.CONTINUING, wasStopped);
+				} else {
+					setCarState(CarState.BRAKING);
+				}
 
-						break;
+				return true;
 
+			case TURN:
+				enterIntersection(CarState.TURNING, wasStopped);
+				return true;
 
-					case RIGHT:
-						// Allow right turn on RED
-						carState = CarState.TURNING;
-						move(deltaTime);
+			case TURN_AFTER_WAIT:
+				enterIntersection(CarState.TURNING, wasStopped);
+				partition.clearWaitingRequest(lightId);
+				store.waitStartTime[id] = VehicleStore.NOT_WAITING;
+				return true;
 
-						break;
-				}
-				break;
+			case BRAKE:
+				setCarState(CarState.BRAKING);
+				return true;
 
+			case WAIT:
+				return false;
 
-			case BRAKING:
+			case REQUEST_TURN:
+				requestTurn(lightId);
+				return false;
 
-				if (nextDirection == NextDirection.STRAIGHT && currentTrafficLight.isStraightGreen()) {
-					carState = CarState.CONTINUING;
-					move(deltaTime);
+			default:
+				return true;
+		}
+	}
 
-				} else if (nextDirection == NextDirection.LEFT && currentTrafficLight.isTurnGreen()) {
-					carState = CarState.TURNING;
-					move(deltaTime);
 
-				} else if (nextDirection == NextDirection.RIGHT) {
-					carState = CarState.TURNING;
-					move(deltaTime);
+	/**
+	 * Starts the approach if the car is close to its next stop line: sets the stop target
+	 * and current intersection and picks the next direction. Returns REASONING in that
+	 * case, otherwise MOVING.
+	 */
+	private CarState approachNext() {
 
-					// If car cannot continue through light, continue to slow until stopped
-				} else {
-					move(deltaTime);
-				}
+		// Look up the next intersection only after a spawn, a cleared intersection or a network change
+		if (needsNextIntersection()) {
+			findNextIntersection();
+		}
 
-				break;
+		if (!isApproachingNext()) {
+			return CarState.MOVING;
+		}
 
+		Intersection intersection = getNextIntersection();
 
-				// Wait for green light
-			case STOPPED:
+		// Assign stopTarget and currentIntersection during approach
+		if (getCurrentIntersection() != intersection) {
+			setStopTarget(intersection);
+			setCurrentIntersection(intersection);
+		}
 
-				switch (nextDirection) {
+		chooseNextDirection(intersection);
+		return CarState.REASONING;
+	}
 
-					case STRAIGHT:
-						if (currentTrafficLight.isStraightGreen()) {
-							carState = CarState.CONTINUING;
-							move(deltaTime);
-						}
 
-						break;
+	/**
+	 * Left turn waiting at a red light. Sends a turn request if the light has none, or
+	 * notes when the car started waiting behind an earlier request so the engine calls
+	 * turnRetryLight() once the interval is over.
+	 */
+	private void requestTurn(int lightId) {
+		if (!lights.hasWaitingRequest(lightId)) {
+			partition.requestTurnGreen(lightId);
+			store.waitStartTime[id] = VehicleStore.NOT_WAITING;
 
+		} else if (store.waitStartTime[id] == VehicleStore.NOT_WAITING) {
+			store.waitStartTime[id] = clock.getTime();
+			partition.scheduleTurnRetry(id);
+		}
+	}
 
-					case LEFT:
-						if (currentTrafficLight.isTurnGreen()) {
-							carState = CarState.TURNING;
-							currentTrafficLight.clearWaitingRequest();
-							waitStartTime = -1; // not waiting
-							move(deltaTime);
-
-							// Repeatedly send turn request every 30 seconds until light is green
-						} else {
-							if (!currentTrafficLight.hasWaitingRequest()) {
-								currentTrafficLight.requestTurnGreen();
-								waitStartTime = 0; // Request sent
-							}
-
-							// If not waiting, but light has wait request, log wait start time
-							if (waitStartTime == -1) {
-								waitStartTime = System.currentTimeMillis();
-
-								// if waiting, check time elapsed and send request if elapsed > 30 seconds
-							} else if (waitStartTime != -1) {
-								long elapsed = System.currentTimeMillis() - waitStartTime;
-								if (elapsed >= 30000) {
-									currentTrafficLight.requestTurnGreen();
-									waitStartTime = -1; // back to not waiting
-								}
-							}
-
-							break;
-						}
 
-						break;
+	private static int transitionIndex(CarState state, NextDirection nextDirection, int phase) {
+		return (state.ordinal() * NEXT_DIRECTIONS.length + nextDirection.ordinal()) * LIGHT_PHASES + phase;
+	}
 
 
-					case RIGHT:
-						// Allow right turn on RED
-						carState = CarState.TURNING;
-						move(deltaTime);
+	// Fill TRANSITIONS for the three states that decide at the light
+	private static byte[] buildTransitions() {
+		byte[] table = new byte[CAR_STATES.length * NEXT_DIRECTIONS.length * LIGHT_PHASES];
 
-						break;
-				}
-
-				break;
+		for (LightPhase phase : LightPhase.values()) {
+			int p = phase.ordinal();
+			boolean isStraightGreen = phase == LightPhase.STRAIGHT_GREEN;
+			boolean isTurnGreen = phase == LightPhase.TURN_GREEN;
 
+			// Right turns are allowed on red, a car already past the stop line goes straight on
+			table[transitionIndex(CarState.REASONING, NextDirection.STRAIGHT, p)] = isStraightGreen ? CROSS : CROSS_IF_PAST_STOP_LINE;
+			table[transitionIndex(CarState.REASONING, NextDirection.LEFT, p)] = isTurnGreen ? TURN : BRAKE;
+			table[transitionIndex(CarState.REASONING, NextDirection.RIGHT, p)] = TURN;
 
-			case MOVING:
-				// Handled by SimulationController when checking for approaching
-				break;
+			// Braking cars go as soon as their light turns green, otherwise slow down until stopped
+			table[transitionIndex(CarState.BRAKING, NextDirection.STRAIGHT, p)] = isStraightGreen ? CROSS : KEEP;
+			table[transitionIndex(CarState.BRAKING, NextDirection.LEFT, p)] = isTurnGreen ? TURN : KEEP;
+			table[transitionIndex(CarState.BRAKING, NextDirection.RIGHT, p)] = TURN;
 
-				// Follow logic to complete turn or continue through light	
-			case TURNING:				
-			case CONTINUING:
-				move(deltaTime);
-				break;
+			// Stopped cars wait for green, left turns keep asking for the turn signal
+			table[transitionIndex(CarState.STOPPED, NextDirection.STRAIGHT, p)] = isStraightGreen ? CROSS : WAIT;
+			table[transitionIndex(CarState.STOPPED, NextDirection.LEFT, p)] = isTurnGreen ? TURN_AFTER_WAIT : REQUEST_TURN;
+			table[transitionIndex(CarState.STOPPED, NextDirection.RIGHT, p)] = TURN;
 		}
+
+		return table;
+	}
+
+
+	// Start crossing (CONTINUING or TURNING) and count the car as served by its approach
+	private void enterIntersection(CarState crossingState, boolean wasStopped) {
+		double stopDelay = wasStopped
+				? clock.getTime() - store.stopTime[id]
+				: TickPartition.NOT_STOPPED;
+
+		partition.recordServed(statsSlot(), stopDelay, getNextDirection() == NextDirection.LEFT);
+		setCarState(crossingState);
+	}
+
+
+	// IntersectionStats slot of the current intersection and the direction the car arrives in
+	private int statsSlot() {
+		return store.intersection[id] * IntersectionStats.APPROACHES + store.direction[id];
 	}
 
 
 	private boolean isInIntersection() {
-		double dx = Math.abs(position.getX() - currentIntersection.getPosition().getX());
-		double dy = Math.abs(position.getY() - currentIntersection.getPosition().getY());
+		Point position = getCurrentIntersection().getPosition();
+		double dx = Math.abs(store.x[id] - position.getX());
+		double dy = Math.abs(store.y[id] - position.getY());
 		return dx < 0.1 && dy < 0.1;
 	}
 
 
 	private boolean isAtStopPoint() {
-		double dx = Math.abs(position.getX() - stopTarget.getX());
-		double dy = Math.abs(position.getY() - stopTarget.getY());
+		double dx = Math.abs(store.x[id] - store.stopX[id]);
+		double dy = Math.abs(store.y[id] - store.stopY[id]);
 		return dx < 0.1 && dy < 0.1;
 	}
 
 
 	private boolean isPastStopLine(Point stopPoint) {
 
-		switch (direction) {
+		switch (getCarDirection()) {
 			case EAST:
-				return position.getX() > stopPoint.getX();
+				return store.x[id] > stopPoint.getX();
 			case WEST:
-				return position.getX() < stopPoint.getX();
+				return store.x[id] < stopPoint.getX();
 			case NORTH:
-				return position.getY() > stopPoint.getY();
+				return store.y[id] > stopPoint.getY();
 			case SOUTH:
-				return position.getY() < stopPoint.getY();
+				return store.y[id] < stopPoint.getY();
 			default:
 				return false;
 		}
 	}
 
 
-	private String generateLicensePlate() {
-		String chars = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
-		StringBuilder plates = new StringBuilder();
-		Random random = new Random();
+	// Turn the packed base-36 plate number back into its 7 characters
+	static String decodeLicensePlate(long plate) {
+		char[] chars = new char[7];
 
-		for (int i = 0; i < 7; i++) {
-			plates.append(chars.charAt(random.nextInt(chars.length())));
+		for (int i = chars.length - 1; i >= 0; i--) {
+			chars[i] = PLATE_CHARS.charAt((int) (plate % PLATE_CHARS.length()));
+			plate /= PLATE_CHARS.length();
 		}
 
-		return plates.toString();
+		return new String(chars);
 	}
 
 
 	public boolean hasClearedIntersection() {
-		if (currentIntersection == null) { return false; }
+		if (store.intersection[id] == VehicleStore.NONE) { return false; }
 
-		if (carState != CarState.CONTINUING) { return false; }
+		if (getCarState() != CarState.CONTINUING) { return false; }
 
 		// Buffer amount before state is reset
-		double buffer = 10.5; 
+		double buffer = 10.5;
+
+		Point intersectionPosition = getCurrentIntersection().getPosition();
+		Direction direction = getCarDirection();
+		double x = store.x[id];
+		double y = store.y[id];
 
-		boolean movedPastX = direction == Direction.EAST && position.getX() > currentIntersection.getPosition().getX() + buffer
-				|| direction == Direction.WEST && position.getX() < currentIntersection.getPosition().getX() - buffer;
+		boolean movedPastX = direction == Direction.EAST && x > intersectionPosition.getX() + buffer
+				|| direction == Direction.WEST && x < intersectionPosition.getX() - buffer;
 
-		boolean movedPastY = direction == Direction.NORTH && position.getY() > currentIntersection.getPosition().getY() + buffer
-				|| direction == Direction.SOUTH && position.getY() < currentIntersection.getPosition().getY() - buffer;
+		boolean movedPastY = direction == Direction.NORTH && y > intersectionPosition.getY() + buffer
+				|| direction == Direction.SOUTH && y < intersectionPosition.getY() - buffer;
 
 		return movedPastX || movedPastY;
 	}
 
 	// Collection of Setters
 
-	public void setPosition(Point position) {
-		this.position = position;
+	public void setPosition(double x, double y) {
+		store.x[id] = x;
+		store.y[id] = y;
 	}
 
 
 	public void setSpeed(double newSpeed) {
-		speed = newSpeed;
-		targetSpeed = newSpeed;
+		store.speed[id] = newSpeed;
+		store.targetSpeed[id] = newSpeed;
 	}
 
 
 	public void setCarDirection(Direction newDirection) {
-		direction = newDirection;
+		store.direction[id] = (byte) newDirection.ordinal();
 	}
 
 
 	public void setCurrentIntersection(Intersection newIntersection) {
-		currentIntersection = newIntersection;
+		store.intersection[id] = newIntersection == null ? VehicleStore.NONE : newIntersection.getId();
+	}
+
+
+	public void setCurrentRoad(int roadIndex) {
+		store.road[id] = roadIndex;
+	}
+
+
+	// Place the car on a network edge, its direction and road follow from the edge
+	public void setCurrentEdge(int edge) {
+		store.edge[id] = edge;
+		store.road[id] = network.getEdgeRoad(edge);
+		setCarDirection(network.getEdgeDirection(edge));
+		invalidateNextIntersection();
+	}
+
+
+	/**
+	 * Cache the intersection at the end of the current edge (or NONE at a road end) and
+	 * the coordinate of that node along the direction of travel. Called after a spawn,
+	 * after clearing an intersection and after the network changed.
+	 */
+	public void findNextIntersection() {
+		int edge = store.edge[id];
+
+		if (edge == VehicleStore.NONE) {
+			store.nextIntersection[id] = VehicleStore.NONE;
+			store.nextStop[id] = Double.NaN;
+			return;
+		}
+
+		int node = network.getEdgeTo(edge);
+		store.nextIntersection[id] = network.getNodeIntersection(node);
+		store.nextStop[id] = isOnEastWestAxis() ? network.getNodeX(node) : network.getNodeY(node);
+	}
+
+
+	// Find the edge under the car from its road, direction and position (after placing it or a network change)
+	public void locateEdge() {
+		store.edge[id] = network.locateEdge(store.road[id], getCarDirection(), store.x[id], store.y[id]);
+		invalidateNextIntersection();
+	}
+
+
+	// True once the car drove past the end of its road or out of the network
+	public boolean hasLeftNetwork() {
+		return network.isOutside(store.x[id], store.y[id]) || isPastRoadEnd();
+	}
+
+
+	// True when a moving car drove past the node at the end of its edge and that node has no intersection
+	private boolean isPastRoadEnd() {
+
+		if (store.nextIntersection[id] != VehicleStore.NONE || getCarState() != CarState.MOVING) {
+			return false;
+		}
+
+		switch (getCarDirection()) {
+			case EAST: return store.x[id] > store.nextStop[id];
+			case WEST: return store.x[id] < store.nextStop[id];
+			case NORTH: return store.y[id] > store.nextStop[id];
+			default: return store.y[id] < store.nextStop[id];
+		}
 	}
 
 
-	public void setCurrentRoadName(String roadName) {
-		this.currentRoadName = roadName;
+	// Force the next intersection to be looked up again, e.g. after the network changed
+	public void invalidateNextIntersection() {
+		store.nextIntersection[id] = VehicleStore.UNKNOWN;
+	}
+
+
+	// Draw from this car's own random stream
+	public int nextRandomInt(int bound) {
+		return RandomSource.nextInt(store.rng, id, bound);
+	}
+
+
+	public double nextRandomDouble(double origin, double bound) {
+		return RandomSource.nextDouble(store.rng, id, origin, bound);
 	}
 
 
 	public void setCarState(CarState newCarState) {
-		carState = newCarState;
+		store.state[id] = (byte) newCarState.ordinal();
 	}
 
 
@@ -493,43 +796,58 @@ public class Car {
 
 		// Stop about 5 units before the intersection
 		double buffer = 5.0;
+		Point position = intersection.getPosition();
 
-		switch (direction) {
+		switch (getCarDirection()) {
 			case EAST:
-				stopTarget = new Point(intersection.getPosition().getX() - buffer, position.getY());
+				store.stopX[id] = position.getX() - buffer;
+				store.stopY[id] = store.y[id];
 				break;
 			case WEST:
-				stopTarget = new Point(intersection.getPosition().getX() + buffer, position.getY());
+				store.stopX[id] = position.getX() + buffer;
+				store.stopY[id] = store.y[id];
 				break;
 			case NORTH:
-				stopTarget = new Point(position.getX(), intersection.getPosition().getY() - buffer);
+				store.stopX[id] = store.x[id];
+				store.stopY[id] = position.getY() - buffer;
 				break;
 			case SOUTH:
-				stopTarget = new Point(position.getX(), intersection.getPosition().getY() + buffer);
+				store.stopX[id] = store.x[id];
+				store.stopY[id] = position.getY() + buffer;
 				break;
 		}
 	}
 
 	// Collection of Getters
 
+	public int getId() {
+		return id;
+	}
+
+
 	public String getLicensePlate() {
-		return licensePlate;
+		return decodeLicensePlate(store.licensePlate[id]);
+	}
+
+
+	public int getColor() {
+		return store.color[id];
 	}
 
 
-	public Color getColor() {
-		return color;
+	public double getX() {
+		return store.x[id];
 	}
 
 
-	public Point getPosition() {
-		return position;
+	public double getY() {
+		return store.y[id];
 	}
 
 
 	// Position getter as string for TableView
 	public String getPositionString() {
-		return position.toString();
+		return Point.toString(store.x[id], store.y[id]);
 	}
 
 
@@ -540,63 +858,78 @@ public class Car {
 		// speed (units/sec) × 10 (to meters/sec) × 3.6 = km/h
 		// Simplified: speed × 36
 		// Dividing by 100.0 to round to 2 decimal places.
-		return (int)(speed * 360) / 100.0;
+		return (int)(store.speed[id] * 360) / 100.0;
 	}
 
 
 	public Direction getCarDirection() {
-		return direction;
+		return DIRECTIONS[store.direction[id]];
 	}
 
 
 	// Direction getter as string for TableView
 	public String getCarDirectionString() {
-		return direction.toString();
+		return getCarDirection().toString();
 	}
 
 
-	// Calculate distance until turn is required
-	private double getTurnLength() {
-		switch (direction) {
-			case NORTH:
-			case SOUTH:
+	public NextDirection getNextDirection() {
+		byte nextDirection = store.nextDirection[id];
+		return nextDirection == VehicleStore.NONE ? null : NEXT_DIRECTIONS[nextDirection];
+	}
 
-				// Distance from Y = 0
-				return Math.abs(position.getY());
-			case EAST:
-			case WEST:
 
-				// Remainder of distance to next X divisible by 100
-				return Math.abs(position.getX()) % 100;
+	// Calculate distance until turn is required (to the centre of the intersection node)
+	private double getTurnLength() {
+		int node = getCurrentIntersection().getNode();
 
-			default:
-				throw new IllegalStateException("Unknown direction: " + direction);
+		if (isOnEastWestAxis()) {
+			return Math.abs(store.x[id] - network.getNodeX(node));
 		}
+
+		return Math.abs(store.y[id] - network.getNodeY(node));
 	}
 
 	public String getCurrentRoadName() {
-		return currentRoadName;
+		return network.getRoads().get(store.road[id]).getRoadName();
+	}
+
+
+	public Intersection getCurrentIntersection() {
+		int intersection = store.intersection[id];
+		return intersection == VehicleStore.NONE ? null : intersections.get(intersection);
 	}
 
 
-	public TrafficLight getCurrentTrafficLight() {
-		return currentTrafficLight;
+	public Intersection getNextIntersection() {
+		int next = store.nextIntersection[id];
+		return next < 0 ? null : intersections.get(next);
 	}
 
 
-	public Intersection getCurrentIntersection() {
-		return currentIntersection;
+	// True when the next intersection has to be looked up again
+	public boolean needsNextIntersection() {
+		return store.nextIntersection[id] == VehicleStore.UNKNOWN;
+	}
+
+
+	public int getCurrentRoad() {
+		return store.road[id];
+	}
+
+
+	public int getCurrentEdge() {
+		return store.edge[id];
 	}
 
 
 	public CarState getCarState() {
-		return carState;
+		return CAR_STATES[store.state[id]];
 	}
 
 
 	// CarState getter as string for TableView
 	public String getCarStateString() {
-		return carState.toString();
+		return getCarState().toString();
 	}
 }
-
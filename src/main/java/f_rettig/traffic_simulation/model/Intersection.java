@@ -3,12 +3,18 @@
  * Final Project: Traffic Simulation 
  * Class Intersection: Manages the behavior and state of a single traffic intersection.
  * Controls traffic light phases, handles requests for turn signals, and updates light 
- * timing to regulate vehicle flow. Supports pausing and resuming the traffic logic.
+ * timing to regulate vehicle flow.
+ * 
+ * Phase switches are event driven: the intersection stores the simulated time of its
+ * next switch (phaseExpiryTime) and the engine calls switchPhase() exactly then. The
+ * light logic no longer needs pausing, because simulated time stands still while the
+ * simulation is paused.
  * 
  * Each intersection has:
  * - Two TrafficLights (North/South and East/West).
  * - A phase cycle controlling straight and turn signals.
  * - Logic to respond to waiting turn requests from cars.
+ * - Listeners that are told whenever one of its lights changes phase.
  * 
  * 1 unit = 100 meters = 2.5 pixels
  * 
@@ -19,6 +25,8 @@
 
 package application;
 
+import java.util.ArrayList;
+
 public class Intersection {
 
 	// Basic intersection phase for flow of traffic
@@ -29,41 +37,40 @@ public class Intersection {
 	private TrafficLight nsLight;
 	private TrafficLight ewLight;
 	private IntersectionPhase currentPhase;
-	private double phaseTimer;
+	private double phaseExpiryTime;				// Simulated time of the next phase switch
+	private SignalTiming signalTiming = SignalTiming.DEFAULT;
+	private boolean expiryScheduled = false;		// False until the engine queued phaseExpiryTime
 	private Point position;
 	private String streetName;
-	private boolean lightLogicRunning = true;
+	private int id;								// Index in the engine's intersection list
+	private int node;							// Node of the RoadNetwork the intersection sits on
+	private ArrayList<LightPhaseListener> phaseListeners = new ArrayList<>();
 
 
 	public Intersection (Point position, String streetName) {
+		this(position, streetName, 0, VehicleStore.NONE, 0, SignalTiming.DEFAULT);
+	}
+
+
+	// startTime is the simulated time the intersection is built at, its first phase already runs on signalTiming
+	public Intersection (Point position, String streetName, int id, int node, double startTime, SignalTiming signalTiming) {
 		this.position = position;
 		this.streetName = streetName;
-		this.nsLight = new TrafficLight();
-		this.ewLight = new TrafficLight();
+		this.id = id;
+		this.node = node;
+		setSignalTiming(signalTiming);
+		this.nsLight = new TrafficLight(this);
+		this.ewLight = new TrafficLight(this);
 		this.currentPhase = IntersectionPhase.EW_STRAIGHT;
-		this.phaseTimer = 5;
+		this.phaseExpiryTime = startTime + 5;
 
 		// Set East/West traffic to green light upon creation
-		ewLight.setGreen();
+		ewLight.setGreen(startTime);
 	}
 
 
-	public void update(double deltaTime) {
-
-		if (lightLogicRunning) {
-			nsLight.update(deltaTime);
-			ewLight.update(deltaTime);
-
-			phaseTimer -= deltaTime;
-
-			if (phaseTimer <= 0) {
-				switchPhase();
-			}
-		}
-	}
-
-
-	private void switchPhase() {
+	// Called by the engine at phaseExpiryTime (simulated time now)
+	public void switchPhase(double now) {
 
 		// Rotate through traffic light phases here based on waitingRequests
 		// NS_TURN (on request) -> NS_STRAIGHT -> EW_TURN (on request) -> EW_STRAIGHT
@@ -72,53 +79,98 @@ public class Intersection {
 
 			case NS_TURN:
 				if (nsLight.hasWaitingRequest()) {
-					nsLight.setTurnGreen();
-					phaseTimer = TrafficLight.MIN_TURN_GREEN_DURATION + TrafficLight.YELLOW_DURATION;
+					nsLight.setTurnGreen(now);
+					setPhaseExpiryTime(now + signalTiming.getTurnGreenDuration() + signalTiming.getYellowDuration());
 
 				} else {
 					currentPhase = IntersectionPhase.NS_STRAIGHT;
-					switchPhase(); // Immediately rotate to NS_STRAIGHT
+					switchPhase(now); // Immediately rotate to NS_STRAIGHT
 				}
 
 				break;
 
 
 			case NS_STRAIGHT:
-				nsLight.setGreen();
-				phaseTimer = TrafficLight.MIN_GREEN_DURATION + TrafficLight.YELLOW_DURATION;
+				nsLight.setGreen(now);
+				setPhaseExpiryTime(now + signalTiming.getGreenDuration() + signalTiming.getYellowDuration());
 				currentPhase = IntersectionPhase.EW_TURN; // Prep next phase
 				break;
 
 
 			case EW_TURN:
 				if (ewLight.hasWaitingRequest()) {
-					ewLight.setTurnGreen();
-					phaseTimer = TrafficLight.MIN_TURN_GREEN_DURATION + TrafficLight.YELLOW_DURATION;
+					ewLight.setTurnGreen(now);
+					setPhaseExpiryTime(now + signalTiming.getTurnGreenDuration() + signalTiming.getYellowDuration());
 
 				} else {
 					currentPhase = IntersectionPhase.EW_STRAIGHT;
-					switchPhase(); // Immediately rotate to EW_STRAIGHT
+					switchPhase(now); // Immediately rotate to EW_STRAIGHT
 				}
 
 				break;
 
 
 			case EW_STRAIGHT:
-				ewLight.setGreen();
-				phaseTimer = TrafficLight.MIN_GREEN_DURATION + TrafficLight.YELLOW_DURATION;
+				ewLight.setGreen(now);
+				setPhaseExpiryTime(now + signalTiming.getGreenDuration() + signalTiming.getYellowDuration());
 				currentPhase = IntersectionPhase.NS_TURN; // Loop back to start
 				break;
 		}
 	}
 
 
-	public void pauseLightLogic() {
-		lightLogicRunning = false;
+	private void setPhaseExpiryTime(double time) {
+		phaseExpiryTime = time;
+		expiryScheduled = false;
 	}
 
 
-	public void resumeLightLogic() {
-		lightLogicRunning = true;
+	// Put back a phase saved by a SimulationCheckpoint, without telling the listeners
+	void restore(IntersectionPhase phase, double phaseExpiryTime, boolean expiryScheduled) {
+		this.currentPhase = phase;
+		this.phaseExpiryTime = phaseExpiryTime;
+		this.expiryScheduled = expiryScheduled;
+	}
+
+
+	// True if the next phase switch still has to be put on the engine's event queue
+	public boolean needsScheduling() {
+		return !expiryScheduled;
+	}
+
+
+	public void markScheduled() {
+		expiryScheduled = true;
+	}
+
+
+	public void addPhaseListener(LightPhaseListener listener) {
+		phaseListeners.add(listener);
+	}
+
+
+	public void removePhaseListener(LightPhaseListener listener) {
+		phaseListeners.remove(listener);
+	}
+
+
+	// Called by the owned TrafficLights
+	void lightPhaseChanged(TrafficLight light, TrafficLight.LightPhase previousPhase) {
+		for (int i = 0; i < phaseListeners.size(); i++) {
+			phaseListeners.get(i).lightPhaseChanged(this, light, previousPhase);
+		}
+	}
+
+	// Collection of Setters
+
+	// Phase durations of both lights, used from the next phase on
+	public void setSignalTiming(SignalTiming signalTiming) {
+
+		if (signalTiming == null) {
+			throw new IllegalArgumentException("Signal timing must not be null");
+		}
+
+		this.signalTiming = signalTiming;
 	}
 
 	//Collection of Getters
@@ -141,4 +193,30 @@ public class Intersection {
 	public String getStreetName() {
 		return streetName;
 	}
+
+
+	public int getId() {
+		return id;
+	}
+
+
+	public int getNode() {
+		return node;
+	}
+
+
+	// Phase the next switch moves to (or stays in, for a turn phase without a request)
+	public IntersectionPhase getCurrentPhase() {
+		return currentPhase;
+	}
+
+
+	public double getPhaseExpiryTime() {
+		return phaseExpiryTime;
+	}
+
+
+	public SignalTiming getSignalTiming() {
+		return signalTiming;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,221 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class IntersectionStats: Running traffic statistics of every intersection, per
+ * approach (the direction the vehicles arrive in): vehicles served, current and
+ * longest queue, stop delay and left-turn wait.
+ *
+ * The counters are primitive columns indexed by intersection * APPROACHES + approach,
+ * like the VehicleStore, so recording never allocates. Cars do not write here
+ * themselves: their stops and departures are buffered in the TickPartitions and
+ * recorded by the engine at the barrier, between beginUpdate and endUpdate.
+ *
+ * Other threads read the statistics with snapshot(). The columns are guarded by a
+ * sequence lock: the sequence is odd while the engine writes, and a reader copies the
+ * columns and starts over if the sequence was odd or moved meanwhile. The tick never
+ * waits for a reader.
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class IntersectionStats {
+
+	// One approach per Car.Direction of arrival
+	public static final int APPROACHES = Car.Direction.values().length;
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private volatile int sequence = 0;			// Odd while an update is in progress
+	private int intersectionCount = 0;
+
+	// Per approach slot
+	long[] served;						// Vehicles that entered the intersection
+	int[] queueLength;					// Vehicles stopped at the stop line now
+	int[] maxQueueLength;
+	long[] stopped;						// Served vehicles that had to stop first
+	double[] totalStopDelay;			// Simulated seconds, over the stopped vehicles
+	double[] maxStopDelay;
+	long[] leftTurns;					// Served vehicles that turned left
+	double[] totalLeftTurnWait;			// Simulated seconds, over the left turns
+	double[] maxLeftTurnWait;
+
+
+	public IntersectionStats() {
+		allocate(DEFAULT_CAPACITY * APPROACHES);
+	}
+
+
+	private void allocate(int slots) {
+		served = new long[slots];
+		queueLength = new int[slots];
+		maxQueueLength = new int[slots];
+		stopped = new long[slots];
+		totalStopDelay = new double[slots];
+		maxStopDelay = new double[slots];
+		leftTurns = new long[slots];
+		totalLeftTurnWait = new double[slots];
+		maxLeftTurnWait = new double[slots];
+	}
+
+
+	// Start writing (engine only), readers retry until endUpdate
+	public void beginUpdate() {
+		sequence++;
+		VarHandle.storeStoreFence();
+	}
+
+
+	public void endUpdate() {
+		sequence++;
+	}
+
+
+	// Make room for the given number of intersections, new ones start at zero
+	public void resize(int count) {
+		beginUpdate();
+
+		if (count * APPROACHES > served.length) {
+			int slots = Math.max(count * APPROACHES, served.length * 2);
+			served = Arrays.copyOf(served, slots);
+			queueLength = Arrays.copyOf(queueLength, slots);
+			maxQueueLength = Arrays.copyOf(maxQueueLength, slots);
+			stopped = Arrays.copyOf(stopped, slots);
+			totalStopDelay = Arrays.copyOf(totalStopDelay, slots);
+			maxStopDelay = Arrays.copyOf(maxStopDelay, slots);
+			leftTurns = Arrays.copyOf(leftTurns, slots);
+			totalLeftTurnWait = Arrays.copyOf(totalLeftTurnWait, slots);
+			maxLeftTurnWait = Arrays.copyOf(maxLeftTurnWait, slots);
+		}
+
+		intersectionCount = count;
+		endUpdate();
+	}
+
+
+	public void clear() {
+		beginUpdate();
+		intersectionCount = 0;
+		allocate(DEFAULT_CAPACITY * APPROACHES);
+		endUpdate();
+	}
+
+
+	// A vehicle stopped at the stop line of the approach
+	public void recordStop(int slot) {
+		queueLength[slot]++;
+
+		if (queueLength[slot] > maxQueueLength[slot]) {
+			maxQueueLength[slot] = queueLength[slot];
+		}
+	}
+
+
+	/**
+	 * A vehicle entered the intersection from the approach. stopDelay is the time it
+	 * stood at the stop line, or TickPartition.NOT_STOPPED if it went through without
+	 * stopping.
+	 */
+	public void recordServed(int slot, double stopDelay, boolean isLeftTurn) {
+		served[slot]++;
+		double wait = 0;
+
+		if (stopDelay != TickPartition.NOT_STOPPED) {
+			wait = stopDelay;
+			queueLength[slot]--;
+			stopped[slot]++;
+			totalStopDelay[slot] += stopDelay;
+			maxStopDelay[slot] = Math.max(maxStopDelay[slot], stopDelay);
+		}
+
+		if (isLeftTurn) {
+			leftTurns[slot]++;
+			totalLeftTurnWait[slot] += wait;
+			maxLeftTurnWait[slot] = Math.max(maxLeftTurnWait[slot], wait);
+		}
+	}
+
+
+	/**
+	 * Copies a consistent state of all counters into the snapshot, retrying while the
+	 * engine is in the middle of an update. Safe to call from any thread, the snapshot
+	 * can be reused so repeated reads do not allocate.
+	 */
+	public void snapshot(IntersectionStatsSnapshot target) {
+		while (true) {
+			int before = sequence;
+
+			if ((before & 1) == 0) {
+				target.copyFrom(this, intersectionCount, before);
+				VarHandle.loadLoadFence();
+
+				if (sequence == before) {
+					return;
+				}
+			}
+
+			Thread.onSpinWait();
+		}
+	}
+
+	// Bytes written by save, see SimulationCheckpoint
+	long checkpointSize() {
+		return Integer.BYTES + (long) intersectionCount * APPROACHES
+				* (3 * Long.BYTES + 2 * Integer.BYTES + 4 * Double.BYTES);
+	}
+
+
+	void save(ByteBuffer out) {
+		int slots = intersectionCount * APPROACHES;
+		out.putInt(intersectionCount);
+
+		SimulationCheckpoint.putLongs(out, served, slots);
+		SimulationCheckpoint.putInts(out, queueLength, slots);
+		SimulationCheckpoint.putInts(out, maxQueueLength, slots);
+		SimulationCheckpoint.putLongs(out, stopped, slots);
+		SimulationCheckpoint.putDoubles(out, totalStopDelay, slots);
+		SimulationCheckpoint.putDoubles(out, maxStopDelay, slots);
+		SimulationCheckpoint.putLongs(out, leftTurns, slots);
+		SimulationCheckpoint.putDoubles(out, totalLeftTurnWait, slots);
+		SimulationCheckpoint.putDoubles(out, maxLeftTurnWait, slots);
+	}
+
+
+	// Replace all counters with the ones written by save (engine only)
+	void restore(ByteBuffer in) {
+		resize(in.getInt());
+		int slots = intersectionCount * APPROACHES;
+		beginUpdate();
+
+		SimulationCheckpoint.getLongs(in, served, slots);
+		SimulationCheckpoint.getInts(in, queueLength, slots);
+		SimulationCheckpoint.getInts(in, maxQueueLength, slots);
+		SimulationCheckpoint.getLongs(in, stopped, slots);
+		SimulationCheckpoint.getDoubles(in, totalStopDelay, slots);
+		SimulationCheckpoint.getDoubles(in, maxStopDelay, slots);
+		SimulationCheckpoint.getLongs(in, leftTurns, slots);
+		SimulationCheckpoint.getDoubles(in, totalLeftTurnWait, slots);
+		SimulationCheckpoint.getDoubles(in, maxLeftTurnWait, slots);
+
+		endUpdate();
+	}
+
+	// Collection of Getters
+
+	public int getIntersectionCount() {
+		return intersectionCount;
+	}
+
+
+	// Moves on with every update, odd while one is in progress
+	public int getSequence() {
+		return sequence;
+	}
+}
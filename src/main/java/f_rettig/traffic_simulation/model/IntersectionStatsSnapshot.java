@@ -0,0 +1,182 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class IntersectionStatsSnapshot: Consistent copy of the IntersectionStats, filled by
+ * IntersectionStats.snapshot() on the reading thread and then read without any further
+ * synchronization. A snapshot can be refilled, it only grows when intersections were
+ * added.
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import application.Car.Direction;
+
+public class IntersectionStatsSnapshot {
+
+	private static final int APPROACHES = IntersectionStats.APPROACHES;
+
+	private int intersectionCount = 0;
+	private int sequence = 0;
+
+	private long[] served = new long[0];
+	private int[] queueLength = new int[0];
+	private int[] maxQueueLength = new int[0];
+	private long[] stopped = new long[0];
+	private double[] totalStopDelay = new double[0];
+	private double[] maxStopDelay = new double[0];
+	private long[] leftTurns = new long[0];
+	private double[] totalLeftTurnWait = new double[0];
+	private double[] maxLeftTurnWait = new double[0];
+
+
+	// Called by IntersectionStats.snapshot, may see a torn state that is thrown away afterwards
+	void copyFrom(IntersectionStats stats, int count, int statsSequence) {
+		int slots = count * APPROACHES;
+
+		if (served.length < slots) {
+			served = new long[slots];
+			queueLength = new int[slots];
+			maxQueueLength = new int[slots];
+			stopped = new long[slots];
+			totalStopDelay = new double[slots];
+			maxStopDelay = new double[slots];
+			leftTurns = new long[slots];
+			totalLeftTurnWait = new double[slots];
+			maxLeftTurnWait = new double[slots];
+		}
+
+		// Bounded by the source columns, which can be swapped out during a torn read
+		System.arraycopy(stats.served, 0, served, 0, Math.min(slots, stats.served.length));
+		System.arraycopy(stats.queueLength, 0, queueLength, 0, Math.min(slots, stats.queueLength.length));
+		System.arraycopy(stats.maxQueueLength, 0, maxQueueLength, 0, Math.min(slots, stats.maxQueueLength.length));
+		System.arraycopy(stats.stopped, 0, stopped, 0, Math.min(slots, stats.stopped.length));
+		System.arraycopy(stats.totalStopDelay, 0, totalStopDelay, 0, Math.min(slots, stats.totalStopDelay.length));
+		System.arraycopy(stats.maxStopDelay, 0, maxStopDelay, 0, Math.min(slots, stats.maxStopDelay.length));
+		System.arraycopy(stats.leftTurns, 0, leftTurns, 0, Math.min(slots, stats.leftTurns.length));
+		System.arraycopy(stats.totalLeftTurnWait, 0, totalLeftTurnWait, 0, Math.min(slots, stats.totalLeftTurnWait.length));
+		System.arraycopy(stats.maxLeftTurnWait, 0, maxLeftTurnWait, 0, Math.min(slots, stats.maxLeftTurnWait.length));
+
+		intersectionCount = count;
+		sequence = statsSequence;
+	}
+
+
+	private static int slot(int intersection, Direction approach) {
+		return intersection * APPROACHES + approach.ordinal();
+	}
+
+	// Collection of Getters
+
+	public int getIntersectionCount() {
+		return intersectionCount;
+	}
+
+
+	// IntersectionStats sequence the snapshot was taken at
+	public int getSequence() {
+		return sequence;
+	}
+
+
+	// Vehicles that entered the intersection from the approach
+	public long getServed(int intersection, Direction approach) {
+		return served[slot(intersection, approach)];
+	}
+
+
+	// Vehicles that entered the intersection from any approach
+	public long getServed(int intersection) {
+		long total = 0;
+
+		for (int a = 0; a < APPROACHES; a++) {
+			total += served[intersection * APPROACHES + a];
+		}
+
+		return total;
+	}
+
+
+	// Vehicles served by all intersections together
+	public long getTotalServed() {
+		long total = 0;
+
+		for (int slot = 0; slot < intersectionCount * APPROACHES; slot++) {
+			total += served[slot];
+		}
+
+		return total;
+	}
+
+
+	// Vehicles stopped at the approach's stop line when the snapshot was taken
+	public int getQueueLength(int intersection, Direction approach) {
+		return queueLength[slot(intersection, approach)];
+	}
+
+
+	public int getQueueLength(int intersection) {
+		int total = 0;
+
+		for (int a = 0; a < APPROACHES; a++) {
+			total += queueLength[intersection * APPROACHES + a];
+		}
+
+		return total;
+	}
+
+
+	public int getMaxQueueLength(int intersection, Direction approach) {
+		return maxQueueLength[slot(intersection, approach)];
+	}
+
+
+	// Served vehicles that had to stop first
+	public long getStopped(int intersection, Direction approach) {
+		return stopped[slot(intersection, approach)];
+	}
+
+
+	// Mean stop delay of the vehicles that stopped, in simulated seconds
+	public double getMeanStopDelay(int intersection, Direction approach) {
+		int slot = slot(intersection, approach);
+		return stopped[slot] == 0 ? 0 : totalStopDelay[slot] / stopped[slot];
+	}
+
+
+	// Stop delay of all stopped vehicles at all intersections, in simulated seconds
+	public double getTotalStopDelay() {
+		double total = 0;
+
+		for (int slot = 0; slot < intersectionCount * APPROACHES; slot++) {
+			total += totalStopDelay[slot];
+		}
+
+		return total;
+	}
+
+
+	public double getMaxStopDelay(int intersection, Direction approach) {
+		return maxStopDelay[slot(intersection, approach)];
+	}
+
+
+	public long getLeftTurns(int intersection, Direction approach) {
+		return leftTurns[slot(intersection, approach)];
+	}
+
+
+	// Mean time a left-turning vehicle stood at the stop line (0 for those that did not stop)
+	public double getMeanLeftTurnWait(int intersection, Direction approach) {
+		int slot = slot(intersection, approach);
+		return leftTurns[slot] == 0 ? 0 : totalLeftTurnWait[slot] / leftTurns[slot];
+	}
+
+
+	public double getMaxLeftTurnWait(int intersection, Direction approach) {
+		return maxLeftTurnWait[slot(intersection, approach)];
+	}
+}
@@ -0,0 +1,324 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class LaneIndex: Keeps the vehicles of every lane sorted by position so each car can
+ * find the car directly ahead of it (its leader) in constant time.
+ *
+ * A lane is one direction of travel on one road (lane = road * 4 + Direction). Vehicles
+ * have no lane of their own, so a road direction is a single car-following lane even
+ * where its RoadNetwork edges carry more than one lane; the lane count is kept for the
+ * file formats only. All vehicle ids are kept in one array, grouped by lane and sorted
+ * by progress along the direction of travel. Each tick the previous order is regrouped
+ * with a stable counting sort and every lane is insertion-sorted again, which is linear
+ * while cars barely change order between ticks. A lane that needs more than a few moves
+ * per car (respawned or turning cars landing far from their old place) is sorted in
+ * full instead: its (position, id) keys are packed into longs and heap sorted in place.
+ * A tick therefore stays O(n log n) under any churn and never allocates.
+ *
+ * Parked vehicles (see VehicleStore.release) are kept in an extra group after the last
+ * lane and have no leader.
+ *
+ * The gap to the leader and the leader's speed are stored when the index is rebuilt,
+ * so during the car update every car sees the same frozen values regardless of the
+ * update order.
+ *
+ * 1 unit = 100 meters = 2.5 pixels
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import application.Car.Direction;
+
+public class LaneIndex {
+
+	// Length of a car in units, matching the size of the drawn CarSprite
+	public static final double VEHICLE_LENGTH = 2.0;
+
+	// Shifts per car the insertion sort may spend on a lane before the lane is sorted in full
+	private static final int MOVES_PER_CAR = 8;
+
+	private static final int DIRECTION_COUNT = Direction.values().length;
+	private static final byte EAST = (byte) Direction.EAST.ordinal();
+	private static final byte WEST = (byte) Direction.WEST.ordinal();
+	private static final byte NORTH = (byte) Direction.NORTH.ordinal();
+	private static final byte PARKED = (byte) Car.CarState.PARKED.ordinal();
+
+	private int vehicleCount = 0;
+	private int[] order = new int[0];				// Vehicle ids grouped by lane, sorted by progress
+	private int[] scratch = new int[0];
+	private long[] keys = new long[0];				// Packed sort keys of the lane being sorted in full
+	private int[] laneStart = new int[1];			// First position of each lane in order
+	private int[] lane = new int[0];				// Lane of each vehicle
+	private double[] progress = new double[0];		// Position along the direction of travel
+
+	// Frozen leader data, by vehicle id
+	private int[] leader = new int[0];
+	private double[] leaderGap = new double[0];		// Bumper to bumper distance in units
+	private double[] leaderSpeed = new double[0];
+
+
+	/**
+	 * Re-sorts every lane for the current vehicle positions and records each car's leader.
+	 * Vehicles added since the last call are appended before sorting.
+	 */
+	public void rebuild(VehicleStore vehicles, int roadCount) {
+		int count = vehicles.size();
+		int laneCount = roadCount * DIRECTION_COUNT;
+
+		ensureCapacity(count, laneCount);
+
+		// Keep the previous order, dropping removed ids and appending new ones
+		int kept = 0;
+
+		for (int k = 0; k < vehicleCount; k++) {
+			if (order[k] < count) {
+				scratch[kept++] = order[k];
+			}
+		}
+
+		for (int id = vehicleCount; id < count; id++) {
+			scratch[kept++] = id;
+		}
+
+		vehicleCount = count;
+
+		// Lane and progress of every vehicle, parked ones go after the last lane
+		for (int id = 0; id < count; id++) {
+			if (vehicles.state[id] == PARKED) {
+				lane[id] = laneCount;
+				progress[id] = 0;
+				leader[id] = VehicleStore.NONE;
+				leaderGap[id] = Double.POSITIVE_INFINITY;
+				leaderSpeed[id] = 0;
+				continue;
+			}
+
+			byte direction = vehicles.direction[id];
+			lane[id] = vehicles.road[id] * DIRECTION_COUNT + direction;
+
+			if (direction == EAST) {
+				progress[id] = vehicles.x[id];
+			} else if (direction == WEST) {
+				progress[id] = -vehicles.x[id];
+			} else if (direction == NORTH) {
+				progress[id] = vehicles.y[id];
+			} else {
+				progress[id] = -vehicles.y[id];
+			}
+		}
+
+		// Stable counting sort of the previous order by lane
+		Arrays.fill(laneStart, 0, laneCount + 2, 0);
+
+		for (int k = 0; k < count; k++) {
+			laneStart[lane[scratch[k]] + 1]++;
+		}
+
+		for (int l = 0; l <= laneCount; l++) {
+			laneStart[l + 1] += laneStart[l];
+		}
+
+		for (int k = 0; k < count; k++) {
+			int id = scratch[k];
+			order[laneStart[lane[id]]++] = id;
+		}
+
+		// laneStart was advanced to each lane's end, shift it back
+		for (int l = laneCount + 1; l > 0; l--) {
+			laneStart[l] = laneStart[l - 1];
+		}
+
+		laneStart[0] = 0;
+
+		// Insertion sort inside each lane (nearly sorted, so close to linear), full sort when it is not
+		for (int l = 0; l < laneCount; l++) {
+			int from = laneStart[l];
+			int to = laneStart[l + 1];
+
+			if (!insertionSort(from, to, MOVES_PER_CAR * (to - from))) {
+				fullSort(from, to);
+			}
+		}
+
+		// Leader is the next car in the same lane
+		for (int l = 0; l < laneCount; l++) {
+			int end = laneStart[l + 1];
+
+			for (int k = laneStart[l]; k < end; k++) {
+				int id = order[k];
+
+				if (k + 1 < end) {
+					int ahead = order[k + 1];
+					leader[id] = ahead;
+					leaderGap[id] = progress[ahead] - progress[id] - VEHICLE_LENGTH;
+					leaderSpeed[id] = vehicles.speed[ahead];
+
+				} else {
+					leader[id] = VehicleStore.NONE;
+					leaderGap[id] = Double.POSITIVE_INFINITY;
+					leaderSpeed[id] = 0;
+				}
+			}
+		}
+	}
+
+
+	// Returns false, leaving the lane partly sorted, once more than maxMoves shifts were needed
+	private boolean insertionSort(int from, int to, long maxMoves) {
+		long moves = 0;
+
+		for (int k = from + 1; k < to; k++) {
+			int id = order[k];
+			double key = progress[id];
+			int j = k - 1;
+
+			while (j >= from && progress[order[j]] > key) {
+				order[j + 1] = order[j];
+				j--;
+			}
+
+			order[j + 1] = id;
+			moves += k - 1 - j;
+
+			if (moves > maxMoves) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * Sorts the lane by packed keys: the progress rounded to a float (bit pattern made
+	 * sortable as a signed int) in the upper half, the vehicle id in the lower half. The
+	 * rounding is monotonic, so a final insertion pass only reorders cars whose progress
+	 * rounded to the same float, which restores the exact order in linear time.
+	 */
+	private void fullSort(int from, int to) {
+		for (int k = from; k < to; k++) {
+			int id = order[k];
+			int bits = Float.floatToIntBits((float) progress[id]);
+			bits ^= (bits >> 31) & Integer.MAX_VALUE;
+			keys[k] = ((long) bits << 32) | id;
+		}
+
+		heapSort(keys, from, to);
+
+		for (int k = from; k < to; k++) {
+			order[k] = (int) keys[k];
+		}
+
+		insertionSort(from, to, Long.MAX_VALUE);
+	}
+
+
+	// In-place heap sort, O(n log n) for any input and without a buffer
+	private static void heapSort(long[] a, int from, int to) {
+		int size = to - from;
+
+		for (int i = size / 2 - 1; i >= 0; i--) {
+			siftDown(a, from, i, size);
+		}
+
+		for (int end = size - 1; end > 0; end--) {
+			long top = a[from];
+			a[from] = a[from + end];
+			a[from + end] = top;
+			siftDown(a, from, 0, end);
+		}
+	}
+
+
+	private static void siftDown(long[] a, int from, int i, int size) {
+		long value = a[from + i];
+
+		while (2 * i + 1 < size) {
+			int child = 2 * i + 1;
+
+			if (child + 1 < size && a[from + child + 1] > a[from + child]) {
+				child++;
+			}
+
+			if (a[from + child] <= value) {
+				break;
+			}
+
+			a[from + i] = a[from + child];
+			i = child;
+		}
+
+		a[from + i] = value;
+	}
+
+
+	private void ensureCapacity(int count, int laneCount) {
+		if (order.length < count) {
+			int capacity = Math.max(count, order.length * 2);
+			order = Arrays.copyOf(order, capacity);
+			scratch = new int[capacity];
+			keys = new long[capacity];
+			lane = new int[capacity];
+			progress = new double[capacity];
+			leader = new int[capacity];
+			leaderGap = new double[capacity];
+			leaderSpeed = new double[capacity];
+		}
+
+		if (laneStart.length < laneCount + 2) {
+			laneStart = new int[laneCount + 2];
+		}
+	}
+
+
+	public void clear() {
+		vehicleCount = 0;
+	}
+
+
+	// Bytes written by save, see SimulationCheckpoint
+	long checkpointSize() {
+		return Integer.BYTES + (long) vehicleCount * Integer.BYTES;
+	}
+
+
+	/**
+	 * Writes the lane order of the last rebuild. The leaders are rebuilt from the vehicle
+	 * positions every tick, but cars at the same position keep the order they had, so the
+	 * order is needed to continue a run exactly.
+	 */
+	void save(ByteBuffer out) {
+		out.putInt(vehicleCount);
+		SimulationCheckpoint.putInts(out, order, vehicleCount);
+	}
+
+
+	void restore(ByteBuffer in) {
+		vehicleCount = in.getInt();
+		ensureCapacity(vehicleCount, 0);
+		SimulationCheckpoint.getInts(in, order, vehicleCount);
+	}
+
+	// Collection of Getters
+
+	public int getLeader(int id) {
+		return leader[id];
+	}
+
+
+	public double getLeaderGap(int id) {
+		return leaderGap[id];
+	}
+
+
+	public double getLeaderSpeed(int id) {
+		return leaderSpeed[id];
+	}
+}
@@ -0,0 +1,21 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Interface LightPhaseListener: Notified by an Intersection whenever one of its two
+ * TrafficLights changes phase.
+ *
+ * Events are published on the thread that advances the simulation, so listeners must
+ * be quick and must not touch JavaFX nodes directly (hand the work to the JavaFX
+ * thread instead, see TrafficLightDisplay).
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+public interface LightPhaseListener {
+
+	void lightPhaseChanged(Intersection intersection, TrafficLight light, TrafficLight.LightPhase previousPhase);
+}
@@ -0,0 +1,100 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class LightSnapshot: Frozen copy of every traffic light's phase and waiting request.
+ * The engine adds the two lights of every new intersection and afterwards only updates
+ * the lights that changed, between the car updates of two ticks.
+ *
+ * Cars read the phase ordinal (getPhase) through this snapshot instead of the live
+ * TrafficLight objects and look their reaction up in Car's transition table, so every
+ * car sees the same signal state no matter in which order (or on which thread) it is
+ * updated. Each intersection owns two lights, stored at
+ * lightId = intersectionId * 2 + (NS or EW).
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class LightSnapshot {
+
+	// Offsets of the two lights of an intersection
+	public static final int NS = 0;
+	public static final int EW = 1;
+
+	private byte[] phases = new byte[0];
+	private boolean[] waitingRequests = new boolean[0];
+
+
+	// Copy the current phase and waiting request of every light, for car updates outside the engine (benchmarks)
+	public void capture(List<Intersection> intersections) {
+		int lightCount = intersections.size() * 2;
+
+		if (phases.length < lightCount) {
+			phases = new byte[lightCount];
+			waitingRequests = new boolean[lightCount];
+		}
+
+		for (int i = 0; i < intersections.size(); i++) {
+			Intersection intersection = intersections.get(i);
+			TrafficLight nsLight = intersection.getNSLight();
+			TrafficLight ewLight = intersection.getEWLight();
+
+			phases[i * 2 + NS] = (byte) nsLight.getLightPhase().ordinal();
+			phases[i * 2 + EW] = (byte) ewLight.getLightPhase().ordinal();
+			waitingRequests[i * 2 + NS] = nsLight.hasWaitingRequest();
+			waitingRequests[i * 2 + EW] = ewLight.hasWaitingRequest();
+		}
+	}
+
+
+	// Make room for a new intersection and copy its two lights
+	public void add(Intersection intersection) {
+		int lightCount = (intersection.getId() + 1) * 2;
+
+		if (phases.length < lightCount) {
+			int capacity = Math.max(lightCount, phases.length * 2);
+			phases = Arrays.copyOf(phases, capacity);
+			waitingRequests = Arrays.copyOf(waitingRequests, capacity);
+		}
+
+		update(lightId(intersection.getId(), false), intersection.getNSLight());
+		update(lightId(intersection.getId(), true), intersection.getEWLight());
+	}
+
+
+	// Copy a single light after its phase or waiting request changed
+	public void update(int lightId, TrafficLight light) {
+		phases[lightId] = (byte) light.getLightPhase().ordinal();
+		waitingRequests[lightId] = light.hasWaitingRequest();
+	}
+
+
+	public static int lightId(int intersectionId, boolean eastWest) {
+		return intersectionId * 2 + (eastWest ? EW : NS);
+	}
+
+
+	// Live light behind a light id
+	public static TrafficLight lightFor(List<Intersection> intersections, int lightId) {
+		Intersection intersection = intersections.get(lightId / 2);
+		return (lightId % 2 == EW) ? intersection.getEWLight() : intersection.getNSLight();
+	}
+
+	// Collection of Getters
+
+	// LightPhase ordinal of the light
+	public int getPhase(int lightId) {
+		return phases[lightId];
+	}
+
+
+	public boolean hasWaitingRequest(int lightId) {
+		return waitingRequests[lightId];
+	}
+}
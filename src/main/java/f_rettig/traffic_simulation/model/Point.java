@@ -57,6 +57,12 @@ public class Point {
 
 	// Point to String for TableView
 	public String toString() {
+		return toString(x, y);
+	}
+
+
+	// Format a coordinate pair the same way without needing a Point instance
+	public static String toString(double x, double y) {
 		return "(" + (int)(x * 100) / 100.0 + "," + (int)(y * 100) / 100.0 + ")";
 	}
 }
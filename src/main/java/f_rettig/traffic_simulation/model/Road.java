@@ -1,82 +1,61 @@
 /**
  * UMGC CMSC 335
- * Final Project: Traffic Simulation 
- * Class Road: Represents a roadway in the simulation. 
- * 
- * Roads have a name, defined spawn points for cars, and a visual Rectangle for display.
- * The main road runs horizontally, while other roads (side roads) run vertically 
- * and can intersect the main road.
- * 
+ * Final Project: Traffic Simulation
+ * Class Road: Represents a named roadway in the simulation.
+ *
+ * A road is a straight two-way chain of segments in the RoadNetwork, running from its
+ * first to its last node. Both end nodes are spawn points where cars enter the road.
+ * The visual Rectangle for display is built from this geometry by RoadGraphic, so the
+ * model stays free of JavaFX types. In the default layout Main Road runs horizontally,
+ * while the side roads run vertically and cross it.
+ *
  * Coordinates and sizing are based on simulation units where:
  * - 1 unit = 10 meters = 2.5 pixels.
  * - Main road extends from 0 to 400 units (4000 meters, 1000 pixels wide).
  * - Side roads are spaced based on their index and scaled accordingly.
- * 
+ *
  * @author Felicia Rettig
- * Date: May 6, 2025 
+ * Date: May 6, 2025
  * Java 22
  */
 
 package application;
 
-import java.util.ArrayList;
-
-import javafx.scene.paint.Color;
-import javafx.scene.shape.Rectangle;
-
+import application.Car.Direction;
 
 public class Road {
 	private String name;
-	private ArrayList<Point> spawnPoints;		// Points where cars can spawn
-	private Rectangle roadRectangle;
-	private boolean isMainRoad;
+	private RoadNetwork network;
+	private int[] endNodes;				// First and last node, where cars can spawn
 
 
-	public Road(String name, boolean isMainRoad, int index) {
+	public Road(String name, RoadNetwork network, int firstNode, int lastNode) {
 		this.name = name;
-		this.isMainRoad = isMainRoad;
-		this.spawnPoints = new ArrayList<>();
-
-		generateSpawnPoints(index);
+		this.network = network;
+		this.endNodes = new int[] {firstNode, lastNode};
 	}
 
 
-	/**
-	 * Generates spawn points and visual rectangle for the road.
-	 * 
-	 * - Main Road runs East/West and is horizontal.
-	 * - Side roads run North/South and are vertical.
-	 * 
-	 * Positioning and dimensions are scaled using:
-	 */
-	private void generateSpawnPoints(int index) {
-		if (this.isMainRoad) {
-			spawnPoints.add(new Point(0.0,0.0));
-			spawnPoints.add(new Point(400.0, 0.0));
-
-			roadRectangle = new Rectangle(1005.0, 10.0);
-			roadRectangle.setLayoutX(10.0);
-			roadRectangle.setLayoutY(132.5);
-			roadRectangle.setFill(Color.DARKGRAY);
+	// Segment leaving the given end (0 = first, 1 = last) into the road
+	public int getSpawnEdge(int end) {
+		int node = endNodes[end];
+		int other = endNodes[1 - end];
+		Direction direction;
 
+		if (isHorizontal()) {
+			direction = network.getNodeX(other) > network.getNodeX(node) ? Direction.EAST : Direction.WEST;
 		} else {
-			double xPosition = index * 100.0;
-			spawnPoints.add(new Point(xPosition,50.0));
-			spawnPoints.add(new Point(xPosition, -50.0));
-
-			roadRectangle = new Rectangle(10.0, 255);
-			roadRectangle.setLayoutX((xPosition * 2.5) + 7.5);
-			roadRectangle.setLayoutY(0.0 + 10.0);
-			roadRectangle.setFill(Color.DARKGRAY);
+			direction = network.getNodeY(other) > network.getNodeY(node) ? Direction.NORTH : Direction.SOUTH;
 		}
+
+		return network.getOutgoingEdge(node, direction);
 	}
 
 
-	// Adjust the eastward spawn point when extending the main road
-	public void adjustEastSpawnPoint(int intersectionCount) {
-		spawnPoints.removeLast();
-		spawnPoints.add(new Point((intersectionCount * 100.0), 0.0));
-		roadRectangle.setWidth(roadRectangle.getWidth() + 250);;
+	// True if another road goes on straight past the given end (a scenario road cut at a region border)
+	public boolean continuesAt(int end) {
+		int edge = getSpawnEdge(end);
+		return network.getIncomingEdge(endNodes[end], network.getEdgeDirection(edge)) != VehicleStore.NONE;
 	}
 
 	// Collection of Getters
@@ -86,12 +65,38 @@ public class Road {
 	}
 
 
-	public ArrayList<Point> getSpawnPoints() {
-		return spawnPoints;
+	public int getEndNode(int end) {
+		return endNodes[end];
+	}
+
+
+	public Point getEndPoint(int end) {
+		return new Point(network.getNodeX(endNodes[end]), network.getNodeY(endNodes[end]));
+	}
+
+
+	// True for East/West roads, false for North/South roads
+	public boolean isHorizontal() {
+		return network.getNodeY(endNodes[0]) == network.getNodeY(endNodes[1]);
+	}
+
+
+	public double getMinX() {
+		return Math.min(network.getNodeX(endNodes[0]), network.getNodeX(endNodes[1]));
+	}
+
+
+	public double getMaxX() {
+		return Math.max(network.getNodeX(endNodes[0]), network.getNodeX(endNodes[1]));
+	}
+
+
+	public double getMinY() {
+		return Math.min(network.getNodeY(endNodes[0]), network.getNodeY(endNodes[1]));
 	}
 
 
-	public Rectangle getRoadRectangle() {
-		return roadRectangle;
+	public double getMaxY() {
+		return Math.max(network.getNodeY(endNodes[0]), network.getNodeY(endNodes[1]));
 	}
 }
@@ -0,0 +1,517 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class RoadNetwork: Directed road graph the cars navigate by id instead of by coordinate
+ * arithmetic.
+ *
+ * Nodes are road junctions and road ends. A node where two roads cross carries the id of
+ * its Intersection, a node at the end of a road without one is where cars enter and
+ * leave the network. Edges are one-way road segments with a direction of travel, a
+ * length and a number of lanes, and belong to one named Road. A two-way road is a chain
+ * of edge pairs.
+ *
+ * Cars drive in the four compass directions, so every edge runs north/south or
+ * east/west. A node therefore has at most one outgoing and one incoming edge per
+ * direction, and both are kept in a slot array indexed by node * 4 + Direction, which
+ * makes "where does this exit lead" a single array read. Everything is stored in
+ * primitive arrays so networks with tens of thousands of intersections stay compact.
+ *
+ * 1 unit = 100 meters = 2.5 pixels
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import application.Car.Direction;
+
+public class RoadNetwork {
+
+	private static final int DIRECTION_COUNT = Direction.values().length;
+	private static final Direction[] DIRECTIONS = Direction.values();
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private ArrayList<Road> roads = new ArrayList<>();
+
+	// Nodes
+	private int nodeCount = 0;
+	private double[] nodeX = new double[DEFAULT_CAPACITY];
+	private double[] nodeY = new double[DEFAULT_CAPACITY];
+	private int[] nodeIntersection = new int[DEFAULT_CAPACITY];
+	private int[] outgoing = new int[DEFAULT_CAPACITY * DIRECTION_COUNT];		// Edge leaving a node, by direction
+	private int[] incoming = new int[DEFAULT_CAPACITY * DIRECTION_COUNT];		// Edge arriving at a node, by direction
+
+	// Edges
+	private int edgeCount = 0;
+	private int[] edgeFrom = new int[DEFAULT_CAPACITY];
+	private int[] edgeTo = new int[DEFAULT_CAPACITY];
+	private int[] edgeRoad = new int[DEFAULT_CAPACITY];
+	private byte[] edgeDirection = new byte[DEFAULT_CAPACITY];
+	private byte[] edgeLanes = new byte[DEFAULT_CAPACITY];
+	private double[] edgeLength = new double[DEFAULT_CAPACITY];
+
+	// Bounding box of all nodes, cars outside of it have left the network
+	private double minX = Double.POSITIVE_INFINITY;
+	private double maxX = Double.NEGATIVE_INFINITY;
+	private double minY = Double.POSITIVE_INFINITY;
+	private double maxY = Double.NEGATIVE_INFINITY;
+
+	// Increases with every change of the nodes or edges
+	private long version = 0;
+
+
+	public int addNode(double x, double y) {
+		if (nodeCount == nodeX.length) {
+			growNodes(nodeCount * 2);
+		}
+
+		int node = nodeCount++;
+		nodeX[node] = x;
+		nodeY[node] = y;
+		nodeIntersection[node] = VehicleStore.NONE;
+		Arrays.fill(outgoing, node * DIRECTION_COUNT, (node + 1) * DIRECTION_COUNT, VehicleStore.NONE);
+		Arrays.fill(incoming, node * DIRECTION_COUNT, (node + 1) * DIRECTION_COUNT, VehicleStore.NONE);
+		includeInBounds(x, y);
+		version++;
+
+		return node;
+	}
+
+
+	/**
+	 * Adds a one-way segment between two nodes and returns its id. The nodes must line up
+	 * north/south or east/west, and each node can only have one edge per direction.
+	 */
+	public int addEdge(int from, int to, int road, int lanes) {
+		Direction direction = directionBetween(from, to);
+
+		if (outgoing[slot(from, direction)] != VehicleStore.NONE || incoming[slot(to, direction)] != VehicleStore.NONE) {
+			throw new IllegalArgumentException("Node already has a " + direction + " edge: " + from + " -> " + to);
+		}
+
+		if (lanes < 1 || lanes > Byte.MAX_VALUE) {
+			throw new IllegalArgumentException("Lanes must be between 1 and " + Byte.MAX_VALUE + ": " + lanes);
+		}
+
+		if (edgeCount == edgeFrom.length) {
+			growEdges(edgeCount * 2);
+		}
+
+		int edge = edgeCount++;
+		edgeRoad[edge] = road;
+		edgeDirection[edge] = (byte) direction.ordinal();
+		edgeLanes[edge] = (byte) lanes;
+		edgeTo[edge] = VehicleStore.NONE;
+		connect(edge, from, to);
+
+		return edge;
+	}
+
+
+	/**
+	 * Splits the segment at the given point into two and returns the new node between
+	 * them. The reverse segment of a two-way road is split as well. The edge ids leaving
+	 * the original end nodes stay the same, so a road's spawn edges are never affected.
+	 */
+	public int splitEdge(int edge, double x, double y) {
+		int from = edgeFrom[edge];
+		int to = edgeTo[edge];
+		int reverse = outgoing[slot(to, opposite(getEdgeDirection(edge)))];
+		int node = addNode(x, y);
+
+		// from -> node keeps the id, node -> to is new
+		connect(edge, from, node);
+		addEdge(node, to, edgeRoad[edge], edgeLanes[edge]);
+
+		if (reverse != VehicleStore.NONE && edgeTo[reverse] == from) {
+			connect(reverse, to, node);
+			addEdge(node, from, edgeRoad[reverse], edgeLanes[reverse]);
+		}
+
+		return node;
+	}
+
+
+	// Move a node, e.g. a road end when the road is extended, and update the edge lengths
+	public void moveNode(int node, double x, double y) {
+		nodeX[node] = x;
+		nodeY[node] = y;
+
+		for (int d = 0; d < DIRECTION_COUNT; d++) {
+			int out = outgoing[node * DIRECTION_COUNT + d];
+			int in = incoming[node * DIRECTION_COUNT + d];
+
+			if (out != VehicleStore.NONE) {
+				edgeLength[out] = distance(node, edgeTo[out]);
+			}
+
+			if (in != VehicleStore.NONE) {
+				edgeLength[in] = distance(edgeFrom[in], node);
+			}
+		}
+
+		recomputeBounds();
+		version++;
+	}
+
+
+	/**
+	 * Finds the edge of a road that a car driving in the given direction at (x, y) is on,
+	 * by walking the road's chain of edges. Returns VehicleStore.NONE if the position is
+	 * not on the road. Only needed after a car was placed or the network changed.
+	 */
+	public int locateEdge(int roadIndex, Direction direction, double x, double y) {
+		Road road = roads.get(roadIndex);
+		int node = road.getEndNode(0);
+
+		if (outgoing[slot(node, direction)] == VehicleStore.NONE) {
+			node = road.getEndNode(1);
+		}
+
+		boolean eastWest = direction == Direction.EAST || direction == Direction.WEST;
+		double position = eastWest ? x : y;
+		int edge = outgoing[slot(node, direction)];
+
+		while (edge != VehicleStore.NONE) {
+			double start = eastWest ? nodeX[edgeFrom[edge]] : nodeY[edgeFrom[edge]];
+			double end = eastWest ? nodeX[edgeTo[edge]] : nodeY[edgeTo[edge]];
+
+			if (Math.min(start, end) <= position && position <= Math.max(start, end)) {
+				return edge;
+			}
+
+			// Follow the road straight on, it ends where the next segment belongs to another road
+			int next = outgoing[slot(edgeTo[edge], direction)];
+			edge = next != VehicleStore.NONE && edgeRoad[next] == roadIndex ? next : VehicleStore.NONE;
+		}
+
+		return VehicleStore.NONE;
+	}
+
+
+	// Nodes of a road in order from its first to its last node
+	public int[] getRoadNodes(int roadIndex) {
+		Road road = roads.get(roadIndex);
+		Direction direction = getEdgeDirection(road.getSpawnEdge(0));
+		int[] nodes = new int[DEFAULT_CAPACITY];
+		int count = 0;
+		int node = road.getEndNode(0);
+
+		while (true) {
+			if (count == nodes.length) {
+				nodes = Arrays.copyOf(nodes, count * 2);
+			}
+
+			nodes[count++] = node;
+			int edge = outgoing[slot(node, direction)];
+
+			if (node == road.getEndNode(1) || edge == VehicleStore.NONE || edgeRoad[edge] != roadIndex) {
+				break;
+			}
+
+			node = edgeTo[edge];
+		}
+
+		return Arrays.copyOf(nodes, count);
+	}
+
+
+	// True if the point lies outside the area covered by the network
+	public boolean isOutside(double x, double y) {
+		return x < minX || x > maxX || y < minY || y > maxY;
+	}
+
+
+	public void clear() {
+		roads.clear();
+		nodeCount = 0;
+		edgeCount = 0;
+		recomputeBounds();
+		version++;
+	}
+
+
+	// Bytes written by save, see SimulationCheckpoint
+	long checkpointSize() {
+		long size = 3 * Integer.BYTES
+				+ (long) nodeCount * (2 * Double.BYTES + Integer.BYTES + 2 * DIRECTION_COUNT * Integer.BYTES)
+				+ (long) edgeCount * (3 * Integer.BYTES + 2 + Double.BYTES);
+
+		for (Road road : roads) {
+			size += 2 * Integer.BYTES + Short.BYTES + road.getRoadName().getBytes(StandardCharsets.UTF_8).length;
+		}
+
+		return size;
+	}
+
+
+	// Write the node and edge columns and the roads
+	void save(ByteBuffer out) {
+		out.putInt(nodeCount);
+		out.putInt(edgeCount);
+		out.putInt(roads.size());
+
+		SimulationCheckpoint.putDoubles(out, nodeX, nodeCount);
+		SimulationCheckpoint.putDoubles(out, nodeY, nodeCount);
+		SimulationCheckpoint.putInts(out, nodeIntersection, nodeCount);
+		SimulationCheckpoint.putInts(out, outgoing, nodeCount * DIRECTION_COUNT);
+		SimulationCheckpoint.putInts(out, incoming, nodeCount * DIRECTION_COUNT);
+
+		SimulationCheckpoint.putInts(out, edgeFrom, edgeCount);
+		SimulationCheckpoint.putInts(out, edgeTo, edgeCount);
+		SimulationCheckpoint.putInts(out, edgeRoad, edgeCount);
+		out.put(edgeDirection, 0, edgeCount);
+		out.put(edgeLanes, 0, edgeCount);
+		SimulationCheckpoint.putDoubles(out, edgeLength, edgeCount);
+
+		for (Road road : roads) {
+			byte[] name = road.getRoadName().getBytes(StandardCharsets.UTF_8);
+			out.putInt(road.getEndNode(0));
+			out.putInt(road.getEndNode(1));
+			out.putShort((short) name.length);
+			out.put(name);
+		}
+	}
+
+
+	// Replace the whole network with one written by save
+	void restore(ByteBuffer in) {
+		int nodes = in.getInt();
+		int edges = in.getInt();
+		int roadCount = in.getInt();
+
+		growNodes(Math.max(nodeX.length, nodes));
+		growEdges(Math.max(edgeFrom.length, edges));
+		nodeCount = nodes;
+		edgeCount = edges;
+
+		SimulationCheckpoint.getDoubles(in, nodeX, nodeCount);
+		SimulationCheckpoint.getDoubles(in, nodeY, nodeCount);
+		SimulationCheckpoint.getInts(in, nodeIntersection, nodeCount);
+		SimulationCheckpoint.getInts(in, outgoing, nodeCount * DIRECTION_COUNT);
+		SimulationCheckpoint.getInts(in, incoming, nodeCount * DIRECTION_COUNT);
+
+		SimulationCheckpoint.getInts(in, edgeFrom, edgeCount);
+		SimulationCheckpoint.getInts(in, edgeTo, edgeCount);
+		SimulationCheckpoint.getInts(in, edgeRoad, edgeCount);
+		in.get(edgeDirection, 0, edgeCount);
+		in.get(edgeLanes, 0, edgeCount);
+		SimulationCheckpoint.getDoubles(in, edgeLength, edgeCount);
+
+		roads.clear();
+
+		for (int r = 0; r < roadCount; r++) {
+			int first = in.getInt();
+			int last = in.getInt();
+			byte[] name = new byte[in.getShort()];
+			in.get(name);
+			roads.add(new Road(new String(name, StandardCharsets.UTF_8), this, first, last));
+		}
+
+		recomputeBounds();
+		version++;
+	}
+
+
+	private void connect(int edge, int from, int to) {
+		Direction direction = DIRECTIONS[edgeDirection[edge]];
+
+		// Forget the old ends when an edge is reconnected by a split
+		if (edgeTo[edge] != VehicleStore.NONE && edgeTo[edge] != to && incoming[slot(edgeTo[edge], direction)] == edge) {
+			incoming[slot(edgeTo[edge], direction)] = VehicleStore.NONE;
+		}
+
+		edgeFrom[edge] = from;
+		edgeTo[edge] = to;
+		edgeLength[edge] = distance(from, to);
+		outgoing[slot(from, direction)] = edge;
+		incoming[slot(to, direction)] = edge;
+		version++;
+	}
+
+
+	private Direction directionBetween(int from, int to) {
+		double dx = nodeX[to] - nodeX[from];
+		double dy = nodeY[to] - nodeY[from];
+
+		if (dy == 0 && dx != 0) {
+			return dx > 0 ? Direction.EAST : Direction.WEST;
+		}
+
+		if (dx == 0 && dy != 0) {
+			return dy > 0 ? Direction.NORTH : Direction.SOUTH;
+		}
+
+		throw new IllegalArgumentException("Road segments must run north/south or east/west: " + from + " -> " + to);
+	}
+
+
+	private double distance(int from, int to) {
+		return Math.abs(nodeX[to] - nodeX[from]) + Math.abs(nodeY[to] - nodeY[from]);
+	}
+
+
+	private void includeInBounds(double x, double y) {
+		minX = Math.min(minX, x);
+		maxX = Math.max(maxX, x);
+		minY = Math.min(minY, y);
+		maxY = Math.max(maxY, y);
+	}
+
+
+	private void recomputeBounds() {
+		minX = Double.POSITIVE_INFINITY;
+		maxX = Double.NEGATIVE_INFINITY;
+		minY = Double.POSITIVE_INFINITY;
+		maxY = Double.NEGATIVE_INFINITY;
+
+		for (int node = 0; node < nodeCount; node++) {
+			includeInBounds(nodeX[node], nodeY[node]);
+		}
+	}
+
+
+	private void growNodes(int capacity) {
+		nodeX = Arrays.copyOf(nodeX, capacity);
+		nodeY = Arrays.copyOf(nodeY, capacity);
+		nodeIntersection = Arrays.copyOf(nodeIntersection, capacity);
+		outgoing = Arrays.copyOf(outgoing, capacity * DIRECTION_COUNT);
+		incoming = Arrays.copyOf(incoming, capacity * DIRECTION_COUNT);
+	}
+
+
+	private void growEdges(int capacity) {
+		edgeFrom = Arrays.copyOf(edgeFrom, capacity);
+		edgeTo = Arrays.copyOf(edgeTo, capacity);
+		edgeRoad = Arrays.copyOf(edgeRoad, capacity);
+		edgeDirection = Arrays.copyOf(edgeDirection, capacity);
+		edgeLanes = Arrays.copyOf(edgeLanes, capacity);
+		edgeLength = Arrays.copyOf(edgeLength, capacity);
+	}
+
+
+	private static int slot(int node, Direction direction) {
+		return node * DIRECTION_COUNT + direction.ordinal();
+	}
+
+
+	public static Direction opposite(Direction direction) {
+		switch (direction) {
+			case NORTH: return Direction.SOUTH;
+			case SOUTH: return Direction.NORTH;
+			case EAST: return Direction.WEST;
+			default: return Direction.EAST;
+		}
+	}
+
+	// Collection of Setters
+
+	public void setNodeIntersection(int node, int intersectionId) {
+		nodeIntersection[node] = intersectionId;
+	}
+
+	// Collection of Getters
+
+	public ArrayList<Road> getRoads() {
+		return roads;
+	}
+
+
+	public long getVersion() {
+		return version;
+	}
+
+
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+
+	public double getNodeX(int node) {
+		return nodeX[node];
+	}
+
+
+	public double getNodeY(int node) {
+		return nodeY[node];
+	}
+
+
+	// Intersection at the node, or VehicleStore.NONE for a road end
+	public int getNodeIntersection(int node) {
+		return nodeIntersection[node];
+	}
+
+
+	// Edge leaving the node in the given direction, or VehicleStore.NONE
+	public int getOutgoingEdge(int node, Direction direction) {
+		return outgoing[slot(node, direction)];
+	}
+
+
+	public int getIncomingEdge(int node, Direction direction) {
+		return incoming[slot(node, direction)];
+	}
+
+
+	public int getEdgeCount() {
+		return edgeCount;
+	}
+
+
+	public int getEdgeFrom(int edge) {
+		return edgeFrom[edge];
+	}
+
+
+	public int getEdgeTo(int edge) {
+		return edgeTo[edge];
+	}
+
+
+	public int getEdgeRoad(int edge) {
+		return edgeRoad[edge];
+	}
+
+
+	public Direction getEdgeDirection(int edge) {
+		return DIRECTIONS[edgeDirection[edge]];
+	}
+
+
+	public int getEdgeLanes(int edge) {
+		return edgeLanes[edge];
+	}
+
+
+	public double getEdgeLength(int edge) {
+		return edgeLength[edge];
+	}
+
+
+	public double getMinX() {
+		return minX;
+	}
+
+
+	public double getMaxX() {
+		return maxX;
+	}
+
+
+	public double getMinY() {
+		return minY;
+	}
+
+
+	public double getMaxY() {
+		return maxY;
+	}
+}
@@ -0,0 +1,79 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class SignalTiming: Durations of the signal phases of one intersection, in simulated
+ * seconds. Every Intersection starts with DEFAULT (the TrafficLight constants), a
+ * scenario can give each intersection its own timing plan. A changed timing takes
+ * effect with the next phase.
+ *
+ * Immutable, so intersections with the same plan can share one instance.
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+public final class SignalTiming {
+
+	public static final SignalTiming DEFAULT = new SignalTiming(TrafficLight.MIN_TURN_GREEN_DURATION,
+			TrafficLight.MIN_GREEN_DURATION, TrafficLight.YELLOW_DURATION);
+
+	private final double turnGreenDuration;
+	private final double greenDuration;
+	private final double yellowDuration;
+
+
+	public SignalTiming(double turnGreenDuration, double greenDuration, double yellowDuration) {
+
+		if (!(turnGreenDuration > 0 && greenDuration > 0 && yellowDuration > 0)) {
+			throw new IllegalArgumentException("Signal phases must have a positive duration: "
+					+ turnGreenDuration + ", " + greenDuration + ", " + yellowDuration);
+		}
+
+		this.turnGreenDuration = turnGreenDuration;
+		this.greenDuration = greenDuration;
+		this.yellowDuration = yellowDuration;
+	}
+
+
+	@Override
+	public boolean equals(Object other) {
+		if (!(other instanceof SignalTiming)) {
+			return false;
+		}
+
+		SignalTiming timing = (SignalTiming) other;
+
+		return Double.compare(turnGreenDuration, timing.turnGreenDuration) == 0
+				&& Double.compare(greenDuration, timing.greenDuration) == 0
+				&& Double.compare(yellowDuration, timing.yellowDuration) == 0;
+	}
+
+
+	@Override
+	public int hashCode() {
+		int hash = Double.hashCode(turnGreenDuration);
+		hash = hash * 31 + Double.hashCode(greenDuration);
+		return hash * 31 + Double.hashCode(yellowDuration);
+	}
+
+	// Collection of Getters
+
+	// Minimum time a protected left turn stays green
+	public double getTurnGreenDuration() {
+		return turnGreenDuration;
+	}
+
+
+	// Minimum time straight traffic stays green
+	public double getGreenDuration() {
+		return greenDuration;
+	}
+
+
+	public double getYellowDuration() {
+		return yellowDuration;
+	}
+}
@@ -7,9 +7,16 @@
  * Controls light state transitions based on timing, handles waiting requests from vehicles 
  * needing turn signals, and provides methods to query the current light state.
  * 
+ * Timing is event driven: a light stores the simulated time its current phase ends
+ * (expiryTime) and the engine calls expire() exactly then from its EventQueue, instead
+ * of counting a timer down every tick.
+ * 
  * Also manages timing for minimum green/yellow durations and allows external triggers 
  * to request turn greens when vehicles are waiting.
  * 
+ * Every phase change is reported to the owning Intersection, which passes it on to its
+ * LightPhaseListeners.
+ * 
  * @author Felicia Rettig
  * Date: May 6, 2025 
  * Java 22
@@ -25,9 +32,14 @@ public class TrafficLight {
 	}
 
 
+	// Expiry time of a phase that never ends on its own (RED)
+	public static final double NEVER = Double.POSITIVE_INFINITY;
+
 	private LightPhase lightPhase;
-	private double timer;
+	private double expiryTime;					// Simulated time the current phase ends
+	private boolean expiryScheduled;			// False until the engine queued the current expiry
 	private boolean waitingRequest;
+	private Intersection intersection;			// Owner notified on phase changes, may be null
 
 	public static final double MIN_TURN_GREEN_DURATION = 10.0;
 	public static final double MIN_GREEN_DURATION = 20.0;
@@ -35,47 +47,56 @@ public class TrafficLight {
 
 
 	public TrafficLight() {
+		this(null);
+	}
 
+
+	public TrafficLight(Intersection intersection) {
+
+		this.intersection = intersection;
 		this.lightPhase = LightPhase.RED;
-		this.timer = 0;
+		this.expiryTime = NEVER;
+		this.expiryScheduled = true;
 		this.waitingRequest = false;
 	}
 
-	// Cycle through light phases based on assigned times
+	// Move on to the next phase when the current one has run out (at simulated time now)
 	// (TURN_GREEN) -> (TURN_YELLOW) -> STRAIGHT_GREEN -> STRAIGHT_YELLOW -> RED
-	public void update(double deltaTime) {
+	public void expire(double now) {
 
-		timer -= deltaTime;
+		switch (lightPhase) {
 
-		if (timer <= 0) {
+			case TURN_GREEN:
+				setPhase(LightPhase.TURN_YELLOW, now + getSignalTiming().getYellowDuration());
+				break;
 
-			switch (lightPhase) {
+			case STRAIGHT_GREEN:
+				setPhase(LightPhase.STRAIGHT_YELLOW, now + getSignalTiming().getYellowDuration());
+				break;
 
-				case TURN_GREEN:
-					lightPhase = LightPhase.TURN_YELLOW;
-					timer = YELLOW_DURATION;
-					break;
+			case TURN_YELLOW:
+				setPhase(LightPhase.STRAIGHT_GREEN, now + getSignalTiming().getGreenDuration());
+				break;
 
-				case STRAIGHT_GREEN:
-					lightPhase = LightPhase.STRAIGHT_YELLOW;
-					timer = YELLOW_DURATION;
-					break;
+			case STRAIGHT_YELLOW:
+				setPhase(LightPhase.RED, NEVER);
+				break;
 
-				case TURN_YELLOW:
-					lightPhase = LightPhase.STRAIGHT_GREEN;
-					timer = MIN_GREEN_DURATION;
-					break;
+			case RED:
+				// Stay RED
+				break;
+		}
+	}
 
-				case STRAIGHT_YELLOW:
-					lightPhase = LightPhase.RED;
-					timer = 0;
-					break;
 
-				case RED:
-					// Stay RED
-					break;
-			}
-		}
+	// True if the current expiry still has to be put on the engine's event queue
+	public boolean needsScheduling() {
+		return !expiryScheduled;
+	}
+
+
+	public void markScheduled() {
+		expiryScheduled = true;
 	}
 
 
@@ -121,15 +142,34 @@ public class TrafficLight {
 
 	// Collection of Setters
 
-	public void setTurnGreen() {
-		lightPhase = LightPhase.TURN_GREEN;
-		timer = MIN_TURN_GREEN_DURATION;
+	public void setTurnGreen(double now) {
+		setPhase(LightPhase.TURN_GREEN, now + getSignalTiming().getTurnGreenDuration());
 	}
 
 
-	public void setGreen() {
-		lightPhase = LightPhase.STRAIGHT_GREEN;
-		timer = MIN_GREEN_DURATION;
+	public void setGreen(double now) {
+		setPhase(LightPhase.STRAIGHT_GREEN, now + getSignalTiming().getGreenDuration());
+	}
+
+
+	// Change phase and expiry, tell the owning intersection if the phase actually changed
+	private void setPhase(LightPhase newPhase, double newExpiryTime) {
+		LightPhase previousPhase = lightPhase;
+		lightPhase = newPhase;
+		expiryTime = newExpiryTime;
+		expiryScheduled = newExpiryTime == NEVER;
+
+		if (previousPhase != newPhase && intersection != null) {
+			intersection.lightPhaseChanged(this, previousPhase);
+		}
+	}
+
+	// Put back a phase saved by a SimulationCheckpoint, without telling the intersection
+	void restore(LightPhase phase, double expiryTime, boolean expiryScheduled, boolean waitingRequest) {
+		this.lightPhase = phase;
+		this.expiryTime = expiryTime;
+		this.expiryScheduled = expiryScheduled;
+		this.waitingRequest = waitingRequest;
 	}
 
 	// Collection of Getters
@@ -137,4 +177,15 @@ public class TrafficLight {
 	public LightPhase getLightPhase() {
 		return lightPhase;
 	}
+
+
+	public double getExpiryTime() {
+		return expiryTime;
+	}
+
+
+	// Timing of the owning intersection, the default timing for a light on its own
+	public SignalTiming getSignalTiming() {
+		return intersection != null ? intersection.getSignalTiming() : SignalTiming.DEFAULT;
+	}
 }
@@ -0,0 +1,316 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class VehicleStore: Column-oriented storage for every vehicle in the simulation.
+ *
+ * Instead of one heap object per car (with its own Point, Random, colour and Strings),
+ * each property is held in a primitive array and a vehicle is simply an index into
+ * those arrays. Updating all cars walks the columns linearly, which keeps the per-tick
+ * loop cache friendly. The columns (free list included) take 123 bytes per vehicle, so
+ * a million vehicles fit in about 125 MB.
+ *
+ * Enum values (CarState, Direction, NextDirection) are stored as their ordinal in a
+ * byte column, roads and intersections as their index in the engine's lists.
+ *
+ * A vehicle that is released (it left the network while the engine runs with a
+ * TrafficDemand) is PARKED and its slot goes onto a free list. add() hands out parked
+ * slots before it appends, so a fleet that shrinks and grows again reuses its slots and
+ * the columns never need to grow past the peak population.
+ *
+ * 1 unit = 100 meters = 2.5 pixels
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class VehicleStore {
+
+	// Marker for "no intersection" / "no next direction"
+	public static final int NONE = -1;
+
+	// Marker for a next intersection that has to be looked up again
+	public static final int UNKNOWN = -2;
+
+	// Marker for a vehicle that is not waiting for a turn signal
+	public static final double NOT_WAITING = -1;
+
+	private static final int DEFAULT_CAPACITY = 64;
+
+	// Bytes per vehicle in a checkpoint: 10 double, 5 int, 2 long and 3 byte columns
+	private static final int CHECKPOINT_RECORD_SIZE = 10 * Double.BYTES + 5 * Integer.BYTES + 2 * Long.BYTES + 3;
+
+	private static final byte PARKED = (byte) Car.CarState.PARKED.ordinal();
+
+	private int size = 0;
+
+	// Parked slots, reused last in first out (sized like the columns, so release never allocates)
+	private int[] freeSlots;
+	private int freeCount = 0;
+
+	// Kinematics
+	double[] x;
+	double[] y;
+	double[] speed;
+	double[] targetSpeed;
+	double[] turnProgress;
+
+	// Stop line assigned on approach (NaN when no stop target is set)
+	double[] stopX;
+	double[] stopY;
+
+	// Enum ordinals
+	byte[] state;
+	byte[] direction;
+	byte[] nextDirection;
+
+	// Indices into the engine's road and intersection lists and the current RoadNetwork edge
+	int[] road;
+	int[] intersection;
+	int[] edge;
+
+	// Cached next intersection ahead and the coordinate of its centre along the
+	// direction of travel (X for East/West, Y for North/South)
+	int[] nextIntersection;
+	double[] nextStop;
+
+	// Display attributes
+	int[] color;						// Packed 0xRRGGBB
+	long[] licensePlate;				// 7 base-36 characters, see Car.decodeLicensePlate
+
+	// waitStartTime meanings (simulated seconds, see SimulationClock):
+	// NOT_WAITING  = not waiting
+	// otherwise    = simulated time of wait start, a turn retry is due 30 s later
+	double[] waitStartTime;
+
+	// Simulated time the vehicle stopped at its current stop line, for the IntersectionStats
+	double[] stopTime;
+
+	// State of each vehicle's own random stream (see RandomSource)
+	long[] rng;
+
+
+	public VehicleStore() {
+		this(DEFAULT_CAPACITY);
+	}
+
+
+	public VehicleStore(int initialCapacity) {
+		int capacity = Math.max(1, initialCapacity);
+
+		x = new double[capacity];
+		y = new double[capacity];
+		speed = new double[capacity];
+		targetSpeed = new double[capacity];
+		turnProgress = new double[capacity];
+		stopX = new double[capacity];
+		stopY = new double[capacity];
+		state = new byte[capacity];
+		direction = new byte[capacity];
+		nextDirection = new byte[capacity];
+		road = new int[capacity];
+		intersection = new int[capacity];
+		edge = new int[capacity];
+		nextIntersection = new int[capacity];
+		nextStop = new double[capacity];
+		color = new int[capacity];
+		licensePlate = new long[capacity];
+		waitStartTime = new double[capacity];
+		stopTime = new double[capacity];
+		rng = new long[capacity];
+		freeSlots = new int[capacity];
+	}
+
+
+	/**
+	 * Returns a vehicle slot with cleared state: the last parked slot if there is one,
+	 * else a new slot appended to the store. Columns double in size when the capacity is
+	 * exceeded.
+	 */
+	public int add() {
+		int id;
+
+		if (freeCount > 0) {
+			id = freeSlots[--freeCount];
+
+		} else {
+			if (size == x.length) {
+				grow(size * 2);
+			}
+
+			id = size++;
+		}
+
+		x[id] = 0;
+		y[id] = 0;
+		speed[id] = 0;
+		targetSpeed[id] = 0;
+		turnProgress[id] = 0;
+		stopX[id] = Double.NaN;
+		stopY[id] = Double.NaN;
+		state[id] = 0;
+		direction[id] = 0;
+		nextDirection[id] = NONE;
+		road[id] = 0;
+		intersection[id] = NONE;
+		edge[id] = NONE;
+		nextIntersection[id] = UNKNOWN;
+		nextStop[id] = 0;
+		color[id] = 0;
+		licensePlate[id] = 0;
+		waitStartTime[id] = NOT_WAITING;
+		stopTime[id] = 0;
+		rng[id] = 0;
+
+		return id;
+	}
+
+
+	// Park the vehicle and put its slot on the free list for the next add()
+	public void release(int id) {
+		state[id] = PARKED;
+		speed[id] = 0;
+		intersection[id] = NONE;
+		nextDirection[id] = NONE;
+		nextIntersection[id] = UNKNOWN;
+		waitStartTime[id] = NOT_WAITING;
+		freeSlots[freeCount++] = id;
+	}
+
+
+	// Make sure the columns can hold the given number of vehicles without growing
+	public void ensureCapacity(int capacity) {
+		if (capacity > x.length) {
+			grow(capacity);
+		}
+	}
+
+
+	private void grow(int capacity) {
+		x = Arrays.copyOf(x, capacity);
+		y = Arrays.copyOf(y, capacity);
+		speed = Arrays.copyOf(speed, capacity);
+		targetSpeed = Arrays.copyOf(targetSpeed, capacity);
+		turnProgress = Arrays.copyOf(turnProgress, capacity);
+		stopX = Arrays.copyOf(stopX, capacity);
+		stopY = Arrays.copyOf(stopY, capacity);
+		state = Arrays.copyOf(state, capacity);
+		direction = Arrays.copyOf(direction, capacity);
+		nextDirection = Arrays.copyOf(nextDirection, capacity);
+		road = Arrays.copyOf(road, capacity);
+		intersection = Arrays.copyOf(intersection, capacity);
+		edge = Arrays.copyOf(edge, capacity);
+		nextIntersection = Arrays.copyOf(nextIntersection, capacity);
+		nextStop = Arrays.copyOf(nextStop, capacity);
+		color = Arrays.copyOf(color, capacity);
+		licensePlate = Arrays.copyOf(licensePlate, capacity);
+		waitStartTime = Arrays.copyOf(waitStartTime, capacity);
+		stopTime = Arrays.copyOf(stopTime, capacity);
+		rng = Arrays.copyOf(rng, capacity);
+		freeSlots = Arrays.copyOf(freeSlots, capacity);
+	}
+
+
+	public void clear() {
+		size = 0;
+		freeCount = 0;
+	}
+
+
+	// Bytes written by save, see SimulationCheckpoint
+	long checkpointSize() {
+		return 2 * Integer.BYTES + (long) size * CHECKPOINT_RECORD_SIZE + (long) freeCount * Integer.BYTES;
+	}
+
+
+	// Write every column, one after the other, up to the size, then the free list
+	void save(ByteBuffer out) {
+		out.putInt(size);
+		out.putInt(freeCount);
+
+		SimulationCheckpoint.putDoubles(out, x, size);
+		SimulationCheckpoint.putDoubles(out, y, size);
+		SimulationCheckpoint.putDoubles(out, speed, size);
+		SimulationCheckpoint.putDoubles(out, targetSpeed, size);
+		SimulationCheckpoint.putDoubles(out, turnProgress, size);
+		SimulationCheckpoint.putDoubles(out, stopX, size);
+		SimulationCheckpoint.putDoubles(out, stopY, size);
+		SimulationCheckpoint.putDoubles(out, nextStop, size);
+		SimulationCheckpoint.putDoubles(out, waitStartTime, size);
+		SimulationCheckpoint.putDoubles(out, stopTime, size);
+		SimulationCheckpoint.putInts(out, road, size);
+		SimulationCheckpoint.putInts(out, intersection, size);
+		SimulationCheckpoint.putInts(out, edge, size);
+		SimulationCheckpoint.putInts(out, nextIntersection, size);
+		SimulationCheckpoint.putInts(out, color, size);
+		SimulationCheckpoint.putLongs(out, licensePlate, size);
+		SimulationCheckpoint.putLongs(out, rng, size);
+		out.put(state, 0, size);
+		out.put(direction, 0, size);
+		out.put(nextDirection, 0, size);
+		SimulationCheckpoint.putInts(out, freeSlots, freeCount);
+	}
+
+
+	// Replace all vehicles with the ones written by save
+	void restore(ByteBuffer in) {
+		size = in.getInt();
+		freeCount = in.getInt();
+		ensureCapacity(size);
+
+		SimulationCheckpoint.getDoubles(in, x, size);
+		SimulationCheckpoint.getDoubles(in, y, size);
+		SimulationCheckpoint.getDoubles(in, speed, size);
+		SimulationCheckpoint.getDoubles(in, targetSpeed, size);
+		SimulationCheckpoint.getDoubles(in, turnProgress, size);
+		SimulationCheckpoint.getDoubles(in, stopX, size);
+		SimulationCheckpoint.getDoubles(in, stopY, size);
+		SimulationCheckpoint.getDoubles(in, nextStop, size);
+		SimulationCheckpoint.getDoubles(in, waitStartTime, size);
+		SimulationCheckpoint.getDoubles(in, stopTime, size);
+		SimulationCheckpoint.getInts(in, road, size);
+		SimulationCheckpoint.getInts(in, intersection, size);
+		SimulationCheckpoint.getInts(in, edge, size);
+		SimulationCheckpoint.getInts(in, nextIntersection, size);
+		SimulationCheckpoint.getInts(in, color, size);
+		SimulationCheckpoint.getLongs(in, licensePlate, size);
+		SimulationCheckpoint.getLongs(in, rng, size);
+		in.get(state, 0, size);
+		in.get(direction, 0, size);
+		in.get(nextDirection, 0, size);
+		SimulationCheckpoint.getInts(in, freeSlots, freeCount);
+	}
+
+	// Collection of Getters
+
+	// Slots in use, including parked ones
+	public int size() {
+		return size;
+	}
+
+
+	// Vehicles on the network, without the parked slots
+	public int activeCount() {
+		return size - freeCount;
+	}
+
+
+	public int parkedCount() {
+		return freeCount;
+	}
+
+
+	public boolean isParked(int id) {
+		return state[id] == PARKED;
+	}
+
+
+	public int capacity() {
+		return x.length;
+	}
+}
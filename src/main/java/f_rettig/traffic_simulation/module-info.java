@@ -1,9 +1,13 @@
 module finalProject335 {
 	requires javafx.controls;
 	requires java.net.http;
+	requires java.management;
+	requires jdk.management;
+	requires jdk.httpserver;
 	requires javafx.graphics;
 	requires javafx.base;
 	requires javafx.fxml;
 	
 	opens application to javafx.graphics, javafx.fxml, javafx.base;
+	exports application to java.management;
 }
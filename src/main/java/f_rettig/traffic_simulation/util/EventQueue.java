@@ -0,0 +1,214 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class EventQueue: Priority queue of timed simulation events (a binary min-heap).
+ *
+ * An event is a simulated time, an event type and a target id (e.g. an intersection or
+ * a vehicle). Events are kept in parallel primitive arrays, so adding and removing
+ * never allocates once the heap has grown. Events due at the same time come out by
+ * type, then in the order they were added, which keeps runs reproducible.
+ *
+ * The queue does not support cancelling. An owner that reschedules something simply
+ * adds a new event and ignores the old one when it comes out (see SimulationEngine).
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class EventQueue {
+
+	private static final int DEFAULT_CAPACITY = 64;
+
+	private double[] times = new double[DEFAULT_CAPACITY];
+	private int[] types = new int[DEFAULT_CAPACITY];
+	private int[] targets = new int[DEFAULT_CAPACITY];
+	private long[] sequence = new long[DEFAULT_CAPACITY];		// Insertion order, breaks ties
+	private int size = 0;
+	private long nextSequence = 0;
+
+
+	public void add(double time, int type, int target) {
+		if (size == times.length) {
+			grow();
+		}
+
+		long order = nextSequence++;
+		int index = size++;
+
+		// Sift up
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+
+			if (!isBefore(time, type, order, parent)) {
+				break;
+			}
+
+			move(parent, index);
+			index = parent;
+		}
+
+		set(index, time, type, target, order);
+	}
+
+
+	// Remove the earliest event, read it with peek...() first
+	public void poll() {
+		if (size == 0) {
+			return;
+		}
+
+		size--;
+
+		if (size == 0) {
+			return;
+		}
+
+		// Sift the last event down from the root
+		double time = times[size];
+		int type = types[size];
+		int target = targets[size];
+		long order = sequence[size];
+		int index = 0;
+
+		while (true) {
+			int child = index * 2 + 1;
+
+			if (child >= size) {
+				break;
+			}
+
+			if (child + 1 < size && isBefore(child + 1, child)) {
+				child++;
+			}
+
+			if (!compare(times[child], types[child], sequence[child], time, type, order)) {
+				break;
+			}
+
+			move(child, index);
+			index = child;
+		}
+
+		set(index, time, type, target, order);
+	}
+
+
+	public void clear() {
+		size = 0;
+		nextSequence = 0;
+	}
+
+
+	// Bytes written by save, see SimulationCheckpoint
+	long checkpointSize() {
+		return Integer.BYTES + Long.BYTES + (long) size * (Double.BYTES + 2 * Integer.BYTES + Long.BYTES);
+	}
+
+
+	// Write the heap as it is, so a restored queue hands out the events in the same order
+	void save(ByteBuffer out) {
+		out.putInt(size);
+		out.putLong(nextSequence);
+		SimulationCheckpoint.putDoubles(out, times, size);
+		SimulationCheckpoint.putInts(out, types, size);
+		SimulationCheckpoint.putInts(out, targets, size);
+		SimulationCheckpoint.putLongs(out, sequence, size);
+	}
+
+
+	void restore(ByteBuffer in) {
+		size = in.getInt();
+		nextSequence = in.getLong();
+
+		while (times.length < size) {
+			grow();
+		}
+
+		SimulationCheckpoint.getDoubles(in, times, size);
+		SimulationCheckpoint.getInts(in, types, size);
+		SimulationCheckpoint.getInts(in, targets, size);
+		SimulationCheckpoint.getLongs(in, sequence, size);
+	}
+
+
+	// Does (time, type, order) come before the event at index?
+	private boolean isBefore(double time, int type, long order, int index) {
+		return compare(time, type, order, times[index], types[index], sequence[index]);
+	}
+
+
+	private boolean isBefore(int first, int second) {
+		return isBefore(times[first], types[first], sequence[first], second);
+	}
+
+
+	// True if the first event comes out before the second
+	private static boolean compare(double time, int type, long order,
+			double otherTime, int otherType, long otherOrder) {
+
+		if (time != otherTime) {
+			return time < otherTime;
+		}
+
+		if (type != otherType) {
+			return type < otherType;
+		}
+
+		return order < otherOrder;
+	}
+
+
+	private void move(int from, int to) {
+		set(to, times[from], types[from], targets[from], sequence[from]);
+	}
+
+
+	private void set(int index, double time, int type, int target, long order) {
+		times[index] = time;
+		types[index] = type;
+		targets[index] = target;
+		sequence[index] = order;
+	}
+
+
+	private void grow() {
+		int capacity = times.length * 2;
+		times = Arrays.copyOf(times, capacity);
+		types = Arrays.copyOf(types, capacity);
+		targets = Arrays.copyOf(targets, capacity);
+		sequence = Arrays.copyOf(sequence, capacity);
+	}
+
+	// Collection of Getters
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+
+	public int size() {
+		return size;
+	}
+
+
+	// Time of the earliest event, infinity if the queue is empty
+	public double peekTime() {
+		return size == 0 ? Double.POSITIVE_INFINITY : times[0];
+	}
+
+
+	public int peekType() {
+		return types[0];
+	}
+
+
+	public int peekTarget() {
+		return targets[0];
+	}
+}
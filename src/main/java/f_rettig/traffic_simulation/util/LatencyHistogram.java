@@ -0,0 +1,130 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class LatencyHistogram: Histogram of durations in nanoseconds with fixed log-linear
+ * buckets, for percentiles of tick and phase times.
+ *
+ * Every power of two is split into 16 equal buckets, so a percentile is never off by
+ * more than 1/16 (about 6%) of its value, and all buckets are one preallocated array:
+ * recording a value is a bucket index computation and two increments, it never
+ * allocates. The exact maximum is kept beside the buckets.
+ *
+ * Written by one thread. Other threads may read it at any time and then see a
+ * percentile that is at most a few values behind.
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import java.util.Arrays;
+
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	// Values below SUB_BUCKETS get a bucket each, then SUB_BUCKETS buckets per power of two
+	private final long[] counts = new long[(64 - SUB_BUCKET_BITS) * SUB_BUCKETS];
+	private long count = 0;
+	private long sum = 0;
+	private long max = 0;
+
+
+	public void record(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+
+		counts[bucketOf(value)]++;
+		count++;
+		sum += value;
+
+		if (value > max) {
+			max = value;
+		}
+	}
+
+
+	private static int bucketOf(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+
+	// Largest value that falls into the bucket
+	private static long bucketTop(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+
+		int shift = bucket / SUB_BUCKETS - 1;
+		long bottom = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+
+		return bottom + (1L << shift) - 1;
+	}
+
+
+	/**
+	 * Value below or at which the given percentage (0 to 100) of the recorded values
+	 * fall, rounded up to the top of its bucket but never above the maximum. 0 while
+	 * nothing was recorded.
+	 */
+	public long getPercentile(double percent) {
+
+		if (percent < 0 || percent > 100) {
+			throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percent);
+		}
+
+		long total = count;
+
+		if (total == 0) {
+			return 0;
+		}
+
+		long rank = Math.max(1, (long) Math.ceil(percent / 100.0 * total));
+		long seen = 0;
+
+		for (int b = 0; b < counts.length; b++) {
+			seen += counts[b];
+
+			if (seen >= rank) {
+				return Math.min(bucketTop(b), max);
+			}
+		}
+
+		return max;
+	}
+
+
+	public void reset() {
+		Arrays.fill(counts, 0);
+		count = 0;
+		sum = 0;
+		max = 0;
+	}
+
+	// Collection of Getters
+
+	public long getCount() {
+		return count;
+	}
+
+
+	public long getMax() {
+		return max;
+	}
+
+
+	public double getMean() {
+		return count == 0 ? 0 : (double) sum / count;
+	}
+}
@@ -0,0 +1,123 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class RandomSource: The single source of randomness for one simulation run.
+ *
+ * A RandomSource is created from a seed, so the same seed always gives the same run.
+ * It hands out independent streams in two ways:
+ * - split() returns a SplittableRandom for a whole component (e.g. a worker or a run).
+ * - nextStreamSeed() seeds a per-vehicle stream whose entire state is one long, kept
+ *   in a VehicleStore column and advanced with the static next...() methods below.
+ *
+ * Per-vehicle streams use the SplitMix64 generator (the algorithm behind
+ * SplittableRandom), so drawing a number never allocates and a car's decisions do not
+ * depend on how many other cars drew numbers before it, or on which thread. The root
+ * stream is SplitMix64 as well, so its whole state is one long that a checkpoint can
+ * save and restore.
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import java.util.SplittableRandom;
+
+public class RandomSource {
+
+	// SplitMix64 constants
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+	private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+	private final long seed;
+	private long state;						// Root stream, same sequence as new SplittableRandom(seed)
+
+
+	public RandomSource(long seed) {
+		this.seed = seed;
+		this.state = seed;
+	}
+
+
+	// Seed from the clock, for interactive runs that do not need to be repeated
+	public static long randomSeed() {
+		return mix64(System.nanoTime() ^ System.currentTimeMillis());
+	}
+
+
+	// Independent generator for a component of the simulation
+	public SplittableRandom split() {
+		return new SplittableRandom(nextStreamSeed());
+	}
+
+
+	// Starting state for a per-vehicle stream
+	public long nextStreamSeed() {
+		state += GOLDEN_GAMMA;
+		return mix64(state);
+	}
+
+
+	// Rewind to the state right after construction
+	public void reset() {
+		state = seed;
+	}
+
+	// Per-stream generators, the state lives in states[index]
+
+	public static long nextLong(long[] states, int index) {
+		long state = states[index] + GOLDEN_GAMMA;
+		states[index] = state;
+		return mix64(state);
+	}
+
+
+	// Uniform int in [0, bound)
+	public static int nextInt(long[] states, int index, int bound) {
+		return (int) ((nextLong(states, index) >>> 33) * bound >>> 31);
+	}
+
+
+	// Uniform long in [0, bound)
+	public static long nextLong(long[] states, int index, long bound) {
+		return Math.floorMod(nextLong(states, index), bound);
+	}
+
+
+	// Uniform double in [0, 1)
+	public static double nextDouble(long[] states, int index) {
+		return (nextLong(states, index) >>> 11) * DOUBLE_UNIT;
+	}
+
+
+	// Uniform double in [origin, bound)
+	public static double nextDouble(long[] states, int index, double origin, double bound) {
+		return origin + nextDouble(states, index) * (bound - origin);
+	}
+
+
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	// Collection of Setters
+
+	// Continue the root stream from a saved state (see SimulationCheckpoint)
+	void setState(long state) {
+		this.state = state;
+	}
+
+	// Collection of Getters
+
+	public long getSeed() {
+		return seed;
+	}
+
+
+	long getState() {
+		return state;
+	}
+}
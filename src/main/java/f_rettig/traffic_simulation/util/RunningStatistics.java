@@ -0,0 +1,134 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class RunningStatistics: Count, mean, variance, minimum, maximum and a few
+ * percentiles of a stream of values, updated one value at a time without keeping the
+ * values. Mean and variance use Welford's algorithm, so they stay accurate over many
+ * values of similar size. Percentiles are StreamingQuantile estimates.
+ *
+ * Not thread-safe, the EnsembleRunner feeds it from a single thread.
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+public class RunningStatistics {
+
+	// Percentiles tracked unless others are given
+	public static final double[] DEFAULT_PERCENTILES = {50, 90, 95, 99};
+
+	private final double[] percentiles;
+	private final StreamingQuantile[] quantiles;
+	private long count = 0;
+	private double mean = 0;
+	private double squaredDeviations = 0;		// Sum of squared differences from the mean
+	private double min = Double.NaN;
+	private double max = Double.NaN;
+
+
+	public RunningStatistics() {
+		this(DEFAULT_PERCENTILES);
+	}
+
+
+	// Percentiles between 0 and 100 (exclusive) to estimate
+	public RunningStatistics(double... percentiles) {
+		this.percentiles = percentiles.clone();
+		this.quantiles = new StreamingQuantile[percentiles.length];
+
+		for (int i = 0; i < percentiles.length; i++) {
+			quantiles[i] = new StreamingQuantile(percentiles[i] / 100.0);
+		}
+	}
+
+
+	public void add(double value) {
+
+		if (Double.isNaN(value)) {
+			throw new IllegalArgumentException("Value must be a number");
+		}
+
+		count++;
+		double delta = value - mean;
+		mean += delta / count;
+		squaredDeviations += delta * (value - mean);
+
+		if (count == 1) {
+			min = value;
+			max = value;
+
+		} else {
+			min = Math.min(min, value);
+			max = Math.max(max, value);
+		}
+
+		for (StreamingQuantile quantile : quantiles) {
+			quantile.add(value);
+		}
+	}
+
+	// Collection of Getters
+
+	public long getCount() {
+		return count;
+	}
+
+
+	// NaN while nothing was added
+	public double getMean() {
+		return count == 0 ? Double.NaN : mean;
+	}
+
+
+	// Sample variance (divided by count - 1), 0 for a single value
+	public double getVariance() {
+
+		if (count == 0) {
+			return Double.NaN;
+		}
+
+		return count == 1 ? 0 : squaredDeviations / (count - 1);
+	}
+
+
+	public double getStandardDeviation() {
+		return Math.sqrt(getVariance());
+	}
+
+
+	// Standard error of the mean, for confidence intervals over the runs
+	public double getStandardError() {
+		return count == 0 ? Double.NaN : getStandardDeviation() / Math.sqrt(count);
+	}
+
+
+	public double getMin() {
+		return min;
+	}
+
+
+	public double getMax() {
+		return max;
+	}
+
+
+	// Estimate of a tracked percentile, one of those given to the constructor
+	public double getPercentile(double percentile) {
+
+		for (int i = 0; i < percentiles.length; i++) {
+			if (percentiles[i] == percentile) {
+				return quantiles[i].getValue();
+			}
+		}
+
+		throw new IllegalArgumentException("Percentile is not tracked: " + percentile);
+	}
+
+
+	public double[] getPercentiles() {
+		return percentiles.clone();
+	}
+}
@@ -0,0 +1,136 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class SimulationClock: The simulated time of one run. Every timed behaviour (light
+ * timers, the left-turn retry) is scheduled against this clock instead of the wall clock, so a run
+ * behaves the same at any speed.
+ *
+ * Time only moves in fixed ticks. The simulated time is tickCount * timestep, so it
+ * does not drift however long the run is.
+ *
+ * The clock also turns elapsed real time into due ticks for the interactive mode. The
+ * time scale (time warp) multiplies the real time first: 1 = real time, 10 = ten
+ * simulated seconds per real second, MAX_SPEED = as many ticks as the machine can run.
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+public class SimulationClock {
+
+	// Time scale for running as fast as possible
+	public static final double MAX_SPEED = Double.POSITIVE_INFINITY;
+
+	// Upper bound on real time carried over between calls so a long stall does not
+	// trigger an endless catch-up loop (scaled by the time scale)
+	private static final double MAX_ACCUMULATED_TIME = 0.25;
+
+	private final double timestep;
+	private long tickCount = 0;
+	private double accumulator = 0;			// Simulated time due but not yet run
+	private double timeScale = 1.0;
+
+
+	public SimulationClock(double timestep) {
+
+		if (timestep <= 0) {
+			throw new IllegalArgumentException("Timestep must be positive: " + timestep);
+		}
+
+		this.timestep = timestep;
+	}
+
+
+	// Add elapsed real time, scaled by the time scale
+	public void accumulate(double realDeltaTime) {
+		accumulator = Math.min(accumulator + realDeltaTime * timeScale, MAX_ACCUMULATED_TIME * timeScale);
+	}
+
+
+	// True while at least one accumulated tick has not been run
+	public boolean hasTickDue() {
+		return accumulator >= timestep;
+	}
+
+
+	// Move the clock one tick forward, using up accumulated time if there is any
+	public void advance() {
+		tickCount++;
+
+		if (accumulator >= timestep) {
+			accumulator -= timestep;
+		}
+	}
+
+
+	// Move the clock several ticks forward at once (ticks in which nothing could happen)
+	public void skip(long ticks) {
+		tickCount += ticks;
+		accumulator = Math.max(0, accumulator - ticks * timestep);
+	}
+
+
+	public void reset() {
+		tickCount = 0;
+		accumulator = 0;
+	}
+
+
+	// Continue from a saved tick (see SimulationCheckpoint), with no real time carried over
+	void restore(long tickCount) {
+		this.tickCount = tickCount;
+		accumulator = 0;
+	}
+
+	// Collection of Setters
+
+	public void setTimeScale(double timeScale) {
+
+		if (!(timeScale > 0)) {
+			throw new IllegalArgumentException("Time scale must be positive: " + timeScale);
+		}
+
+		this.timeScale = timeScale;
+
+		// Nothing to carry over when running unthrottled
+		if (timeScale == MAX_SPEED) {
+			accumulator = 0;
+		}
+	}
+
+	// Collection of Getters
+
+	// Simulated seconds since the start of the run
+	public double getTime() {
+		return tickCount * timestep;
+	}
+
+
+	// Accumulated ticks that have not been run yet
+	public long getDueTicks() {
+		return (long) (accumulator / timestep);
+	}
+
+
+	public long getTickCount() {
+		return tickCount;
+	}
+
+
+	public double getTimestep() {
+		return timestep;
+	}
+
+
+	public double getTimeScale() {
+		return timeScale;
+	}
+
+
+	public boolean isMaxSpeed() {
+		return timeScale == MAX_SPEED;
+	}
+}
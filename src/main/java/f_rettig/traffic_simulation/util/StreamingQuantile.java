@@ -0,0 +1,176 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class StreamingQuantile: Running estimate of one quantile with the P² algorithm
+ * (Jain and Chlamtac, 1985), for results that are aggregated while they arrive.
+ *
+ * Instead of the values it keeps five markers: the minimum, the maximum, the quantile
+ * itself and one halfway on either side. Each new value moves the markers' positions,
+ * and markers that drifted from their ideal position are adjusted with a parabolic
+ * (or, where that would break the order, linear) fit of their neighbours. Memory and
+ * work per value are constant. Up to five values the quantile is exact.
+ *
+ * The estimate depends on the order of the values, so feed them in a fixed order to
+ * get reproducible results.
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import java.util.Arrays;
+
+public class StreamingQuantile {
+
+	private static final int MARKERS = 5;
+
+	private final double quantile;
+	private final double[] heights = new double[MARKERS];		// Marker values, sorted
+	private final int[] positions = new int[MARKERS];			// Ranks of the markers (0-based)
+	private final double[] desired = new double[MARKERS];		// Ideal ranks
+	private final double[] increments = new double[MARKERS];	// Ideal rank change per value
+	private final double[] initial = new double[MARKERS];		// Sorted copy of the first values
+	private long count = 0;
+
+
+	// Quantile between 0 and 1, e.g. 0.9 for the 90th percentile
+	public StreamingQuantile(double quantile) {
+
+		if (!(quantile > 0 && quantile < 1)) {
+			throw new IllegalArgumentException("Quantile must be between 0 and 1: " + quantile);
+		}
+
+		this.quantile = quantile;
+
+		increments[0] = 0;
+		increments[1] = quantile / 2;
+		increments[2] = quantile;
+		increments[3] = (1 + quantile) / 2;
+		increments[4] = 1;
+	}
+
+
+	public void add(double value) {
+
+		if (Double.isNaN(value)) {
+			throw new IllegalArgumentException("Value must be a number");
+		}
+
+		// Collect the first values, they become the markers
+		if (count < MARKERS) {
+			heights[(int) count++] = value;
+
+			if (count == MARKERS) {
+				Arrays.sort(heights);
+
+				for (int i = 0; i < MARKERS; i++) {
+					positions[i] = i;
+				}
+
+				desired[0] = 0;
+				desired[1] = 2 * quantile;
+				desired[2] = 4 * quantile;
+				desired[3] = 2 + 2 * quantile;
+				desired[4] = 4;
+			}
+
+			return;
+		}
+
+		// Cell the value falls into, widening the outer markers if needed
+		int cell;
+
+		if (value < heights[0]) {
+			heights[0] = value;
+			cell = 0;
+
+		} else if (value >= heights[4]) {
+			heights[4] = value;
+			cell = 3;
+
+		} else {
+			cell = 0;
+
+			while (value >= heights[cell + 1]) {
+				cell++;
+			}
+		}
+
+		for (int i = cell + 1; i < MARKERS; i++) {
+			positions[i]++;
+		}
+
+		for (int i = 0; i < MARKERS; i++) {
+			desired[i] += increments[i];
+		}
+
+		// Move the three inner markers back towards their ideal rank
+		for (int i = 1; i < MARKERS - 1; i++) {
+			double offset = desired[i] - positions[i];
+
+			if ((offset >= 1 && positions[i + 1] - positions[i] > 1)
+					|| (offset <= -1 && positions[i - 1] - positions[i] < -1)) {
+
+				int step = offset > 0 ? 1 : -1;
+				double height = parabolic(i, step);
+
+				if (height <= heights[i - 1] || height >= heights[i + 1]) {
+					height = linear(i, step);
+				}
+
+				heights[i] = height;
+				positions[i] += step;
+			}
+		}
+
+		count++;
+	}
+
+
+	private double parabolic(int i, int step) {
+		double below = positions[i] - positions[i - 1];
+		double above = positions[i + 1] - positions[i];
+
+		return heights[i] + step / (double) (positions[i + 1] - positions[i - 1])
+				* ((below + step) * (heights[i + 1] - heights[i]) / above
+						+ (above - step) * (heights[i] - heights[i - 1]) / below);
+	}
+
+
+	private double linear(int i, int step) {
+		return heights[i] + step * (heights[i + step] - heights[i]) / (positions[i + step] - positions[i]);
+	}
+
+	// Collection of Getters
+
+	// Current estimate, NaN while nothing was added
+	public double getValue() {
+
+		if (count == 0) {
+			return Double.NaN;
+		}
+
+		if (count >= MARKERS) {
+			return heights[2];
+		}
+
+		// Exact nearest-rank quantile of the few values seen so far
+		int n = (int) count;
+		System.arraycopy(heights, 0, initial, 0, n);
+		Arrays.sort(initial, 0, n);
+
+		return initial[(int) Math.max(0, Math.ceil(quantile * n) - 1)];
+	}
+
+
+	public double getQuantile() {
+		return quantile;
+	}
+
+
+	public long getCount() {
+		return count;
+	}
+}
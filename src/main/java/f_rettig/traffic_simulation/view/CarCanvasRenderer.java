@@ -0,0 +1,202 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class CarCanvasRenderer: Draws the whole simulation onto two Canvas layers instead of
+ * one scene graph node per road and car.
+ *
+ * - The road layer is drawn from the frame's NetworkSnapshot and only redrawn when the
+ *   network version changes (a road is added or extended, a replay switches networks).
+ * - The car layer is cleared and redrawn every frame in a single pass from the latest
+ *   FrameSnapshot. Car positions are first packed into a float buffer (pixel x, y pairs) and the cars are grouped by
+ *   a 64 colour palette, so the GraphicsContext only changes fill colour 64 times per
+ *   frame no matter how many cars are on screen.
+ *
+ * 1 unit = 100 meters = 2.5 pixels
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import java.util.Arrays;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+
+public class CarCanvasRenderer extends Pane {
+
+	// Scale factor to convert simulation units to pixels
+	// (1 unit = 10 meters = 2.5 pixels)
+	private static final double UNITS_TO_PIXELS = 2.5;
+	private static final double CAR_SIZE = 2 * UNITS_TO_PIXELS;
+	private static final double X_OFFSET = 10;					// Left edge padding
+	private static final double ROAD_BASELINE_Y = 135;			// distance for baseline Y = 0
+	private static final double HEIGHT = 275;
+
+	// 4 levels per colour channel
+	private static final Color[] PALETTE = new Color[64];
+
+	static {
+		for (int i = 0; i < PALETTE.length; i++) {
+			PALETTE[i] = Color.rgb(((i >> 4) & 3) * 85, ((i >> 2) & 3) * 85, (i & 3) * 85);
+		}
+	}
+
+	private Canvas roadLayer;
+	private Canvas carLayer;
+	private boolean roadsDirty = true;
+	private long drawnNetworkVersion = -1;		// Network the road layer shows
+
+	// Packed position buffer (x0, y0, x1, y1, ...) in pixels and palette index per car
+	private float[] positions = new float[0];
+	private byte[] palette = new byte[0];
+
+	// Cars grouped by palette index for the draw pass
+	private int[] paletteStart = new int[PALETTE.length + 1];
+	private int[] drawOrder = new int[0];
+
+
+	public CarCanvasRenderer() {
+		this.roadLayer = new Canvas(0, HEIGHT);
+		this.carLayer = new Canvas(0, HEIGHT);
+		getChildren().addAll(roadLayer, carLayer);
+	}
+
+
+	// Redraw the road layer on the next frame even if the network version did not change
+	public void markRoadsDirty() {
+		roadsDirty = true;
+	}
+
+
+	/**
+	 * Draw one frame: roads only when they changed, all cars in a single pass. The roads
+	 * come from the frame, so the engine is never read on the JavaFX thread.
+	 */
+	public void render(FrameSnapshot frame) {
+		NetworkSnapshot network = frame.getNetwork();
+
+		if (roadsDirty || network.getVersion() != drawnNetworkVersion) {
+			drawRoads(network);
+			drawnNetworkVersion = network.getVersion();
+			roadsDirty = false;
+		}
+
+		int count = packPositions(frame);
+		drawCars(count);
+	}
+
+
+	private void drawRoads(NetworkSnapshot network) {
+		int count = network.getRoadCount();
+		double width = 0;
+
+		// Size both layers to the east edge of the network
+		if (count > 0) {
+			width = (network.getMaxX() * UNITS_TO_PIXELS) + 25.0;
+		}
+
+		roadLayer.setWidth(width);
+		carLayer.setWidth(width);
+
+		GraphicsContext gc = roadLayer.getGraphicsContext2D();
+		gc.clearRect(0, 0, roadLayer.getWidth(), HEIGHT);
+		gc.setFill(Color.DARKGRAY);
+
+		for (int r = 0; r < count; r++) {
+			double length;
+
+			if (network.isHorizontal(r)) {
+				length = (network.getMaxX(r) - network.getMinX(r)) * UNITS_TO_PIXELS;
+				gc.fillRect((network.getMinX(r) * UNITS_TO_PIXELS) + X_OFFSET, (-network.getMinY(r) * UNITS_TO_PIXELS) + ROAD_BASELINE_Y - 2.5,
+						length + 5.0, 10.0);
+
+			} else {
+				length = (network.getMaxY(r) - network.getMinY(r)) * UNITS_TO_PIXELS;
+				gc.fillRect((network.getMinX(r) * UNITS_TO_PIXELS) + X_OFFSET - 2.5, (-network.getMaxY(r) * UNITS_TO_PIXELS) + ROAD_BASELINE_Y,
+						10.0, length + 5.0);
+			}
+		}
+	}
+
+
+	// Fill the packed buffers from the frame, returns the number of cars to draw (parked ones are left out)
+	private int packPositions(FrameSnapshot frame) {
+		int count = frame.getVehicleCount();
+		int packed = 0;
+
+		if (palette.length < count) {
+			int capacity = Math.max(count, palette.length * 2);
+			positions = new float[capacity * 2];
+			palette = new byte[capacity];
+			drawOrder = new int[capacity];
+		}
+
+		for (int i = 0; i < count; i++) {
+			if (frame.parked[i]) {
+				continue;
+			}
+
+			int rgb = frame.color[i];
+
+			positions[packed * 2] = (float) ((frame.x[i] * UNITS_TO_PIXELS) + X_OFFSET);
+			positions[packed * 2 + 1] = (float) ((-frame.y[i] * UNITS_TO_PIXELS) + ROAD_BASELINE_Y);
+			palette[packed] = (byte) ((((rgb >> 22) & 3) << 4) | (((rgb >> 14) & 3) << 2) | ((rgb >> 6) & 3));
+			packed++;
+		}
+
+		return packed;
+	}
+
+
+	private void drawCars(int count) {
+
+		// Counting sort of the cars by palette index
+		Arrays.fill(paletteStart, 0);
+
+		for (int i = 0; i < count; i++) {
+			paletteStart[palette[i] + 1]++;
+		}
+
+		for (int p = 0; p < PALETTE.length; p++) {
+			paletteStart[p + 1] += paletteStart[p];
+		}
+
+		for (int i = 0; i < count; i++) {
+			drawOrder[paletteStart[palette[i]]++] = i;
+		}
+
+		GraphicsContext gc = carLayer.getGraphicsContext2D();
+		gc.clearRect(0, 0, carLayer.getWidth(), HEIGHT);
+
+		// paletteStart[p] now holds the end of group p
+		int start = 0;
+
+		for (int p = 0; p < PALETTE.length; p++) {
+			int end = paletteStart[p];
+
+			if (end > start) {
+				gc.setFill(PALETTE[p]);
+
+				for (int k = start; k < end; k++) {
+					int i = drawOrder[k];
+					gc.fillRect(positions[i * 2], positions[i * 2 + 1], CAR_SIZE, CAR_SIZE);
+				}
+			}
+
+			start = end;
+		}
+	}
+
+
+	// Remove everything drawn so far (used on reset)
+	public void clear() {
+		roadLayer.getGraphicsContext2D().clearRect(0, 0, roadLayer.getWidth(), HEIGHT);
+		carLayer.getGraphicsContext2D().clearRect(0, 0, carLayer.getWidth(), HEIGHT);
+		roadsDirty = true;
+	}
+}
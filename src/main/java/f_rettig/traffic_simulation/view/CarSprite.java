@@ -4,8 +4,9 @@
  * Class CarSprite: Handles the graphical representation (sprite) of a Car object.
  * Links the car's position to a Rectangle on the JavaFX Pane for visual display.
  * 
- * Each CarSprite updates its position based on the Car's coordinates in the 
- * simulation world. Scaling from simulation units to pixels is handled here.
+ * Each CarSprite updates its position from the car's coordinates in the latest
+ * FrameSnapshot, so the simulation thread is never read directly. Scaling from
+ * simulation units to pixels is handled here.
  * 
  * 1 unit = 100 meters = 2.5 pixels
  * 
@@ -21,8 +22,8 @@ import javafx.scene.shape.Rectangle;
 
 public class CarSprite {
 
-	private Car car;
 	private Rectangle rectangle;
+	private int rgb;
 	private static final double CAR_WIDTH = 2;
 	private static final double CAR_HEIGHT = 2;
 
@@ -31,19 +32,17 @@ public class CarSprite {
 	private static final double UNITS_TO_PIXELS = 2.5;
 
 
-	public CarSprite(Car car) {
-
-		this.car = car;
+	// rgb is the car's packed colour (0xRRGGBB)
+	public CarSprite(int rgb) {
 
 		this.rectangle = new Rectangle(CAR_WIDTH * UNITS_TO_PIXELS, 
 				CAR_HEIGHT * UNITS_TO_PIXELS);
-		this.rectangle.setFill(car.getColor());
+		this.rgb = rgb;
+		this.rectangle.setFill(Color.rgb((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF));
 		this.rectangle.setArcWidth(5);
 		this.rectangle.setArcHeight(5);
 		this.rectangle.setStroke(Color.BLACK);
 		this.rectangle.setStrokeWidth(.5);
-
-		updatePosition();
 	}
 
 
@@ -51,15 +50,29 @@ public class CarSprite {
 	 * Updates the Rectangle's position on the screen based on the Car's position.
 	 * Includes offsets to align with the simulation Pane's layout.
 	 */
-	public void updatePosition() {
+	public void updatePosition(double x, double y) {
 		final int X_OFFSET = 10; 			// Left edge padding
 		final int ROAD_BASLINE_Y = 135; 	// distance for baseline Y = 0
 
-		// Skip update if position is not set yet
-		if (car.getPosition() == null) return;
+		rectangle.setLayoutX((x * UNITS_TO_PIXELS) + X_OFFSET);
+		rectangle.setLayoutY((-y * UNITS_TO_PIXELS) + ROAD_BASLINE_Y);
+	}
+
+
+	// Repaint a reused sprite for the vehicle now in its slot
+	public void setColor(int newRgb) {
+		if (newRgb != rgb) {
+			rgb = newRgb;
+			rectangle.setFill(Color.rgb((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF));
+		}
+	}
+
 
-		rectangle.setLayoutX((car.getPosition().getX() * UNITS_TO_PIXELS) + X_OFFSET);
-		rectangle.setLayoutY((-car.getPosition().getY() * UNITS_TO_PIXELS) + ROAD_BASLINE_Y);
+	// Hide the sprite of a parked vehicle instead of removing it from the scene graph
+	public void setVisible(boolean isVisible) {
+		if (rectangle.isVisible() != isVisible) {
+			rectangle.setVisible(isVisible);
+		}
 	}
 
 
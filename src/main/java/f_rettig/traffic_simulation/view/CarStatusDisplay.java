@@ -12,8 +12,13 @@
  * - Direction
  * - Current Road
  * 
- * This class runs in a separate thread to periodically refresh the display without 
- * blocking the main JavaFX Application Thread.
+ * This class is refreshed periodically by the UiRefreshScheduler without blocking
+ * the main JavaFX Application Thread.
+ *
+ * The table is backed by one CarStatusRow per vehicle. prepare() compares every row
+ * with the latest detail FrameSnapshot on the scheduler thread and formats only the values that
+ * changed, then apply() updates the changed rows in place. The JavaFX thread
+ * therefore only pays for rows that actually changed, not for the whole fleet.
  * 
  * @author Felicia Rettig
  * Date: May 6, 2025 
@@ -22,21 +27,28 @@
 
 package application;
 
-import javafx.application.Platform;
+import java.util.ArrayList;
+import java.util.List;
+
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.VBox;
 
 
-public class CarStatusDisplay extends VBox implements Runnable {
+public class CarStatusDisplay extends VBox implements UiRefreshTask {
 
-	private TableView<Car> carStatusTable;
-	private ObservableList<Car> carData;
+	private TableView<CarStatusRow> carStatusTable;
+	private ObservableList<CarStatusRow> carData;
 	private SimulationController simulationController;
-	private volatile boolean isRunning = true;
+
+	// Rows staged by prepare(), carData catches up when the update is applied
+	private ArrayList<CarStatusRow> rows = new ArrayList<>();
+	private int[] dirtyRows = new int[64];
+	private int dirtyCount = 0;
+	private int rowCount = 0;
+	private long stagedSequence = 0;				// Frame the rows were last compared with
 
 	public CarStatusDisplay(SimulationController simulationController) {
 		this.simulationController = simulationController;
@@ -46,63 +58,94 @@ public class CarStatusDisplay extends VBox implements Runnable {
 
 
 	private void setupTable() {
-		carStatusTable = new TableView();
+		carStatusTable = new TableView<>(carData);
 
-		TableColumn<Car, String> licenseCol = new TableColumn<>("License Plate");
-		licenseCol.setCellValueFactory(new PropertyValueFactory<>("licensePlate"));
+		TableColumn<CarStatusRow, String> licenseCol = new TableColumn<>("License Plate");
+		licenseCol.setCellValueFactory(cell -> cell.getValue().licensePlateProperty());
 
-		TableColumn<Car, Double> speedCol = new TableColumn<>("Speed (km/h)");
-		speedCol.setCellValueFactory(new PropertyValueFactory<>("speed"));
+		TableColumn<CarStatusRow, String> speedCol = new TableColumn<>("Speed (km/h)");
+		speedCol.setCellValueFactory(cell -> cell.getValue().speedProperty());
 
-		TableColumn<Car, String> positionCol = new TableColumn<>("Position");
-		positionCol.setCellValueFactory(new PropertyValueFactory<>("positionString"));
+		TableColumn<CarStatusRow, String> positionCol = new TableColumn<>("Position");
+		positionCol.setCellValueFactory(cell -> cell.getValue().positionProperty());
 
-		TableColumn<Car, String> stateCol = new TableColumn<>("State");
-		stateCol.setCellValueFactory(new PropertyValueFactory<>("carState"));
+		TableColumn<CarStatusRow, String> stateCol = new TableColumn<>("State");
+		stateCol.setCellValueFactory(cell -> cell.getValue().stateProperty());
 
-		TableColumn<Car, String> directionCol = new TableColumn<>("Direction");
-		directionCol.setCellValueFactory(new PropertyValueFactory<>("carDirectionString"));
+		TableColumn<CarStatusRow, String> directionCol = new TableColumn<>("Direction");
+		directionCol.setCellValueFactory(cell -> cell.getValue().directionProperty());
 
-		TableColumn<Car, String> roadCol = new TableColumn<>("Current Road");
-		roadCol.setCellValueFactory(new PropertyValueFactory<>("currentRoadName"));
+		TableColumn<CarStatusRow, String> roadCol = new TableColumn<>("Current Road");
+		roadCol.setCellValueFactory(cell -> cell.getValue().roadProperty());
 
-		carStatusTable.getColumns().addAll(licenseCol, speedCol, positionCol, stateCol, directionCol, roadCol);
+		carStatusTable.getColumns().addAll(List.of(licenseCol, speedCol, positionCol, stateCol, directionCol, roadCol));
 		this.getChildren().add(carStatusTable);
 	}
 
 
+	// The scheduler does not call this again until apply() has run
 	@Override
-	public void run() {
+	public boolean prepare() {
+		FrameSnapshot frame = simulationController.getStatusFrames().latest();
 
-		while (isRunning) {
+		// Nothing new since the last refresh
+		if (frame.getSequence() == stagedSequence) {
+			return false;
+		}
 
-			try {
-				Thread.sleep(500);
+		stagedSequence = frame.getSequence();
+		rowCount = stageRows(frame);
+		return dirtyCount > 0 || rowCount != carData.size();
+	}
 
-				// Run update on JavaFX Application Thread
-				Platform.runLater(() -> {
-					carData.setAll(simulationController.getCars());
-					carStatusTable.setItems(carData);
-				});
 
-			} catch (InterruptedException e) {
-				Thread.currentThread().interrupt();
-			}
-		}
+	@Override
+	public void apply() {
+		applyRows(rowCount);
 	}
 
 
-	public void stop() {
-		isRunning = false;
-	}
+	// Compare every row with its vehicle and collect the ones that changed (scheduler thread)
+	private int stageRows(FrameSnapshot frame) {
+		int count = frame.getVehicleCount();
+
+		// Vehicles were cleared by a reset
+		while (rows.size() > count) {
+			rows.remove(rows.size() - 1);
+		}
+
+		while (rows.size() < count) {
+			rows.add(new CarStatusRow(rows.size()));
+		}
+
+		if (dirtyRows.length < count) {
+			dirtyRows = new int[Math.max(count, dirtyRows.length * 2)];
+		}
 
+		dirtyCount = 0;
+
+		for (int id = 0; id < count; id++) {
+			if (rows.get(id).stage(frame)) {
+				dirtyRows[dirtyCount++] = id;
+			}
+		}
 
-	public void start() {
-		isRunning = true;
+		return count;
 	}
 
 
-	public void setIsRunning(boolean isRunning) {
-		this.isRunning = isRunning;
+	// Apply the staged changes in place (JavaFX thread)
+	private void applyRows(int rowCount) {
+
+		for (int k = 0; k < dirtyCount; k++) {
+			rows.get(dirtyRows[k]).apply();
+		}
+
+		if (carData.size() > rowCount) {
+			carData.remove(rowCount, carData.size());
+
+		} else if (carData.size() < rowCount) {
+			carData.addAll(rows.subList(carData.size(), rowCount));
+		}
 	}
 }
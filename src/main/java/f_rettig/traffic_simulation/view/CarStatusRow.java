@@ -0,0 +1,186 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class CarStatusRow: One row of the CarStatusDisplay table, bound to one vehicle slot.
+ *
+ * The row remembers the values it last turned into text, rounded the way they are
+ * displayed. stage() compares the vehicle in the latest detail FrameSnapshot against
+ * them off the JavaFX thread, formats
+ * only the columns that changed and marks them dirty. apply() then copies the dirty
+ * text into the row's properties on the JavaFX thread, so unchanged cells are never
+ * touched.
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
+
+public class CarStatusRow {
+
+	// Dirty flags, one per changing column
+	private static final int SPEED = 1;
+	private static final int POSITION = 2;
+	private static final int STATE = 4;
+	private static final int DIRECTION = 8;
+	private static final int ROAD = 16;
+
+	private static final String[] STATE_NAMES = names(Car.CarState.values());
+	private static final String[] DIRECTION_NAMES = names(Car.Direction.values());
+
+	private final int id;
+
+	private final ReadOnlyStringWrapper licensePlate = new ReadOnlyStringWrapper();
+	private final ReadOnlyStringWrapper speed = new ReadOnlyStringWrapper();
+	private final ReadOnlyStringWrapper position = new ReadOnlyStringWrapper();
+	private final ReadOnlyStringWrapper state = new ReadOnlyStringWrapper();
+	private final ReadOnlyStringWrapper direction = new ReadOnlyStringWrapper();
+	private final ReadOnlyStringWrapper road = new ReadOnlyStringWrapper();
+
+	// Last staged values, rounded as displayed
+	private long plateValue = -1;
+	private int speedValue = Integer.MIN_VALUE;
+	private int xValue = Integer.MIN_VALUE;
+	private int yValue = Integer.MIN_VALUE;
+	private int stateValue = -1;
+	private int directionValue = -1;
+	private int roadValue = -1;
+
+	// Text waiting to be applied on the JavaFX thread
+	private int dirty = 0;
+	private String pendingLicensePlate;
+	private String pendingSpeed;
+	private String pendingPosition;
+	private String pendingState;
+	private String pendingDirection;
+	private String pendingRoad;
+
+
+	public CarStatusRow(int id) {
+		this.id = id;
+	}
+
+
+	/**
+	 * Compares the vehicle with the values shown last time and formats the columns that
+	 * changed. Returns true if the row has anything to apply. Runs off the JavaFX thread.
+	 */
+	public boolean stage(FrameSnapshot frame) {
+
+		// License plate only changes if the slot was reused
+		long plate = frame.licensePlate[id];
+		if (plate != plateValue) {
+			plateValue = plate;
+			pendingLicensePlate = Car.decodeLicensePlate(plate);
+			dirty |= SPEED | POSITION | STATE | DIRECTION | ROAD;
+		}
+
+		// Same rounding as Car.getSpeed() and Point.toString()
+		int speedRounded = (int) (frame.speed[id] * 360);
+		if (speedRounded != speedValue) {
+			speedValue = speedRounded;
+			pendingSpeed = Double.toString(speedRounded / 100.0);
+			dirty |= SPEED;
+		}
+
+		int xRounded = (int) (frame.x[id] * 100);
+		int yRounded = (int) (frame.y[id] * 100);
+		if (xRounded != xValue || yRounded != yValue) {
+			xValue = xRounded;
+			yValue = yRounded;
+			pendingPosition = "(" + xRounded / 100.0 + "," + yRounded / 100.0 + ")";
+			dirty |= POSITION;
+		}
+
+		int stateNow = frame.state[id];
+		if (stateNow != stateValue) {
+			stateValue = stateNow;
+			pendingState = STATE_NAMES[stateNow];
+			dirty |= STATE;
+		}
+
+		int directionNow = frame.direction[id];
+		if (directionNow != directionValue) {
+			directionValue = directionNow;
+			pendingDirection = DIRECTION_NAMES[directionNow];
+			dirty |= DIRECTION;
+		}
+
+		int roadNow = frame.road[id];
+		if (roadNow != roadValue && roadNow >= 0 && roadNow < frame.getNetwork().getRoadCount()) {
+			roadValue = roadNow;
+			pendingRoad = frame.getNetwork().getRoadName(roadNow);
+			dirty |= ROAD;
+		}
+
+		return dirty != 0;
+	}
+
+
+	// Copy the staged text into the properties, must run on the JavaFX thread
+	public void apply() {
+		if (pendingLicensePlate != null) {
+			licensePlate.set(pendingLicensePlate);
+			pendingLicensePlate = null;
+		}
+
+		if ((dirty & SPEED) != 0) { speed.set(pendingSpeed); }
+		if ((dirty & POSITION) != 0) { position.set(pendingPosition); }
+		if ((dirty & STATE) != 0) { state.set(pendingState); }
+		if ((dirty & DIRECTION) != 0) { direction.set(pendingDirection); }
+		if ((dirty & ROAD) != 0) { road.set(pendingRoad); }
+
+		dirty = 0;
+	}
+
+
+	private static String[] names(Enum<?>[] values) {
+		String[] names = new String[values.length];
+
+		for (int i = 0; i < values.length; i++) {
+			names[i] = values[i].toString();
+		}
+
+		return names;
+	}
+
+	// Collection of Getters (properties for the TableView columns)
+
+	public int getId() {
+		return id;
+	}
+
+
+	public ReadOnlyStringProperty licensePlateProperty() {
+		return licensePlate.getReadOnlyProperty();
+	}
+
+
+	public ReadOnlyStringProperty speedProperty() {
+		return speed.getReadOnlyProperty();
+	}
+
+
+	public ReadOnlyStringProperty positionProperty() {
+		return position.getReadOnlyProperty();
+	}
+
+
+	public ReadOnlyStringProperty stateProperty() {
+		return state.getReadOnlyProperty();
+	}
+
+
+	public ReadOnlyStringProperty directionProperty() {
+		return direction.getReadOnlyProperty();
+	}
+
+
+	public ReadOnlyStringProperty roadProperty() {
+		return road.getReadOnlyProperty();
+	}
+}
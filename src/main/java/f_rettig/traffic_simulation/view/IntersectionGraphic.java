@@ -9,6 +9,9 @@
  * 
  * Uses TrafficLightGraphic for each direction’s display.
  * 
+ * The phases come from the latest FrameSnapshot. Each pair (North/South and East/West)
+ * remembers the phase it shows and is only repainted when that phase changed.
+ * 
  * @author Felicia Rettig
  * Date: May 6, 2025 
  * Java 22
@@ -24,7 +27,9 @@ import javafx.scene.layout.Pane;
 
 public class IntersectionGraphic extends BorderPane {
 
-	private Intersection intersection;
+	private int intersectionId;
+	private TrafficLight.LightPhase nsPhase;		// Phases currently shown, null = nothing yet
+	private TrafficLight.LightPhase ewPhase;
 
 	private TrafficLightGraphic north;
 	private TrafficLightGraphic south;
@@ -33,9 +38,9 @@ public class IntersectionGraphic extends BorderPane {
 	private Pane spacerPane;				// Spacer pane for visual purposes only
 
 
-	public IntersectionGraphic(Intersection intersection) {
+	public IntersectionGraphic(int intersectionId) {
 
-		this.intersection = intersection;
+		this.intersectionId = intersectionId;
 
 		// Create all the light graphics
 		north = new TrafficLightGraphic();
@@ -72,56 +77,59 @@ public class IntersectionGraphic extends BorderPane {
 
 
 	/**
-	 * Updates the visual state of each traffic light based on the current 
-	 * traffic light phases in the Intersection.
+	 * Updates the visual state of each traffic light based on the traffic light 
+	 * phases of this Intersection in the given frame. Pairs whose phase did not 
+	 * change are left alone.
 	 */
-	public void updateLights() {
-		TrafficLight nsLight = intersection.getNSLight();
-		TrafficLight ewLight = intersection.getEWLight();
-
-		// Update based on NS TrafficLight phases
-		if (nsLight.isTurnGreen()) {
-			north.setTurnGreen();
-			south.setTurnGreen();
-
-		} else if (nsLight.isTurnYellow()) {
-			north.setTurnYellow();
-			south.setTurnYellow();
-
-		} else if (nsLight.isStraightGreen()) {
-			north.setStraightGreen();
-			south.setStraightGreen();
-
-		} else if (nsLight.isStraightYellow()) {
-			north.setStraightYellow();
-			south.setStraightYellow();
-
-		} else {
-			north.setRed();
-			south.setRed();
+	public void updateLights(FrameSnapshot frame) {
+		TrafficLight.LightPhase newNsPhase = frame.getLightPhase(intersectionId, false);
+		TrafficLight.LightPhase newEwPhase = frame.getLightPhase(intersectionId, true);
+
+		if (newNsPhase != nsPhase) {
+			nsPhase = newNsPhase;
+			updatePair(newNsPhase, north, south);
 		}
 
-		// Update based on EW TrafficLight phases
-		if (ewLight.isTurnGreen()) {
-			east.setTurnGreen();
-			west.setTurnGreen();
+		if (newEwPhase != ewPhase) {
+			ewPhase = newEwPhase;
+			updatePair(newEwPhase, east, west);
+		}
+	}
+
 
-		} else if (ewLight.isTurnYellow()) {
-			east.setTurnYellow();
-			west.setTurnYellow();
+	// Set both opposing lights to the given phase
+	private void updatePair(TrafficLight.LightPhase phase, TrafficLightGraphic first, TrafficLightGraphic second) {
+		switch (phase) {
 
-		} else if (ewLight.isStraightGreen()) {
-			east.setStraightGreen();
-			west.setStraightGreen();
+			case TURN_GREEN:
+				first.setTurnGreen();
+				second.setTurnGreen();
+				break;
 
-		} else if (ewLight.isStraightYellow()) {
-			east.setStraightYellow();
-			west.setStraightYellow();
+			case TURN_YELLOW:
+				first.setTurnYellow();
+				second.setTurnYellow();
+				break;
 
-		} else {
-			east.setRed();
-			west.setRed();
+			case STRAIGHT_GREEN:
+				first.setStraightGreen();
+				second.setStraightGreen();
+				break;
 
+			case STRAIGHT_YELLOW:
+				first.setStraightYellow();
+				second.setStraightYellow();
+				break;
+
+			case RED:
+				first.setRed();
+				second.setRed();
+				break;
 		}
 	}
+
+
+	public int getIntersectionId() {
+		return intersectionId;
+	}
 }
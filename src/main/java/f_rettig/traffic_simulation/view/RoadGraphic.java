@@ -0,0 +1,74 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class RoadGraphic: Handles the graphical representation of a Road object.
+ * Builds the Rectangle shown on the simulation Pane from the road's end points.
+ *
+ * East/West roads are drawn horizontally and North/South roads vertically, both
+ * stretching from one end node to the other (e.g. Main Road grows with its east end).
+ * Built from a NetworkSnapshot published by the simulation thread, never from the
+ * live Road, and resized from a later snapshot when Main Road grows.
+ *
+ * 1 unit = 100 meters = 2.5 pixels
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+
+public class RoadGraphic {
+
+	private int roadIndex;					// Index of the road in the engine's road list
+	private Rectangle rectangle;
+
+	// Scale factor to convert simulation units to pixels
+	// (1 unit = 10 meters = 2.5 pixels)
+	private static final double UNITS_TO_PIXELS = 2.5;
+
+
+	// Road number r of the snapshot, never reads the engine
+	public RoadGraphic(NetworkSnapshot network, int r) {
+
+		this.roadIndex = r;
+		rectangle = new Rectangle();
+		rectangle.setFill(Color.DARKGRAY);
+		updateSize(network, r);
+	}
+
+
+	// Stretch the rectangle between the end points of road number r in the snapshot
+	public void updateSize(NetworkSnapshot network, int r) {
+		setBounds(network.isHorizontal(r), network.getMinX(r), network.getMinY(r), network.getMaxX(r), network.getMaxY(r));
+	}
+
+
+	private void setBounds(boolean horizontal, double minX, double minY, double maxX, double maxY) {
+		if (horizontal) {
+			rectangle.setLayoutX((minX * UNITS_TO_PIXELS) + 10.0);
+			rectangle.setLayoutY((-minY * UNITS_TO_PIXELS) + 132.5);
+			rectangle.setWidth(((maxX - minX) * UNITS_TO_PIXELS) + 5.0);
+			rectangle.setHeight(10.0);
+
+		} else {
+			rectangle.setLayoutX((minX * UNITS_TO_PIXELS) + 7.5);
+			rectangle.setLayoutY((-maxY * UNITS_TO_PIXELS) + 135.0);
+			rectangle.setWidth(10.0);
+			rectangle.setHeight(((maxY - minY) * UNITS_TO_PIXELS) + 5.0);
+		}
+	}
+
+
+	public int getRoadIndex() {
+		return roadIndex;
+	}
+
+
+	public Rectangle getRectangle() {
+		return rectangle;
+	}
+}
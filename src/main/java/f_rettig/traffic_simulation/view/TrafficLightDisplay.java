@@ -7,8 +7,12 @@
  * for all intersections in the simulation. Each Intersection is represented 
  * by an IntersectionGraphic.
  * 
- * Runs in a background thread to periodically update the visual state of 
- * each traffic light to reflect the simulation logic.
+ * Updated once per pulse from the latest FrameSnapshot instead of polling. The engine
+ * counts every light phase change (see LightPhaseListener) and publishes the count
+ * with each frame, so nothing is done while no light changed. The frame also carries
+ * the light ids of the latest changes, so only the intersections named there are
+ * visited. All graphics are compared against the frame only when more lights changed
+ * than the frame lists, after a reset and for replay frames.
  * 
  * @author Felicia Rettig
  * Date: May 6, 2025 
@@ -19,16 +23,16 @@ package application;
 
 import java.util.ArrayList;
 
-import javafx.application.Platform;
 import javafx.geometry.Pos;
 import javafx.scene.layout.HBox;
 
-public class TrafficLightDisplay extends HBox implements Runnable {
+public class TrafficLightDisplay extends HBox {
 
-	// List of graphics representing each intersection's lights
+	// List of graphics representing each intersection's lights (by intersection id)
 	private ArrayList<IntersectionGraphic> intersectionGraphics;
 
-	private volatile boolean isRunning = true; 
+	// Light change count of the last frame shown, -1 forces a full comparison
+	private long shownChangeCount = -1;
 
 
 	public TrafficLightDisplay(SimulationController controller) {
@@ -37,49 +41,63 @@ public class TrafficLightDisplay extends HBox implements Runnable {
 	}
 
 
-	@Override
-	public void run() {
-		while (isRunning) {
+	// Must be called on the JavaFX thread
+	public void addIntersection(int intersectionId) {
+		IntersectionGraphic ig = new IntersectionGraphic(intersectionId);
+		intersectionGraphics.add(ig);
+		this.getChildren().add(ig);
+
+		// Paint the new graphic with the next frame
+		shownChangeCount = -1;
+	}
 
-			try {
-				Thread.sleep(250);
 
-				// Run UI updates on the JavaFX thread
-				Platform.runLater(() -> updateLights());
+	// Called every pulse with the latest frame (JavaFX thread)
+	public void update(FrameSnapshot frame) {
 
-			} catch (InterruptedException e) {
-				Thread.currentThread().interrupt();
-			}
+		// No light changed since the last frame shown
+		if (frame.getLightChangeCount() == shownChangeCount) {
+			return;
 		}
-	}
 
+		long changes = frame.getLightChangeCount() - shownChangeCount;
+		int logged = frame.getChangedLightCount();
 
-	public void addIntersection(Intersection intersection) {
-		IntersectionGraphic ig = new IntersectionGraphic(intersection);
-		intersectionGraphics.add(ig);
-		Platform.runLater(() -> this.getChildren().add(ig));
-	}
+		// Only the intersections whose lights changed since the last frame shown
+		if (shownChangeCount >= 0 && changes > 0 && changes <= logged) {
+			for (int k = logged - (int) changes; k < logged; k++) {
+				int intersection = frame.getChangedLight(k) / 2;
+
+				if (intersection < intersectionGraphics.size()) {
+					intersectionGraphics.get(intersection).updateLights(frame);
+				}
+			}
+
+			shownChangeCount = frame.getLightChangeCount();
+			return;
+		}
+
+		int count = Math.min(intersectionGraphics.size(), frame.getIntersectionCount());
 
+		for (int i = 0; i < count; i++) {
+			intersectionGraphics.get(i).updateLights(frame);
+		}
 
-	// Updates the visual state of all intersection graphics.
-	private void updateLights() {
-		for (IntersectionGraphic ig : intersectionGraphics) {
-			ig.updateLights();
+		// Graphics for intersections the frame does not know yet are painted with a later frame
+		if (count == intersectionGraphics.size()) {
+			shownChangeCount = frame.getLightChangeCount();
 		}
 	}
 
 
 	public void clear() {
+		intersectionGraphics.clear();
+		shownChangeCount = -1;
 		this.getChildren().clear();
 	}
 
 
-	public void setRunning(boolean isRunning) {
-		this.isRunning = isRunning;
-	}
-
-
-	public boolean getIsRunning() {
-		return isRunning;
+	public int getIntersectionCount() {
+		return intersectionGraphics.size();
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,52 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class EngineState: Test helper that folds the simulated state of an engine (clock,
+ * light phases and every vehicle column that drives the next tick) into one hash, so
+ * two runs can be compared tick for tick.
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+final class EngineState {
+
+	private EngineState() {
+	}
+
+
+	static long hash(SimulationEngine engine) {
+		long hash = engine.getTickCount();
+		hash = mix(hash, Double.doubleToLongBits(engine.getSimulationTime()));
+		hash = mix(hash, engine.getLightChangeCount());
+
+		for (Intersection intersection : engine.getIntersections()) {
+			hash = mix(hash, intersection.getNSLight().getLightPhase().ordinal());
+			hash = mix(hash, intersection.getEWLight().getLightPhase().ordinal());
+		}
+
+		VehicleStore vehicles = engine.getVehicles();
+		hash = mix(hash, vehicles.size());
+
+		for (int id = 0; id < vehicles.size(); id++) {
+			hash = mix(hash, Double.doubleToLongBits(vehicles.x[id]));
+			hash = mix(hash, Double.doubleToLongBits(vehicles.y[id]));
+			hash = mix(hash, Double.doubleToLongBits(vehicles.speed[id]));
+			hash = mix(hash, vehicles.state[id]);
+			hash = mix(hash, vehicles.direction[id]);
+			hash = mix(hash, vehicles.edge[id]);
+			hash = mix(hash, vehicles.intersection[id]);
+			hash = mix(hash, vehicles.rng[id]);
+		}
+
+		return hash;
+	}
+
+
+	private static long mix(long hash, long value) {
+		return (hash ^ value) * 0x9E3779B97F4A7C15L + 31;
+	}
+}
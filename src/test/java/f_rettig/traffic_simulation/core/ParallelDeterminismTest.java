@@ -0,0 +1,62 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class ParallelDeterminismTest: The two-phase tick must give bit-identical results no
+ * matter how many threads run the partitions. Runs the same seeded grid (large enough
+ * for several partitions) with one and with four threads and compares the state after
+ * every simulated second.
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class ParallelDeterminismTest {
+
+	private static final long SEED = 335;
+	private static final int CARS = 3 * SimulationEngine.PARTITION_SIZE;
+	private static final int SECONDS = 30;
+
+
+	@Test
+	void parallelRunMatchesSequentialRun() {
+		SimulationEngine sequential = build(1);
+		SimulationEngine parallel = build(4);
+
+		try {
+			assertTrue(sequential.getVehicles().size() > 2 * SimulationEngine.PARTITION_SIZE);
+
+			for (int second = 1; second <= SECONDS; second++) {
+				sequential.runFor(1);
+				parallel.runFor(1);
+				assertEquals(EngineState.hash(sequential), EngineState.hash(parallel), "State differs after " + second + " s");
+			}
+
+		} finally {
+			sequential.shutdown();
+			parallel.shutdown();
+		}
+	}
+
+
+	private static SimulationEngine build(int threads) {
+		SimulationEngine engine = new SimulationEngine(SEED);
+		GridBuilder.build(engine, 10, 10, SimulationEngine.ROAD_SPACING);
+
+		for (int i = 0; i < CARS; i++) {
+			engine.spawnRandomCar();
+		}
+
+		engine.setParallelism(threads);
+		engine.start();
+
+		return engine;
+	}
+}
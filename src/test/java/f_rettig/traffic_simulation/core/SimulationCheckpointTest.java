@@ -0,0 +1,91 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class SimulationCheckpointTest: A checkpoint taken mid-run and restored into a fresh
+ * engine must continue exactly like the run it was taken from. Covered for a fixed
+ * population and for a TrafficDemand run whose store holds parked slots on its free
+ * list, which the continuation then reuses.
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SimulationCheckpointTest {
+
+	private static final long SEED = 335;
+
+	@TempDir
+	Path directory;
+
+
+	@Test
+	void fixedPopulationContinuesLikeTheUninterruptedRun() throws IOException {
+		SimulationEngine engine = new SimulationEngine(SEED);
+		GridBuilder.build(engine, 6, 6, SimulationEngine.ROAD_SPACING);
+
+		for (int i = 0; i < 2000; i++) {
+			engine.spawnRandomCar();
+		}
+
+		engine.start();
+		engine.runFor(120);
+
+		assertContinuesIdentically(engine, 120);
+	}
+
+
+	@Test
+	void demandRunWithParkedSlotsContinuesLikeTheUninterruptedRun() throws IOException {
+		SimulationEngine engine = new SimulationEngine(SEED);
+		GridBuilder.build(engine, 4, 4, SimulationEngine.ROAD_SPACING);
+
+		// Five minutes of arrivals, then five quiet minutes in which the vehicles leave
+		TrafficDemand demand = new TrafficDemand(600);
+		demand.setProfile(600, 1, 0);
+		engine.setDemand(demand);
+		engine.start();
+		engine.runFor(450);
+
+		assertTrue(engine.getVehicles().parkedCount() > 0, "No parked slots to save");
+
+		// The continuation runs into the next arrival phase, which reuses the parked slots
+		assertContinuesIdentically(engine, 300);
+	}
+
+
+	// Save the engine, restore it into a new one and run both side by side
+	private void assertContinuesIdentically(SimulationEngine engine, int seconds) throws IOException {
+		Path file = directory.resolve("run.ckpt");
+		SimulationCheckpoint.save(engine, file);
+		SimulationEngine restored = SimulationCheckpoint.load(file);
+
+		try {
+			assertEquals(EngineState.hash(engine), EngineState.hash(restored), "Restored state differs");
+			assertEquals(engine.getVehicles().parkedCount(), restored.getVehicles().parkedCount());
+
+			restored.start();
+
+			for (int second = 10; second <= seconds; second += 10) {
+				engine.runFor(10);
+				restored.runFor(10);
+				assertEquals(EngineState.hash(engine), EngineState.hash(restored), "Continuation differs after " + second + " s");
+			}
+
+		} finally {
+			engine.shutdown();
+			restored.shutdown();
+		}
+	}
+}
@@ -0,0 +1,133 @@
+/**
+ * UMGC CMSC 335
+ * Final Project: Traffic Simulation
+ * Class TrajectoryRoundTripTest: A recording decoded frame by frame must give back the
+ * recorded vehicles within the fixed point resolution of the format, no matter in
+ * which order the frames are sought. The run crosses the keyframe at frame 50 and
+ * adds vehicles in a delta frame just before it, so those are only positioned by
+ * escape records.
+ *
+ * @author Felicia Rettig
+ * Date: May 6, 2025
+ * Java 22
+ */
+
+package application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TrajectoryRoundTripTest {
+
+	private static final long SEED = 335;
+	private static final int FRAMES = 120;
+	private static final int SPAWN_FRAME = 48;			// Delta frame before the keyframe at 50
+	private static final double SAMPLE_INTERVAL = 0.1;
+
+	// Half a fixed point step, plus room for the double arithmetic
+	private static final double POSITION_TOLERANCE = 0.5 / TrajectoryFormat.POSITION_SCALE + 1e-9;
+	private static final double SPEED_TOLERANCE = 0.5 / TrajectoryFormat.SPEED_SCALE + 1e-9;
+
+	@TempDir
+	Path directory;
+
+	// Recorded vehicles by frame
+	private ArrayList<double[]> recordedX = new ArrayList<>();
+	private ArrayList<double[]> recordedY = new ArrayList<>();
+	private ArrayList<double[]> recordedSpeed = new ArrayList<>();
+
+
+	@Test
+	void replayMatchesRecordingInEverySeekOrder() throws IOException {
+		record();
+
+		SimulationEngine display = new SimulationEngine(SEED);
+
+		try (TrajectoryReader reader = TrajectoryReader.open(directory)) {
+			TrajectoryReplay replay = new TrajectoryReplay(reader, display);
+			assertEquals(FRAMES, reader.getFrameCount());
+			assertTrue(recordedX.get(SPAWN_FRAME).length > recordedX.get(SPAWN_FRAME - 1).length, "No vehicles added");
+
+			// Forward through the whole recording, then backward, then across the keyframe
+			for (int frame = 0; frame < FRAMES; frame++) {
+				assertFrame(replay, frame);
+			}
+
+			for (int frame = FRAMES - 1; frame >= 0; frame--) {
+				assertFrame(replay, frame);
+			}
+
+			for (int frame : new int[] { 51, 49, 50, SPAWN_FRAME, 53, SPAWN_FRAME - 1, SPAWN_FRAME + 1, 0, 99, 100 }) {
+				assertFrame(replay, frame);
+			}
+
+		} finally {
+			display.shutdown();
+		}
+	}
+
+
+	// Run a grid, sampling it into a writer with the default keyframe interval
+	private void record() throws IOException {
+		SimulationEngine engine = new SimulationEngine(SEED);
+		GridBuilder.build(engine, 4, 4, SimulationEngine.ROAD_SPACING);
+
+		for (int i = 0; i < 300; i++) {
+			engine.spawnRandomCar();
+		}
+
+		TrajectoryWriter writer = new TrajectoryWriter(directory, TrajectoryWriter.DEFAULT_SEGMENT_SIZE,
+				TrajectoryWriter.DEFAULT_KEYFRAME_INTERVAL);
+		TrajectorySample sample = new TrajectorySample();
+		engine.start();
+
+		try {
+			for (int frame = 0; frame < FRAMES; frame++) {
+				engine.runFor(SAMPLE_INTERVAL);
+
+				// New ids have no previous position and go into escape records
+				if (frame == SPAWN_FRAME) {
+					for (int i = 0; i < 20; i++) {
+						engine.spawnRandomCar();
+					}
+				}
+
+				sample.capture(engine, frame == 0);
+				writer.write(sample);
+
+				int count = sample.getVehicleCount();
+				recordedX.add(Arrays.copyOf(sample.x, count));
+				recordedY.add(Arrays.copyOf(sample.y, count));
+				recordedSpeed.add(Arrays.copyOf(sample.speed, count));
+			}
+
+		} finally {
+			writer.close();
+			engine.shutdown();
+		}
+	}
+
+
+	private void assertFrame(TrajectoryReplay replay, int frame) {
+		TrajectoryReader reader = replay.getReader();
+		replay.seek(reader.getFrameTime(frame));
+		assertEquals(frame, replay.getShownFrame());
+
+		double[] x = recordedX.get(frame);
+		assertEquals(x.length, reader.getVehicleCount(), "Vehicle count of frame " + frame);
+
+		for (int id = 0; id < x.length; id++) {
+			assertEquals(x[id], reader.getX(id), POSITION_TOLERANCE, "x of vehicle " + id + " in frame " + frame);
+			assertEquals(recordedY.get(frame)[id], reader.getY(id), POSITION_TOLERANCE, "y of vehicle " + id + " in frame " + frame);
+			assertEquals(recordedSpeed.get(frame)[id], reader.getSpeed(id), SPEED_TOLERANCE, "Speed of vehicle " + id + " in frame " + frame);
+		}
+	}
+}